@@ -0,0 +1,825 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package bench;
+
+import blbutil.BGZIPOutputStream;
+import blbutil.FileIt;
+import blbutil.FileUtil;
+import blbutil.Filter;
+import blbutil.InputIt;
+import blbutil.Utilities;
+import blbutil.Validate;
+import dag.Dag;
+import dag.MergeableDag;
+import haplotype.BasicHapPairs;
+import haplotype.BasicSampleHapPairs;
+import haplotype.ConsensusPhaser;
+import haplotype.HapPair;
+import haplotype.SampleHapPairs;
+import ibd.IbsHapSegments;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import main.CurrentData;
+import main.HapPairSampler;
+import main.Main;
+import main.NuclearFamilies;
+import main.Par;
+import main.PositionMap;
+import main.RunStats;
+import sample.ImputationData;
+import sample.LSHapBaum;
+import sample.RecombSingleBaum;
+import sample.SamplerData;
+import sample.SingleBaum;
+import vcf.AllData;
+import vcf.BasicGL;
+import vcf.BcfRecBuilder;
+import vcf.Bref;
+import vcf.BrefIt;
+import vcf.Data;
+import vcf.GL;
+import vcf.Marker;
+import vcf.RefIt;
+import vcf.VcfEmission;
+import vcf.VcfHeader;
+import vcf.VcfIt;
+import vcf.VcfRecBuilder;
+import vcf.VcfRecGTParser;
+
+/**
+ * <p>Class {@code Benchmarks} times the phasing, imputation, IBD, and I/O
+ * kernels of Beagle on a deterministic synthetic panel and writes the
+ * timing results in JSON format.
+ * </p>
+ * <p>Each benchmark is run {@code warmup} times without timing, and then
+ * {@code iterations} times with timing.  The JSON output file contains
+ * the benchmark parameters, the Java runtime, and the elapsed
+ * milliseconds of each timed iteration, so that output files from
+ * different builds can be compared.  The {@code recombbaum} and
+ * {@code lshapbaum} benchmarks time the {@code RecombSingleBaum} phasing
+ * kernel and the {@code LSHapBaum} imputation kernel for one marker window
+ * of reference and target data, and the {@code window} benchmark runs
+ * the complete Beagle analysis of the marker window.
+ * </p>
+ * <p>The results of the {@code vcfrecbuilder} and {@code bcfrecbuilder}
+ * benchmarks include the number of bytes written in each iteration and
+ * the median number of bytes written per second per thread.  These
+ * benchmarks divide the markers among {@code nthreads} threads.
+ * </p>
+ * <p>The benchmark classes are in the {@code bench} source root, which
+ * is compiled against the Beagle classes and is not packaged in the
+ * Beagle jar file.
+ * </p>
+ */
+public final class Benchmarks {
+
+    private static final String[] NAMES = new String[] {"dag", "singlebaum",
+        "recombbaum", "lshapbaum", "ibs", "gtparse", "bref", "vcfrecbuilder",
+        "bcfrecbuilder", "bgzip", "window"};
+    private static final float MODEL_SCALE = 0.8f;
+    private static final int N_INIT_LEVELS = 500;
+    private static final int N_SAMPLES_PER_INDIVIDUAL = 4;
+
+    private static volatile long sink = 0;
+
+    private final Map<String, Object> params;
+    private final SyntheticPanel panel;
+    private final int nRefSamples;
+    private final int imputeStep;
+    private final int ibsMarkers;
+    private final int nThreads;
+    private final long seed;
+    private final File dir;
+
+    private List<HapPair> hapPairs;
+    private Dag dag;
+    private File refFile;
+    private File targFile;
+    private File gtFile;
+    private Par par;
+    private RunStats runStats;
+    private CurrentData cd;
+    private List<HapPair> initialHaps;
+
+    /**
+     * The {@code main()} method is the entry point to the benchmark
+     * program.  See the {@code usage()} method for usage instructions.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        Locale.setDefault(Locale.US);
+        if (args.length==0) {
+            System.out.println(usage());
+            System.exit(0);
+        }
+        Map<String, String> argsMap = Validate.argsToMap(args, '=');
+        int warmup = Validate.intArg("warmup", argsMap, false, 2, 0,
+                Integer.MAX_VALUE);
+        int iterations = Validate.intArg("iterations", argsMap, false, 5, 1,
+                Integer.MAX_VALUE);
+        String benchList = Validate.stringArg("bench", argsMap, false, "all",
+                null);
+        String out = Validate.stringArg("out", argsMap, true, null, null);
+        Benchmarks benchmarks = new Benchmarks(argsMap);
+        Validate.confirmEmptyMap(argsMap);
+
+        List<String> names = names(benchList);
+        StringBuilder json = new StringBuilder(1000);
+        json.append("{\n  \"params\": ");
+        appendParams(json, benchmarks.params, warmup, iterations);
+        json.append(",\n  \"jvm\": ");
+        appendJvm(json);
+        json.append(",\n  \"results\": [");
+        for (int j=0, n=names.size(); j<n; ++j) {
+            String name = names.get(j);
+            Kernel kernel = benchmarks.kernel(name).get();
+            for (int k=0; k<warmup; ++k) {
+                sink += kernel.run.getAsLong();
+            }
+            double[] millis = new double[iterations];
+            long value = 0;
+            for (int k=0; k<iterations; ++k) {
+                long t0 = System.nanoTime();
+                value = kernel.run.getAsLong();
+                millis[k] = (System.nanoTime() - t0)/1e6;
+                sink += value;
+            }
+            long bytes = kernel.countsBytes ? value : -1L;
+            System.out.println(summary(name, millis, bytes, kernel.nThreads));
+            json.append(j==0 ? "\n    " : ",\n    ");
+            appendResult(json, name, millis, bytes, kernel.nThreads);
+        }
+        json.append("\n  ]\n}\n");
+        try (PrintWriter pw = FileUtil.printWriter(new File(out))) {
+            pw.print(json);
+        }
+    }
+
+    private static String usage() {
+        String nl = System.getProperty("line.separator");
+        return "usage: java -cp beagle.jar:bench.jar bench.Benchmarks"
+                + " [arguments]" + nl
+                + nl
+                + "  out=<JSON output file>                        (required)" + nl
+                + "  bench=<comma-separated benchmarks or all>     (default=all)" + nl
+                + "  warmup=<untimed iterations>                   (default=2)" + nl
+                + "  iterations=<timed iterations>                 (default=5)" + nl
+                + "  samples=<number of samples>                   (default=500)" + nl
+                + "  targets=<number of target samples>            (default=samples/10)" + nl
+                + "  markers=<number of markers>                   (default=5000)" + nl
+                + "  founders=<number of founder haplotypes>       (default=40)" + nl
+                + "  mafshape=<allele frequency exponent>          (default=2.0)" + nl
+                + "  switchrate=<founder switch rate per marker>   (default=0.01)" + nl
+                + "  imputestep=<distance between target markers>  (default=4)" + nl
+                + "  ibsmarkers=<minimum IBS segment markers>      (default=100)" + nl
+                + "  nthreads=<number of threads>                  (default=1)" + nl
+                + "  seed=<random seed>                            (default=1)" + nl
+                + "  dir=<directory for temporary files>           (default=bench.tmp)" + nl
+                + nl
+                + "  benchmarks: " + String.join(",", NAMES) + nl
+                + nl
+                + "  The vcfrecbuilder, bcfrecbuilder, and window benchmarks use"
+                + " nthreads threads." + nl;
+    }
+
+    private Benchmarks(Map<String, String> argsMap) {
+        int nSamples = Validate.intArg("samples", argsMap, false, 500, 2,
+                Integer.MAX_VALUE);
+        int nTargets = Validate.intArg("targets", argsMap, false,
+                Math.max(1, nSamples/10), 1, nSamples - 1);
+        int nMarkers = Validate.intArg("markers", argsMap, false, 5000, 2,
+                Integer.MAX_VALUE);
+        int nFounders = Validate.intArg("founders", argsMap, false, 40, 1,
+                Integer.MAX_VALUE);
+        double mafShape = Validate.doubleArg("mafshape", argsMap, false, 2.0,
+                Double.MIN_VALUE, Double.MAX_VALUE);
+        double switchRate = Validate.doubleArg("switchrate", argsMap, false,
+                0.01, 0.0, 1.0);
+        this.imputeStep = Validate.intArg("imputestep", argsMap, false, 4, 1,
+                Integer.MAX_VALUE);
+        this.ibsMarkers = Validate.intArg("ibsmarkers", argsMap, false, 100, 1,
+                Integer.MAX_VALUE);
+        this.nThreads = Validate.intArg("nthreads", argsMap, false, 1, 1,
+                Integer.MAX_VALUE);
+        this.seed = Validate.longArg("seed", argsMap, false, 1L,
+                Long.MIN_VALUE, Long.MAX_VALUE);
+        this.dir = new File(Validate.stringArg("dir", argsMap, false,
+                "bench.tmp", null));
+        if (dir.isDirectory()==false && dir.mkdirs()==false) {
+            Utilities.exit("ERROR: cannot create directory: " + dir);
+        }
+        this.params = new LinkedHashMap<>();
+        params.put("samples", nSamples);
+        params.put("targets", nTargets);
+        params.put("markers", nMarkers);
+        params.put("founders", nFounders);
+        params.put("mafshape", mafShape);
+        params.put("switchrate", switchRate);
+        params.put("imputestep", imputeStep);
+        params.put("ibsmarkers", ibsMarkers);
+        params.put("nthreads", nThreads);
+        params.put("seed", seed);
+        params.put("dir", dir.getPath());
+        this.nRefSamples = nSamples - nTargets;
+        this.panel = new SyntheticPanel(nSamples, nMarkers, nFounders,
+                mafShape, switchRate, seed);
+    }
+
+    private static List<String> names(String benchList) {
+        if (benchList.equals("all")) {
+            return Arrays.asList(NAMES);
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : benchList.split(",")) {
+            if (Arrays.asList(NAMES).contains(name)==false) {
+                Utilities.exit("ERROR: unknown benchmark: " + name);
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    /*
+     * Returns a supplier that performs the benchmark setup and returns
+     * the timed kernel.  Each kernel returns a checksum that is consumed
+     * by the caller so that the computation cannot be eliminated.
+     */
+    private Supplier<Kernel> kernel(String name) {
+        switch (name) {
+            case "dag":
+                return () -> new Kernel(dagKernel());
+            case "singlebaum":
+                return () -> new Kernel(singleBaumKernel());
+            case "recombbaum":
+                return () -> new Kernel(recombBaumKernel());
+            case "lshapbaum":
+                return () -> new Kernel(lsHapBaumKernel());
+            case "ibs":
+                return () -> new Kernel(ibsKernel());
+            case "gtparse":
+                return () -> new Kernel(gtParseKernel());
+            case "bref":
+                return () -> new Kernel(brefKernel());
+            case "vcfrecbuilder":
+                return () -> new Kernel(writerKernel(false), true, nThreads);
+            case "bcfrecbuilder":
+                return () -> new Kernel(writerKernel(true), true, nThreads);
+            case "bgzip":
+                return () -> new Kernel(bgzipKernel());
+            case "window":
+                return () -> new Kernel(windowKernel(), false, nThreads);
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    private List<HapPair> hapPairs() {
+        if (hapPairs==null) {
+            hapPairs = panel.hapPairs();
+        }
+        return hapPairs;
+    }
+
+    private Dag dag() {
+        if (dag==null) {
+            dag = MergeableDag.dag(new BasicHapPairs(hapPairs()),
+                    weights(2*panel.nSamples()), MODEL_SCALE, N_INIT_LEVELS);
+        }
+        return dag;
+    }
+
+    private static float[] weights(int nHaps) {
+        float[] wts = new float[nHaps];
+        Arrays.fill(wts, 1.0f);
+        return wts;
+    }
+
+    private File refFile() {
+        if (refFile==null) {
+            refFile = new File(dir, "ref.vcf.gz");
+            panel.writeVcf(refFile, 0, nRefSamples, 1, true);
+        }
+        return refFile;
+    }
+
+    private File targFile() {
+        if (targFile==null) {
+            targFile = new File(dir, "targ.vcf.gz");
+            panel.writeVcf(targFile, nRefSamples, panel.nSamples(),
+                    imputeStep, false);
+        }
+        return targFile;
+    }
+
+    private File gtFile() {
+        if (gtFile==null) {
+            gtFile = new File(dir, "gt.vcf.gz");
+            panel.writeVcf(gtFile, nRefSamples, panel.nSamples(), 1, false);
+        }
+        return gtFile;
+    }
+
+    private Par par() {
+        if (par==null) {
+            par = new Par(new String[] {
+                "ref=" + refFile().getPath(),
+                "gt=" + targFile().getPath(),
+                "out=" + new File(dir, "kernel").getPath(),
+                "nthreads=" + nThreads,
+                "seed=" + seed
+            });
+            runStats = new RunStats(par, new PrintWriter(new StringWriter()));
+        }
+        return par;
+    }
+
+    /*
+     * Returns the reference and target data for a marker window that
+     * contains all markers.
+     */
+    private CurrentData currentData() {
+        if (cd==null) {
+            Par p = par();
+            Filter<String> sampleFilter = Filter.acceptAllFilter();
+            Filter<Marker> markerFilter = Filter.acceptAllFilter();
+            RefIt refIt = RefIt.create(InputIt.fromGzipFile(refFile()),
+                    sampleFilter, markerFilter, RefIt.DEFAULT_EM_BUFFER_SIZE);
+            VcfIt<VcfEmission> targIt = VcfIt.create(
+                    InputIt.fromGzipFile(targFile()), VcfIt.toBitSetGT);
+            Data data = AllData.allData(refIt, targIt);
+            data.advanceWindow(0, panel.nMarkers() + 1);
+            NuclearFamilies fam = new NuclearFamilies(data.targetSamples(),
+                    null);
+            cd = new CurrentData(p, null, data, null, fam);
+        }
+        return cd;
+    }
+
+    private List<HapPair> initialHaps() {
+        if (initialHaps==null) {
+            initialHaps = new HapPairSampler(par(), runStats)
+                    .initialHaps(currentData());
+        }
+        return initialHaps;
+    }
+
+    private LongSupplier dagKernel() {
+        BasicHapPairs haps = new BasicHapPairs(hapPairs());
+        float[] wts = weights(haps.nHaps());
+        return () -> MergeableDag.dag(haps, wts, MODEL_SCALE, N_INIT_LEVELS)
+                .nEdges();
+    }
+
+    private LongSupplier singleBaumKernel() {
+        Dag d = dag();
+        GL gl;
+        try (VcfIt<VcfEmission> it = VcfIt.create(
+                InputIt.fromGzipFile(gtFile()), VcfIt.toBitSetGT)) {
+            List<VcfEmission> list = new ArrayList<>(panel.nMarkers());
+            while (it.hasNext()) {
+                list.add(it.next());
+            }
+            gl = new BasicGL(it.samples(), list.toArray(new VcfEmission[0]));
+        }
+        return () -> {
+            boolean lowMem = false;
+            SingleBaum baum = new SingleBaum(d, gl, seed,
+                    N_SAMPLES_PER_INDIVIDUAL, lowMem);
+            long sum = 0;
+            for (int s=0, n=gl.nSamples(); s<n; ++s) {
+                sum += baum.randomSample(s).size();
+            }
+            return sum;
+        };
+    }
+
+    private LongSupplier recombBaumKernel() {
+        CurrentData data = currentData();
+        boolean revMarkers = false;
+        SamplerData samplerData = new SamplerData(par(), data, initialHaps(),
+                revMarkers, runStats);
+        return () -> {
+            boolean lowMem = false;
+            RecombSingleBaum baum = new RecombSingleBaum(samplerData, seed,
+                    N_SAMPLES_PER_INDIVIDUAL, lowMem);
+            long sum = 0;
+            for (int s=0, n=data.nTargetSamples(); s<n; ++s) {
+                sum += baum.randomSample(s).size();
+            }
+            return sum;
+        };
+    }
+
+    private LongSupplier lsHapBaumKernel() {
+        CurrentData data = currentData();
+        SampleHapPairs targHaps = new BasicSampleHapPairs(data.targetSamples(),
+                ConsensusPhaser.run(initialHaps()));
+        ImputationData impData = new ImputationData(par(), data, targHaps,
+                new PositionMap(1e-6));
+        return () -> {
+            boolean lowMem = false;
+            LSHapBaum baum = new LSHapBaum(impData, lowMem);
+            long sum = 0;
+            for (int h=0, n=targHaps.nHaps(); h<n; ++h) {
+                sum += baum.randomHapSample(h).nMarkers();
+            }
+            return sum;
+        };
+    }
+
+    private LongSupplier ibsKernel() {
+        BasicSampleHapPairs haps = new BasicSampleHapPairs(panel.samples(),
+                hapPairs());
+        return () -> {
+            IbsHapSegments ibs = new IbsHapSegments(haps, ibsMarkers);
+            long sum = 0;
+            for (int h=0, n=haps.nHaps(); h<n; ++h) {
+                sum += ibs.find(h).size();
+            }
+            return sum;
+        };
+    }
+
+    private LongSupplier gtParseKernel() {
+        VcfHeader header;
+        List<String> lines = new ArrayList<>(panel.nMarkers());
+        try (FileIt<String> it = InputIt.fromGzipFile(refFile())) {
+            header = new VcfHeader(it);
+            while (it.hasNext()) {
+                lines.add(it.next());
+            }
+        }
+        return () -> {
+            long sum = 0;
+            for (String line : lines) {
+                VcfRecGTParser parser = new VcfRecGTParser(header, line);
+                for (int s=0, n=parser.nSamples(); s<n; ++s) {
+                    if (s>0) {
+                        parser.nextSample();
+                    }
+                    sum += parser.allele1() + parser.allele2();
+                }
+            }
+            return sum;
+        };
+    }
+
+    private LongSupplier brefKernel() {
+        String vcfName = refFile().getPath();
+        File brefFile = new File(vcfName.substring(0,
+                vcfName.lastIndexOf(".vcf")) + ".bref");
+        if (brefFile.exists()==false) {
+            Bref.main(new String[] {vcfName});
+        }
+        return () -> {
+            long cnt = 0;
+            try (BrefIt it = new BrefIt(brefFile)) {
+                while (it.hasNext()) {
+                    cnt += it.next().nAlleles();
+                }
+            }
+            return cnt;
+        };
+    }
+
+    /*
+     * The markers are divided among nThreads threads, and each thread
+     * writes records for its markers.  The kernel returns the total number
+     * of bytes written.
+     */
+    private LongSupplier writerKernel(boolean bcf) {
+        int nMarkers = panel.nMarkers();
+        return () -> {
+            ExecutorService es = Executors.newFixedThreadPool(nThreads);
+            List<Future<Long>> futures = new ArrayList<>(nThreads);
+            for (int t=0; t<nThreads; ++t) {
+                int start = (int) (((long) t*nMarkers)/nThreads);
+                int end = (int) (((long) (t + 1)*nMarkers)/nThreads);
+                futures.add(es.submit(() -> bcf ? writeBcf(start, end)
+                        : writeVcf(start, end)));
+            }
+            es.shutdown();
+            long bytes = 0;
+            try {
+                for (Future<Long> f : futures) {
+                    bytes += f.get();
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                Utilities.exit("ERROR", e);
+            }
+            return bytes;
+        };
+    }
+
+    private long writeVcf(int start, int end) {
+        int nSamples = panel.nSamples();
+        CountingOutputStream out = new CountingOutputStream();
+        VcfRecBuilder vrb = new VcfRecBuilder(4*nSamples);
+        double[] a1 = new double[2];
+        double[] a2 = new double[2];
+        boolean printDS = true;
+        boolean printGP = true;
+        boolean isImputed = false;
+        for (int m=start; m<end; ++m) {
+            Marker marker = panel.markers().marker(m);
+            vrb.reset(marker, printDS, printGP);
+            for (int s=0; s<nSamples; ++s) {
+                setProbs(panel.allele(m, 2*s), a1);
+                setProbs(panel.allele(m, 2*s + 1), a2);
+                vrb.addSampleData(a1, a2);
+            }
+            vrb.writeRec(out, isImputed);
+        }
+        return out.count();
+    }
+
+    private long writeBcf(int start, int end) {
+        int nSamples = panel.nSamples();
+        CountingOutputStream out = new CountingOutputStream();
+        BcfRecBuilder brb = new BcfRecBuilder();
+        double[] a1 = new double[2];
+        double[] a2 = new double[2];
+        boolean printDS = true;
+        boolean printGP = true;
+        boolean isImputed = false;
+        for (int m=start; m<end; ++m) {
+            Marker marker = panel.markers().marker(m);
+            brb.reset(marker, printDS, printGP);
+            for (int s=0; s<nSamples; ++s) {
+                setProbs(panel.allele(m, 2*s), a1);
+                setProbs(panel.allele(m, 2*s + 1), a2);
+                brb.addSampleData(a1, a2);
+            }
+            brb.writeRec(out, isImputed);
+        }
+        return out.count();
+    }
+
+    /* Assigns probability 0.9 to the specified allele */
+    private static void setProbs(int allele, double[] probs) {
+        probs[allele] = 0.9;
+        probs[1 - allele] = 0.1;
+    }
+
+    private LongSupplier bgzipKernel() {
+        byte[] bytes = gunzip(refFile());
+        return () -> {
+            CountingOutputStream out = new CountingOutputStream();
+            boolean writeEmptyBlock = true;
+            try (BGZIPOutputStream bgzip = new BGZIPOutputStream(out,
+                    writeEmptyBlock)) {
+                bgzip.write(bytes);
+            } catch (IOException e) {
+                Utilities.exit("Error compressing data", e);
+            }
+            return out.count();
+        };
+    }
+
+    private static byte[] gunzip(File file) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (InputStream is = new GZIPInputStream(new FileInputStream(file))) {
+            byte[] buffer = new byte[1<<16];
+            int len = is.read(buffer);
+            while (len != -1) {
+                baos.write(buffer, 0, len);
+                len = is.read(buffer);
+            }
+        } catch (IOException e) {
+            Utilities.exit("Error reading " + file, e);
+        }
+        return baos.toByteArray();
+    }
+
+    private LongSupplier windowKernel() {
+        File outPrefix = new File(dir, "window");
+        String[] args = new String[] {
+            "ref=" + refFile().getPath(),
+            "gt=" + targFile().getPath(),
+            "out=" + outPrefix.getPath(),
+            "nthreads=" + nThreads,
+            "seed=" + seed,
+            "window=" + (panel.nMarkers() + 1),
+            "overlap=" + Math.min(3000, panel.nMarkers()/4)
+        };
+        File vcfOut = new File(outPrefix.getPath() + ".vcf.gz");
+        return () -> {
+            Main.main(args);
+            return vcfOut.length();
+        };
+    }
+
+    private static void appendParams(StringBuilder sb,
+            Map<String, Object> params, int warmup, int iterations) {
+        sb.append('{');
+        for (Map.Entry<String, Object> e : params.entrySet()) {
+            appendJsonString(sb, e.getKey());
+            sb.append(": ");
+            appendJsonValue(sb, e.getValue());
+            sb.append(", ");
+        }
+        sb.append("\"warmup\": ").append(warmup);
+        sb.append(", \"iterations\": ").append(iterations);
+        sb.append('}');
+    }
+
+    /*
+     * Finite numbers are written as JSON numbers, and all other values
+     * are written as JSON strings.
+     */
+    private static void appendJsonValue(StringBuilder sb, Object value) {
+        if (value instanceof Number
+                && Double.isFinite(((Number) value).doubleValue())) {
+            sb.append(value);
+        }
+        else {
+            appendJsonString(sb, String.valueOf(value));
+        }
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int j=0, n=s.length(); j<n; ++j) {
+            char c = s.charAt(j);
+            if (c=='"' || c=='\\') {
+                sb.append('\\');
+                sb.append(c);
+            }
+            else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            }
+            else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    private static void appendJvm(StringBuilder sb) {
+        Runtime rt = Runtime.getRuntime();
+        sb.append("{\"version\": ");
+        appendJsonString(sb, System.getProperty("java.version"));
+        sb.append(", \"vm\": ");
+        appendJsonString(sb, System.getProperty("java.vm.name"));
+        sb.append(", \"processors\": ").append(rt.availableProcessors());
+        sb.append(", \"maxMemory\": ").append(rt.maxMemory());
+        sb.append('}');
+    }
+
+    private static void appendResult(StringBuilder sb, String name,
+            double[] millis, long bytes, int nThreads) {
+        double[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        sb.append("{\"name\": ");
+        appendJsonString(sb, name);
+        sb.append(", \"threads\": ").append(nThreads);
+        sb.append(", \"meanMs\": ").append(format(mean(millis)));
+        sb.append(", \"medianMs\": ").append(format(median(sorted)));
+        sb.append(", \"minMs\": ").append(format(sorted[0]));
+        sb.append(", \"maxMs\": ").append(format(sorted[sorted.length - 1]));
+        sb.append(", \"sdMs\": ").append(format(sd(millis)));
+        sb.append(", \"iterationMs\": [");
+        for (int j=0; j<millis.length; ++j) {
+            if (j>0) {
+                sb.append(", ");
+            }
+            sb.append(format(millis[j]));
+        }
+        sb.append(']');
+        if (bytes >= 0) {
+            sb.append(", \"bytes\": ").append(bytes);
+            sb.append(", \"bytesPerSecPerThread\": ");
+            sb.append(format(bytesPerSecPerThread(bytes, median(sorted),
+                    nThreads)));
+        }
+        sb.append('}');
+    }
+
+    private static String summary(String name, double[] millis, long bytes,
+            int nThreads) {
+        double[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        String s = String.format("%-14s mean=%10.3f ms  median=%10.3f ms  "
+                + "min=%10.3f ms  sd=%8.3f ms", name, mean(millis),
+                median(sorted), sorted[0], sd(millis));
+        if (bytes >= 0) {
+            double mbPerSec = bytesPerSecPerThread(bytes, median(sorted),
+                    nThreads)/1e6;
+            s += String.format("  %.1f MB/s/thread", mbPerSec);
+        }
+        return s;
+    }
+
+    private static double bytesPerSecPerThread(long bytes, double millis,
+            int nThreads) {
+        return millis > 0.0 ? 1000.0*bytes/(millis*nThreads) : 0.0;
+    }
+
+    private static String format(double d) {
+        return String.format("%.3f", d);
+    }
+
+    private static double mean(double[] da) {
+        double sum = 0.0;
+        for (double d : da) {
+            sum += d;
+        }
+        return sum/da.length;
+    }
+
+    private static double median(double[] sorted) {
+        int n = sorted.length;
+        return (n & 1)==1 ? sorted[n/2] : 0.5*(sorted[n/2 - 1] + sorted[n/2]);
+    }
+
+    private static double sd(double[] da) {
+        if (da.length < 2) {
+            return 0.0;
+        }
+        double mean = mean(da);
+        double sumSq = 0.0;
+        for (double d : da) {
+            sumSq += (d - mean)*(d - mean);
+        }
+        return Math.sqrt(sumSq/(da.length - 1));
+    }
+
+    /*
+     * A timed kernel.  If countsBytes is true, the kernel returns the
+     * number of bytes written.
+     */
+    private static final class Kernel {
+
+        private final LongSupplier run;
+        private final boolean countsBytes;
+        private final int nThreads;
+
+        Kernel(LongSupplier run) {
+            this(run, false, 1);
+        }
+
+        Kernel(LongSupplier run, boolean countsBytes, int nThreads) {
+            this.run = run;
+            this.countsBytes = countsBytes;
+            this.nThreads = nThreads;
+        }
+    }
+
+    /*
+     * An output stream that discards and counts written bytes.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count = 0;
+
+        @Override
+        public void write(int b) {
+            ++count;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        long count() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package bench;
+
+import beagleutil.ChromIds;
+import beagleutil.Samples;
+import blbutil.Const;
+import blbutil.FileUtil;
+import haplotype.BitHapPair;
+import haplotype.HapPair;
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import vcf.BasicMarker;
+import vcf.Marker;
+import vcf.Markers;
+
+/**
+ * <p>Class {@code SyntheticPanel} represents a deterministic synthetic
+ * panel of phased diallelic haplotypes for benchmarking.
+ * </p>
+ * <p>Each haplotype is a mosaic of a small number of founder haplotypes.
+ * At each marker, a haplotype switches to a randomly chosen founder with
+ * probability {@code switchRate}, so that smaller values of
+ * {@code switchRate} produce more linkage disequilibrium.  The ALT allele
+ * frequency of a founder allele is {@code 0.5*Math.pow(u, mafShape)},
+ * where {@code u} is uniformly distributed on {@code (0, 1)}, so that larger
+ * values of {@code mafShape} produce more rare variants.  A panel is
+ * completely determined by its constructor arguments.
+ * </p>
+ * <p>Instances of class {@code SyntheticPanel} are immutable.
+ * </p>
+ */
+public final class SyntheticPanel {
+
+    private static final String CHROM = "1";
+    private static final int POS_STEP = 100;
+    private static final double MUTATION_RATE = 0.001;
+
+    private final Samples samples;
+    private final Markers markers;
+    private final byte[][] alleles;    // [haplotype][marker]
+
+    /**
+     * Constructs a new {@code SyntheticPanel} instance.
+     * @param nSamples the number of samples
+     * @param nMarkers the number of markers
+     * @param nFounders the number of founder haplotypes
+     * @param mafShape the exponent that determines the allele frequency
+     * spectrum
+     * @param switchRate the per-marker probability of switching founder
+     * haplotypes
+     * @param seed the seed for random number generation
+     *
+     * @throws IllegalArgumentException if
+     * {@code nSamples < 1 || nMarkers < 1 || nFounders < 1}
+     * @throws IllegalArgumentException if
+     * {@code mafShape <= 0 || Double.isFinite(mafShape) == false}
+     * @throws IllegalArgumentException if
+     * {@code switchRate < 0 || switchRate > 1 || Double.isNaN(switchRate)}
+     */
+    public SyntheticPanel(int nSamples, int nMarkers, int nFounders,
+            double mafShape, double switchRate, long seed) {
+        if (nSamples < 1 || nMarkers < 1 || nFounders < 1) {
+            String s = "nSamples=" + nSamples + " nMarkers=" + nMarkers
+                    + " nFounders=" + nFounders;
+            throw new IllegalArgumentException(s);
+        }
+        if (mafShape <= 0 || Double.isFinite(mafShape)==false) {
+            throw new IllegalArgumentException("mafShape=" + mafShape);
+        }
+        if ((switchRate >= 0 && switchRate <= 1)==false) {
+            throw new IllegalArgumentException("switchRate=" + switchRate);
+        }
+        Random rand = new Random(seed);
+        this.samples = samples(nSamples);
+        this.markers = markers(nMarkers);
+        byte[][] founders = founders(nFounders, nMarkers, mafShape, rand);
+        this.alleles = mosaics(2*nSamples, founders, switchRate, rand);
+    }
+
+    private static Samples samples(int nSamples) {
+        String[] ids = new String[nSamples];
+        for (int j=0; j<ids.length; ++j) {
+            ids[j] = "S" + (j+1);
+        }
+        return Samples.fromIds(ids);
+    }
+
+    private static Markers markers(int nMarkers) {
+        int chrom = ChromIds.instance().getIndex(CHROM);
+        String[] ids = new String[0];
+        String[] alleles = new String[] {"A", "C"};
+        Marker[] ma = new Marker[nMarkers];
+        for (int m=0; m<ma.length; ++m) {
+            ma[m] = new BasicMarker(chrom, POS_STEP*(m+1), ids, alleles);
+        }
+        return Markers.create(ma);
+    }
+
+    private static byte[][] founders(int nFounders, int nMarkers,
+            double mafShape, Random rand) {
+        byte[][] founders = new byte[nFounders][nMarkers];
+        for (int m=0; m<nMarkers; ++m) {
+            double maf = 0.5*Math.pow(rand.nextDouble(), mafShape);
+            for (byte[] founder : founders) {
+                founder[m] = (byte) (rand.nextDouble() < maf ? 1 : 0);
+            }
+        }
+        return founders;
+    }
+
+    private static byte[][] mosaics(int nHaps, byte[][] founders,
+            double switchRate, Random rand) {
+        int nMarkers = founders[0].length;
+        byte[][] haps = new byte[nHaps][nMarkers];
+        for (byte[] hap : haps) {
+            int founder = rand.nextInt(founders.length);
+            for (int m=0; m<nMarkers; ++m) {
+                if (rand.nextDouble() < switchRate) {
+                    founder = rand.nextInt(founders.length);
+                }
+                hap[m] = founders[founder][m];
+                if (rand.nextDouble() < MUTATION_RATE) {
+                    hap[m] ^= 1;
+                }
+            }
+        }
+        return haps;
+    }
+
+    /**
+     * Returns the samples.
+     * @return the samples
+     */
+    public Samples samples() {
+        return samples;
+    }
+
+    /**
+     * Returns the number of samples.
+     * @return the number of samples
+     */
+    public int nSamples() {
+        return samples.nSamples();
+    }
+
+    /**
+     * Returns the markers.
+     * @return the markers
+     */
+    public Markers markers() {
+        return markers;
+    }
+
+    /**
+     * Returns the number of markers.
+     * @return the number of markers
+     */
+    public int nMarkers() {
+        return markers.nMarkers();
+    }
+
+    /**
+     * Returns the specified allele.
+     * @param marker a marker index
+     * @param hap a haplotype index
+     * @return the specified allele
+     * @throws IndexOutOfBoundsException if
+     * {@code marker < 0 || marker >= this.nMarkers()}
+     * @throws IndexOutOfBoundsException if
+     * {@code hap < 0 || hap >= 2*this.nSamples()}
+     */
+    public int allele(int marker, int hap) {
+        return alleles[hap][marker];
+    }
+
+    /**
+     * Returns the phased haplotype pairs for all samples.
+     * @return the phased haplotype pairs for all samples
+     */
+    public List<HapPair> hapPairs() {
+        List<HapPair> list = new ArrayList<>(samples.nSamples());
+        for (int s=0, n=samples.nSamples(); s<n; ++s) {
+            list.add(new BitHapPair(markers, samples, s, toInt(alleles[2*s]),
+                    toInt(alleles[2*s + 1])));
+        }
+        return list;
+    }
+
+    private static int[] toInt(byte[] ba) {
+        int[] ia = new int[ba.length];
+        for (int j=0; j<ia.length; ++j) {
+            ia[j] = ba[j];
+        }
+        return ia;
+    }
+
+    /**
+     * Writes the genotypes of the specified samples at every
+     * {@code markerStep}-th marker to the specified file in VCF format.
+     * The file will be BGZIP-compressed if the filename ends in ".gz".
+     * @param file the output file
+     * @param start the first sample (inclusive)
+     * @param end the last sample (exclusive)
+     * @param markerStep the distance between successive written markers
+     * @param phased {@code true} if phased genotypes will be written, and
+     * {@code false} otherwise
+     *
+     * @throws IllegalArgumentException if
+     * {@code start < 0 || start >= end || end > this.nSamples()}
+     * @throws IllegalArgumentException if {@code markerStep < 1}
+     * @throws NullPointerException if {@code file == null}
+     */
+    public void writeVcf(File file, int start, int end, int markerStep,
+            boolean phased) {
+        if (start < 0 || start >= end || end > samples.nSamples()) {
+            throw new IllegalArgumentException("start=" + start + " end=" + end);
+        }
+        if (markerStep < 1) {
+            throw new IllegalArgumentException("markerStep=" + markerStep);
+        }
+        char sep = phased ? Const.phasedSep : Const.unphasedSep;
+        try (PrintWriter out = file.getName().endsWith(".gz")
+                ? FileUtil.bgzipPrintWriter(file) : FileUtil.printWriter(file)) {
+            out.println("##fileformat=VCFv4.2");
+            out.println("##FORMAT=<ID=GT,Number=1,Type=String,Description=\"Genotype\">");
+            out.print("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT");
+            for (int s=start; s<end; ++s) {
+                out.print(Const.tab);
+                out.print(samples.id(s));
+            }
+            out.println();
+            StringBuilder sb = new StringBuilder(40 + 4*(end - start));
+            for (int m=0, n=markers.nMarkers(); m<n; m+=markerStep) {
+                Marker marker = markers.marker(m);
+                sb.setLength(0);
+                sb.append(marker.chrom());
+                sb.append(Const.tab);
+                sb.append(marker.pos());
+                sb.append("\t.\tA\tC\t.\tPASS\t.\tGT");
+                for (int s=start; s<end; ++s) {
+                    sb.append(Const.tab);
+                    sb.append(alleles[2*s][m]);
+                    sb.append(sep);
+                    sb.append(alleles[2*s + 1][m]);
+                }
+                out.println(sb);
+            }
+        }
+    }
+}
@@ -34,6 +34,12 @@ public final class ChromIds {
 
     private final ThreadSafeIndexer<String> instance;
 
+    /*
+     * Records from the same chromosome are typically processed
+     * consecutively, so the most recently retrieved chromosome is cached.
+     */
+    private volatile IndexedId last = new IndexedId("", -1);
+
     private ChromIds() {
         // private constructor to restrict instantiation.
         int initCapacity = 4;
@@ -62,7 +68,13 @@ public final class ChromIds {
         if (id.isEmpty()) {
             throw new IllegalArgumentException("id.isEmpty()");
         }
-        return instance.getIndex(id);
+        IndexedId cached = last;
+        if (cached.id.equals(id)) {
+            return cached.index;
+        }
+        int index = instance.getIndex(id);
+        last = new IndexedId(id, index);
+        return index;
     }
 
     /**
@@ -114,6 +126,17 @@ public final class ChromIds {
         return instance.items().toArray(new String[0]);
     }
 
+    private static final class IndexedId {
+
+        private final String id;
+        private final int index;
+
+        private IndexedId(String id, int index) {
+            this.id = id;
+            this.index = index;
+        }
+    }
+
     /**
      * Returns  {@code java.util.Arrays.toString(this.ids())}.
      *
@@ -19,14 +19,18 @@
 package beagleutil;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>Class {@code ThreadSafeIndexer} indexes objects.
  * </p>
- * Instances of class {@code ThreadSafeIndexer} are thread-safe.
+ * <p>Instances of class {@code ThreadSafeIndexer} are thread-safe.
+ * The index of a previously indexed object and the object with a
+ * specified index are retrieved without locking.  A lock is acquired only
+ * when a new object is indexed.
+ * </p>
  *
  * @param <T> the type parameter.
  *
@@ -39,8 +43,15 @@ public final class ThreadSafeIndexer<T> {
      */
     public static final int DEFAULT_INIT_CAPACITY = 500;
 
-    private final List<T> list ;
-    private final Map<T, Integer> map;
+    private final ConcurrentHashMap<T, Integer> map;
+
+    /*
+     * The items array is replaced by a larger copy when it is full.
+     * An item is stored in the items array before its index is published
+     * through the map or through the size field.
+     */
+    private volatile Object[] items;
+    private volatile int size;
 
     /**
      * Creates a new {@code ThreadSafeIndexer} instance with the default
@@ -62,8 +73,9 @@ public final class ThreadSafeIndexer<T> {
         if (initCapacity < 1) {
             throw new IllegalArgumentException(String.valueOf(initCapacity));
         }
-        this.list = new ArrayList<>(initCapacity);
-        this.map = new HashMap<>(initCapacity);
+        this.items = new Object[initCapacity];
+        this.map = new ConcurrentHashMap<>(initCapacity);
+        this.size = 0;
     }
 
     /**
@@ -74,19 +86,32 @@ public final class ThreadSafeIndexer<T> {
      * @return the index of the specified object
      * @throws NullPointerException if {@code object==null}
      */
-    public synchronized int getIndex(T object) {
+    public int getIndex(T object) {
         if (object==null) {
             throw new NullPointerException();
         }
-        if (map.keySet().contains(object)) {
-            return map.get(object);
+        Integer index = map.get(object);
+        if (index != null) {
+            return index;
         }
         else {
-            int idIndex = list.size();
-            list.add(object);
-            map.put(object, idIndex);
-            return idIndex;
+            return map.computeIfAbsent(object, this::add);
+        }
+    }
+
+    /*
+     * Invoked at most once for each object by ConcurrentHashMap.computeIfAbsent().
+     */
+    private synchronized Integer add(T object) {
+        int index = size;
+        Object[] ia = items;
+        if (index == ia.length) {
+            ia = Arrays.copyOf(ia, ia.length << 1);
         }
+        ia[index] = object;
+        items = ia;
+        size = index + 1;
+        return index;
     }
 
     /**
@@ -99,24 +124,20 @@ public final class ThreadSafeIndexer<T> {
      *
      * @throws NullPointerException if {@code object == null}.
      */
-    public synchronized int getIndexIfIndexed(T object) {
+    public int getIndexIfIndexed(T object) {
         if (object==null) {
             throw new NullPointerException();
         }
-        if (map.keySet().contains(object)) {
-            return map.get(object);
-        }
-        else {
-            return -1;
-        }
+        Integer index = map.get(object);
+        return index==null ? -1 : index;
     }
 
     /**
      * Returns the number of indexed objects.
      * @return the number of indexed objects
      */
-    public synchronized int size() {
-        return list.size();
+    public int size() {
+        return size;
     }
 
     /**
@@ -126,8 +147,12 @@ public final class ThreadSafeIndexer<T> {
      * @throws IndexOutOfBoundsException if
      * {@code  index<0 || index>=this.size()}
      */
-    public synchronized T item(int index) {
-        return list.get(index);
+    @SuppressWarnings("unchecked")
+    public T item(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return (T) items[index];
     }
 
     /**
@@ -138,8 +163,15 @@ public final class ThreadSafeIndexer<T> {
      *
      * @return an array of objects
      */
-    public synchronized List<T> items() {
-        return new ArrayList<>(list);
+    @SuppressWarnings("unchecked")
+    public List<T> items() {
+        int n = size;
+        Object[] ia = items;
+        List<T> list = new ArrayList<>(n);
+        for (int j=0; j<n; ++j) {
+            list.add((T) ia[j]);
+        }
+        return list;
     }
 
     /**
@@ -147,7 +179,7 @@ public final class ThreadSafeIndexer<T> {
      * @return a string representation of {@code this}
      */
     @Override
-    public synchronized String toString() {
+    public String toString() {
         return this.items().toString();
     }
 }
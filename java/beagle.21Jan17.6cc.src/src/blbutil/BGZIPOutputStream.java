@@ -201,7 +201,7 @@ public final class BGZIPOutputStream extends OutputStream {
     public void write(byte[] buf, int off, int len)
             throws IOException {
         int availSize = input.length - iSize;
-        while ((len - off) >= availSize) {
+        while (len >= availSize) {
             System.arraycopy(buf, off, this.input, iSize, availSize);
             iSize += availSize;
             off += availSize;
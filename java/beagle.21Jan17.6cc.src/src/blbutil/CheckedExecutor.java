@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package blbutil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Class {@code CheckedExecutor} is a fixed-size thread pool that
+ * reports the failure of any submitted task to the thread that is
+ * waiting for the tasks to finish.  A task failure is reported by
+ * throwing a {@code CompletionException} whose cause is the exception
+ * thrown by the failed task.  When a task failure is reported, the
+ * remaining tasks are interrupted.
+ * </p>
+ * <p>The {@code put()} method adds work to a queue that is consumed by the
+ * submitted tasks.  Unlike {@code BlockingQueue.put()}, the
+ * {@code put()} method does not wait indefinitely for space in the queue
+ * if all consumers have failed.
+ * </p>
+ * <p>Instances of class {@code CheckedExecutor} are not thread-safe.
+ * </p>
+ */
+public final class CheckedExecutor {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final ExecutorService es;
+    private final List<Future<?>> futures;
+
+    /**
+     * Constructs a new {@code CheckedExecutor} instance.
+     * @param nThreads the number of threads in the pool
+     * @throws IllegalArgumentException if {@code nThreads < 1}
+     */
+    public CheckedExecutor(int nThreads) {
+        this.es = Executors.newFixedThreadPool(nThreads);
+        this.futures = new ArrayList<>(nThreads);
+    }
+
+    /**
+     * Submits the specified task for execution.
+     * @param task the task to be executed
+     * @throws CompletionException if a previously submitted task has failed
+     * @throws NullPointerException if {@code task == null}
+     */
+    public void submit(Runnable task) {
+        checkFailures();
+        futures.add(es.submit(task));
+    }
+
+    /**
+     * Adds the specified element to the specified queue, waiting if
+     * necessary for space to become available.
+     * @param <E> the type of element in the queue
+     * @param queue a queue whose elements are consumed by the submitted
+     * tasks
+     * @param element the element to be added
+     * @throws CompletionException if a submitted task has failed
+     * @throws InterruptedException if the current thread is interrupted
+     * while waiting
+     * @throws NullPointerException if
+     * {@code queue == null || element == null}
+     */
+    public <E> void put(BlockingQueue<E> queue, E element)
+            throws InterruptedException {
+        while (queue.offer(element, POLL_MILLIS, TimeUnit.MILLISECONDS)==false) {
+            checkFailures();
+        }
+    }
+
+    /**
+     * Throws a {@code CompletionException} if a submitted task has failed.
+     * @throws CompletionException if a submitted task has failed
+     */
+    public void checkFailures() {
+        for (Future<?> f : futures) {
+            if (f.isDone()) {
+                check(f);
+            }
+        }
+    }
+
+    /**
+     * Initiates an orderly shutdown of the thread pool, waits for the
+     * submitted tasks to finish, and throws a {@code CompletionException}
+     * if a submitted task has failed.
+     * @throws CompletionException if a submitted task has failed
+     * @throws InterruptedException if the current thread is interrupted
+     * while waiting
+     */
+    public void shutdownAndAwait() throws InterruptedException {
+        es.shutdown();
+        try {
+            for (Future<?> f : futures) {
+                while (f.isDone()==false) {
+                    checkFailures();
+                    es.awaitTermination(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                check(f);
+            }
+        }
+        finally {
+            es.shutdownNow();
+        }
+    }
+
+    private void check(Future<?> f) {
+        try {
+            f.get();
+        }
+        catch (ExecutionException e) {
+            es.shutdownNow();
+            throw new CompletionException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+}
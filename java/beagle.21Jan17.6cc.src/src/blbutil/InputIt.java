@@ -52,6 +52,12 @@ public class InputIt implements FileIt<String> {
      */
     public static final int DEFAULT_BUFFER_SIZE = 1<<22;
 
+    /**
+     * The maximum number of threads that decompress a BGZIP-compressed
+     * file, which is 4.
+     */
+    public static final int MAX_BGZIP_THREADS = 4;
+
     private final File file;
     private final BufferedReader in;
     private String next = null;
@@ -194,7 +200,8 @@ public class InputIt implements FileIt<String> {
      * Constructs and returns an {@code InputIt} instance with the default
      * buffer size that iterates through lines of the specified compressed
      * or uncompressed text file. If the filename ends in ".gz", the file
-     * must be either BGZIP-compressed or GZIP-compressed.
+     * must be either BGZIP-compressed or GZIP-compressed.  BGZIP blocks
+     * are decompressed by the calling thread.
      *
      * @param file a compressed or uncompressed text file
      * @return  a new {@code InputIt} instance that iterates
@@ -203,36 +210,15 @@ public class InputIt implements FileIt<String> {
      * @throws NullPointerException if {@code file == null}
      */
     public static InputIt fromGzipFile(File file) {
-        try {
-            InputStream is = new FileInputStream(file);
-            if (file.getName().endsWith(".gz")) {
-                if (isBGZipFile(file)) {
-                    return new InputIt(
-		            new BlockCompressedInputStream(is), file);
-                }
-                else {
-                    return new InputIt(new GZIPInputStream(is), file);
-                }
-            }
-            else {
-                return new InputIt(is, file);
-            }
-        }
-        catch(FileNotFoundException e) {
-            Utilities.exit("Error opening " + file, e);
-        }
-        catch(IOException e) {
-            Utilities.exit("Error reading " + file, e);
-        }
-        assert false;
-        return null;
+        return fromGzipFile(file, DEFAULT_BUFFER_SIZE);
     }
 
     /**
      * Constructs and returns an {@code InputIt} instance with the specified
      * buffer size that iterates through lines of the specified compressed
      * or uncompressed text file. If the filename ends in ".gz", the file must
-     * be either BGZIP-compressed or GZIP-compressed.
+     * be either BGZIP-compressed or GZIP-compressed.  BGZIP blocks
+     * are decompressed by the calling thread.
      *
      * @param file a compressed or uncompressed text file
      * @param bufferSize the buffer size in bytes
@@ -243,12 +229,40 @@ public class InputIt implements FileIt<String> {
      * @throws NullPointerException if {@code file == null}
      */
     public static InputIt fromGzipFile(File file, int bufferSize) {
+        return fromGzipFile(file, bufferSize, 1);
+    }
+
+    /**
+     * Constructs and returns an {@code InputIt} instance with the specified
+     * buffer size that iterates through lines of the specified compressed
+     * or uncompressed text file. If the filename ends in ".gz", the file must
+     * be either BGZIP-compressed or GZIP-compressed.  BGZIP blocks
+     * are decompressed concurrently by
+     * {@code Math.min(nThreads, InputIt.MAX_BGZIP_THREADS)} threads, or
+     * by the calling thread if {@code nThreads == 1}.
+     *
+     * @param file a compressed or uncompressed text file
+     * @param bufferSize the buffer size in bytes
+     * @param nThreads the maximum number of threads that decompress
+     * BGZIP blocks
+     * @return  a new {@code InputIt} instance that iterates
+     * through lines of the specified text file
+     *
+     * @throws IllegalArgumentException if {@code bufferSize < 0}
+     * @throws IllegalArgumentException if {@code nThreads < 1}
+     * @throws NullPointerException if {@code file == null}
+     */
+    public static InputIt fromGzipFile(File file, int bufferSize,
+            int nThreads) {
+        if (nThreads < 1) {
+            throw new IllegalArgumentException(String.valueOf(nThreads));
+        }
         try {
             InputStream is = new FileInputStream(file);
             if (file.getName().endsWith(".gz")) {
                 if (isBGZipFile(file)) {
-                    return new InputIt(
-		            new BlockCompressedInputStream(is), file, bufferSize);
+                    return new InputIt(bgzipInputStream(is, nThreads), file,
+                            bufferSize);
                 }
                 else {
                     return new InputIt(new GZIPInputStream(is), file, bufferSize);
@@ -269,6 +283,18 @@ public class InputIt implements FileIt<String> {
         return null;
     }
 
+    private static InputStream bgzipInputStream(InputStream is,
+            int nThreads) {
+        int nDecompressThreads = Math.min(MAX_BGZIP_THREADS, nThreads);
+        if (nDecompressThreads > 1) {
+            return new ParallelBGZIPInputStream(
+                    new BufferedInputStream(is, 1<<16), nDecompressThreads);
+        }
+        else {
+            return new BlockCompressedInputStream(is);
+        }
+    }
+
     private static boolean isBGZipFile(File file) throws IOException {
         try (InputStream is=new BufferedInputStream(new FileInputStream(file))) {
 		return BlockCompressedInputStream.isValidFile(is);
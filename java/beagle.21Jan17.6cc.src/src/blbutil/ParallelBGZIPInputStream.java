@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package blbutil;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * <p>Class {@code ParallelBGZIPInputStream} is an input stream filter that
+ * performs BGZIP decompression.  Compressed BGZIP blocks are read ahead
+ * of the current position in the stream and are decompressed concurrently
+ * by a pool of worker threads.  Decompressed blocks are returned in the
+ * order in which they were read.
+ * </p>
+ * <p>The GZIP file format specification is described
+ * <a href="https://www.ietf.org/rfc/rfc1952.txt">RFC 1952</a>
+ * and the BGZIP file format specification is described in the
+ * <a href="https://samtools.github.io/hts-specs/SAMv1.pdf">
+ * Sequence Alignment/Map Format Specification</a>
+ * </p>
+ * <p>Instances of class {@code ParallelBGZIPInputStream} are not thread safe.
+ * </p>
+ */
+public final class ParallelBGZIPInputStream extends InputStream {
+
+    private static final int HEADER_BYTES = 12;
+    private static final int TRAILER_BYTES = 8;
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    private final InputStream is;
+    private final ExecutorService executor;
+    private final Deque<Future<byte[]>> pending;
+    private final int maxPending;
+    private final byte[] header = new byte[HEADER_BYTES];
+
+    private byte[] buffer = new byte[0];
+    private int pos = 0;
+    private boolean eof = false;
+    private boolean closed = false;
+
+    /**
+     * Creates a new {@code ParallelBGZIPInputStream} instance that reads
+     * BGZIP-compressed data from the specified input stream.
+     *
+     * @param is an input stream of BGZIP-compressed data
+     * @param nThreads the number of threads that decompress BGZIP blocks
+     *
+     * @throws IllegalArgumentException if {@code nThreads < 1}
+     * @throws NullPointerException if {@code is == null}
+     */
+    public ParallelBGZIPInputStream(InputStream is, int nThreads) {
+        if (is==null) {
+            throw new NullPointerException(InputStream.class.toString());
+        }
+        if (nThreads < 1) {
+            throw new IllegalArgumentException(String.valueOf(nThreads));
+        }
+        this.is = is;
+        this.executor = Executors.newFixedThreadPool(nThreads, r -> {
+            Thread t = new Thread(r, "BGZIP inflater");
+            t.setDaemon(true);
+            return t;
+        });
+        this.pending = new ArrayDeque<>();
+        this.maxPending = BLOCKS_PER_THREAD*nThreads;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (fillBuffer()==false) {
+            return -1;
+        }
+        return buffer[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException(String.valueOf(len));
+        }
+        if (len==0) {
+            return 0;
+        }
+        if (fillBuffer()==false) {
+            return -1;
+        }
+        int n = Math.min(len, buffer.length - pos);
+        System.arraycopy(buffer, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return closed ? 0 : buffer.length - pos;
+    }
+
+    /*
+     * Returns false if there are no more decompressed bytes.
+     */
+    private boolean fillBuffer() throws IOException {
+        if (closed) {
+            throw new IOException("stream is closed");
+        }
+        while (pos == buffer.length) {
+            submitBlocks();
+            if (pending.isEmpty()) {
+                return false;
+            }
+            buffer = take(pending.removeFirst());
+            pos = 0;
+        }
+        return true;
+    }
+
+    private void submitBlocks() throws IOException {
+        while (eof==false && pending.size() < maxPending) {
+            byte[] block = readBlock();
+            if (block==null) {
+                eof = true;
+            }
+            else {
+                pending.addLast(executor.submit(() -> inflate(block)));
+            }
+        }
+    }
+
+    private static byte[] take(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /*
+     * Returns the compressed block following the 12-byte GZIP header,
+     * or returns null if the end of the input stream has been reached.
+     */
+    private byte[] readBlock() throws IOException {
+        int n = readFully(header, 0, HEADER_BYTES);
+        if (n == 0) {
+            return null;
+        }
+        if (n < HEADER_BYTES || (header[0] & 0xff) != 31
+                || (header[1] & 0xff) != 139 || (header[3] & 4) == 0) {
+            throw new IOException("invalid BGZIP block header");
+        }
+        int xlen = unsignedShort(header, 10);
+        byte[] extra = new byte[xlen];
+        if (readFully(extra, 0, xlen) != xlen) {
+            throw new EOFException("truncated BGZIP block");
+        }
+        int bsize = blockSize(extra);
+        int remaining = bsize + 1 - HEADER_BYTES - xlen;
+        if (remaining < TRAILER_BYTES) {
+            throw new IOException("invalid BGZIP block size: " + bsize);
+        }
+        byte[] block = new byte[remaining];
+        if (readFully(block, 0, remaining) != remaining) {
+            throw new EOFException("truncated BGZIP block");
+        }
+        return block;
+    }
+
+    private static int blockSize(byte[] extra) throws IOException {
+        int index = 0;
+        while (index + 4 <= extra.length) {
+            int slen = unsignedShort(extra, index + 2);
+            if (extra[index]=='B' && extra[index + 1]=='C' && slen==2
+                    && index + 6 <= extra.length) {
+                return unsignedShort(extra, index + 4);
+            }
+            index += 4 + slen;
+        }
+        throw new IOException("missing BGZIP block size");
+    }
+
+    /*
+     * Returns the decompressed data in the specified compressed block,
+     * which is followed by the 8-byte GZIP trailer.
+     */
+    private static byte[] inflate(byte[] block) throws IOException {
+        int cdataLength = block.length - TRAILER_BYTES;
+        int crc32 = signedInt(block, cdataLength);
+        int iSize = signedInt(block, cdataLength + 4);
+        if (iSize < 0) {
+            throw new IOException("invalid BGZIP block size: " + iSize);
+        }
+        byte[] output = new byte[iSize];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(block, 0, cdataLength);
+            int n = 0;
+            while (n < iSize && inflater.finished()==false) {
+                int len = inflater.inflate(output, n, iSize - n);
+                if (len==0 && (inflater.needsInput()
+                        || inflater.needsDictionary())) {
+                    break;
+                }
+                n += len;
+            }
+            if (n != iSize) {
+                throw new IOException("corrupt BGZIP block");
+            }
+        }
+        catch (DataFormatException e) {
+            throw new IOException(e);
+        }
+        finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(output, 0, iSize);
+        if ((int) crc.getValue() != crc32) {
+            throw new IOException("BGZIP block CRC mismatch");
+        }
+        return output;
+    }
+
+    private int readFully(byte[] ba, int off, int len) throws IOException {
+        int n = 0;
+        while (n < len) {
+            int cnt = is.read(ba, off + n, len - n);
+            if (cnt < 0) {
+                break;
+            }
+            n += cnt;
+        }
+        return n;
+    }
+
+    private static int unsignedShort(byte[] ba, int index) {
+        return (ba[index] & 0xff) | ((ba[index + 1] & 0xff) << 8);
+    }
+
+    private static int signedInt(byte[] ba, int index) {
+        return (ba[index] & 0xff) | ((ba[index + 1] & 0xff) << 8)
+                | ((ba[index + 2] & 0xff) << 16) | ((ba[index + 3] & 0xff) << 24);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed==false) {
+            closed = true;
+            executor.shutdownNow();
+            pending.clear();
+            buffer = new byte[0];
+            pos = 0;
+            is.close();
+        }
+    }
+}
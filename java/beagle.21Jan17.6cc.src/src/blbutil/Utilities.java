@@ -25,6 +25,8 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Class {@code Utilities} contains miscellaneous static utility methods.
@@ -33,10 +35,55 @@ import java.util.Set;
  */
 public class Utilities {
 
+    private static volatile boolean throwOnExit = false;
+    private static final AtomicInteger nThrowOnExitTasks = new AtomicInteger(0);
+
     private Utilities() {
         // private constructor to prevent instantiation
     }
 
+    /**
+     * Sets whether the {@code exit()} methods throw an
+     * {@code IllegalStateException} after printing their messages
+     * instead of terminating the Java virtual machine.  A long-running
+     * process that runs several analyses can use this method to prevent
+     * an error in one analysis from terminating the process.
+     * @param throwException {@code true} if the {@code exit()} methods
+     * will throw an {@code IllegalStateException}, and {@code false}
+     * if the {@code exit()} methods will terminate the Java virtual
+     * machine
+     */
+    public static void setThrowOnExit(boolean throwException) {
+        throwOnExit = throwException;
+    }
+
+    /**
+     * Runs the specified task and returns its result.  While the task is
+     * running, the {@code exit()} methods throw an
+     * {@code IllegalStateException} after printing their messages instead
+     * of terminating the Java virtual machine.  The {@code exit()} methods
+     * throw an exception in any thread while the task is running because
+     * a task may use worker threads.  Previous behavior is restored when
+     * all concurrently running tasks have finished.
+     * @param <T> the type of result returned by the task
+     * @param task the task to be run
+     * @return the result returned by the task
+     * @throws NullPointerException if {@code task == null}
+     */
+    public static <T> T throwOnExit(Supplier<T> task) {
+        nThrowOnExitTasks.incrementAndGet();
+        try {
+            return task.get();
+        }
+        finally {
+            nThrowOnExitTasks.decrementAndGet();
+        }
+    }
+
+    private static boolean throwOnExit() {
+        return throwOnExit || nThrowOnExitTasks.get() > 0;
+    }
+
     /**
      * Prints a summary of memory use at the time of method invocation
      * to standard output.
@@ -183,12 +230,18 @@ public class Utilities {
      * @param s a string to be printed to standard err
      * @param e an exception or error to be printed to standard err
      *
+     * @throws IllegalStateException if {@code setThrowOnExit(true)} was
+     * the most recent invocation of {@code setThrowOnExit()} or if a
+     * task passed to {@code throwOnExit()} is running
      * @throws NullPointerException if {@code e == null}
      */
     public static void exit(String s, Throwable e) {
         e.printStackTrace(System.out);
         System.out.println(e);
         System.out.println(s);
+        if (throwOnExit()) {
+            throw new IllegalStateException(s, e);
+        }
         System.out.println("terminating program.");
         System.exit(1);
     }
@@ -198,10 +251,17 @@ public class Utilities {
      * Java virtual machine.
      *
      * @param s a string to be written to standard output
+     *
+     * @throws IllegalStateException if {@code setThrowOnExit(true)} was
+     * the most recent invocation of {@code setThrowOnExit()} or if a
+     * task passed to {@code throwOnExit()} is running
      */
     public static void exit(String s) {
         System.out.println(s);
         System.out.flush();
+        if (throwOnExit()) {
+            throw new IllegalStateException(s);
+        }
         System.exit(0);
     }
 }
@@ -78,8 +78,18 @@ public final class MergeableDag {
      */
     public static Dag dag(HapPairs hapPairs, float[] weights, float scale,
             int nInitLevels) {
+        DagEvent event = new DagEvent();
+        event.begin();
         MergeableDag md = new MergeableDag(hapPairs, weights, scale, nInitLevels);
-        return md.dag();
+        Dag dag = md.dag();
+        if (event.shouldCommit()) {
+            event.nMarkers = dag.nLevels();
+            event.nHaps = hapPairs.nHaps();
+            event.nNodes = dag.nNodes();
+            event.nEdges = dag.nEdges();
+            event.commit();
+        }
+        return dag;
     }
 
   /**
@@ -127,6 +127,48 @@ public final class BitHapPair implements HapPair {
         return allele;
     }
 
+    @Override
+    public int[] alleles1() {
+        return alleles(alleles1);
+    }
+
+    @Override
+    public int[] alleles2() {
+        return alleles(alleles2);
+    }
+
+    /* Extracts all alleles from the 64-bit words of the specified BitSet */
+    private int[] alleles(BitSet bitset) {
+        long[] words = bitset.toLongArray();
+        int nMarkers = markers.nMarkers();
+        int[] alleles = new int[nMarkers];
+        if (markers.sumHaplotypeBits()==nMarkers) {
+            for (int w=0; w<words.length; ++w) {
+                long word = words[w];
+                int base = w << 6;
+                while (word != 0) {
+                    alleles[base + Long.numberOfTrailingZeros(word)] = 1;
+                    word &= (word - 1);
+                }
+            }
+        }
+        else {
+            for (int k=0; k<nMarkers; ++k) {
+                int start = markers.sumHaplotypeBits(k);
+                int end = markers.sumHaplotypeBits(k+1);
+                int allele = 0;
+                for (int j=start; j<end; ++j) {
+                    int w = j >>> 6;
+                    if (w < words.length && ((words[w] >>> j) & 1L)==1L) {
+                        allele |= 1 << (j - start);
+                    }
+                }
+                alleles[k] = allele;
+            }
+        }
+        return alleles;
+    }
+
     @Override
     public Markers markers() {
         return markers;
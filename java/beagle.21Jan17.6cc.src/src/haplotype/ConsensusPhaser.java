@@ -21,10 +21,11 @@ package haplotype;
 import beagleutil.Phase;
 import beagleutil.Samples;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import vcf.Markers;
 import vcf.VcfRecord;
 
@@ -45,6 +46,9 @@ public class ConsensusPhaser {
      * Returns a list of consensus haplotype pairs (one pair per individual)
      * sorted in order of increasing sample index. The specified list of
      * haplotype pairs may contain multiple haplotype pairs for each individual.
+     * Individuals are processed in parallel, and the consensus haplotype
+     * pair for an individual depends only on the number of haplotype pairs
+     * in the specified list and on the haplotype pairs for the individual.
      *
      * @param hapPairs a list of haplotype pairs
      * @return a list of consensus haplotype pairs
@@ -58,65 +62,82 @@ public class ConsensusPhaser {
      * @throws NullPointerException if {@code hapPairs == null}
      */
     public static List<HapPair> run(List<HapPair> hapPairs) {
-        List<HapPair> copy = new ArrayList<>(hapPairs);
-        if (copy.isEmpty()) {
-            return copy;
+        HapPair[] hpa = hapPairs.toArray(new HapPair[0]);
+        if (hpa.length==0) {
+            return new ArrayList<>(0);
         }
-        checkMarkers(copy);
-        Random random = new Random(copy.size());
-
-        Collections.sort(copy, hapsComparator());
-        List<HapPair> consensus = new ArrayList<>(copy.size()/20);
-        int start = 0;
-        while (start < copy.size()) {
-            int end = start+1;
-            while (end < copy.size()
-                    && copy.get(end).sampleIndex()==copy.get(start).sampleIndex()) {
-                ++end;
-            }
-            if (end-start==1) {
-                consensus.add(copy.get(start));
-            }
-            else {
-                consensus.add(consensus(copy.subList(start, end), random));
-            }
-            start = end;
+        checkMarkers(hpa);
+        int nSamples = hpa[0].samples().nSamples();
+        int[] start = new int[nSamples + 1];
+        for (HapPair hp : hpa) {
+            ++start[hp.sampleIndex() + 1];
+        }
+        for (int j=1; j<start.length; ++j) {
+            start[j] += start[j-1];
         }
-        return consensus;
+        HapPair[] bySample = new HapPair[hpa.length];
+        int[] next = Arrays.copyOf(start, nSamples);
+        for (HapPair hp : hpa) {
+            bySample[next[hp.sampleIndex()]++] = hp;
+        }
+        long seed = hpa.length;
+        return IntStream.range(0, nSamples)
+                .parallel()
+                .filter(s -> start[s] < start[s+1])
+                .mapToObj(s -> consensus(bySample, start[s], start[s+1], seed))
+                .collect(Collectors.toCollection(ArrayList::new));
     }
 
-    private static void checkMarkers(List<HapPair> hapList) {
-        Markers markers = hapList.get(0).markers();
-        Samples samples = hapList.get(0).samples();
-        for (int j=1; j<hapList.size(); ++j) {
-            if (markers.equals(hapList.get(j).markers())==false) {
+    private static void checkMarkers(HapPair[] hapPairs) {
+        Markers markers = hapPairs[0].markers();
+        Samples samples = hapPairs[0].samples();
+        for (int j=1; j<hapPairs.length; ++j) {
+            if (markers.equals(hapPairs[j].markers())==false) {
                 throw new IllegalArgumentException("inconsistent markers");
             }
-            if (samples.equals(hapList.get(j).samples())==false) {
+            if (samples.equals(hapPairs[j].samples())==false) {
                 throw new IllegalArgumentException("inconsistent samples");
             }
         }
     }
 
-    private static HapPair consensus(List<HapPair> hapList, Random rand) {
-        HapPair firstHP = hapList.get(0);
+    private static HapPair consensus(HapPair[] hapPairs, int start, int end,
+            long seed) {
+        if (end - start == 1) {
+            return hapPairs[start];
+        }
+        HapPair firstHP = hapPairs[start];
         int sampleIndex = firstHP.sampleIndex();
+        Random rand = new Random(seed + 0x9E3779B97F4A7C15L*(sampleIndex + 1));
         Samples samples = firstHP.samples();
         Markers markers = firstHP.markers();
         int nMarkers = markers.nMarkers();
+        int nHapPairs = end - start;
+        int[][] hapAlleles1 = new int[nHapPairs][];
+        int[][] hapAlleles2 = new int[nHapPairs][];
+        for (int j=0; j<nHapPairs; ++j) {
+            hapAlleles1[j] = hapPairs[start + j].alleles1();
+            hapAlleles2[j] = hapPairs[start + j].alleles2();
+        }
         Phase lastConsensus = null;
-        Phase[] lastPhase = new Phase[hapList.size()];
-        Phase[] currentPhase = new Phase[hapList.size()];
+        Phase[] lastPhase = new Phase[nHapPairs];
+        Phase[] currentPhase = new Phase[nHapPairs];
+        int[] gtCounts = new int[3];
         int[] alleles1 = new int[nMarkers];
         int[] alleles2 = new int[nMarkers];
 
         for (int m=0; m<nMarkers; ++m) {
-            int hp = hapPairWithConsensusGT(hapList, markers, m, rand);
+            int nGt = markers.marker(m).nGenotypes();
+            if (gtCounts.length < nGt) {
+                gtCounts = new int[nGt];
+            }
+            int hp = hapPairWithConsensusGT(hapAlleles1, hapAlleles2, m,
+                    gtCounts, nGt, rand);
             // retrieve actual allele order to match input phased data
-            int a1 = hapList.get(hp).allele1(m);
-            int a2 = hapList.get(hp).allele2(m);
+            int a1 = hapAlleles1[hp][m];
+            int a2 = hapAlleles2[hp][m];
             if (a1!=a2) {
-                storePhase(hapList, m, a1, a2, currentPhase);
+                storePhase(hapAlleles1, hapAlleles2, m, a1, a2, currentPhase);
                 Phase consensus;
                 if (lastConsensus != null) {
                     Phase relPhase = relPhase(lastPhase, currentPhase, rand);
@@ -157,14 +178,14 @@ public class ConsensusPhaser {
         }
     }
 
-    private static int hapPairWithConsensusGT(List<HapPair> hapList,
-            Markers markers, int marker, Random random) {
-        int consensusGT = consensusGT(hapList, markers, marker, random);
-        for (int j=0, n=hapList.size(); j<n; ++j) {
-            HapPair hp = hapList.get(j);
-            int a1 = hp.allele1(marker);
-            int a2 = hp.allele2(marker);
-            if (VcfRecord.gtIndex(a1, a2) == consensusGT) {
+    private static int hapPairWithConsensusGT(int[][] alleles1,
+            int[][] alleles2, int marker, int[] gtCounts, int nGt,
+            Random random) {
+        int consensusGT = consensusGT(alleles1, alleles2, marker, gtCounts,
+                nGt, random);
+        for (int j=0; j<alleles1.length; ++j) {
+            int gt = VcfRecord.gtIndex(alleles1[j][marker], alleles2[j][marker]);
+            if (gt == consensusGT) {
                 return j;
             }
         }
@@ -172,15 +193,18 @@ public class ConsensusPhaser {
         throw new IllegalArgumentException("no sample with consensus GT");
     }
 
-    private static int consensusGT(List<HapPair> hapList, Markers markers,
-            int marker, Random random) {
-        int[] gtCounts  = gtCounts(hapList, markers, marker);
-        int start = random.nextInt(gtCounts.length);
+    private static int consensusGT(int[][] alleles1, int[][] alleles2,
+            int marker, int[] gtCounts, int nGt, Random random) {
+        Arrays.fill(gtCounts, 0, nGt, 0);
+        for (int j=0; j<alleles1.length; ++j) {
+            ++gtCounts[VcfRecord.gtIndex(alleles1[j][marker], alleles2[j][marker])];
+        }
+        int start = random.nextInt(nGt);
         int bestGt = start;
-        for (int j=1; j<gtCounts.length; ++j) {
+        for (int j=1; j<nGt; ++j) {
             int gt = start + j;
-            if (gt >= gtCounts.length) {
-                gt -= gtCounts.length;
+            if (gt >= nGt) {
+                gt -= nGt;
             }
             if (gtCounts[gt] > gtCounts[bestGt]) {
                 bestGt = gt;
@@ -189,26 +213,12 @@ public class ConsensusPhaser {
         return bestGt;
     }
 
-    private static int[] gtCounts(List<HapPair> hapList, Markers markers,
-            int marker) {
-        int nGt = markers.marker(marker).nGenotypes();
-        int[] gtCounts = new int[nGt];
-        for (int j=0, n=hapList.size(); j<n; ++j) {
-            HapPair hp = hapList.get(j);
-            int a1 = hp.allele1(marker);
-            int a2 = hp.allele2(marker);
-            int gt = VcfRecord.gtIndex(a1, a2);
-            ++gtCounts[gt];
-        }
-        return gtCounts;
-    }
-
-    private static void storePhase(List<HapPair> hapList, int marker,
-            int a1, int a2, Phase[] phaseArray) {
-        assert phaseArray.length == hapList.size();
+    private static void storePhase(int[][] alleles1, int[][] alleles2,
+            int marker, int a1, int a2, Phase[] phaseArray) {
+        assert phaseArray.length == alleles1.length;
         for (int j=0; j<phaseArray.length; ++j) {
-            int b1 = hapList.get(j).allele1(marker);
-            int b2 = hapList.get(j).allele2(marker);
+            int b1 = alleles1[j][marker];
+            int b2 = alleles2[j][marker];
             if ( (a1==b1 && a2==b2) || (a1==b2 && a2==b1) ) {
                 phaseArray[j] = (b1 < b2) ? Phase.IDENTICAL : Phase.OPPOSITE;
             }
@@ -246,26 +256,4 @@ public class ConsensusPhaser {
             return rand.nextBoolean() ? Phase.IDENTICAL : Phase.OPPOSITE;
         }
     }
-
-    /**
-     * Returns a {@code Comparator<HapPairInterface>}
-     * whose {@code compare(hp1, hp2)} method returns -1, 0, or 1
-     * depending on whether {@code hp1.idIndex()} is less than, equal,
-     * or greater than {@code hp2.idIndex()}.
-     * @return a {@code Comparator<HapPairInterface>}
-     * whose {@code compare(hp1, hp2)} method compares two
-     * haplotype pairs for order.
-     */
-    private static Comparator<HapPair> hapsComparator() {
-        return (HapPair hp1, HapPair hp2) -> {
-            int i1 = hp1.sampleIndex();
-            int i2 = hp2.sampleIndex();
-            if (i1==i2) {
-                return 0;
-            }
-            else {
-                return (i1 < i2) ? -1 : 1;
-            }
-        } ;
-    }
 }
@@ -51,6 +51,32 @@ public interface HapPair {
      */
     int allele2(int marker);
 
+    /**
+     * Returns an array of length {@code this.nMarkers()} whose {@code k}-th
+     * element is {@code this.allele1(k)}.
+     * @return the alleles of the first haplotype
+     */
+    default int[] alleles1() {
+        int[] alleles = new int[nMarkers()];
+        for (int k=0; k<alleles.length; ++k) {
+            alleles[k] = allele1(k);
+        }
+        return alleles;
+    }
+
+    /**
+     * Returns an array of length {@code this.nMarkers()} whose {@code k}-th
+     * element is {@code this.allele2(k)}.
+     * @return the alleles of the second haplotype
+     */
+    default int[] alleles2() {
+        int[] alleles = new int[nMarkers()];
+        for (int k=0; k<alleles.length; ++k) {
+            alleles[k] = allele2(k);
+        }
+        return alleles;
+    }
+
     /**
      * Returns the markers.
      * @return the markers
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package haplotype;
+
+import beagleutil.Samples;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * <p>Class {@code SwitchRate} contains static methods for calculating the
+ * rate of phase switches between two lists of estimated haplotype pairs
+ * for the same individuals.  The switch rate between consecutive phasing
+ * iterations measures the convergence of the estimated haplotypes.
+ * </p>
+ */
+public final class SwitchRate {
+
+    private SwitchRate() {
+        // private constructor prevents instantiation
+    }
+
+    /**
+     * <p>Returns the proportion of consecutive pairs of heterozygous genotypes
+     * whose relative phase differs between the two specified lists of
+     * haplotype pairs.  The first haplotype pair for each sample
+     * in {@code samples} in each list is compared, and haplotype pairs for
+     * other lists of samples are ignored.  A pair of consecutive
+     * heterozygous genotypes is compared only if the sample has the
+     * same heterozygous genotype at both markers in both lists.
+     * Returns {@code 0.0} if no pairs of heterozygous genotypes are compared.
+     * </p>
+     * <p>Samples are processed in parallel using the common
+     * fork-join pool.
+     * </p>
+     *
+     * @param hapPairs1 a list of haplotype pairs
+     * @param hapPairs2 a list of haplotype pairs
+     * @param samples the list of samples whose haplotype pairs are compared
+     * @return the proportion of consecutive pairs of heterozygous genotypes
+     * whose relative phase differs between the two lists
+     *
+     * @throws IllegalArgumentException if the compared haplotype pairs
+     * for a sample have a different number of markers
+     * @throws NullPointerException if
+     * {@code hapPairs1 == null || hapPairs2 == null || samples == null}
+     */
+    public static double rate(List<HapPair> hapPairs1,
+            List<HapPair> hapPairs2, Samples samples) {
+        HapPair[] first1 = firstHapPairs(hapPairs1, samples);
+        HapPair[] first2 = firstHapPairs(hapPairs2, samples);
+        long[] counts = IntStream.range(0, first1.length)
+                .parallel()
+                .filter(s -> first1[s]!=null && first2[s]!=null)
+                .mapToObj(s -> counts(first1[s], first2[s]))
+                .reduce(new long[2], (a, b) -> new long[] {a[0] + b[0],
+                        a[1] + b[1]});
+        return counts[1]==0 ? 0.0 : (double) counts[0] / counts[1];
+    }
+
+    /**
+     * <p>Returns an array of length {@code samples.nSamples()} whose
+     * {@code s}-th element is the proportion of consecutive pairs of
+     * heterozygous genotypes of the {@code s}-th sample whose relative phase
+     * differs between the two specified lists of haplotype pairs.
+     * Haplotype pairs are compared as described in
+     * {@code SwitchRate.rate()}.  The {@code s}-th element is
+     * {@code Double.NaN} if either list has no haplotype pair for the
+     * {@code s}-th sample, and is {@code 0.0} if no pairs of heterozygous
+     * genotypes are compared for the {@code s}-th sample.
+     * </p>
+     * <p>Samples are processed in parallel using the common
+     * fork-join pool.
+     * </p>
+     *
+     * @param hapPairs1 a list of haplotype pairs
+     * @param hapPairs2 a list of haplotype pairs
+     * @param samples the list of samples whose haplotype pairs are compared
+     * @return the proportion of phase switches for each sample
+     *
+     * @throws IllegalArgumentException if the compared haplotype pairs
+     * for a sample have a different number of markers
+     * @throws NullPointerException if
+     * {@code hapPairs1 == null || hapPairs2 == null || samples == null}
+     */
+    public static double[] sampleRates(List<HapPair> hapPairs1,
+            List<HapPair> hapPairs2, Samples samples) {
+        HapPair[] first1 = firstHapPairs(hapPairs1, samples);
+        HapPair[] first2 = firstHapPairs(hapPairs2, samples);
+        return IntStream.range(0, first1.length)
+                .parallel()
+                .mapToDouble(s -> {
+                    if (first1[s]==null || first2[s]==null) {
+                        return Double.NaN;
+                    }
+                    long[] counts = counts(first1[s], first2[s]);
+                    return counts[1]==0 ? 0.0 : (double) counts[0] / counts[1];
+                })
+                .toArray();
+    }
+
+    private static HapPair[] firstHapPairs(List<HapPair> hapPairs,
+            Samples samples) {
+        HapPair[] first = new HapPair[samples.nSamples()];
+        for (HapPair hp : hapPairs) {
+            if (hp.samples().equals(samples) && first[hp.sampleIndex()]==null) {
+                first[hp.sampleIndex()] = hp;
+            }
+        }
+        return first;
+    }
+
+    /*
+     * Returns a two element array whose first element is the number of
+     * phase switches and whose second element is the number of compared
+     * pairs of consecutive heterozygous genotypes.
+     */
+    private static long[] counts(HapPair hp1, HapPair hp2) {
+        int nMarkers = hp1.nMarkers();
+        if (hp2.nMarkers() != nMarkers) {
+            throw new IllegalArgumentException("inconsistent markers");
+        }
+        long nSwitches = 0;
+        long nCompared = 0;
+        boolean hasLastPhase = false;
+        boolean lastPhase = false;
+        for (int m=0; m<nMarkers; ++m) {
+            int a1 = hp1.allele1(m);
+            int a2 = hp1.allele2(m);
+            if (a1 != a2) {
+                int b1 = hp2.allele1(m);
+                int b2 = hp2.allele2(m);
+                boolean samePhase = (a1==b1 && a2==b2);
+                if (samePhase || (a1==b2 && a2==b1)) {
+                    if (hasLastPhase) {
+                        ++nCompared;
+                        if (samePhase != lastPhase) {
+                            ++nSwitches;
+                        }
+                    }
+                    hasLastPhase = true;
+                    lastPhase = samePhase;
+                }
+            }
+        }
+        return new long[] {nSwitches, nCompared};
+    }
+}
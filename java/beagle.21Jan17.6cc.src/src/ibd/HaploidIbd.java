@@ -18,6 +18,7 @@
  */
 package ibd;
 
+import blbutil.CheckedExecutor;
 import blbutil.IntPair;
 import blbutil.Utilities;
 import dag.Dag;
@@ -31,10 +32,8 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import main.GeneticMap;
+import main.MarkerMap;
 import vcf.GL;
 
 /**
@@ -119,14 +118,50 @@ public final class HaploidIbd {
     @SuppressWarnings({"BroadCatchBlock", "TooBroadCatch"})
     public Map<IntPair, List<IbdSegment>> run(GL gl, Dag dag,
             SampleHapPairs haps, final int nThreads) {
+        return run(gl, dag, haps, MarkerMap.create(genMap, dag.markers()),
+                nThreads);
+    }
+
+    /**
+     * Runs the Refined IBD algorithm, and returns a map whose keys are
+     * ordered pairs of haplotype indices and whose values are thread-safe
+     * lists of IBD segments for each haplotype pair. The minimum haplotype
+     * index is listed first in each ordered pair of haplotype indices.
+     *
+     * @param gl the HMM emission probabilities
+     * @param dag the HMM transition probabilities
+     * @param haps the sample haplotype pairs
+     * @param map the genetic map positions of the markers
+     * @param nThreads the number of threads of execution that may be used
+     * @return the detected IBD segments
+     *
+     * @throws IllegalArgumentException if {@code nThreads < 1}
+     * @throws IllegalArgumentException if
+     * {@code gl.samples().equals(haps.samples()) == false}
+     * @throws IllegalArgumentException if
+     * {@code gl.markers().equals(dag.markers()) == false
+                || gl.markers().equals(haps.markers()) == false}
+     * @throws IllegalArgumentException if
+     * {@code gl.markers().equals(map.markers()) == false}
+     * @throws NullPointerException if
+     * {@code gl == null || dag == null || haps == null || map == null}
+     */
+    @SuppressWarnings({"BroadCatchBlock", "TooBroadCatch"})
+    public Map<IntPair, List<IbdSegment>> run(GL gl, Dag dag,
+            SampleHapPairs haps, MarkerMap map, final int nThreads) {
         checkParameters(gl, dag, haps);
-        double[] pos = genMap.genPos(dag.markers());
+        if (gl.markers().equals(map.markers())==false) {
+            throw new IllegalArgumentException("inconsistent markers");
+        }
+        IbdEvent event = new IbdEvent();
+        event.begin();
+        double[] pos = map.genPos();
         IbsHapSegments ibsSegments = new IbsHapSegments(haps, pos, minCm);
         ConcurrentMap<IntPair, List<IbdSegment>> ibdMap
                 = new ConcurrentHashMap<>();
 
         final BlockingQueue<Integer> qIn = new ArrayBlockingQueue<>(5*nThreads);
-        ExecutorService es = Executors.newFixedThreadPool(nThreads);
+        CheckedExecutor es = new CheckedExecutor(nThreads);
         for (int j=0; j<nThreads; ++j) {
             IbdBaum baum = new IbdBaum(dag, gl);
             es.submit(new ProduceIbd(haps, baum, ibsSegments, qIn, ibdMap,
@@ -134,17 +169,25 @@ public final class HaploidIbd {
         }
         try {
             for (int hap=0, n=haps.nHaps(); hap<n; ++hap) {
-                qIn.put(hap);
+                es.put(qIn, hap);
             }
             for (int j=0; j<nThreads; ++j) {
-               qIn.put(ProduceIbd.POISON);
+               es.put(qIn, ProduceIbd.POISON);
             }
-            es.shutdown();
-            es.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            es.shutdownAndAwait();
         }
         catch (Throwable e) {
             Utilities.exit("ERROR", e);
         }
+        if (event.shouldCommit()) {
+            event.nMarkers = haps.nMarkers();
+            event.nHaps = haps.nHaps();
+            event.nHapPairs = ibdMap.size();
+            event.nSegments = ibdMap.values().stream()
+                    .mapToLong(list -> list.size())
+                    .sum();
+            event.commit();
+        }
         return ibdMap;
     }
 
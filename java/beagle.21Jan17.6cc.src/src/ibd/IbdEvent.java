@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ibd;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <p>Class {@code IbdEvent} is a Java Flight Recorder event that records
+ * a run of the Refined IBD algorithm.
+ * </p>
+ * <p>Instances of class {@code IbdEvent} are not thread-safe.
+ * </p>
+ */
+@Name("beagle.Ibd")
+@Label("Refined IBD")
+@Category({"Beagle"})
+@Description("Detection of IBD and HBD segments")
+@StackTrace(false)
+final class IbdEvent extends jdk.jfr.Event {
+
+    @Label("Markers")
+    int nMarkers;
+
+    @Label("Haplotypes")
+    int nHaps;
+
+    @Label("Haplotype Pairs")
+    @Description("Haplotype pairs with at least one detected segment")
+    int nHapPairs;
+
+    @Label("Segments")
+    long nSegments;
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import beagleutil.Samples;
+import haplotype.HapPair;
+import haplotype.SwitchRate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Class {@code ActiveSamples} determines the target samples whose
+ * haplotype pairs are resampled in each iteration of a sequence of
+ * phasing iterations.  A sample is stable if the proportion of phase
+ * switches between its haplotype pairs sampled in consecutive iterations
+ * is less than a threshold.  The haplotype pairs of a stable sample are
+ * reused in subsequent iterations instead of being resampled.  All samples
+ * are resampled in the first iteration and in every
+ * {@code sweepInterval}-th iteration thereafter.
+ * </p>
+ * <p>Instances of class {@code ActiveSamples} are not thread-safe.
+ * </p>
+ */
+public final class ActiveSamples {
+
+    private final Samples samples;
+    private final double maxSwitchRate;
+    private final int sweepInterval;
+    private final boolean[] isStable;
+    private int iteration = 0;
+
+    /**
+     * Constructs a new {@code ActiveSamples} instance.  Initially, no
+     * samples are stable.
+     * @param samples the target samples
+     * @param maxSwitchRate the switch rate threshold for stable samples
+     * @param sweepInterval the number of iterations between iterations in
+     * which all samples are resampled
+     * @throws IllegalArgumentException if
+     * {@code maxSwitchRate <= 0.0 || Double.isNaN(maxSwitchRate)}
+     * @throws IllegalArgumentException if {@code sweepInterval < 1}
+     * @throws NullPointerException if {@code samples == null}
+     */
+    public ActiveSamples(Samples samples, double maxSwitchRate,
+            int sweepInterval) {
+        if ((maxSwitchRate > 0.0)==false) {
+            throw new IllegalArgumentException(String.valueOf(maxSwitchRate));
+        }
+        if (sweepInterval < 1) {
+            throw new IllegalArgumentException(String.valueOf(sweepInterval));
+        }
+        this.samples = samples;
+        this.maxSwitchRate = maxSwitchRate;
+        this.sweepInterval = sweepInterval;
+        this.isStable = new boolean[samples.nSamples()];
+    }
+
+    /**
+     * Returns the target samples.
+     * @return the target samples
+     */
+    public Samples samples() {
+        return samples;
+    }
+
+    /**
+     * Advances to the next iteration and returns an increasing list of the
+     * indices of the samples that are resampled in the iteration.
+     * All samples are returned if the iteration is a full sweep.
+     * @return an increasing list of the indices of the samples that are
+     * resampled in the next iteration
+     */
+    public int[] next() {
+        boolean fullSweep = (iteration % sweepInterval)==0;
+        ++iteration;
+        int[] active = new int[isStable.length];
+        int size = 0;
+        for (int s=0; s<isStable.length; ++s) {
+            if (fullSweep || isStable[s]==false) {
+                active[size++] = s;
+            }
+        }
+        return size==active.length ? active : Arrays.copyOf(active, size);
+    }
+
+    /**
+     * Updates the stable samples and returns the haplotype pairs for the
+     * current iteration.  The returned list contains the specified
+     * {@code sampledHapPairs} followed by the haplotype pairs in
+     * {@code lastHapPairs} of each target sample that is not in
+     * {@code active}.  A sample in {@code active} is stable
+     * if the proportion of phase switches between its first haplotype
+     * pair in {@code lastHapPairs} and its first haplotype pair in
+     * {@code sampledHapPairs} is less than the switch rate threshold.
+     * Haplotype pairs in {@code lastHapPairs} for other lists of samples
+     * are ignored.
+     *
+     * @param lastHapPairs the haplotype pairs of the preceding iteration
+     * @param sampledHapPairs the haplotype pairs sampled in the current
+     * iteration for the samples in {@code active}
+     * @param active the increasing list of the indices of samples that were
+     * resampled in the current iteration
+     * @return the haplotype pairs for the current iteration
+     * @throws IndexOutOfBoundsException if any element of {@code active}
+     * is negative or greater than or equal to
+     * {@code this.samples().nSamples()}
+     * @throws NullPointerException if {@code lastHapPairs == null ||
+     * sampledHapPairs == null || active == null}
+     */
+    public List<HapPair> update(List<HapPair> lastHapPairs,
+            List<HapPair> sampledHapPairs, int[] active) {
+        boolean[] isActive = new boolean[isStable.length];
+        double[] rates = SwitchRate.sampleRates(lastHapPairs, sampledHapPairs,
+                samples);
+        for (int s : active) {
+            isActive[s] = true;
+            isStable[s] = rates[s] < maxSwitchRate;
+        }
+        List<HapPair> hapPairs = new ArrayList<>(sampledHapPairs);
+        for (HapPair hp : lastHapPairs) {
+            if (hp.samples().equals(samples)
+                    && isActive[hp.sampleIndex()]==false) {
+                hapPairs.add(hp);
+            }
+        }
+        return hapPairs;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().toString();
+    }
+}
@@ -21,13 +21,16 @@ package main;
 import vcf.Markers;
 import vcf.Marker;
 import beagleutil.Samples;
-import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * <p>Class {@code BasicGenotypeValues} stores values for each possible
  * genotype for each sample at each marker.
  * </p>
- * <p>Instances of class {@code BasicGenotypeValues} are thread-safe.
+ * <p>Instances of class {@code BasicGenotypeValues} are thread-safe
+ * if each sample's values are modified by at most one thread at a time,
+ * and if all modifications happen-before the values are read.
+ * Each sample's values are stored in a separate array, and no monitor is
+ * acquired when values are added or read.
  * </p>
  *
  * @author Brian L. Browning {@code <browning@uw.edu>}
@@ -38,9 +41,10 @@ public final class BasicGenotypeValues implements GenotypeValues {
     private final Samples samples;
 
     /*
-     * Class {@code SampleGenotypeValues} is thread-safe.
+     * Each {@code SampleGenotypeValues} is owned by the thread that is
+     * currently processing the corresponding sample.
      */
-    private final AtomicReferenceArray<SampleGenotypeValues> values;
+    private final SampleGenotypeValues[] values;
 
     /**
      * Constructs a new {@code BasicGenotypeValues} instance with initial
@@ -59,25 +63,35 @@ public final class BasicGenotypeValues implements GenotypeValues {
         }
         this.markers = markers;
         this.samples = samples;
-        this.values = new AtomicReferenceArray<>(samples.nSamples());
-        for (int j=0, n=samples.nSamples(); j<n; ++j) {
-            this.values.set(j, new SampleGenotypeValues(markers, samples, j));
+        this.values = new SampleGenotypeValues[samples.nSamples()];
+        for (int j=0; j<this.values.length; ++j) {
+            this.values[j] = new SampleGenotypeValues(markers, samples, j);
         }
     }
 
     @Override
     public float value(int marker, int sample, int genotype) {
-        return this.values.get(sample).value(marker, genotype);
+        return this.values[sample].value(marker, genotype);
+    }
+
+    @Override
+    public void values(int marker, int sample, double[] values) {
+        this.values[sample].values(marker, values);
     }
 
     @Override
     public void add(int sample, double[] values) {
-        this.values.get(sample).add(values);
+        this.values[sample].add(values);
+    }
+
+    @Override
+    public void addReversed(int sample, double[] values) {
+        this.values[sample].addReversed(values);
     }
 
     @Override
     public void add(int marker, int sample, int genotype, double value) {
-        this.values.get(sample).add(marker, genotype, value);
+        this.values[sample].add(marker, genotype, value);
     }
 
     @Override
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import beagleutil.ChromIds;
+import beagleutil.Samples;
+import blbutil.SampleFileIt;
+import blbutil.Utilities;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import vcf.BasicMarker;
+import vcf.DoseGT;
+import vcf.Marker;
+import vcf.Markers;
+import vcf.VcfEmission;
+
+/**
+ * <p>Class {@code Beagle} is an in-process interface to Beagle that reads
+ * target genotypes from arrays and returns the estimated genotype
+ * probabilities in arrays without reading or writing target or output
+ * files.  It is designed to be called from other languages, such as
+ * R through the rJava package.
+ * </p>
+ * <p>Target genotypes are unphased diallelic genotypes that are coded as
+ * ALT allele counts (0, 1, or 2), with -1 coding a missing genotype.
+ * If genotype likelihoods are specified, missing genotypes are modeled
+ * with the genotype likelihoods, and the analysis corresponds to the
+ * {@code gtgl} parameter.  Otherwise the analysis corresponds to the
+ * {@code gt} parameter.  Other analysis parameters, including the
+ * {@code ref} and {@code map} parameters, are specified with Beagle
+ * command line arguments.
+ * </p>
+ * <p>The {@code impute()} methods run the analysis with
+ * {@code blbutil.Utilities.throwOnExit()} so that an error throws
+ * an {@code IllegalStateException} instead of terminating the Java virtual
+ * machine.  If {@code impute()} methods run concurrently, process-wide
+ * CPU time, garbage collection, and heap metrics are not reported.
+ * </p>
+ */
+public final class Beagle {
+
+    private static final AtomicInteger N_ACTIVE_CALLS = new AtomicInteger(0);
+    private static final String IN_MEMORY = "in-memory";
+    private static final String[] TARGET_KEYS = {"gt", "gl", "gtgl",
+            "regions", "nregions"};
+
+    private Beagle() {
+        // private constructor to prevent instantiation
+    }
+
+    /**
+     * Phases and imputes the specified target genotypes.  Each marker
+     * has no identifier.  If a reference panel is specified, the
+     * chromosome, position, REF allele, and ALT allele of each target
+     * marker must match a reference marker.
+     *
+     * @param chrom an array whose {@code m}-th element is the chromosome
+     * of the {@code m}-th marker
+     * @param pos an array whose {@code m}-th element is the position
+     * of the {@code m}-th marker
+     * @param ref an array whose {@code m}-th element is the REF allele
+     * of the {@code m}-th marker
+     * @param alt an array whose {@code m}-th element is the ALT allele
+     * of the {@code m}-th marker
+     * @param sampleIds the sample identifiers
+     * @param genotypes an array whose {@code [m][s]} element is the ALT
+     * allele count of the {@code s}-th sample at the {@code m}-th marker, or
+     * -1 if the genotype is missing
+     * @param gls an array whose {@code [m][3*s + gt]} element is the
+     * likelihood of genotype {@code gt} (0/0, 0/1, 1/1) for the {@code s}-th
+     * sample at the {@code m}-th marker, or {@code null} if there are no
+     * genotype likelihoods
+     * @param args Beagle command line arguments other than the
+     * {@code gt}, {@code gl}, {@code gtgl}, {@code regions}, and
+     * {@code nregions} arguments
+     * @return the estimated ALT allele dosages and genotype probabilities
+     *
+     * @throws IllegalArgumentException if
+     * {@code chrom.length != pos.length || pos.length != genotypes.length}
+     * @throws IllegalArgumentException if
+     * {@code ref.length != pos.length || alt.length != pos.length}
+     * @throws IllegalArgumentException if markers on a chromosome are not
+     * contiguous and sorted in order of increasing position
+     * @throws IllegalArgumentException if the data or command line
+     * arguments are inconsistent or incorrectly specified
+     * @throws IllegalStateException if an error occurs during the analysis
+     * or if a REF or ALT allele is not a valid VCF allele
+     * @throws NullPointerException if
+     * {@code chrom == null || pos == null || sampleIds == null}
+     * @throws NullPointerException if
+     * {@code ref == null || alt == null}
+     * @throws NullPointerException if
+     * {@code genotypes == null || args == null}
+     */
+    public static ImputedGenotypes impute(String[] chrom, int[] pos,
+            String[] ref, String[] alt, String[] sampleIds, int[][] genotypes,
+            float[][] gls, String... args) {
+        if (chrom.length != pos.length) {
+            throw new IllegalArgumentException("chrom.length != pos.length");
+        }
+        if (ref.length != pos.length || alt.length != pos.length) {
+            throw new IllegalArgumentException("inconsistent alleles");
+        }
+        return Utilities.throwOnExit(() -> {
+            String[] ids = new String[0];
+            Marker[] markers = new Marker[chrom.length];
+            for (int m=0; m<markers.length; ++m) {
+                int chromIndex = ChromIds.instance().getIndex(chrom[m]);
+                String[] alleles = new String[] {ref[m], alt[m]};
+                markers[m] = new BasicMarker(chromIndex, pos[m], ids, alleles);
+            }
+            return impute(Markers.create(markers), Samples.fromIds(sampleIds),
+                    genotypes, gls, args);
+        });
+    }
+
+    /**
+     * Phases and imputes the specified target genotypes.
+     *
+     * @param markers the diallelic target markers
+     * @param samples the target samples
+     * @param genotypes an array whose {@code [m][s]} element is the ALT
+     * allele count of the {@code s}-th sample at the {@code m}-th marker, or
+     * -1 if the genotype is missing
+     * @param gls an array whose {@code [m][3*s + gt]} element is the
+     * likelihood of genotype {@code gt} (0/0, 0/1, 1/1) for the {@code s}-th
+     * sample at the {@code m}-th marker, or {@code null} if there are no
+     * genotype likelihoods
+     * @param args Beagle command line arguments other than the
+     * {@code gt}, {@code gl}, {@code gtgl}, {@code regions}, and
+     * {@code nregions} arguments
+     * @return the estimated ALT allele dosages and genotype probabilities
+     *
+     * @throws IllegalArgumentException if
+     * {@code genotypes.length != markers.nMarkers()}
+     * @throws IllegalArgumentException if
+     * {@code gls != null && gls.length != markers.nMarkers()}
+     * @throws IllegalArgumentException if the data or command line
+     * arguments are inconsistent or incorrectly specified
+     * @throws IllegalStateException if an error occurs during the analysis
+     * @throws NullPointerException if {@code markers == null}
+     * @throws NullPointerException if
+     * {@code samples == null || genotypes == null || args == null}
+     */
+    public static ImputedGenotypes impute(Markers markers, Samples samples,
+            int[][] genotypes, float[][] gls, String... args) {
+        if (genotypes.length != markers.nMarkers()) {
+            throw new IllegalArgumentException("inconsistent genotypes");
+        }
+        if (gls != null && gls.length != markers.nMarkers()) {
+            throw new IllegalArgumentException("inconsistent gls");
+        }
+        return Utilities.throwOnExit(() -> {
+            if (N_ACTIVE_CALLS.incrementAndGet() > 1) {
+                RunStats.setProcessShared();
+            }
+            try {
+                Par par = Main.checkParameters(
+                        new Par(args(args, gls!=null), false));
+                List<VcfEmission> list = new ArrayList<>(markers.nMarkers());
+                for (int m=0, n=markers.nMarkers(); m<n; ++m) {
+                    list.add(new DoseGT(markers.marker(m), samples, genotypes[m],
+                            gls==null ? null : gls[m]));
+                }
+                StringWriter log = new StringWriter();
+                RunStats runStats = new RunStats(par, new PrintWriter(log));
+                ImputedGenotypes result = new ImputedGenotypes(samples);
+                Main.analyze(par, markers, new EmissionIt(samples, list),
+                        runStats, result);
+                result.setLog(log.toString());
+                return result;
+            }
+            finally {
+                N_ACTIVE_CALLS.decrementAndGet();
+            }
+        });
+    }
+
+    private static String[] args(String[] args, boolean hasGls) {
+        List<String> list = new ArrayList<>(args.length + 2);
+        boolean hasOut = false;
+        for (String arg : args) {
+            for (String key : TARGET_KEYS) {
+                if (arg.startsWith(key + "=")) {
+                    String s = "the \"" + key + "\" argument is not permitted";
+                    throw new IllegalArgumentException(s);
+                }
+            }
+            hasOut |= arg.startsWith("out=");
+            list.add(arg);
+        }
+        list.add((hasGls ? "gtgl=" : "gt=") + IN_MEMORY);
+        if (hasOut==false) {
+            list.add("out=" + IN_MEMORY);
+        }
+        return list.toArray(new String[0]);
+    }
+
+    private static final class EmissionIt implements SampleFileIt<VcfEmission> {
+
+        private final Samples samples;
+        private final List<VcfEmission> list;
+        private int index = 0;
+
+        private EmissionIt(Samples samples, List<VcfEmission> list) {
+            this.samples = samples;
+            this.list = list;
+        }
+
+        @Override
+        public Samples samples() {
+            return samples;
+        }
+
+        @Override
+        public File file() {
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < list.size();
+        }
+
+        @Override
+        public VcfEmission next() {
+            if (hasNext()==false) {
+                throw new NoSuchElementException();
+            }
+            return list.get(index++);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return EmissionIt.class.toString();
+        }
+    }
+}
@@ -24,6 +24,8 @@ import haplotype.SampleHapPairs;
 import haplotype.Weights;
 import java.util.List;
 import vcf.Data;
+import vcf.EmissionTable;
+import vcf.FuzzyGL;
 import vcf.GL;
 import vcf.Markers;
 import vcf.SplicedGL;
@@ -40,8 +42,6 @@ import vcf.SplicedGL;
  */
 public class CurrentData {
 
-    private static final float MIN_GEN_DIST = 1e-7f;
-
     private final int window;
     private final SampleHapPairs initHaps;
     private final int prevSpliceStart;
@@ -51,6 +51,9 @@ public class CurrentData {
     private final int nextTargetOverlapStart;
 
     private final GL targetGL;
+    private EmissionTable targetEmissions;
+    private EmissionTable fuzzyTargetEmissions;
+    private float fuzzyTargetErr = Float.NaN;
     private final NuclearFamilies families;
     private final Weights weights;
 
@@ -67,6 +70,8 @@ public class CurrentData {
     private final SampleHapPairs refSampleHapPairs;
     private final SampleHapPairs restrictedRefSampleHapPairs;
 
+    private final MarkerMap markerMap;
+    private final MarkerMap targetMarkerMap;
     private final float[] recombRate;
 
     /**
@@ -95,6 +100,40 @@ public class CurrentData {
      */
     public CurrentData(Par par, GeneticMap genMap, Data data,
             SampleHapPairs overlapHaps, NuclearFamilies families) {
+        this(par, genMap, data, overlapHaps, families, par.overlap());
+    }
+
+    /**
+     * Constructs a new {@code CurrentData} instance from the specified
+     * data with the specified number of markers in the overlap with the
+     * next marker window.
+     *
+     * @param par the analysis parameters
+     * @param genMap the genetic map or {@code null} if no
+     * genetic map is specified
+     * @param data input data for the current marker window
+     * @param overlapHaps haplotype constraints in the overlap with previous
+     * window or {@code null} if no such constraints exist
+     * @param families the parent-offspring relationships
+     * @param overlap the number of markers in the overlap with the next
+     * marker window
+     *
+     * @throws IllegalArgumentException if {@code overlap < 0}
+     * @throws IllegalArgumentException if
+     * {@code data.targetSamples().equals(families.samples()) == false}
+     * @throws IllegalArgumentException if
+     * {@code (overlapHaps != null
+     * && data.targetSamples().equals(overlapHaps.samples()) == false)}
+     * @throws IllegalArgumentException if
+     * {@code (overlapHaps != null &&
+     * overlapHaps.marker(j).equals(data.targetGL().marker(j) == false)}
+     * for some {@code j} satisfying
+     * {@code (0 <= j && j <= overlapHaps.nMarkers())}
+     * @throws NullPointerException if {@code par == null || data == null
+     * || families == null}
+     */
+    public CurrentData(Par par, GeneticMap genMap, Data data,
+            SampleHapPairs overlapHaps, NuclearFamilies families, int overlap) {
         if (families.samples().equals(data.targetSamples())==false) {
             throw new IllegalArgumentException("inconsistent samples");
         }
@@ -105,7 +144,7 @@ public class CurrentData {
         this.window = data.window();
         this.initHaps = overlapHaps;
         this.prevSpliceStart = data.overlap()/2;
-        this.nextOverlapStart = CurrentData.this.nextOverlapStart(data, par.overlap());
+        this.nextOverlapStart = CurrentData.this.nextOverlapStart(data, overlap);
         this.nextSpliceStart = (data.nMarkers() + nextOverlapStart)/2;
         this.nextTargetOverlapStart = targetIndex(data, nextOverlapStart);
         this.nextTargetSpliceStart = targetIndex(data, nextSpliceStart);
@@ -127,7 +166,11 @@ public class CurrentData {
         this.refSampleHapPairs = data.refSampleHapPairs();
         this.restrictedRefSampleHapPairs = refSamples != null ?
                 new BasicSampleHapPairs(refSamples, restRefHapPairs) : null;
-        this.recombRate = recombRate(targetMarkers, genMap, par.mapscale());
+        this.targetMarkerMap = MarkerMap.create(genMap, targetMarkers);
+        this.markerMap = markers.equals(targetMarkers) ? targetMarkerMap
+                : MarkerMap.create(genMap, markers);
+        this.recombRate = (genMap==null) ? null
+                : targetMarkerMap.pRecomb(-2.0*par.mapscale());
     }
 
     /* Returns the index of the first marker in the overlap */
@@ -167,26 +210,6 @@ public class CurrentData {
         return i;
     }
 
-    private static float[] recombRate(Markers markers, GeneticMap map,
-            float mapScale) {
-        if (map==null) {
-            return null;
-        }
-        else {
-            double c = -2.0*mapScale;
-            float[] rr = new float[markers.nMarkers()];
-            rr[0] = 0.0f;
-            double lastGenPos = map.genPos(markers.marker(0));
-            for (int j=1; j<rr.length; ++j) {
-                double genPos = map.genPos(markers.marker(j));
-                double genDist = Math.max(Math.abs(genPos - lastGenPos), MIN_GEN_DIST);
-                rr[j] = (float) -Math.expm1(c*genDist);
-                lastGenPos = genPos;
-            }
-            return rr;
-        }
-    }
-
     /**
      * Returns the marker window index.
      * @return the marker window index
@@ -479,6 +502,41 @@ public class CurrentData {
         return targetGL;
     }
 
+    /**
+     * Returns a materialized copy of the genotype emission probabilities
+     * returned by {@code this.targetGL()}. The copy is constructed the
+     * first time this method is invoked.
+     * @return a materialized copy of the genotype emission probabilities
+     * for the target samples at the target data markers
+     */
+    public synchronized EmissionTable targetEmissions() {
+        if (targetEmissions==null) {
+            targetEmissions = new EmissionTable(targetGL);
+        }
+        return targetEmissions;
+    }
+
+    /**
+     * Returns a materialized copy of the genotype emission probabilities
+     * obtained by applying the specified allele error rate to the
+     * genotype emission probabilities returned by {@code this.targetGL()}.
+     * The copy is constructed the first time this method is invoked with
+     * the specified error rate, and is shared by all haplotype samplers for
+     * the current marker window.
+     * @param err the allele error rate
+     * @return a materialized copy of the genotype emission probabilities
+     * for the target samples at the target data markers
+     * @throws IllegalArgumentException if
+     * {@code Float.isNaN(err) || err < 0 || err >= 1.0}
+     */
+    public synchronized EmissionTable fuzzyTargetEmissions(float err) {
+        if (fuzzyTargetEmissions==null || err != fuzzyTargetErr) {
+            fuzzyTargetEmissions = new EmissionTable(new FuzzyGL(targetGL, err));
+            fuzzyTargetErr = err;
+        }
+        return fuzzyTargetEmissions;
+    }
+
     /**
      * Returns an array whose initial element is {@code 0} and whose
      * {@code j}-th element for {@code j > 0} is the recombination rate
@@ -489,4 +547,24 @@ public class CurrentData {
     public float[] recombRate() {
         return recombRate==null ? null : recombRate.clone();
     }
+
+    /**
+     * Returns the genetic map positions of the markers in the current
+     * marker window.  If no genetic map was specified, the genetic map
+     * position of each marker is 1 cM per million base pairs.
+     * @return the genetic map positions of the markers
+     */
+    public MarkerMap markerMap() {
+        return markerMap;
+    }
+
+    /**
+     * Returns the genetic map positions of the target markers in the
+     * current marker window.  If no genetic map was specified, the genetic
+     * map position of each marker is 1 cM per million base pairs.
+     * @return the genetic map positions of the target markers
+     */
+    public MarkerMap targetMarkerMap() {
+        return targetMarkerMap;
+    }
 }
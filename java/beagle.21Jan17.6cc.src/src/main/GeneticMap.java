@@ -102,6 +102,27 @@ public interface GeneticMap {
         return genPos;
     }
 
+    /**
+     * Returns an array of length {@code basePositions.length} whose
+     * {@code j}-th element is the genetic map position of
+     * {@code basePositions[j]} on the specified chromosome.
+     * @param chrom the chromosome index
+     * @param basePositions the base coordinates on the chromosome
+     * @return an array of genetic map positions
+     * @throws IllegalArgumentException if this genetic map has no
+     * map positions for the specified chromosome
+     * @throws IndexOutOfBoundsException if
+     * {@code chrom < 0 || chrom >= ChromIds.instance().size()}
+     * @throws NullPointerException if {@code basePositions == null}
+     */
+    default double[] genPos(int chrom, int[] basePositions) {
+        double[] genPos = new double[basePositions.length];
+        for (int j=0; j<genPos.length; ++j) {
+            genPos[j] = this.genPos(chrom, basePositions[j]);
+        }
+        return genPos;
+    }
+
     /**
      * Returns the an array of length {@code hapPairs.nMarkers()} whose
      * whose {@code j}-th element for {@code j > 0} is the
@@ -124,19 +145,7 @@ public interface GeneticMap {
         if (ne < 1f) {
             throw new IllegalArgumentException(String.valueOf(ne));
         }
-        double MIN_CM_DIST = 1e-7;
-        int chrom = markers.marker(0).chromIndex();
-        float[] pRecomb = new float[markers.nMarkers()];
-        double c = -(0.04*ne/nHaps);    // 0.04 = 4/(100 cM/M)
-        double lastGenPos = this.genPos(chrom, markers.marker(0).pos());
-        pRecomb[0] = 0f;
-        for (int j=1; j<pRecomb.length; ++j) {
-            double genPos = this.genPos(markers.marker(j));
-            double genDist = Math.max(Math.abs(genPos - lastGenPos), MIN_CM_DIST);
-            pRecomb[j] = (float) -Math.expm1(c*genDist);
-            lastGenPos = genPos;
-        }
-        return pRecomb;
+        return MarkerMap.create(this, markers).pRecomb(nHaps, ne);
     }
 
 }
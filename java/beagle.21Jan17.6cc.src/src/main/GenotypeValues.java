@@ -26,7 +26,11 @@ import beagleutil.Samples;
  * <p>Interface {@code GenotypeValues} represents a value for each
  * possible genotype for each sample at each marker.
  * </p>
- * <p>All instances of {@code GenotypeValues} are required to be thread-safe.
+ * <p>All instances of {@code GenotypeValues} are required to permit
+ * concurrent modification of the values for distinct samples.  It is the
+ * caller's responsibility to ensure that the values for any one sample
+ * are modified by at most one thread at a time, and that all modifications
+ * happen-before the values are read.
  * </p>
  *
  * @author Brian L. Browning {@code <browning@uw.edu>}
@@ -50,6 +54,26 @@ public interface GenotypeValues {
      */
     float value(int marker, int sample, int genotype);
 
+    /**
+     * Copies the genotype values for the specified marker and sample
+     * into the specified array.
+     *
+     * @param marker a marker index
+     * @param sample a sample index
+     * @param values an array in which the first
+     * {@code this.marker(marker).nGenotypes()} elements will be set
+     * to the specified genotype values
+     *
+     * @throws IndexOutOfBoundsException if
+     * {@code marker < 0 || marker >= this.nMarkers()}
+     * @throws IndexOutOfBoundsException if
+     * {@code sample < 0 || sample >= this.nSamples()}
+     * @throws IndexOutOfBoundsException if
+     * {@code values.length < this.marker(marker).nGenotypes()}
+     * @throws NullPointerException if {@code values == null}
+     */
+    void values(int marker, int sample, double[] values);
+
     /**
      * Adds the specified genotype values to the stored genotype values
      * for the specified sample.  This method is equivalent to
@@ -74,6 +98,31 @@ public interface GenotypeValues {
      */
     void add(int sample, double[] values);
 
+    /**
+     * Adds the specified genotype values to the stored genotype values
+     * for the specified sample after reversing the order of markers.
+     * This method is equivalent to
+     * <pre>
+     * index = 0;
+     * for (m=this.nMarkers()-1; m&gt;=0; --m) {
+     *     for (gt=0; gt&lt;this.marker(m).nGenotypes(); ++gt) {
+     *         this.add(m, sample, gt, values[index++])
+     *     }
+     * }
+     * </pre>
+     *
+     * @param sample a sample index
+     * @param values an array of length {@code this.markers.sumGenotypes()}
+     * containing the genotype values to be added.
+     *
+     * @throws IndexOutOfBoundsException if
+     * if {@code sample < 0 || sample >= this.nSamples()}
+     * @throws IllegalArgumentException if
+     * {@code values.length != this.markers().sumGenotypes()}
+     * @throws NullPointerException if {@code values == null}
+     */
+    void addReversed(int sample, double[] values);
+
     /**
      * Adds the specified genotype value to the stored genotype value.
      *
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import beagleutil.Samples;
+import blbutil.CheckedExecutor;
+import blbutil.Const;
+import blbutil.FileUtil;
+import blbutil.Utilities;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import vcf.Marker;
+
+/**
+ * <p>Class {@code HapDoseWriter} writes quantized haplotype ALT allele
+ * dosages in an uncompressed binary format that can be memory-mapped.
+ * </p>
+ * <p>The binary file {@code outPrefix + ".hapdose"} begins with a 16 byte
+ * header: the 8 bytes {@code "HAPDOSE\1"}, the number of bits per
+ * value (8 or 16), and the number of haplotypes.  The header is followed by
+ * a block for each marker.  A marker block contains
+ * {@code (nAlleles - 1)} ALT allele dosages for each haplotype, sorted
+ * first by sample, then by haplotype within the sample, and then by ALT
+ * allele.  A dosage {@code p} is stored as the unsigned integer
+ * {@code Math.rint(p*(2^bits - 1))}.  All integers are little-endian.
+ * </p>
+ * <p>The tab-delimited text file {@code outPrefix + ".hapdose.idx"} has a
+ * line beginning with {@code "#SAMPLES"} that lists the sample identifiers,
+ * a header line, and then one line per marker with the CHROM, POS, ID, REF,
+ * and ALT fields of the marker and the byte offset of the marker's block in
+ * the binary file.
+ * </p>
+ * <p>Instances of class {@code HapDoseWriter} are not thread-safe.
+ * </p>
+ */
+public final class HapDoseWriter implements Closeable {
+
+    private static final byte[] MAGIC = new byte[]
+            {'H', 'A', 'P', 'D', 'O', 'S', 'E', 1};
+    private static final int HEADER_BYTES = 16;
+    private static final int BYTES_PER_STEP = 1 << 22;
+
+    private final Samples samples;
+    private final int bits;
+    private final int maxValue;
+    private final File doseFile;
+    private final File indexFile;
+    private final OutputStream doseOut;
+    private final PrintWriter indexOut;
+
+    private long offset;
+
+    /**
+     * Constructs a new {@code HapDoseWriter} instance.
+     * @param samples the samples whose data will be written
+     * @param outPrefix the output file prefix
+     * @param bits the number of bits per stored dosage
+     *
+     * @throws IllegalArgumentException if {@code bits != 8 && bits != 16}
+     * @throws IllegalArgumentException if {@code outPrefix.length() == 0}
+     * @throws NullPointerException if
+     * {@code samples == null || outPrefix == null}
+     */
+    public HapDoseWriter(Samples samples, String outPrefix, int bits) {
+        if (samples==null) {
+            throw new NullPointerException("samples==null");
+        }
+        if (outPrefix.length()==0) {
+            throw new IllegalArgumentException("outPrefix.length()==0");
+        }
+        if (bits != 8 && bits != 16) {
+            throw new IllegalArgumentException(String.valueOf(bits));
+        }
+        this.samples = samples;
+        this.bits = bits;
+        this.maxValue = (1 << bits) - 1;
+        this.doseFile = new File(outPrefix + ".hapdose");
+        this.indexFile = new File(outPrefix + ".hapdose.idx");
+        this.doseOut = new BufferedOutputStream(
+                FileUtil.fileOutputStream(doseFile));
+        this.indexOut = FileUtil.printWriter(indexFile);
+        writeHeader();
+    }
+
+    private void writeHeader() {
+        byte[] header = new byte[HEADER_BYTES];
+        System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+        setInt(bits, header, 8);
+        setInt(2*samples.nSamples(), header, 12);
+        write(header);
+        offset = HEADER_BYTES;
+
+        indexOut.print("#SAMPLES");
+        for (String id : samples.ids()) {
+            indexOut.print(Const.tab);
+            indexOut.print(id);
+        }
+        indexOut.println();
+        indexOut.println("#CHROM\tPOS\tID\tREF\tALT\tOFFSET");
+    }
+
+    private static void setInt(int i, byte[] ba, int start) {
+        ba[start] = (byte) i;
+        ba[start + 1] = (byte) (i >> 8);
+        ba[start + 2] = (byte) (i >> 16);
+        ba[start + 3] = (byte) (i >> 24);
+    }
+
+    private void write(byte[] ba) {
+        try {
+            doseOut.write(ba);
+        } catch (IOException e) {
+            Utilities.exit("Error writing to file: " + doseFile, e);
+        }
+    }
+
+    /**
+     * Returns the samples whose data is written by {@code this}.
+     * @return the samples whose data is written by {@code this}
+     */
+    public Samples samples() {
+        return samples;
+    }
+
+    /**
+     * Returns the number of bits per stored dosage.
+     * @return the number of bits per stored dosage
+     */
+    public int bits() {
+        return bits;
+    }
+
+    /**
+     * Returns the number of bytes written to the binary dosage file.
+     * @return the number of bytes written to the binary dosage file
+     */
+    public long bytesWritten() {
+        return offset;
+    }
+
+    /**
+     * Writes the quantized ALT allele dosages in {@code alProbs} for markers
+     * with index between {@code start} (inclusive) and {@code end}
+     * (exclusive).
+     *
+     * @param alProbs the estimated haplotype allele probabilities
+     * @param start the starting marker index (inclusive)
+     * @param end the ending marker index (exclusive)
+     * @param nThreads the number of parallel threads to use
+     *
+     * @throws IllegalArgumentException if
+     * {@code alProbs.samples().equals(this.samples()) == false}
+     * @throws IllegalArgumentException if {@code nThreads < 1}
+     * @throws IndexOutOfBoundsException if
+     * {@code start < 0 || end > alProbs.nMarkers() || start > end}
+     * @throws NullPointerException if {@code alProbs == null}
+     */
+    public void print(AlleleProbs alProbs, int start, int end, int nThreads) {
+        if (alProbs.samples().equals(samples)==false) {
+            throw new IllegalArgumentException("inconsistent samples");
+        }
+        int bytesPerValue = bits/8;
+        int step = Math.max(1, BYTES_PER_STEP
+                / (2*alProbs.nSamples()*bytesPerValue));
+        int nSteps = (end - start + step - 1) / step;
+        final AtomicInteger atomicInt = new AtomicInteger(0);
+        final ConcurrentHashMap<Integer, byte[]> map = new ConcurrentHashMap<>();
+        CheckedExecutor es = new CheckedExecutor(nThreads);
+        for (int j=0; j<nThreads; ++j) {
+            es.submit(
+                () -> {
+                    try {
+                        int index = atomicInt.getAndIncrement();
+                        while (index < nSteps) {
+                            int segStart = start + step*index;
+                            int segEnd = Math.min(segStart + step, end);
+                            map.put(index, doseBlocks(alProbs, segStart, segEnd));
+                            index = atomicInt.getAndIncrement();
+                        }
+                    }
+                    catch (Exception ex) {
+                        Utilities.exit("", ex);
+                    }
+                }
+            ) ;
+        }
+        try {
+            es.shutdownAndAwait();
+        }
+        catch (Throwable e) {
+            Utilities.exit("ERROR", e);
+        }
+        for (int m=start; m<end; ++m) {
+            Marker marker = alProbs.marker(m);
+            printIndexLine(marker, offset);
+            offset += blockSize(marker, alProbs.nSamples());
+        }
+        for (int j=0; j<nSteps; ++j) {
+            write(map.get(j));
+        }
+    }
+
+    private int blockSize(Marker marker, int nSamples) {
+        return 2*nSamples*(marker.nAlleles() - 1)*(bits/8);
+    }
+
+    private byte[] doseBlocks(AlleleProbs alProbs, int start, int end) {
+        int nSamples = alProbs.nSamples();
+        int size = 0;
+        for (int m=start; m<end; ++m) {
+            size += blockSize(alProbs.marker(m), nSamples);
+        }
+        byte[] ba = new byte[size];
+        int index = 0;
+        for (int m=start; m<end; ++m) {
+            int nAlleles = alProbs.marker(m).nAlleles();
+            for (int s=0; s<nSamples; ++s) {
+                for (int a=1; a<nAlleles; ++a) {
+                    index = setValue(alProbs.alProb1(m, s, a), ba, index);
+                }
+                for (int a=1; a<nAlleles; ++a) {
+                    index = setValue(alProbs.alProb2(m, s, a), ba, index);
+                }
+            }
+        }
+        assert index == ba.length;
+        return ba;
+    }
+
+    private int setValue(float p, byte[] ba, int index) {
+        int q = (int) Math.rint(p*maxValue);
+        if (q < 0) {
+            q = 0;
+        }
+        else if (q > maxValue) {
+            q = maxValue;
+        }
+        ba[index++] = (byte) q;
+        if (bits==16) {
+            ba[index++] = (byte) (q >> 8);
+        }
+        return index;
+    }
+
+    private void printIndexLine(Marker marker, long offset) {
+        indexOut.print(marker.chrom());
+        indexOut.print(Const.tab);
+        indexOut.print(marker.pos());
+        indexOut.print(Const.tab);
+        if (marker.nIds()==0) {
+            indexOut.print(Const.MISSING_DATA_CHAR);
+        }
+        else {
+            for (int j=0, n=marker.nIds(); j<n; ++j) {
+                if (j>0) {
+                    indexOut.print(Const.semicolon);
+                }
+                indexOut.print(marker.id(j));
+            }
+        }
+        indexOut.print(Const.tab);
+        indexOut.print(marker.allele(0));
+        indexOut.print(Const.tab);
+        if (marker.nAlleles()==1) {
+            indexOut.print(Const.MISSING_DATA_CHAR);
+        }
+        else {
+            for (int j=1, n=marker.nAlleles(); j<n; ++j) {
+                if (j>1) {
+                    indexOut.print(Const.comma);
+                }
+                indexOut.print(marker.allele(j));
+            }
+        }
+        indexOut.print(Const.tab);
+        indexOut.println(offset);
+    }
+
+    @Override
+    public void close() {
+        try {
+            doseOut.close();
+        } catch (IOException e) {
+            Utilities.exit("Error closing file: " + doseFile, e);
+        }
+        indexOut.close();
+    }
+}
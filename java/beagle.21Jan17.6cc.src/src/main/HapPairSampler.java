@@ -18,6 +18,7 @@
  */
 package main;
 
+import blbutil.CheckedExecutor;
 import blbutil.Utilities;
 import dag.Dag;
 import dag.LinkageEquilibriumDag;
@@ -32,13 +33,11 @@ import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 import sample.ConsumeSingleSamples;
 import sample.SingleBaum;
+import vcf.EmissionTable;
 import vcf.GL;
-import vcf.RevGL;
 
 /**
  * <p>Class {@code HapPairSampler} samples haplotype pairs and
@@ -89,7 +88,8 @@ public final class HapPairSampler {
         Dag dag = new LinkageEquilibriumDag(freqGL, minAlleleFreq);
         List<HapPair> sampledHaps = new ArrayList<>();
         sampledHaps = Collections.synchronizedList(sampledHaps);
-        sample(dag, emitGL, useRevDag, par.nsamples(),
+        int[] samples = IntStream.range(0, emitGL.nSamples()).toArray();
+        sample(dag, emitGL, useRevDag, par.nsamples(), samples,
                 sampledHaps, par.nthreads());
         return new ArrayList<>(sampledHaps);
     }
@@ -117,11 +117,47 @@ public final class HapPairSampler {
      */
     public List<HapPair> sample(CurrentData cd, List<HapPair> hapPairs,
             boolean useRevDag, GenotypeValues gv) {
+        return sample(cd, hapPairs, useRevDag, gv, null);
+    }
+
+    /**
+     * Returns a list of haplotype pairs sampled for the specified target
+     * samples. Haplotype pairs are
+     * sampled conditional on the observed genotype and a haplotype
+     * frequency model constructed from the specified {@code hapPairs}.
+     * The contract for this method is undefined if the specified
+     * {@code hapPairs} and {@code gv} are inconsistent with the input data
+     * contained in the {@code cd} parameter.
+     *
+     * @param cd the input data for the current marker window
+     * @param hapPairs the haplotype pairs used to build the haplotype
+     * frequency model
+     * @param useRevDag {@code true} if the order of markers should
+     * be reversed when building the haplotype frequency model, and
+     * {@code false} otherwise
+     * @param gv the current scaled genotype probabilities for the target
+     * samples or {@code null} if genotype probabilities are not to be estimated
+     * @param activeSamples the indices of the target samples whose
+     * haplotype pairs are sampled, or {@code null} if haplotype pairs are
+     * sampled for all target samples
+     * @return the sampled haplotype pairs
+     *
+     * @throws IllegalArgumentException if {@code haps.isEmpty() == true}
+     * @throws IndexOutOfBoundsException if {@code activeSamples != null}
+     * and an element of {@code activeSamples} is negative or greater than
+     * or equal to {@code cd.nTargetSamples()}
+     * @throws NullPointerException if {@code cd == null || hapPairs == null}
+     */
+    public List<HapPair> sample(CurrentData cd, List<HapPair> hapPairs,
+            boolean useRevDag, GenotypeValues gv, int[] activeSamples) {
         if (hapPairs.isEmpty()) {
             throw new IllegalArgumentException("hapPairs.isEmpty()");
         }
         int nThreads =  par.nthreads();
-        int nSampledHaps = par.nsamples()*cd.nTargetSamples();
+        int[] samples = activeSamples==null
+                ? IntStream.range(0, cd.nTargetSamples()).toArray()
+                : activeSamples;
+        int nSampledHaps = par.nsamples()*samples.length;
         GL gl = gl(cd, useRevDag);
         Dag dag = getDagsAndUpdatePos(cd, hapPairs, useRevDag);
         List<HapPair> sampledHaps = synchronizedEmptyList(nSampledHaps);
@@ -129,20 +165,19 @@ public final class HapPairSampler {
             if (useRevDag) {
                 gv = new RevGenotypeValues(gv);
             }
-            sample(dag, gl, useRevDag,par.nsamples(), sampledHaps, gv, nThreads);
+            sample(dag, gl, useRevDag, par.nsamples(), samples, sampledHaps,
+                    gv, nThreads);
         }
         else {
-            sample(dag, gl, useRevDag, par.nsamples(), sampledHaps, nThreads);
+            sample(dag, gl, useRevDag, par.nsamples(), samples, sampledHaps,
+                    nThreads);
         }
         return new ArrayList<>(sampledHaps);
     }
 
     private GL gl(CurrentData cd, boolean useRevDag) {
-        GL gl = cd.targetGL();
-        if (useRevDag) {
-            gl = new RevGL(gl);
-        }
-        return gl;
+        EmissionTable gl = cd.targetEmissions();
+        return useRevDag ? gl.reverse() : gl;
     }
 
     private static List<HapPair> synchronizedEmptyList(int capacity) {
@@ -174,60 +209,69 @@ public final class HapPairSampler {
 
     @SuppressWarnings({"BroadCatchBlock", "TooBroadCatch"})
     private void sample(Dag dag, GL gl, boolean markersAreReversed,
-            int nSamples, List<HapPair> sampledHaps, int nThreads) {
+            int nSamples, int[] samples, List<HapPair> sampledHaps,
+            int nThreads) {
         long t0 = System.nanoTime();
         Random rand = new Random(par.seed());
         final BlockingQueue<Integer> qIn = new ArrayBlockingQueue<>(3*nThreads);
-        ExecutorService es = Executors.newFixedThreadPool(nThreads);
+        CheckedExecutor es = new CheckedExecutor(nThreads);
+        SingleBaum firstBaum = null;
         for (int j=0; j<nThreads; ++j) {
             SingleBaum sb = new SingleBaum(dag, gl, rand.nextLong(),
-                    nSamples, par.lowmem());
+                    nSamples, par.lowmem(), par.hmmBytes());
+            if (j==0) {
+                firstBaum = sb;
+            }
             es.submit(new ConsumeSingleSamples(markersAreReversed, sb, qIn,
                     sampledHaps));
         }
         try {
-            for (int j=0, n=gl.nSamples(); j<n; ++j) {
-                qIn.put(j);
+            for (int j : samples) {
+                es.put(qIn, j);
             }
             for (int j=0; j<nThreads; ++j) {
-                qIn.put(ConsumeSingleSamples.POISON);
+                es.put(qIn, ConsumeSingleSamples.POISON);
             }
-            es.shutdown();
-            es.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            es.shutdownAndAwait();
         }
         catch (Throwable e) {
             Utilities.exit("ERROR", e);
         }
+        runStats.checkpoints(firstBaum.checkpoints(), samples.length);
         runStats.sampleNanos(System.nanoTime() - t0);
     }
 
     @SuppressWarnings({"BroadCatchBlock", "TooBroadCatch"})
     private void sample(Dag dag, GL gl, boolean markersAreReversed, int nCopies,
-            List<HapPair> sampledHaps, GenotypeValues gv,
+            int[] samples, List<HapPair> sampledHaps, GenotypeValues gv,
             int nThreads) {
         long t0 = System.nanoTime();
         Random rand = new Random(par.seed());
         final BlockingQueue<Integer> qIn = new ArrayBlockingQueue<>(3*nThreads);
-        ExecutorService es = Executors.newFixedThreadPool(nThreads);
+        CheckedExecutor es = new CheckedExecutor(nThreads);
+        SingleBaum firstBaum = null;
         for (int j=0; j<nThreads; ++j) {
             SingleBaum sb = new SingleBaum(dag, gl, rand.nextLong(),
-                    nCopies, par.lowmem());
+                    nCopies, par.lowmem(), par.hmmBytes());
+            if (j==0) {
+                firstBaum = sb;
+            }
             es.submit(new ConsumeSingleSamples(markersAreReversed, sb, qIn,
                     sampledHaps, gv));
         }
         try {
-            for (int j=0, n=gl.nSamples(); j<n; ++j) {
-                qIn.put(j);
+            for (int j : samples) {
+                es.put(qIn, j);
             }
             for (int j=0; j<nThreads; ++j) {
-                qIn.put(ConsumeSingleSamples.POISON);
+                es.put(qIn, ConsumeSingleSamples.POISON);
             }
-            es.shutdown();
-            es.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            es.shutdownAndAwait();
         }
         catch (Throwable e) {
             Utilities.exit("ERROR", e);
         }
+        runStats.checkpoints(firstBaum.checkpoints(), samples.length);
         runStats.sampleNanos(System.nanoTime() - t0);
     }
 }
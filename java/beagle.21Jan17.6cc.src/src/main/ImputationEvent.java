@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <p>Class {@code ImputationEvent} is a Java Flight Recorder event that
+ * records the imputation of ungenotyped markers in a marker window.
+ * </p>
+ * <p>Instances of class {@code ImputationEvent} are not thread-safe.
+ * </p>
+ */
+@Name("beagle.Imputation")
+@Label("Imputation")
+@Category({"Beagle"})
+@Description("Imputation of ungenotyped markers in a marker window")
+@StackTrace(false)
+final class ImputationEvent extends jdk.jfr.Event {
+
+    @Label("Window")
+    int window;
+
+    @Label("Tiled")
+    boolean tiled;
+
+    @Label("Target Haplotypes")
+    int nTargetHaps;
+
+    @Label("Reference Haplotypes")
+    int nRefHaps;
+
+    @Label("Clusters")
+    int nClusters;
+
+    @Label("Imputed Markers")
+    int nImputedMarkers;
+
+    @Label("HMM States")
+    @Description("Target haplotypes times clusters times reference haplotypes")
+    long nStates;
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import beagleutil.Samples;
+import java.util.ArrayList;
+import java.util.List;
+import vcf.Marker;
+import vcf.Markers;
+
+/**
+ * <p>Class {@code ImputedGenotypes} stores the estimated ALT allele
+ * dosages and genotype probabilities that are computed by an in-memory
+ * Beagle analysis.
+ * </p>
+ * <p>The genotype probabilities for a sample at a marker are stored in the
+ * order of the VCF GP field: the probability of genotype {@code j/k} with
+ * {@code j <= k} has index {@code k*(k+1)/2 + j}.  The ALT allele dosage
+ * is the expected number of non-REF alleles.  The arrays returned by
+ * the {@code dosages()} and {@code gprobs()} methods are not copies of
+ * stored data, so that large results can be passed to other languages
+ * without copying.
+ * </p>
+ * <p>Instances of class {@code ImputedGenotypes} are not thread-safe.
+ * </p>
+ */
+public final class ImputedGenotypes {
+
+    private final Samples samples;
+    private final List<Marker> markers = new ArrayList<>();
+    private final List<float[]> dosages = new ArrayList<>();
+    private final List<float[]> gprobs = new ArrayList<>();
+    private String log = "";
+
+    /**
+     * Constructs a new {@code ImputedGenotypes} instance with no stored
+     * markers.
+     * @param samples the samples
+     * @throws NullPointerException if {@code samples == null}
+     */
+    ImputedGenotypes(Samples samples) {
+        if (samples==null) {
+            throw new NullPointerException("samples==null");
+        }
+        this.samples = samples;
+    }
+
+    /**
+     * Stores the genotype probabilities for markers with index between
+     * {@code start} (inclusive) and {@code end} (exclusive).
+     * @param gv scaled genotype probabilities
+     * @param start the starting marker index (inclusive)
+     * @param end the ending marker index (exclusive)
+     * @throws IllegalArgumentException if
+     * {@code gv.samples().equals(this.samples()) == false}
+     * @throws IndexOutOfBoundsException if
+     * {@code start < 0 || end > gv.nMarkers()}
+     * @throws NullPointerException if {@code gv == null}
+     */
+    void add(GenotypeValues gv, int start, int end) {
+        checkSamples(gv.samples());
+        int nSamples = samples.nSamples();
+        for (int m=start; m<end; ++m) {
+            Marker marker = gv.marker(m);
+            int nGenotypes = marker.nGenotypes();
+            int[] altCount = altCount(marker.nAlleles());
+            double[] values = new double[nGenotypes];
+            float[] ds = new float[nSamples];
+            float[] gp = new float[nSamples*nGenotypes];
+            for (int s=0; s<nSamples; ++s) {
+                gv.values(m, s, values);
+                double sum = 0.0;
+                for (double v : values) {
+                    sum += v;
+                }
+                double dose = 0.0;
+                for (int gt=0; gt<nGenotypes; ++gt) {
+                    double p = values[gt]/sum;
+                    gp[s*nGenotypes + gt] = (float) p;
+                    dose += altCount[gt]*p;
+                }
+                ds[s] = (float) dose;
+            }
+            store(marker, ds, gp);
+        }
+    }
+
+    /**
+     * Stores the genotype probabilities for markers with index between
+     * {@code start} (inclusive) and {@code end} (exclusive).
+     * @param alProbs the estimated haplotype allele probabilities
+     * @param start the starting marker index (inclusive)
+     * @param end the ending marker index (exclusive)
+     * @throws IllegalArgumentException if
+     * {@code alProbs.samples().equals(this.samples()) == false}
+     * @throws IndexOutOfBoundsException if
+     * {@code start < 0 || end > alProbs.nMarkers()}
+     * @throws NullPointerException if {@code alProbs == null}
+     */
+    void add(AlleleProbs alProbs, int start, int end) {
+        checkSamples(alProbs.samples());
+        int nSamples = samples.nSamples();
+        for (int m=start; m<end; ++m) {
+            Marker marker = alProbs.marker(m);
+            int nAlleles = marker.nAlleles();
+            int nGenotypes = marker.nGenotypes();
+            float[] ds = new float[nSamples];
+            float[] gp = new float[nSamples*nGenotypes];
+            for (int s=0; s<nSamples; ++s) {
+                float dose = 0f;
+                for (int a=1; a<nAlleles; ++a) {
+                    dose += alProbs.alProb1(m, s, a) + alProbs.alProb2(m, s, a);
+                }
+                ds[s] = dose;
+                int gt = s*nGenotypes;
+                for (int a2=0; a2<nAlleles; ++a2) {
+                    for (int a1=0; a1<=a2; ++a1) {
+                        float p = alProbs.alProb1(m, s, a1)*alProbs.alProb2(m, s, a2);
+                        if (a1 != a2) {
+                            p += alProbs.alProb1(m, s, a2)*alProbs.alProb2(m, s, a1);
+                        }
+                        gp[gt++] = p;
+                    }
+                }
+            }
+            store(marker, ds, gp);
+        }
+    }
+
+    private void checkSamples(Samples other) {
+        if (other.equals(samples)==false) {
+            throw new IllegalArgumentException("inconsistent samples");
+        }
+    }
+
+    private static int[] altCount(int nAlleles) {
+        int[] altCount = new int[(nAlleles*(nAlleles+1))/2];
+        int gt = 0;
+        for (int a2=0; a2<nAlleles; ++a2) {
+            for (int a1=0; a1<=a2; ++a1) {
+                altCount[gt++] = (a1>0 ? 1 : 0) + (a2>0 ? 1 : 0);
+            }
+        }
+        return altCount;
+    }
+
+    private void store(Marker marker, float[] ds, float[] gp) {
+        markers.add(marker);
+        dosages.add(ds);
+        gprobs.add(gp);
+    }
+
+    /**
+     * Sets the log messages of the analysis.
+     * @param log the log messages of the analysis
+     * @throws NullPointerException if {@code log == null}
+     */
+    void setLog(String log) {
+        if (log==null) {
+            throw new NullPointerException("log==null");
+        }
+        this.log = log;
+    }
+
+    /**
+     * Returns the samples.
+     * @return the samples
+     */
+    public Samples samples() {
+        return samples;
+    }
+
+    /**
+     * Returns the number of stored markers.
+     * @return the number of stored markers
+     */
+    public int nMarkers() {
+        return markers.size();
+    }
+
+    /**
+     * Returns the stored markers.  The stored markers include imputed
+     * markers if a reference panel was used.
+     * @return the stored markers
+     */
+    public Markers markers() {
+        return Markers.create(markers.toArray(new Marker[0]));
+    }
+
+    /**
+     * Returns an array whose {@code [m][s]} element is the ALT allele
+     * dosage of sample {@code s} at the {@code m}-th stored marker.
+     * @return the ALT allele dosages
+     */
+    public float[][] dosages() {
+        return dosages.toArray(new float[0][]);
+    }
+
+    /**
+     * Returns an array whose {@code [m][s*nGenotypes + gt]} element is
+     * the probability of genotype {@code gt} for sample {@code s} at the
+     * {@code m}-th stored marker, where {@code nGenotypes} is the number of
+     * genotypes at the marker.
+     * @return the genotype probabilities
+     */
+    public float[][] gprobs() {
+        return gprobs.toArray(new float[0][]);
+    }
+
+    /**
+     * Returns the log messages of the analysis.
+     * @return the log messages of the analysis
+     */
+    public String log() {
+        return log;
+    }
+}
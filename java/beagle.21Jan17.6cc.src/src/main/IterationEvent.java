@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <p>Class {@code IterationEvent} is a Java Flight Recorder event that
+ * records a burn-in, phasing, or recombination-model iteration of
+ * haplotype sampling in a marker window.
+ * </p>
+ * <p>Instances of class {@code IterationEvent} are not thread-safe.
+ * </p>
+ */
+@Name("beagle.Iteration")
+@Label("Phasing Iteration")
+@Category({"Beagle"})
+@Description("Haplotype sampling iteration in a marker window")
+@StackTrace(false)
+final class IterationEvent extends jdk.jfr.Event {
+
+    @Label("Window")
+    int window;
+
+    @Label("Stage")
+    @Description("burnin, phase, or recomb")
+    String stage;
+
+    @Label("Iteration")
+    int iteration;
+
+    @Label("Target Markers")
+    int nTargetMarkers;
+
+    @Label("Sampled Samples")
+    int nSampled;
+
+    @Label("Target Samples")
+    int nTargetSamples;
+}
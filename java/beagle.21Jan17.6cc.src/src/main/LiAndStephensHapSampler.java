@@ -18,15 +18,14 @@
  */
 package main;
 
+import blbutil.CheckedExecutor;
 import blbutil.Utilities;
 import haplotype.SampleHapPairs;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import sample.LSHapBaum;
 import sample.ImputationData;
 
@@ -42,6 +41,7 @@ public final class LiAndStephensHapSampler {
 
     private final Par par;
     private final GeneticMap genMap;
+    private final RunStats runStats;
 
     /**
      * Constructs a {@code LiAndStephensHapSampler} instance from the specified
@@ -49,14 +49,20 @@ public final class LiAndStephensHapSampler {
      * @param par the analysis parameters
      * @param genMap the genetic map or {@code null} if no genetic map is
      * specified.
-     * @throws NullPointerException if {@code par == null}
+     * @param runStats the object to which run-time statistics will be written
+     * @throws NullPointerException if {@code par == null || runStats == null}
      */
-    public LiAndStephensHapSampler(Par par, GeneticMap genMap) {
+    public LiAndStephensHapSampler(Par par, GeneticMap genMap,
+            RunStats runStats) {
         if (par==null) {
             throw new IllegalArgumentException("par==null");
         }
+        if (runStats==null) {
+            throw new NullPointerException("runStats==null");
+        }
         this.par = par;
         this.genMap = genMap;
+        this.runStats = runStats;
     }
 
     /**
@@ -69,47 +75,141 @@ public final class LiAndStephensHapSampler {
      * @throws NullPointerException if {@code cd == null || shp == null}
      */
     public BasicAlleleProbs sample(CurrentData cd, SampleHapPairs shp)  {
+        return sample(cd, shp, null);
+    }
+
+    /**
+     * Returns estimated allele probabilities for each target sample at
+     * the specified reference markers.  The {@code j}-th marker of the
+     * returned allele probabilities is the reference marker with index
+     * {@code imputedMarkers[j]}.  If {@code imputedMarkers == null},
+     * allele probabilities are estimated at all reference markers.
+     * The contract for this method is undefined if the data in the
+     * specified {@code shp} and {@code cd} parameters are inconsistent.
+     * @param cd the input data for the current marker window
+     * @param shp estimated target haplotypes at the genotyped markers
+     * @param imputedMarkers an increasing sequence of reference marker
+     * indices or {@code null}
+     * @return estimated allele probabilities for each target sample
+     * @throws IllegalArgumentException if {@code imputedMarkers != null}
+     * and {@code imputedMarkers} is not an increasing sequence of
+     * indices between 0 (inclusive) and {@code cd.nMarkers()} (exclusive)
+     * @throws NullPointerException if {@code cd == null || shp == null}
+     */
+    public BasicAlleleProbs sample(CurrentData cd, SampleHapPairs shp,
+            int[] imputedMarkers)  {
+        ImputationEvent event = new ImputationEvent();
+        event.begin();
         Queue<HapAlleleProbs> qOut = new ConcurrentLinkedQueue<>();
-        multiThreadedHapSample(cd, shp, qOut, par.lowmem(), par.nthreads());
+        ImputationData impData = new ImputationData(par, cd, shp, genMap,
+                imputedMarkers);
+        multiThreadedHapSample(impData,
+                (baum, hap) -> qOut.add(baum.randomHapSample(hap)),
+                par.lowmem(), par.nthreads());
         HapAlleleProbs[] hapAlleleProbs = qOut.toArray(new HapAlleleProbs[0]);
+        commit(event, cd, impData, false);
         return new BasicAlleleProbs(hapAlleleProbs);
     }
 
+    /**
+     * Returns estimated allele probabilities for each target sample at
+     * the imputed markers with index between {@code start} (inclusive)
+     * and {@code end} (exclusive), in tiles of at most
+     * {@code par.imputetile()} consecutive imputed markers.  The
+     * {@code j}-th imputed marker is the reference marker with index
+     * {@code imputedMarkers[j]}.  If {@code imputedMarkers == null},
+     * all reference markers are imputed.  The allele probabilities of each
+     * target haplotype are written to the returned object's temporary
+     * file as soon as the haplotype's forward-backward algorithm is
+     * complete.  The returned object should be closed when it is no
+     * longer needed.
+     * The contract for this method is undefined if the data in the
+     * specified {@code shp} and {@code cd} parameters are inconsistent.
+     * @param cd the input data for the current marker window
+     * @param shp estimated target haplotypes at the genotyped markers
+     * @param imputedMarkers an increasing sequence of reference marker
+     * indices or {@code null}
+     * @param start the first imputed marker index (inclusive)
+     * @param end the last imputed marker index (exclusive)
+     * @return estimated allele probabilities for each target sample
+     * @throws IllegalArgumentException if {@code imputedMarkers != null}
+     * and {@code imputedMarkers} is not an increasing sequence of
+     * indices between 0 (inclusive) and {@code cd.nMarkers()} (exclusive)
+     * @throws IllegalArgumentException if {@code start < 0 || start > end}
+     * or if {@code end} exceeds the number of imputed markers
+     * @throws IllegalArgumentException if {@code par.imputetile() < 1}
+     * @throws NullPointerException if {@code cd == null || shp == null}
+     */
+    public TiledAlleleProbs tiledSample(CurrentData cd, SampleHapPairs shp,
+            int[] imputedMarkers, int start, int end)  {
+        ImputationEvent event = new ImputationEvent();
+        event.begin();
+        ImputationData impData = new ImputationData(par, cd, shp, genMap,
+                imputedMarkers);
+        TiledAlleleProbs tiledProbs = new TiledAlleleProbs(impData, start,
+                end, par.imputetile());
+        multiThreadedHapSample(impData,
+                (baum, hap) -> tiledProbs.add(baum.stateProbs(hap)),
+                par.lowmem(), par.nthreads());
+        commit(event, cd, impData, true);
+        return tiledProbs;
+    }
+
+    private static void commit(ImputationEvent event, CurrentData cd,
+            ImputationData impData, boolean tiled) {
+        if (event.shouldCommit()) {
+            int nTargHaps = impData.targHapPairs().nHaps();
+            int nRefHaps = impData.refHapPairs().nHaps();
+            event.window = cd.window();
+            event.tiled = tiled;
+            event.nTargetHaps = nTargHaps;
+            event.nRefHaps = nRefHaps;
+            event.nClusters = impData.nClusters();
+            event.nImputedMarkers = impData.nImputedMarkers();
+            event.nStates = (long) nTargHaps * impData.nClusters() * nRefHaps;
+            event.commit();
+        }
+    }
+
     @SuppressWarnings({"BroadCatchBlock", "TooBroadCatch"})
-    private void multiThreadedHapSample(CurrentData cd,
-            SampleHapPairs targetHapPairs, Queue<HapAlleleProbs> qOut,
-            boolean lowMem, int nThreads) {
+    private void multiThreadedHapSample(ImputationData impData,
+            BiConsumer<LSHapBaum, Integer> hapConsumer, boolean lowMem,
+            int nThreads) {
+        SampleHapPairs targetHapPairs = impData.targHapPairs();
         int qInSize = targetHapPairs.nSamples() + nThreads;
         final BlockingQueue<Integer> qIn = new ArrayBlockingQueue<>(qInSize);
-        ExecutorService es = Executors.newFixedThreadPool(nThreads);
-        ImputationData impData = new ImputationData(par, cd, targetHapPairs,
-                genMap);
+        CheckedExecutor es = new CheckedExecutor(nThreads);
+        runStats.imputeStates((long) impData.targHapPairs().nHaps()
+                * impData.nClusters() * impData.refHapPairs().nHaps());
         try {
             for (int j=0, n=targetHapPairs.nSamples(); j<n; ++j) {
-                qIn.put(j);
+                es.put(qIn, j);
             }
             for (int j=0; j<nThreads; ++j) {
-                qIn.put(LSHapSampler.POISON);
+                es.put(qIn, LSHapSampler.POISON);
             }
             for (int j=0; j<nThreads; ++j) {
-                LSHapBaum hb = new LSHapBaum(impData, lowMem);
-                es.submit(new LSHapSampler(hb, qIn, qOut));
+                LSHapBaum hb = new LSHapBaum(impData, lowMem, par.hmmBytes());
+                if (j==0) {
+                    runStats.checkpoints(hb.checkpoints(),
+                            targetHapPairs.nHaps());
+                }
+                es.submit(new LSHapSampler(hb, hapConsumer, qIn));
             }
-            es.shutdown();
-            es.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            es.shutdownAndAwait();
         }
         catch (Throwable e) {
             Utilities.exit("RecombHapSampler: ERROR", e);
         }
     }
 
-    private class LSHapSampler implements Runnable {
+    private static class LSHapSampler implements Runnable {
 
         public static final int POISON = -1;
 
         private final LSHapBaum baum;
+        private final BiConsumer<LSHapBaum, Integer> hapConsumer;
         private final BlockingQueue<Integer> qIn;
-        private final Queue<HapAlleleProbs> qOut;
 
         /*
          * Constructs a {@code ProduceHapSample} instance.
@@ -124,8 +224,9 @@ public final class LiAndStephensHapSampler {
          *
          * @throws NullPointerException if any parameter is {@code null}.
          */
-        public LSHapSampler(LSHapBaum baum, BlockingQueue<Integer> qIn,
-                Queue<HapAlleleProbs> qOut) {
+        public LSHapSampler(LSHapBaum baum,
+                BiConsumer<LSHapBaum, Integer> hapConsumer,
+                BlockingQueue<Integer> qIn) {
             if (baum==null) {
                 throw new NullPointerException("baum=null");
             }
@@ -133,8 +234,8 @@ public final class LiAndStephensHapSampler {
                 throw new IllegalArgumentException("qIn==null");
             }
             this.baum = baum;
+            this.hapConsumer = hapConsumer;
             this.qIn = qIn;
-            this.qOut = qOut;
         }
 
         @Override
@@ -145,8 +246,8 @@ public final class LiAndStephensHapSampler {
                 while (sample != POISON) {
                     int hap1 = 2*sample;
                     int hap2 = 2*sample+1;
-                    qOut.add(baum.randomHapSample(hap1));
-                    qOut.add(baum.randomHapSample(hap2));
+                    hapConsumer.accept(baum, hap1);
+                    hapConsumer.accept(baum, hap2);
                     sample = qIn.take();
                 }
             }
@@ -19,6 +19,8 @@
 package main;
 
 import beagleutil.Samples;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import vcf.Marker;
 import vcf.Markers;
 
@@ -92,6 +94,61 @@ public class LowMemHapAlleleProbs implements HapAlleleProbs {
         this.alleleBin = nonRefProbs;
     }
 
+    /**
+     * Constructs a new {@code LowMemHapAlleleProbs} instance from
+     * allele probabilities that were written by the {@code writeTo()}
+     * method of a {@code LowMemHapAlleleProbs} instance with the same
+     * markers.  The allele probabilities are copied from
+     * {@code nBytes(markers)} elements of the {@code bytes} array
+     * beginning with element {@code from}.
+     * @param markers the markers
+     * @param samples the samples
+     * @param hap the haplotype index
+     * @param bytes the array containing the written allele probabilities
+     * @param from the index of the first written allele probability
+     * @throws IndexOutOfBoundsException if
+     * {@code hap < 0 || hap >= 2*samples.nSamples()}
+     * @throws IndexOutOfBoundsException if
+     * {@code from < 0 || from + nBytes(markers) > bytes.length}
+     * @throws NullPointerException if
+     * {@code markers == null || samples == null || bytes == null}
+     */
+    LowMemHapAlleleProbs(Markers markers, Samples samples, int hap,
+            byte[] bytes, int from) {
+        if (hap < 0 || hap >= 2*samples.nSamples()) {
+            throw new IndexOutOfBoundsException(String.valueOf(hap));
+        }
+        this.markers = markers;
+        this.samples = samples;
+        this.hap = hap;
+        this.alleleBin = Arrays.copyOfRange(bytes, from, from + nBytes(markers));
+    }
+
+    /**
+     * Returns the number of bytes that are written by the {@code writeTo()}
+     * method of a {@code LowMemHapAlleleProbs} instance with the specified
+     * markers.
+     * @param markers the markers
+     * @return the number of bytes that are written by the {@code writeTo()}
+     * method
+     * @throws NullPointerException if {@code markers == null}
+     */
+    static int nBytes(Markers markers) {
+        return markers.sumAlleles() - markers.nMarkers();
+    }
+
+    /**
+     * Writes the allele probabilities to the specified buffer.  Exactly
+     * {@code LowMemHapAlleleProbs.nBytes(this.markers())} bytes are written.
+     * @param buffer the buffer to which allele probabilities are written
+     * @throws java.nio.BufferOverflowException if there is insufficient
+     * space in the buffer
+     * @throws NullPointerException if {@code buffer == null}
+     */
+    void writeTo(ByteBuffer buffer) {
+        buffer.put(alleleBin);
+    }
+
     private static byte convertToByte(float f) {
         if (f >= 1f) {
             f = 0.99999f;
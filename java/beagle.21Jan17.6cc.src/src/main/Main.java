@@ -34,6 +34,7 @@ import haplotype.SampleHapPairs;
 import ibd.IbdSegment;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -43,6 +44,7 @@ import vcf.AllData;
 import vcf.VcfIt;
 import vcf.BrefIt;
 import vcf.Data;
+import vcf.IntervalLineIt;
 import vcf.IntervalVcfIt;
 import vcf.Marker;
 import vcf.FilterUtil;
@@ -50,6 +52,7 @@ import vcf.GL;
 import vcf.Markers;
 import vcf.TargetData;
 import vcf.RefIt;
+import vcf.RefPanel;
 import vcf.VcfEmission;
 import vcf.VcfRecord;
 
@@ -86,6 +89,7 @@ public class Main {
     private final Data data;
     private final RunStats runStats;
     private final WindowWriter windowOut;
+    private final ImputedGenotypes result;
 
     /**
      * Entry point to Beagle program.  See {@code Parameters.usage()} and
@@ -104,31 +108,117 @@ public class Main {
         Par par = parameters(args);
         System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism",
                 String.valueOf(par.nthreads()));
+        if (par.regions()!=null || par.nregions()>1) {
+            RegionRunner.run(par);
+        }
+        else {
+            analyze(par);
+        }
+    }
+
+    /**
+     * Analyzes the data specified by the analysis parameters, and writes
+     * the output and log files.
+     *
+     * @param par the analysis parameters
+     * @throws NullPointerException if {@code par == null}
+     */
+    static void analyze(Par par) {
+        analyze(par, null);
+    }
+
+    /**
+     * Analyzes the data specified by the analysis parameters, and writes
+     * the output and log files.  If {@code refPanel != null}, the
+     * reference genotypes are obtained from {@code refPanel} instead of
+     * from the {@code ref} file.
+     *
+     * @param par the analysis parameters
+     * @param refPanel the preloaded reference panel or {@code null}
+     * @throws NullPointerException if {@code par == null}
+     */
+    static void analyze(Par par, RefPanel refPanel) {
         RunStats runStats = new RunStats(par);
         runStats.printStartInfo();
         GeneticMap genMap = geneticMap(par);
 
-        try (Data data = (par.ref()==null) ? nonRefData(par) : allData(par);
+        try (Data data = (par.ref()==null) ? nonRefData(par)
+                : allData(par, refPanel);
                 WindowWriter winOut = new WindowWriter(
-                        data.targetSamples(), par.out())) {
-            Main main = new Main(par, data, genMap, winOut, runStats);
+                        data.targetSamples(), par.out(), isBcf(par),
+                        par.dosebits())) {
+            Main main = new Main(par, data, genMap, winOut, null, runStats);
             main.phaseData();
             runStats.printSummaryAndClose(data.nTargetMarkersSoFar(),
                     data.nMarkersSoFar());
         }
     }
 
+    /**
+     * Analyzes the specified in-memory target data and stores the
+     * estimated genotype probabilities in {@code result}.  No output files
+     * are written.
+     *
+     * @param par the analysis parameters
+     * @param targMarkers the target markers
+     * @param targIt an iterator over the target data
+     * @param runStats the class for collecting and printing run-time
+     * statistics
+     * @param result the object that will store the estimated genotype
+     * probabilities
+     * @throws NullPointerException if any parameter is {@code null}
+     */
+    static void analyze(Par par, Markers targMarkers,
+            SampleFileIt<? extends VcfEmission> targIt, RunStats runStats,
+            ImputedGenotypes result) {
+        if (result==null) {
+            throw new NullPointerException("result==null");
+        }
+        runStats.printStartInfo();
+        GeneticMap genMap = geneticMap(par);
+        Data data;
+        if (par.ref()==null) {
+            ChromInterval chromInterval = ChromInterval.parse(par.chrom());
+            if (chromInterval!=null) {
+                targIt = new IntervalVcfIt<>(targIt, chromInterval);
+            }
+            data = TargetData.targetData(targIt);
+        }
+        else {
+            Filter<Marker> markerFilter = FilterUtil.markerFilter(
+                    par.excludemarkers());
+            if (par.impute()==false || par.gt()==null) {
+                Set<Marker> includedMarkers = new HashSet<>(
+                        Arrays.asList(targMarkers.markers()));
+                markerFilter = Filter.includeFilter(includedMarkers);
+            }
+            data = allData(par, null, targIt, markerFilter);
+        }
+        try (Data d = data) {
+            Main main = new Main(par, d, genMap, null, result, runStats);
+            main.phaseData();
+            runStats.printSummaryAndClose(d.nTargetMarkersSoFar(),
+                    d.nMarkersSoFar());
+        }
+    }
+
+    private static boolean isBcf(Par par) {
+        return par.outformat().equals("bcf");
+    }
+
     private Main(Par par, Data data, GeneticMap genMap,
-            WindowWriter windowWriter, RunStats runStats) {
+            WindowWriter windowWriter, ImputedGenotypes result,
+            RunStats runStats) {
         assert par!=null;
         assert data!=null;
-        assert windowWriter!=null;
+        assert (windowWriter==null) != (result==null);
         assert runStats!=null;
         this.par = par;
         this.genMap = genMap;
         this.data = data;
         this.runStats = runStats;
         this.windowOut = windowWriter;
+        this.result = result;
     }
 
     /*
@@ -139,25 +229,82 @@ public class Main {
         NuclearFamilies fam = new NuclearFamilies(data.targetSamples(), par.ped());
         runStats.printSampleSummary(fam, data);
         MainHelper mh = new MainHelper(par, genMap, runStats);
+        Filter<Marker> imputeFilter = FilterUtil.imputeFilter(
+                par.imputemarkers(), par.imputeregions());
         SampleHapPairs overlapHaps = null;
+        WindowSizer sizer = par.autowindow()
+                ? new WindowSizer(par, genMap, data, runStats) : null;
         int overlap = 0;
         while (data.canAdvanceWindow()) {
-            advanceWindow(overlap, par.window());
-            CurrentData cd = new CurrentData(par, genMap, data, overlapHaps, fam);
+            WindowEvent event = new WindowEvent();
+            event.begin();
+            if (sizer==null) {
+                advanceWindow(overlap, par.window());
+            }
+            else {
+                advanceWindow(overlap, sizer.windowSize(overlap));
+            }
+            CurrentData cd = sizer==null
+                    ? new CurrentData(par, genMap, data, overlapHaps, fam)
+                    : new CurrentData(par, genMap, data, overlapHaps, fam,
+                            sizer.overlap(data));
             GenotypeValues gv = gv(par, cd);
             SampleHapPairs targetHapPairs = mh.phase(cd, gv);
             // targetHapPairs required to be aligned, GT-consistent with input data
 
             if (gv!=null) {
-                windowOut.printGV(cd, gv);
+                if (result!=null) {
+                    result.add(gv, cd.prevTargetSpliceStart(),
+                            cd.nextTargetSpliceStart());
+                }
+                else {
+                    windowOut.printGV(cd, gv);
+                }
             }
             else {
                 Map<IntPair, List<IbdSegment>> ibd = mh.refinedIbd(cd, targetHapPairs);
-                AlleleProbs alProbs = mh.LSImpute(cd, targetHapPairs);
-                printOutput(cd, targetHapPairs, alProbs, ibd);
+                int[] imputedMarkers = imputedMarkers(cd, imputeFilter);
+                TiledAlleleProbs tiledProbs = par.imputetile()==0 ? null
+                        : mh.tiledLSImpute(cd, targetHapPairs, imputedMarkers,
+                                imputedIndex(imputedMarkers, cd.prevSpliceStart()),
+                                imputedIndex(imputedMarkers, cd.nextSpliceStart()));
+                if (tiledProbs!=null) {
+                    try (TiledAlleleProbs tp = tiledProbs) {
+                        printTiledOutput(cd, targetHapPairs, tp,
+                                imputedMarkers, ibd);
+                    }
+                }
+                else {
+                    AlleleProbs alProbs = mh.LSImpute(cd, targetHapPairs,
+                            imputedMarkers);
+                    printOutput(cd, targetHapPairs, alProbs, imputedMarkers,
+                            ibd);
+                }
             }
             overlapHaps = overlapHaps(cd, targetHapPairs);
             overlap = cd.nMarkers() - cd.nextOverlapStart();
+            if (sizer!=null) {
+                sizer.update(data);
+            }
+            runStats.endWindow(data,
+                    windowOut==null ? 0L : windowOut.bytesWritten());
+            commit(event, cd);
+        }
+    }
+
+    private void commit(WindowEvent event, CurrentData cd) {
+        if (event.shouldCommit()) {
+            Markers markers = cd.markers();
+            event.window = cd.window();
+            event.chrom = markers.marker(0).chrom();
+            event.startPos = markers.marker(0).pos();
+            event.endPos = markers.marker(markers.nMarkers() - 1).pos();
+            event.nMarkers = cd.nMarkers();
+            event.nTargetMarkers = cd.nTargetMarkers();
+            event.nTargetSamples = cd.nTargetSamples();
+            event.nRefSamples = cd.nRefSamples();
+            event.bytesWritten = windowOut==null ? 0L : windowOut.bytesWritten();
+            event.commit();
         }
     }
 
@@ -192,19 +339,53 @@ public class Main {
         }
     }
 
+    /*
+     * Returns the increasing sequence of indices of target markers and of
+     * markers accepted by the specified filter, or returns null if
+     * all markers are imputed.
+     */
+    private int[] imputedMarkers(CurrentData cd, Filter<Marker> imputeFilter) {
+        if (imputeFilter==null || par.impute()==false
+                || cd.nTargetMarkers()==cd.nMarkers()) {
+            return null;
+        }
+        Markers markers = cd.markers();
+        int[] ia = new int[markers.nMarkers()];
+        int size = 0;
+        for (int m=0; m<ia.length; ++m) {
+            if (cd.targetMarkerIndex(m) != -1
+                    || imputeFilter.accept(markers.marker(m))) {
+                ia[size++] = m;
+            }
+        }
+        return Arrays.copyOf(ia, size);
+    }
+
     private void printOutput(CurrentData cd, SampleHapPairs targetHapPairs,
-            AlleleProbs alProbs, Map<IntPair, List<IbdSegment>> ibd) {
+            AlleleProbs alProbs, int[] imputedMarkers,
+            Map<IntPair, List<IbdSegment>> ibd) {
         assert par.gt()!=null;
         boolean markersAreImputed = cd.nTargetMarkers() < cd.nMarkers();
         boolean[] isImputed = isImputed(cd);
+        int[] targetMarkerIndices = cd.targetMarkerIndices();
         int start = cd.prevSpliceStart();
         int end = cd.nextSpliceStart();
+        if (imputedMarkers != null) {
+            isImputed = restrict(isImputed, imputedMarkers);
+            targetMarkerIndices = restrict(targetMarkerIndices, imputedMarkers);
+            start = nIndicesBefore(imputedMarkers, start);
+            end = nIndicesBefore(imputedMarkers, end);
+        }
         boolean dose = markersAreImputed;
         boolean gprobs = markersAreImputed && par.gprobs();
         int nThreads = par.nthreads();
         if (markersAreImputed){
             alProbs = new ConstrainedAlleleProbs(targetHapPairs, alProbs,
-                    cd.targetMarkerIndices());
+                    targetMarkerIndices);
+        }
+        if (result!=null) {
+            result.add(alProbs, start, end);
+            return;
         }
         windowOut.print(alProbs, isImputed, start, end, dose, gprobs, nThreads);
         if (par.ibd()) {
@@ -212,6 +393,76 @@ public class Main {
         }
     }
 
+    /*
+     * Prints imputed allele probabilities in tiles of at most
+     * par.imputetile() imputed markers so that allele probabilities
+     * for the entire window are never stored in memory at one time.
+     */
+    private void printTiledOutput(CurrentData cd, SampleHapPairs targetHapPairs,
+            TiledAlleleProbs tiledProbs, int[] imputedMarkers,
+            Map<IntPair, List<IbdSegment>> ibd) {
+        assert par.gt()!=null;
+        assert cd.nTargetMarkers() < cd.nMarkers();
+        boolean[] isImputed = isImputed(cd);
+        int[] targetMarkerIndices = cd.targetMarkerIndices();
+        if (imputedMarkers != null) {
+            isImputed = restrict(isImputed, imputedMarkers);
+            targetMarkerIndices = restrict(targetMarkerIndices, imputedMarkers);
+        }
+        boolean dose = true;
+        boolean gprobs = par.gprobs();
+        int nThreads = par.nthreads();
+        for (int t=0, nTiles=tiledProbs.nTiles(); t<nTiles; ++t) {
+            int tileStart = tiledProbs.start(t);
+            int tileEnd = tiledProbs.end(t);
+            int n = tileEnd - tileStart;
+            AlleleProbs alProbs = new ConstrainedAlleleProbs(targetHapPairs,
+                    tiledProbs.tile(t),
+                    Arrays.copyOfRange(targetMarkerIndices, tileStart, tileEnd));
+            if (result!=null) {
+                result.add(alProbs, 0, n);
+            }
+            else {
+                windowOut.print(alProbs,
+                        Arrays.copyOfRange(isImputed, tileStart, tileEnd),
+                        0, n, dose, gprobs, nThreads);
+            }
+        }
+        if (result==null && par.ibd()) {
+            windowOut.printIbd(cd, ibd);
+        }
+    }
+
+    private static boolean[] restrict(boolean[] ba, int[] indices) {
+        boolean[] restricted = new boolean[indices.length];
+        for (int j=0; j<indices.length; ++j) {
+            restricted[j] = ba[indices[j]];
+        }
+        return restricted;
+    }
+
+    private static int[] restrict(int[] ia, int[] indices) {
+        int[] restricted = new int[indices.length];
+        for (int j=0; j<indices.length; ++j) {
+            restricted[j] = ia[indices[j]];
+        }
+        return restricted;
+    }
+
+    /*
+     * Returns the number of imputed markers whose marker index is less
+     * than the specified marker index.
+     */
+    private static int imputedIndex(int[] imputedMarkers, int index) {
+        return imputedMarkers==null ? index
+                : nIndicesBefore(imputedMarkers, index);
+    }
+
+    private static int nIndicesBefore(int[] indices, int index) {
+        int i = Arrays.binarySearch(indices, index);
+        return i >= 0 ? i : -i - 1;
+    }
+
     private static boolean[] isImputed(CurrentData cd) {
         boolean[] ba = new boolean[cd.nMarkers()];
         if (cd.nTargetMarkers()<ba.length) {
@@ -260,17 +511,20 @@ public class Main {
         //     to get samples required to construct NuclearFamilies object.
         if (par.gt()!=null) {
             assert par.gl()==null && par.gtgl()==null;
-            FileIt<String> it = InputIt.fromGzipFile(par.gt());
+            FileIt<String> it = vcfLines(par.gt(), chromInterval,
+                    par.nthreads());
             targIt = VcfIt.create(it, sampleFilter, markerFilter, VcfIt.toBitSetGT);
         }
         else if (par.gl()!=null) {
             assert par.gt()==null && par.gtgl()==null;
-            FileIt<String> it = InputIt.fromGzipFile(par.gl());
+            FileIt<String> it = vcfLines(par.gl(), chromInterval,
+                    par.nthreads());
             targIt = VcfIt.create(it, sampleFilter, markerFilter, VcfIt.toGLRec);
         }
         else {
             assert par.gt()==null && par.gl()==null;
-            FileIt<String> it = InputIt.fromGzipFile(par.gtgl());
+            FileIt<String> it = vcfLines(par.gtgl(), chromInterval,
+                    par.nthreads());
             targIt = VcfIt.create(it, sampleFilter, markerFilter, VcfIt.toGTGLRec);
         }
         if (chromInterval!=null) {
@@ -279,7 +533,7 @@ public class Main {
         return TargetData.targetData(targIt);
     }
 
-    private static Data allData(Par par) {
+    private static Data allData(Par par, RefPanel refPanel) {
         Filter<String> sampleFilter = FilterUtil.sampleFilter(
                 par.excludesamples());
         Filter<Marker> markerFilter = FilterUtil.markerFilter(
@@ -288,36 +542,53 @@ public class Main {
 
         File targFile;
         SampleFileIt<? extends VcfEmission> targIt;
-        SampleFileIt<VcfEmission> refIt;
 
         if (par.gt()!=null) {
             assert par.gl()==null && par.gtgl()==null;
             targFile = par.gt();
-            FileIt<String> it = InputIt.fromGzipFile(targFile);
+            FileIt<String> it = vcfLines(targFile, chromInterval,
+                    par.nthreads());
             targIt = VcfIt.create(it, sampleFilter, markerFilter, VcfIt.toBitSetGT);
         }
         else if (par.gl()!=null) {
             assert par.gt()==null && par.gtgl()==null;
             targFile = par.gl();
-            FileIt<String> it = InputIt.fromGzipFile(targFile);
+            FileIt<String> it = vcfLines(targFile, chromInterval,
+                    par.nthreads());
             targIt = VcfIt.create(it, sampleFilter, markerFilter, VcfIt.toGLRec);
         }
         else {
             assert par.gt()==null && par.gl()==null && par.gtgl()!=null;
             targFile = par.gtgl();
-            FileIt<String> it = InputIt.fromGzipFile(targFile);
+            FileIt<String> it = vcfLines(targFile, chromInterval,
+                    par.nthreads());
             targIt = VcfIt.create(it, sampleFilter, markerFilter, VcfIt.toGTGLRec);
         }
 
         if (par.impute()==false || par.gt()==null) {
             markerFilter = restrictToVcfMarkers(targFile, markerFilter,
-                    chromInterval);
+                    chromInterval, par.nthreads());
         }
-        if (par.ref().toString().endsWith(".bref")) {
+        return allData(par, refPanel, targIt, markerFilter);
+    }
+
+    private static Data allData(Par par, RefPanel refPanel,
+            SampleFileIt<? extends VcfEmission> targIt,
+            Filter<Marker> markerFilter) {
+        Filter<String> sampleFilter = FilterUtil.sampleFilter(
+                par.excludesamples());
+        ChromInterval chromInterval = ChromInterval.parse(par.chrom());
+        SampleFileIt<VcfEmission> refIt;
+        if (refPanel != null) {
+            refIt = chromInterval==null ? refPanel.iterator(markerFilter)
+                    : refPanel.iterator(chromInterval, markerFilter);
+        }
+        else if (par.ref().toString().endsWith(".bref")) {
             refIt = new BrefIt(par.ref(), markerFilter);
         }
         else {
-            FileIt<String> it = InputIt.fromGzipFile(par.ref());
+            FileIt<String> it = vcfLines(par.ref(), chromInterval,
+                    par.nthreads());
             refIt = RefIt.create(it, sampleFilter, markerFilter,
                     RefIt.DEFAULT_EM_BUFFER_SIZE);
         }
@@ -329,10 +600,18 @@ public class Main {
         return AllData.allData(refIt, targIt);
     }
 
+    private static FileIt<String> vcfLines(File vcfFile,
+            ChromInterval chromInterval, int nThreads) {
+        FileIt<String> it = InputIt.fromGzipFile(vcfFile,
+                InputIt.DEFAULT_BUFFER_SIZE, nThreads);
+        return chromInterval==null ? it : new IntervalLineIt(it, chromInterval);
+    }
+
     private static Filter<Marker> restrictToVcfMarkers(File vcfFile,
-            Filter<Marker> markerFilter, ChromInterval chromInterval) {
+            Filter<Marker> markerFilter, ChromInterval chromInterval,
+            int nThreads) {
         Set<Marker> includedMarkers = new HashSet<>(50000);
-        try (FileIt<String> it = InputIt.fromGzipFile(vcfFile)) {
+        try (FileIt<String> it = vcfLines(vcfFile, chromInterval, nThreads)) {
             Filter<String> sampleFilter = null;
             SampleFileIt<VcfRecord> vcfIt = VcfIt.create(it, sampleFilter,
                     markerFilter, VcfIt.toGTGLRec);
@@ -383,18 +662,42 @@ public class Main {
      *
      * @param args the command line arguments.
      */
-    private static Par parameters(String[] args) {
+    static Par parameters(String[] args) {
+        return checkParameters(new Par(args));
+    }
+
+    /*
+     * Checks that certain parameters are consistent, and prints error
+     * message and exits if parameters are inconsistent.
+     *
+     * @param par the analysis parameters
+     */
+    static Par checkParameters(Par par) {
         // warnings are printed in RunStats.startInfo() method
-        Par par = new Par(args);
         checkForOneInputFile(par);
         checkOutputPrefix(par);
-        if (par.overlap() >= par.window()/2) {
+        if (par.autowindow()==false && par.overlap() >= par.window()/2) {
             String s = shortHelp + Const.nl
                     + Const.nl + "ERROR: The \"window\" parameter must be at least "
                     + "two times the \"overlap\" parameter"
                     + Const.nl + "Exiting program.";
             Utilities.exit(s);
         }
+        if ((par.regions()!=null || par.nregions()>1)
+                && (par.outformat().equals("bcf") || par.dosebits()!=0)) {
+            String s = shortHelp + Const.nl
+                    + Const.nl + "ERROR: The \"regions\" and \"nregions\" parameters "
+                    + "require VCF output and no \"dosebits\" parameter"
+                    + Const.nl + "Exiting program.";
+            Utilities.exit(s);
+        }
+        if (par.dosebits()!=0 && par.dosebits()!=8 && par.dosebits()!=16) {
+            String s = shortHelp + Const.nl
+                    + Const.nl + "ERROR: The \"dosebits\" parameter must be "
+                    + "8 or 16"
+                    + Const.nl + "Exiting program.";
+            Utilities.exit(s);
+        }
         if (par.chrom()!=null && ChromInterval.parse(par.chrom())==null) {
             String s = shortHelp + Const.nl
                     + Const.nl + "ERROR: invalid \"chrom\" parameter: \""
@@ -439,7 +742,7 @@ public class Main {
             Utilities.exit(Par.usage() + s);
         }
 
-        File vcfOut = new File(par.out() + ".vcf.gz");
+        File vcfOut = new File(par.out() + (isBcf(par) ? ".bcf" : ".vcf.gz"));
         if (vcfOut.equals(par.ref())) {
             String s = "ERROR: VCF output file equals input file: " + par.ref();
             Utilities.exit(Par.usage() + s);
@@ -460,7 +763,10 @@ public class Main {
 
     private void advanceWindow(int overlap, int window) {
         if (data.canAdvanceWindow()) {
+            runStats.startWindow(data);
+            long t0 = System.nanoTime();
             data.advanceWindow(overlap, window);
+            runStats.readNanos(System.nanoTime() - t0);
         }
         runStats.printWindowUpdate(data);
     }
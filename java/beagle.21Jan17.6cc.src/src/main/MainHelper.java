@@ -30,6 +30,7 @@ import haplotype.GenotypeCorrection;
 import haplotype.HapPair;
 import haplotype.HapPairs;
 import haplotype.SampleHapPairs;
+import haplotype.SwitchRate;
 import haplotype.WrappedHapPair;
 import ibd.HaploidIbd;
 import ibd.IbdSegment;
@@ -127,10 +128,21 @@ public class MainHelper {
 
     private List<HapPair> runBurnin1(CurrentData cd, List<HapPair> hapPairs) {
         GenotypeValues gv = null;
+        ActiveSamples activeSamples = activeSamples(cd, gv);
         for (int j=0; j<par.burnin_its(); ++j) {
+            IterationEvent event = new IterationEvent();
+            event.begin();
             boolean useRevDag = (j & 1)==1;
-            hapPairs = hapSampler.sample(cd, hapPairs, useRevDag, gv);
-            runStats.printIterationUpdate(cd.window(), j+1);
+            List<HapPair> lastHapPairs = hapPairs;
+            int[] active = activeSamples==null ? null : activeSamples.next();
+            List<HapPair> sampled = hapSampler.sample(cd, hapPairs, useRevDag,
+                    gv, active);
+            hapPairs = activeSamples==null ? sampled
+                    : activeSamples.update(lastHapPairs, sampled, active);
+            commit(event, cd, "burnin", j+1, active);
+            if (isConverged(cd, lastHapPairs, sampled, j+1, j+1, active)) {
+                break;
+            }
         }
         return hapPairs;
     }
@@ -140,11 +152,23 @@ public class MainHelper {
         List<HapPair> cumHapPairs = new ArrayList<>();
         int start = par.burnin_its();
         int end = start + par.phase_its();
+        ActiveSamples activeSamples = activeSamples(cd, gv);
         for (int j=start; j<end; ++j) {
+            IterationEvent event = new IterationEvent();
+            event.begin();
             boolean useRevDag = (j & 1)==1;
-            hapPairs = hapSampler.sample(cd, hapPairs, useRevDag, gv);
-            runStats.printIterationUpdate(cd.window(), j+1);
-            cumHapPairs.addAll(hapPairs);
+            List<HapPair> lastHapPairs = hapPairs;
+            int[] active = activeSamples==null ? null : activeSamples.next();
+            List<HapPair> sampled = hapSampler.sample(cd, hapPairs, useRevDag,
+                    gv, active);
+            hapPairs = activeSamples==null ? sampled
+                    : activeSamples.update(lastHapPairs, sampled, active);
+            cumHapPairs.addAll(sampled);
+            commit(event, cd, "phase", j+1, active);
+            if (isConverged(cd, lastHapPairs, sampled, j+1, j+1-start,
+                    active)) {
+                break;
+            }
         }
         return cumHapPairs;
     }
@@ -155,17 +179,94 @@ public class MainHelper {
         List<HapPair> cumHapPairs = new ArrayList<>();
         int start = par.burnin_its() + par.phase_its();
         int end = start + par.niterations();
+        ActiveSamples activeSamples = activeSamples(cd, gv);
         for (int j=start; j<end; ++j) {
+            IterationEvent event = new IterationEvent();
+            event.begin();
             boolean useRevDag = (j & 1)==1;
-            hapPairs = recombSampler.sample(cd, hapPairs, useRevDag, gv);
-            runStats.printIterationUpdate(cd.window(), j+1);
-            cumHapPairs.addAll(hapPairs);
+            List<HapPair> lastHapPairs = hapPairs;
+            int[] active = activeSamples==null ? null : activeSamples.next();
+            List<HapPair> sampled = recombSampler.sample(cd, hapPairs,
+                    useRevDag, gv, active);
+            hapPairs = activeSamples==null ? sampled
+                    : activeSamples.update(lastHapPairs, sampled, active);
+            cumHapPairs.addAll(sampled);
+            commit(event, cd, "recomb", j+1, active);
+            if (isConverged(cd, lastHapPairs, sampled, j+1, j+1-start,
+                    active)) {
+                break;
+            }
         }
         hapPairs = ConsensusPhaser.run(cumHapPairs);
         hapPairs = correctGenotypes(cd, hapPairs);
         return hapPairs;
     }
 
+    /*
+     * Returns null if par.stablerate() is not positive or if genotype
+     * probabilities are estimated, since genotype probabilities must be
+     * updated for every sample in every iteration.
+     */
+    private ActiveSamples activeSamples(CurrentData cd, GenotypeValues gv) {
+        if (par.stablerate() <= 0f || gv!=null) {
+            return null;
+        }
+        return new ActiveSamples(cd.targetSamples(), par.stablerate(),
+                par.sweepits());
+    }
+
+    /*
+     * Prints the iteration update and returns true if the switch rate
+     * between the specified haplotype pairs is less than par.switchrate()
+     * and at least par.minits() iterations of the current type have been
+     * performed.  The switch rate is computed from the samples that were
+     * resampled in the current iteration, since the reused haplotype pairs
+     * of the other samples have no phase switches.  Returns false if
+     * par.switchrate() is not positive or if no samples were resampled.
+     * The active array is null if all target samples were resampled.
+     */
+    private boolean isConverged(CurrentData cd, List<HapPair> lastHapPairs,
+            List<HapPair> sampledHapPairs, int iter, int nItsOfType,
+            int[] active) {
+        if (par.switchrate() <= 0f || (active!=null && active.length==0)) {
+            runStats.printIterationUpdate(cd.window(), iter);
+            printActiveSamples(cd, active);
+            return false;
+        }
+        double switchRate = SwitchRate.rate(lastHapPairs, sampledHapPairs,
+                cd.targetSamples());
+        runStats.printIterationUpdate(cd.window(), iter, switchRate);
+        printActiveSamples(cd, active);
+        boolean converged = nItsOfType >= par.minits()
+                && switchRate < par.switchrate();
+        if (converged) {
+            runStats.printConvergence(cd.window(), iter);
+        }
+        return converged;
+    }
+
+    /*
+     * The active array is null if all target samples were resampled.
+     */
+    private static void commit(IterationEvent event, CurrentData cd,
+            String stage, int iter, int[] active) {
+        if (event.shouldCommit()) {
+            event.window = cd.window();
+            event.stage = stage;
+            event.iteration = iter;
+            event.nTargetMarkers = cd.nTargetMarkers();
+            event.nSampled = active==null ? cd.nTargetSamples() : active.length;
+            event.nTargetSamples = cd.nTargetSamples();
+            event.commit();
+        }
+    }
+
+    private void printActiveSamples(CurrentData cd, int[] active) {
+        if (active!=null) {
+            runStats.printActiveSamples(active.length, cd.nTargetSamples());
+        }
+    }
+
     private List<HapPair> correctGenotypes(CurrentData cd, List<HapPair> hapPairs) {
         int start = cd.prevTargetSpliceStart();
         int end = cd.nextTargetSpliceStart();
@@ -198,7 +299,8 @@ public class MainHelper {
             GL ibdGL = new NoPhaseGL(cd.targetGL());
 
             Map<IntPair, List<IbdSegment>> ibdMap =
-                    hapIbd.run(ibdGL, dag, targetHapPairs, par.nthreads());
+                    hapIbd.run(ibdGL, dag, targetHapPairs,
+                            cd.targetMarkerMap(), par.nthreads());
             long nanos = (System.nanoTime() - t0);
             runStats.ibdNanos(nanos);
             runStats.printRefinedIbdUpdate(scale, dag, nanos);
@@ -246,14 +348,75 @@ public class MainHelper {
      * @throws NullPointerException if {@code cd == null || shp == null}
      */
     AlleleProbs LSImpute(CurrentData cd, SampleHapPairs shp) {
+        return LSImpute(cd, shp, null);
+    }
+
+    /**
+     * Performs genotype imputation at the specified markers.  If
+     * {@code imputedMarkers != null} and markers are imputed, the
+     * {@code j}-th marker of the returned allele probabilities is the
+     * marker with index {@code imputedMarkers[j]}.
+     * @param cd the current window of data
+     * @param shp the estimated target haplotype pairs.
+     * @param imputedMarkers an increasing sequence of marker indices
+     * or {@code null} if all markers are imputed
+     * @return imputed haplotypes
+     * @throws IllegalArgumentException if {@code imputedMarkers != null}
+     * and {@code imputedMarkers} is not an increasing sequence of
+     * indices between 0 (inclusive) and {@code cd.nMarkers()} (exclusive)
+     * @throws NullPointerException if {@code cd == null || shp == null}
+     */
+    AlleleProbs LSImpute(CurrentData cd, SampleHapPairs shp,
+            int[] imputedMarkers) {
         if (cd.nMarkers()==cd.nTargetMarkers() || par.impute() == false) {
             return new SampleHapPairAlleleProbs(shp);
         }
         long t0 = System.nanoTime();
         LiAndStephensHapSampler recombHapSampler =
-                new LiAndStephensHapSampler(par, genMap);
+                new LiAndStephensHapSampler(par, genMap, runStats);
+
+        BasicAlleleProbs alProbs = recombHapSampler.sample(cd, shp,
+                imputedMarkers);
+        runStats.imputationNanos(System.nanoTime() - t0);
+        runStats.printImputationUpdate();
+        return alProbs;
+    }
+
+    /**
+     * Performs genotype imputation at the specified markers and returns
+     * the imputed allele probabilities for the imputed markers with index
+     * between {@code start} (inclusive) and {@code end} (exclusive) in
+     * tiles of at most {@code par.imputetile()} consecutive imputed
+     * markers, or returns {@code null} if no markers are imputed.  If
+     * {@code imputedMarkers != null}, the {@code j}-th imputed marker is
+     * the marker with index {@code imputedMarkers[j]}.  The returned
+     * object should be closed when it is no longer needed.
+     * @param cd the current window of data
+     * @param shp the estimated target haplotype pairs.
+     * @param imputedMarkers an increasing sequence of marker indices
+     * or {@code null} if all markers are imputed
+     * @param start the first imputed marker index (inclusive)
+     * @param end the last imputed marker index (exclusive)
+     * @return tiled imputed allele probabilities, or {@code null} if no
+     * markers are imputed
+     * @throws IllegalArgumentException if {@code imputedMarkers != null}
+     * and {@code imputedMarkers} is not an increasing sequence of
+     * indices between 0 (inclusive) and {@code cd.nMarkers()} (exclusive)
+     * @throws IllegalArgumentException if {@code start < 0 || start > end}
+     * or if {@code end} exceeds the number of imputed markers
+     * @throws NullPointerException if {@code cd == null || shp == null}
+     */
+    TiledAlleleProbs tiledLSImpute(CurrentData cd, SampleHapPairs shp,
+            int[] imputedMarkers, int start, int end) {
+        if (cd.nMarkers()==cd.nTargetMarkers() || par.impute() == false) {
+            return null;
+        }
+        long t0 = System.nanoTime();
+        LiAndStephensHapSampler recombHapSampler =
+                new LiAndStephensHapSampler(par, genMap, runStats);
 
-        BasicAlleleProbs alProbs = recombHapSampler.sample(cd, shp);
+        TiledAlleleProbs alProbs = recombHapSampler.tiledSample(cd, shp,
+                imputedMarkers, start, end);
         runStats.imputationNanos(System.nanoTime() - t0);
         runStats.printImputationUpdate();
         return alProbs;
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import vcf.Markers;
+
+/**
+ * <p>Class {@code MarkerMap} stores the genetic map positions of a list
+ * of markers.  The genetic map positions are computed once when the
+ * {@code MarkerMap} is constructed, and are shared by all analyses of
+ * the markers.
+ * </p>
+ * <p>Instances of class {@code MarkerMap} are immutable.
+ * </p>
+ */
+public final class MarkerMap {
+
+    /**
+     * The minimum genetic distance (in cM) between adjacent markers.
+     */
+    public static final double MIN_CM_DIST = 1e-7;
+
+    private final Markers markers;
+    private final double[] genPos;
+    private final double[] genDist;
+
+    private MarkerMap(Markers markers, double[] genPos) {
+        this.markers = markers;
+        this.genPos = genPos;
+        this.genDist = new double[genPos.length];
+        for (int j=1; j<genPos.length; ++j) {
+            genDist[j] = Math.max(Math.abs(genPos[j] - genPos[j-1]),
+                    MIN_CM_DIST);
+        }
+    }
+
+    /**
+     * Returns a new {@code MarkerMap} instance for the specified markers.
+     * If {@code genMap == null}, the genetic map position of each marker
+     * is 1 cM per million base pairs.
+     * @param genMap the genetic map or {@code null}
+     * @param markers the list of markers
+     * @return a new {@code MarkerMap} instance
+     * @throws IllegalArgumentException if {@code genMap} has no map
+     * positions for a chromosome of a marker in {@code markers}
+     * @throws NullPointerException if {@code markers == null}
+     */
+    public static MarkerMap create(GeneticMap genMap, Markers markers) {
+        if (genMap==null) {
+            double scaleFactor = 1e-6;
+            genMap = new PositionMap(scaleFactor);
+        }
+        return new MarkerMap(markers, genMap.genPos(markers));
+    }
+
+    /**
+     * Returns the list of markers.
+     * @return the list of markers
+     */
+    public Markers markers() {
+        return markers;
+    }
+
+    /**
+     * Returns the number of markers.
+     * @return the number of markers
+     */
+    public int nMarkers() {
+        return genPos.length;
+    }
+
+    /**
+     * Returns the genetic map position of the specified marker.
+     * @param marker a marker index
+     * @return the genetic map position of the specified marker
+     * @throws IndexOutOfBoundsException if
+     * {@code marker < 0 || marker >= this.nMarkers()}
+     */
+    public double genPos(int marker) {
+        return genPos[marker];
+    }
+
+    /**
+     * Returns an array of length {@code this.nMarkers()} whose {@code j}-th
+     * element is the genetic map position of the {@code j}-th marker.
+     * @return an array of genetic map positions
+     */
+    public double[] genPos() {
+        return genPos.clone();
+    }
+
+    /**
+     * Returns the genetic distance between the specified marker and the
+     * preceding marker, or returns {@code 0} if {@code marker == 0}.
+     * Genetic distances less than {@code MarkerMap.MIN_CM_DIST} are
+     * increased to {@code MarkerMap.MIN_CM_DIST}.
+     * @param marker a marker index
+     * @return the genetic distance between the specified marker and the
+     * preceding marker
+     * @throws IndexOutOfBoundsException if
+     * {@code marker < 0 || marker >= this.nMarkers()}
+     */
+    public double genDist(int marker) {
+        return genDist[marker];
+    }
+
+    /**
+     * Returns an array of length {@code this.nMarkers()} whose {@code j}-th
+     * element is the sum of the genetic distances
+     * {@code this.genDist(k)} for {@code 0 <= k <= j}.
+     * @return an array of cumulative genetic distances
+     */
+    public double[] cumGenDist() {
+        double[] cumPos = new double[genDist.length];
+        for (int j=1; j<cumPos.length; ++j) {
+            cumPos[j] = cumPos[j-1] + genDist[j];
+        }
+        return cumPos;
+    }
+
+    /**
+     * Returns an array of length {@code this.nMarkers()} whose initial
+     * element is {@code 0} and whose {@code j}-th element for {@code j > 0}
+     * is the probability of a transition between marker {@code j - 1}
+     * and marker {@code j}: {@code -Math.expm1(c*this.genDist(j))}.
+     * @param c the negative rate parameter of the transition probability
+     * @return an array of inter-marker transition probabilities
+     * @throws IllegalArgumentException if
+     * {@code c > 0.0 || Double.isNaN(c)}
+     */
+    public float[] pRecomb(double c) {
+        if ((c <= 0.0)==false) {
+            throw new IllegalArgumentException(String.valueOf(c));
+        }
+        float[] pRecomb = new float[genDist.length];
+        for (int j=1; j<pRecomb.length; ++j) {
+            pRecomb[j] = (float) -Math.expm1(c*genDist[j]);
+        }
+        return pRecomb;
+    }
+
+    /**
+     * Returns the inter-marker transition probabilities of a haplotype
+     * HMM with the specified number of reference haplotypes and
+     * effective population size.  The returned array has length
+     * {@code this.nMarkers()} and is equal to
+     * {@code this.pRecomb(-(0.04*ne/nHaps))}.
+     * @param nHaps the number of haplotypes in the sample
+     * @param ne the effective population size
+     * @return an array of inter-marker transition probabilities
+     * @throws IllegalArgumentException if {@code nHaps < 1}
+     * @throws IllegalArgumentException if {@code ne < 1f}
+     */
+    public float[] pRecomb(int nHaps, float ne) {
+        if (nHaps < 1) {
+            throw new IllegalArgumentException(String.valueOf(nHaps));
+        }
+        if (ne < 1f) {
+            throw new IllegalArgumentException(String.valueOf(ne));
+        }
+        return pRecomb(-(0.04*ne/nHaps));   // 0.04 = 4/(100 cM/M)
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().toString();
+    }
+}
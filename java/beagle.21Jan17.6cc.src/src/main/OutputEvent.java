@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <p>Class {@code OutputEvent} is a Java Flight Recorder event that
+ * records the writing of estimated allele probabilities for a marker window
+ * to the output VCF or BCF file.
+ * </p>
+ * <p>Instances of class {@code OutputEvent} are not thread-safe.
+ * </p>
+ */
+@Name("beagle.Output")
+@Label("Window Output")
+@Category({"Beagle"})
+@Description("Writing of estimated allele probabilities")
+@StackTrace(false)
+final class OutputEvent extends jdk.jfr.Event {
+
+    @Label("Markers")
+    int nMarkers;
+
+    @Label("Samples")
+    int nSamples;
+
+    @Label("BCF")
+    boolean bcf;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+}
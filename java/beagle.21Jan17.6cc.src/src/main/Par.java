@@ -42,21 +42,38 @@ public final class Par {
     private final File ref;
     private final File dag;
     private final String out;
+    private final String outformat;
+    private final int dosebits;
+    private final String metrics;
+    private final boolean jmx;
     private final File excludesamples;
     private final File excludemarkers;
     private final File ped;
     private final File map;
     private final String chrom;
+    private final File regions;
+    private final int nregions;
     private final float maxlr;
 
     // algorithm parameters
     private final int nthreads;
     private final boolean lowmem;
+    private final float hmmmem;
+    private final boolean autowindow;
     private final int window;
     private final int overlap;
+    private final float overlapcm;
+    private final float windowmem;
     private final boolean impute;
+    private final File imputemarkers;
+    private final File imputeregions;
+    private final int imputetile;
     private final boolean gprobs;
     private final int niterations;
+    private final float switchrate;
+    private final int minits;
+    private final float stablerate;
+    private final int sweepits;
     private final float mapscale;
     private final float ne;
     private final float err;
@@ -90,6 +107,24 @@ public final class Par {
      * is incorrectly specified
      */
     public Par(String[] args) {
+        this(args, true);
+    }
+
+    /**
+     * Constructs a new {@code Parameters} instance from the specified
+     * command line arguments.  If {@code checkTargetFiles == false}, the
+     * gt, gl, and gtgl parameters are not required to be existing files.
+     * This is used when the target data are stored in memory, and the
+     * gt, gl, or gtgl parameter only specifies the type of target data.
+     * @param args the Beagle command line arguments
+     * @param checkTargetFiles {@code true} if the gt, gl, and gtgl
+     * parameters are required to be existing files
+     * @throws IllegalArgumentException if a command line argument
+     * is incorrectly specified
+     * @throws NumberFormatException if a numeric value for a parameter
+     * is incorrectly specified
+     */
+    Par(String[] args, boolean checkTargetFiles) {
 
         int IMAX = Integer.MAX_VALUE;
         long LMIN = Long.MIN_VALUE;
@@ -101,17 +136,20 @@ public final class Par {
         Map<String, String> argsMap = Validate.argsToMap(args, '=');
 
         // data input/output parameters
-        gt = Validate.getFile(
-                Validate.stringArg("gt", argsMap, false, null, null));
-        gl = Validate.getFile(
-                Validate.stringArg("gl", argsMap, false, null, null));
-        gtgl = Validate.getFile(
-                Validate.stringArg("gtgl", argsMap, false, null, null));
+        gt = targetFile("gt", argsMap, checkTargetFiles);
+        gl = targetFile("gl", argsMap, checkTargetFiles);
+        gtgl = targetFile("gtgl", argsMap, checkTargetFiles);
         ref = Validate.getFile(
                 Validate.stringArg("ref", argsMap, false, null, null));
         dag = Validate.getFile(
                 Validate.stringArg("dag", argsMap, false, null, null));
         out = Validate.stringArg("out", argsMap, true, null, null);
+        outformat = Validate.stringArg("outformat", argsMap, false, "vcf",
+                new String[] {"vcf", "bcf"});
+        dosebits = Validate.intArg("dosebits", argsMap, false, 0, 0, 16);
+        metrics = Validate.stringArg("metrics", argsMap, false, "none",
+                new String[] {"none", "jsonl", "csv"});
+        jmx = Validate.booleanArg("jmx", argsMap, false, false);
         excludesamples = Validate.getFile(
                 Validate.stringArg("excludesamples", argsMap, false, null, null));
         excludemarkers = Validate.getFile(
@@ -120,15 +158,35 @@ public final class Par {
                 Validate.stringArg("ped", argsMap, false, null, null));
         map = Validate.getFile(Validate.stringArg("map", argsMap, false, null, null));
         chrom = Validate.stringArg("chrom", argsMap, false, null, null);
+        regions = Validate.getFile(
+                Validate.stringArg("regions", argsMap, false, null, null));
+        nregions = Validate.intArg("nregions", argsMap, false, 1, 1, IMAX);
         maxlr = Validate.floatArg("maxlr", argsMap, false, 5000.0f, 1.1f, FMAX);
 
         // algorithm parameters
         nthreads = modNthreads(Validate.intArg("nthreads", argsMap, false, IMAX, 0, IMAX));
         lowmem = Validate.booleanArg("lowmem", argsMap, false, true);
-        window = Validate.intArg("window", argsMap, false, 50000, 1, IMAX);
+        hmmmem = Validate.floatArg("hmmmem", argsMap, false, 0.0f, 0.0f, FMAX);
+        autowindow = "auto".equals(argsMap.get("window"));
+        if (autowindow) {
+            argsMap.remove("window");
+        }
+        window = autowindow ? IMAX
+                : Validate.intArg("window", argsMap, false, 50000, 1, IMAX);
         overlap = Validate.intArg("overlap", argsMap, false, 3000, 0, IMAX);
+        overlapcm = Validate.floatArg("overlapcm", argsMap, false, 2.0f, FMIN, FMAX);
+        windowmem = Validate.floatArg("windowmem", argsMap, false, 0.5f, FMIN, 1.0f);
         niterations = Validate.intArg("niterations", argsMap, false, 5, 0, IMAX);
+        switchrate = Validate.floatArg("switchrate", argsMap, false, 0.0f, 0.0f, 1.0f);
+        minits = Validate.intArg("minits", argsMap, false, 2, 1, IMAX);
+        stablerate = Validate.floatArg("stablerate", argsMap, false, 0.0f, 0.0f, 1.0f);
+        sweepits = Validate.intArg("sweepits", argsMap, false, 3, 1, IMAX);
         impute = Validate.booleanArg("impute", argsMap, false, true);
+        imputemarkers = Validate.getFile(
+                Validate.stringArg("imputemarkers", argsMap, false, null, null));
+        imputeregions = Validate.getFile(
+                Validate.stringArg("imputeregions", argsMap, false, null, null));
+        imputetile = Validate.intArg("imputetile", argsMap, false, 0, 0, IMAX);
         gprobs = Validate.booleanArg("gprobs", argsMap, false, false);
         ne = Validate.floatArg("ne", argsMap, false, 1_000_000f, FMIN, FMAX);
         err = Validate.floatArg("err", argsMap, false, 0.0001f, 0.0f, FMAX);
@@ -155,6 +213,17 @@ public final class Par {
         Validate.confirmEmptyMap(argsMap);
     }
 
+    private static File targetFile(String key, Map<String, String> argsMap,
+            boolean checkFile) {
+        String filename = Validate.stringArg(key, argsMap, false, null, null);
+        if (checkFile || filename==null) {
+            return Validate.getFile(filename);
+        }
+        else {
+            return new File(filename);
+        }
+    }
+
     /**
      * Returns the Beagle command line arguments.
      * @return the Beagle command line arguments
@@ -177,23 +246,40 @@ public final class Par {
                 + "  gtgl=<VCF file: use GT (preferred) or GL/PL field> (optional)" + nl
                 + "  ref=<VCF file with phased genotypes>               (optional)" + nl
                 + "  out=<output file prefix>                           (required)" + nl
+                + "  outformat=<output format (vcf/bcf)>                (default=vcf)" + nl
+                + "  dosebits=<bits per binary haplotype dose (8/16)>   (optional)" + nl
+                + "  metrics=<per-window metrics (none/jsonl/csv)>      (default=none)" + nl
+                + "  jmx=<register metrics MBean (true/false)>          (default=false)" + nl
                 + "  excludesamples=<file with 1 sample ID per line>    (optional)" + nl
                 + "  excludemarkers=<file with 1 marker ID per line>    (optional)" + nl
 //                + "  ped=<linkage format pedigree file>                 (optional)" + nl
                 + "  map=<PLINK map file with cM units>                 (optional)" + nl
                 + "  chrom=<[chrom] or [chrom]:[start]-[end]>           (optional)" + nl
+                + "  regions=<file with 1 chrom parameter per line>     (optional)" + nl
+                + "    (sorted, non-overlapping; phase is not joined across regions)" + nl
+                + "  nregions=<regions analyzed concurrently>           (default=1)" + nl
                 + "  maxlr=<max GL/PL likelihood ratio>                 (default=5000)" + nl + nl
 
                 + "general parameters ..." + nl
                 + "  nthreads=<number of threads>                       (default: machine-dependent)" + nl
                 + "  lowmem=<use low-memory algorithm (true/false)>     (default=false)" + nl
-                + "  window=<markers per window>                        (default=50000)" + nl
+                + "  hmmmem=<MB of HMM forward values per thread>       (optional)" + nl
+                + "  window=<markers per window or \"auto\">              (default=50000)" + nl
                 + "  overlap=<overlap between windows>                  (default=3000)" + nl
+                + "  overlapcm=<cM overlap for window=auto>             (default=2.0)" + nl
+                + "  windowmem=<heap fraction for window=auto>          (default=0.5)" + nl
                 + "  seed=<random seed>                                 (default=-99999)" + nl + nl
 
                 + "phasing and imputation parameters ..." + nl
                 + "  niterations=<number of phasing iterations>         (default=5)" + nl
+                + "  switchrate=<switch rate for ending iterations>     (optional)" + nl
+                + "  minits=<min iterations if switchrate is specified> (default=2)" + nl
+                + "  stablerate=<switch rate for reusing a sample>      (optional)" + nl
+                + "  sweepits=<iterations between full resampling>      (default=3)" + nl
                 + "  impute=<impute ungenotyped markers (true/false)>   (default=true)" + nl
+                + "  imputemarkers=<file with 1 marker ID per line>     (optional)" + nl
+                + "  imputeregions=<file with 1 region per line>        (optional)" + nl
+                + "  imputetile=<imputed markers per output tile>       (optional)" + nl
                 + "  gprobs=<print GP field for imputed markers>        (default=false)" + nl
                 + "  ne=<effective population size>                     (default=1000000)" + nl
                 + "  err=<allele miscall rate>                          (default=0.0001)" + nl
@@ -305,6 +391,42 @@ public final class Par {
         return out;
     }
 
+    /**
+     * Returns the outformat parameter, which is {@code "vcf"} or
+     * {@code "bcf"}.
+     * @return the outformat parameter
+     */
+    public String outformat() {
+        return outformat;
+    }
+
+    /**
+     * Returns the dosebits parameter, which is 0 if no quantized haplotype
+     * dosage file is to be written, and is the number of bits per
+     * quantized haplotype dosage otherwise.
+     * @return the dosebits parameter
+     */
+    public int dosebits() {
+        return dosebits;
+    }
+
+    /**
+     * Returns the metrics parameter, which is {@code "none"},
+     * {@code "jsonl"}, or {@code "csv"}.
+     * @return the metrics parameter
+     */
+    public String metrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the jmx parameter.
+     * @return the jmx parameter
+     */
+    public boolean jmx() {
+        return jmx;
+    }
+
     /**
      * Returns the excludesamples parameter or {@code null}
      * if no excludesamples parameter was specified.
@@ -357,6 +479,30 @@ public final class Par {
         return chrom;
     }
 
+    /**
+     * Returns the regions parameter or {@code null} if no regions
+     * parameter was specified.  Each line of the regions file is a
+     * chromosome interval in the format of the chrom parameter.  The
+     * regions must not overlap and must be sorted in the chromosome order
+     * of the target VCF file.  Regions are phased separately, so phase
+     * is not consistent across the boundary between two regions on the
+     * same chromosome.
+     * @return the regions parameter or {@code null} if no regions
+     * parameter was specified
+     */
+    public File regions() {
+        return regions;
+    }
+
+    /**
+     * Returns the nregions parameter, which is the maximum number of
+     * chromosomes or regions that are analyzed concurrently.
+     * @return the nregions parameter
+     */
+    public int nregions() {
+        return nregions;
+    }
+
     /**
      * Returns the maxlr parameter.
      * @return the maxlr parameter
@@ -384,7 +530,38 @@ public final class Par {
     }
 
     /**
-     * Returns the window parameter.
+     * Returns the hmmmem parameter, which is the maximum number of
+     * megabytes of stored HMM forward values per thread, or {@code 0f}
+     * if the number of stored HMM forward values is determined by the
+     * lowmem parameter.
+     * @return the hmmmem parameter
+     */
+    public float hmmmem() {
+        return hmmmem;
+    }
+
+    /**
+     * Returns the maximum number of bytes of stored HMM forward values
+     * per thread, or {@code 0L} if {@code this.hmmmem() == 0f}.
+     * @return the maximum number of bytes of stored HMM forward values
+     * per thread
+     */
+    public long hmmBytes() {
+        return (long) (1024.0*1024.0*hmmmem);
+    }
+
+    /**
+     * Returns {@code true} if the window parameter is {@code "auto"}, and
+     * returns {@code false} otherwise.
+     * @return {@code true} if the window parameter is {@code "auto"}
+     */
+    public boolean autowindow() {
+        return autowindow;
+    }
+
+    /**
+     * Returns the window parameter, or {@code Integer.MAX_VALUE} if
+     * {@code this.autowindow() == true}.
      * @return the window parameter
      */
     public int window() {
@@ -399,6 +576,25 @@ public final class Par {
         return overlap;
     }
 
+    /**
+     * Returns the overlapcm parameter, which is the minimum cM overlap
+     * between adjacent windows if {@code this.autowindow() == true}.
+     * @return the overlapcm parameter
+     */
+    public float overlapcm() {
+        return overlapcm;
+    }
+
+    /**
+     * Returns the windowmem parameter, which is the fraction of the
+     * maximum heap size that is available for a marker window if
+     * {@code this.autowindow() == true}.
+     * @return the windowmem parameter
+     */
+    public float windowmem() {
+        return windowmem;
+    }
+
     /**
      * Returns the seed parameter.
      * @return the seed parameter
@@ -417,6 +613,54 @@ public final class Par {
         return niterations;
     }
 
+    /**
+     * Returns the switchrate parameter.  If the switchrate parameter is
+     * positive, burn-in and phasing iterations for a window end when the
+     * proportion of phase switches between the haplotypes sampled in
+     * consecutive iterations is less than the switchrate parameter.
+     * If the stablerate parameter is positive, the proportion is computed
+     * from the target samples that are resampled in the iteration.
+     * Returns {@code 0f} if no switchrate parameter was specified.
+     * @return the switchrate parameter
+     */
+    public float switchrate() {
+        return switchrate;
+    }
+
+    /**
+     * Returns the minits parameter, which is the minimum number of
+     * burn-in or phasing iterations that are performed before iterations
+     * can end because the switch rate is less than
+     * {@code this.switchrate()}.
+     * @return the minits parameter
+     */
+    public int minits() {
+        return minits;
+    }
+
+    /**
+     * Returns the stablerate parameter.  If the stablerate parameter is
+     * positive, the haplotypes of a target sample are reused instead of
+     * resampled in subsequent burn-in and phasing iterations if the
+     * proportion of phase switches between the sample's haplotypes sampled
+     * in consecutive iterations is less than the stablerate parameter.
+     * Returns {@code 0f} if no stablerate parameter was specified.
+     * @return the stablerate parameter
+     */
+    public float stablerate() {
+        return stablerate;
+    }
+
+    /**
+     * Returns the sweepits parameter, which is the number of iterations
+     * between iterations in which the haplotypes of all target samples
+     * are resampled when {@code this.stablerate() > 0f}.
+     * @return the sweepits parameter
+     */
+    public int sweepits() {
+        return sweepits;
+    }
+
     /**
      * Returns the impute parameter.
      * @return the impute parameter
@@ -425,6 +669,40 @@ public final class Par {
         return impute;
     }
 
+    /**
+     * Returns the imputemarkers parameter or {@code null}
+     * if no imputemarkers parameter was specified.
+     *
+     * @return the imputemarkers parameter or {@code null}
+     * if no imputemarkers parameter was specified
+     */
+    public File imputemarkers() {
+        return imputemarkers;
+    }
+
+    /**
+     * Returns the imputeregions parameter or {@code null}
+     * if no imputeregions parameter was specified.
+     *
+     * @return the imputeregions parameter or {@code null}
+     * if no imputeregions parameter was specified
+     */
+    public File imputeregions() {
+        return imputeregions;
+    }
+
+    /**
+     * Returns the imputetile parameter, which is the maximum number of
+     * imputed markers whose allele probabilities are stored in memory at
+     * one time, or {@code 0} if allele probabilities are stored for all
+     * imputed markers in a window.
+     *
+     * @return the imputetile parameter
+     */
+    public int imputetile() {
+        return imputetile;
+    }
+
     /**
      * Returns the gprobs parameter.
      * @return the gprobs parameter
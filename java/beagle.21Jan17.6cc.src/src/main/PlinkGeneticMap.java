@@ -19,6 +19,7 @@
 package main;
 
 import vcf.Marker;
+import vcf.Markers;
 import beagleutil.ChromIds;
 import blbutil.FileIt;
 import blbutil.Filter;
@@ -312,10 +313,21 @@ public final class PlinkGeneticMap implements GeneticMap {
         assert basePos[chrom].length>=2;
         assert basePos[chrom].length==genPos[chrom].length;
         int index = Arrays.binarySearch(basePos[chrom], basePosition);
-        if (index>=0) {
-            return genPos[chrom][index];
-        } else {
-            int insPt = -index-1;
+        int insPt = index>=0 ? index : -index-1;
+        return interpolate(chrom, insPt, basePosition);
+    }
+
+    /*
+     * Returns the genetic map position of the specified base position.
+     * The insPt parameter must be the index of the first map position
+     * that is greater than or equal to the specified base position, or
+     * basePos[chrom].length if there is no such map position.
+     */
+    private double interpolate(int chrom, int insPt, int basePosition) {
+        if (insPt<basePos[chrom].length && basePos[chrom][insPt]==basePosition) {
+            return genPos[chrom][insPt];
+        }
+        else {
             if (insPt==basePos[chrom].length) {
                 --insPt;
             }
@@ -331,6 +343,69 @@ public final class PlinkGeneticMap implements GeneticMap {
         }
     }
 
+    /*
+     * Returns the index of the first map position that is greater than or
+     * equal to the specified base position.  The search is a binary search
+     * if the base position preceding map index start is greater than or
+     * equal to the specified base position, and is a linear search beginning
+     * at the specified start index otherwise.
+     */
+    private int cursor(int chrom, int start, int basePosition) {
+        int[] bp = basePos[chrom];
+        if (start>0 && bp[start-1]>=basePosition) {
+            int index = Arrays.binarySearch(bp, 0, start, basePosition);
+            return index>=0 ? index : -index-1;
+        }
+        while (start<bp.length && bp[start]<basePosition) {
+            ++start;
+        }
+        return start;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The map positions are found with a cursor that moves forward through
+     * the genetic map, so that the computation time is linear in the
+     * number of markers and map positions if the markers on each chromosome
+     * are sorted in order of increasing position.
+     */
+    @Override
+    public double[] genPos(Markers markers) {
+        double[] gp = new double[markers.nMarkers()];
+        int chrom = -1;
+        int insPt = 0;
+        for (int j=0; j<gp.length; ++j) {
+            Marker marker = markers.marker(j);
+            if (marker.chromIndex()!=chrom) {
+                chrom = marker.chromIndex();
+                checkChromIndex(chrom);
+                insPt = basePos[chrom].length;
+            }
+            insPt = cursor(chrom, insPt, marker.pos());
+            gp[j] = interpolate(chrom, insPt, marker.pos());
+        }
+        return gp;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The map positions are found with a cursor that moves forward through
+     * the genetic map, so that the computation time is linear in the
+     * number of base positions and map positions if the base positions
+     * are sorted in increasing order.
+     */
+    @Override
+    public double[] genPos(int chrom, int[] basePositions) {
+        checkChromIndex(chrom);
+        double[] gp = new double[basePositions.length];
+        int insPt = basePos[chrom].length;
+        for (int j=0; j<gp.length; ++j) {
+            insPt = cursor(chrom, insPt, basePositions[j]);
+            gp[j] = interpolate(chrom, insPt, basePositions[j]);
+        }
+        return gp;
+    }
+
     @Override
     public int basePos(int chrom, double geneticPosition) {
         checkChromIndex(chrom);
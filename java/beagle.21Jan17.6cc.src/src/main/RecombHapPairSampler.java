@@ -16,6 +16,7 @@
  */
 package main;
 
+import blbutil.CheckedExecutor;
 import blbutil.Utilities;
 import haplotype.HapPair;
 import java.util.ArrayList;
@@ -24,13 +25,10 @@ import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 import sample.ConsumeSingleSamples;
 import sample.RecombSingleBaum;
 import sample.SamplerData;
-import sample.SingleBaumInterface;
 
 /**
  * <p>Class {@code RecombHapPairSamples} samples haplotype pairs and
@@ -93,18 +91,54 @@ public class RecombHapPairSampler {
      */
     public List<HapPair> sample(CurrentData cd, List<HapPair> hapPairs,
             boolean useRevDag, GenotypeValues gv) {
+        return sample(cd, hapPairs, useRevDag, gv, null);
+    }
+
+    /**
+     * Returns a list of haplotype pairs sampled for the specified target
+     * samples. Haplotype pairs are
+     * sampled conditional on the observed genotype and a haplotype
+     * frequency model constructed from the specified {@code hapPairs}.
+     * The contract for this method is undefined if the specified
+     * {@code hapPairs} and {@code gv} are inconsistent with the input data
+     * contained in the {@code cd} parameter.
+     *
+     * @param cd the input data for the current marker window
+     * @param hapPairs the target haplotype pairs used to build the haplotype
+     * frequency model
+     * @param useRevDag {@code true} if the order of markers should
+     * be reversed when building the haplotype frequency model, and
+     * {@code false} otherwise
+     * @param gv the current scaled genotype probabilities for the target
+     * samples or {@code null} if genotype probabilities are not to be estimated
+     * @param activeSamples the indices of the target samples whose
+     * haplotype pairs are sampled, or {@code null} if haplotype pairs are
+     * sampled for all target samples
+     * @return the sampled haplotype pairs
+     *
+     * @throws IllegalArgumentException if {@code haps.isEmpty() == true}
+     * @throws IndexOutOfBoundsException if {@code activeSamples != null}
+     * and an element of {@code activeSamples} is negative or greater than
+     * or equal to {@code cd.nTargetSamples()}
+     * @throws NullPointerException if  {@code cd == null || hapPairs == null}
+     */
+    public List<HapPair> sample(CurrentData cd, List<HapPair> hapPairs,
+            boolean useRevDag, GenotypeValues gv, int[] activeSamples) {
         SamplerData samplerData = new SamplerData(par, cd, hapPairs, useRevDag,
                 runStats);
-        int nSampledHaps = nCopies*cd.nTargetSamples();
+        int[] samples = activeSamples==null
+                ? IntStream.range(0, cd.nTargetSamples()).toArray()
+                : activeSamples;
+        int nSampledHaps = nCopies*samples.length;
         List<HapPair> sampledHaps = synchronizedEmptyList(nSampledHaps);
         if (gv!=null) {
             if (useRevDag) {
                 gv = new RevGenotypeValues(gv);
             }
-            sample(samplerData, sampledHaps, gv);
+            sample(samplerData, samples, sampledHaps, gv);
         }
         else {
-            sample(samplerData, sampledHaps);
+            sample(samplerData, samples, sampledHaps);
         }
         return new ArrayList<>(sampledHaps);
     }
@@ -116,63 +150,72 @@ public class RecombHapPairSampler {
     }
 
     @SuppressWarnings({"BroadCatchBlock", "TooBroadCatch"})
-    private void sample(SamplerData samplerData,  List<HapPair> sampledHaps,
-            GenotypeValues gv) {
+    private void sample(SamplerData samplerData, int[] samples,
+            List<HapPair> sampledHaps, GenotypeValues gv) {
         long t0 = System.nanoTime();
         int nThreads = samplerData.par().nthreads();
         boolean markersAreReversed = samplerData.markersAreReversed();
         Random rand = new Random(par.seed());
         final BlockingQueue<Integer> qIn = new ArrayBlockingQueue<>(3*nThreads);
-        ExecutorService es = Executors.newFixedThreadPool(nThreads);
+        CheckedExecutor es = new CheckedExecutor(nThreads);
+        RecombSingleBaum firstBaum = null;
         for (int j=0; j<nThreads; ++j) {
-            SingleBaumInterface sb = new RecombSingleBaum(samplerData,
-                    rand.nextLong(), nCopies, par.lowmem());
+            RecombSingleBaum sb = new RecombSingleBaum(samplerData,
+                    rand.nextLong(), nCopies, par.lowmem(), par.hmmBytes());
+            if (j==0) {
+                firstBaum = sb;
+            }
             es.submit(new ConsumeSingleSamples(markersAreReversed, sb, qIn,
                         sampledHaps, gv));
         }
         try {
-            for (int j=0, n=samplerData.nSamples(); j<n; ++j) {
-                qIn.put(j);
+            for (int j : samples) {
+                es.put(qIn, j);
             }
             for (int j=0; j<nThreads; ++j) {
-                qIn.put(ConsumeSingleSamples.POISON);
+                es.put(qIn, ConsumeSingleSamples.POISON);
             }
-            es.shutdown();
-            es.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            es.shutdownAndAwait();
         }
         catch (Throwable e) {
             Utilities.exit("ERROR", e);
         }
+        runStats.checkpoints(firstBaum.checkpoints(), samples.length);
         runStats.sampleNanos(System.nanoTime() - t0);
     }
 
     @SuppressWarnings({"BroadCatchBlock", "TooBroadCatch"})
-    private void sample(SamplerData samplerData, List<HapPair> sampledHaps) {
+    private void sample(SamplerData samplerData, int[] samples,
+            List<HapPair> sampledHaps) {
         long t0 = System.nanoTime();
         int nThreads = samplerData.par().nthreads();
         boolean markersAreReversed = samplerData.markersAreReversed();
         Random rand = new Random(par.seed());
         final BlockingQueue<Integer> qIn = new ArrayBlockingQueue<>(3*nThreads);
-        ExecutorService es = Executors.newFixedThreadPool(nThreads);
+        CheckedExecutor es = new CheckedExecutor(nThreads);
+        RecombSingleBaum firstBaum = null;
         for (int j=0; j<nThreads; ++j) {
-            SingleBaumInterface sb = new RecombSingleBaum(samplerData,
-                    rand.nextLong(), nCopies, par.lowmem());
+            RecombSingleBaum sb = new RecombSingleBaum(samplerData,
+                    rand.nextLong(), nCopies, par.lowmem(), par.hmmBytes());
+            if (j==0) {
+                firstBaum = sb;
+            }
             es.submit(new ConsumeSingleSamples(markersAreReversed, sb, qIn,
                         sampledHaps));
         }
         try {
-            for (int j=0, n=samplerData.nSamples(); j<n; ++j) {
-                qIn.put(j);
+            for (int j : samples) {
+                es.put(qIn, j);
             }
             for (int j=0; j<nThreads; ++j) {
-                qIn.put(ConsumeSingleSamples.POISON);
+                es.put(qIn, ConsumeSingleSamples.POISON);
             }
-            es.shutdown();
-            es.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            es.shutdownAndAwait();
         }
         catch (Throwable e) {
             Utilities.exit("ERROR", e);
         }
+        runStats.checkpoints(firstBaum.checkpoints(), samples.length);
         runStats.sampleNanos(System.nanoTime() - t0);
     }
 }
@@ -0,0 +1,448 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import beagleutil.ChromInterval;
+import blbutil.CheckedExecutor;
+import blbutil.Const;
+import blbutil.FileIt;
+import blbutil.FileUtil;
+import blbutil.InputIt;
+import blbutil.Utilities;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import net.sf.samtools.util.BlockCompressedStreamConstants;
+import vcf.FilterUtil;
+import vcf.RefPanel;
+
+/**
+ * <p>Class {@code RegionRunner} analyzes several chromosomes or
+ * chromosome intervals concurrently.
+ * </p>
+ * <p>The regions are the lines of the {@code regions} file if the
+ * {@code regions} parameter is specified, the {@code chrom} parameter if the
+ * {@code chrom} parameter is specified, and the chromosomes in the target
+ * VCF file otherwise.  At most {@code par.nregions()} regions are analyzed
+ * at the same time, and the {@code par.nthreads()} threads are divided
+ * equally among the concurrently analyzed regions.  Each region is
+ * analyzed with a separate marker window pipeline and written to temporary
+ * output files.  The output files are merged in region order when the
+ * analysis of all regions is complete.  BGZIP-compressed output files are
+ * merged by copying compressed blocks.
+ * </p>
+ * <p>The regions in the {@code regions} file must not overlap, and must be
+ * listed in the chromosome order of the target VCF file and in order of
+ * increasing position within a chromosome.  Each region is phased
+ * separately, so the relative phase of heterozygotes on opposite sides
+ * of a boundary between two regions on the same chromosome is arbitrary.
+ * Each region should be a whole chromosome if phase is required across
+ * an entire chromosome.
+ * </p>
+ * <p>If the {@code ref} parameter is specified and there is more than one
+ * region, the reference panel is read once and held in memory, and the
+ * analysis of each region iterates over the stored reference records in
+ * the region.
+ * </p>
+ */
+final class RegionRunner {
+
+    private static final Set<String> REGION_KEYS = new HashSet<>(Arrays.asList(
+            "chrom", "out", "nthreads", "regions", "nregions", "jmx"));
+    private static final String[] GZIP_SUFFIXES = {".ibd.gz", ".hbd.gz"};
+    private static final String[] TEXT_SUFFIXES = {".metrics.jsonl",
+            ".metrics.csv"};
+    private static final String CHROM_LINE_PREFIX = "#CHROM";
+    private static final int BLOCK_HEADER_LENGTH
+            = BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH;
+    private static final int BLOCK_LENGTH_OFFSET
+            = BlockCompressedStreamConstants.BLOCK_LENGTH_OFFSET;
+
+    private RegionRunner() {
+        // private constructor to prevent instantiation
+    }
+
+    /**
+     * Analyzes the regions specified by the analysis parameters and writes
+     * the merged output and log files.
+     * @param par the analysis parameters
+     * @throws NullPointerException if {@code par == null}
+     */
+    static void run(Par par) {
+        long startNanos = System.nanoTime();
+        List<String> regions = regions(par);
+        int nConcurrent = Math.min(par.nregions(), regions.size());
+        int nThreads = Math.max(1, par.nthreads()/nConcurrent);
+        if (nConcurrent>1) {
+            RunStats.setProcessShared();
+        }
+        String[] outPrefixes = new String[regions.size()];
+        for (int j=0; j<outPrefixes.length; ++j) {
+            outPrefixes[j] = par.out() + ".region" + (j+1);
+        }
+        File logFile = new File(par.out() + ".log");
+        try (PrintWriter log = FileUtil.nonBufferedPrintWriter(logFile, false)) {
+            Utilities.duoPrint(log, Main.shortHelp + Const.nl);
+            Utilities.duoPrintln(log, "Start time: " + Utilities.timeStamp());
+            Utilities.duoPrintln(log, Const.nl + "Regions:     " + regions.size()
+                    + " (" + nConcurrent + " concurrent, " + nThreads
+                    + " threads per region)");
+
+            RefPanel refPanel = null;
+            if (par.ref()!=null && regions.size()>1) {
+                refPanel = new RefPanel(par.ref(),
+                        FilterUtil.sampleFilter(par.excludesamples()),
+                        par.nthreads());
+            }
+            RefPanel sharedPanel = refPanel;
+            CheckedExecutor es = new CheckedExecutor(nConcurrent);
+            for (int j=0; j<outPrefixes.length; ++j) {
+                String[] args = regionArgs(par, regions.get(j), outPrefixes[j],
+                        nThreads);
+                es.submit(() -> {
+                    try {
+                        Main.analyze(new Par(args), sharedPanel);
+                    }
+                    catch (Throwable t) {
+                        Utilities.exit("ERROR", t);
+                    }
+                });
+            }
+            try {
+                es.shutdownAndAwait();
+            }
+            catch (Throwable e) {
+                Utilities.exit("ERROR", e);
+            }
+            merge(par.out(), outPrefixes, log);
+            Utilities.duoPrintln(log, Const.nl + "Total run time:    "
+                    + Utilities.elapsedNanos(System.nanoTime() - startNanos));
+            Utilities.duoPrintln(log, Const.nl + "End time: "
+                    + Utilities.timeStamp());
+            Utilities.duoPrintln(log, Main.program + " finished");
+        }
+    }
+
+    private static List<String> regions(Par par) {
+        List<String> regions = new ArrayList<>();
+        if (par.regions()!=null) {
+            try (FileIt<String> it = InputIt.fromGzipFile(par.regions())) {
+                while (it.hasNext()) {
+                    String line = it.next().trim();
+                    if (line.length()>0) {
+                        if (ChromInterval.parse(line)==null) {
+                            Utilities.exit("ERROR: invalid region in "
+                                    + par.regions() + ": " + line);
+                        }
+                        regions.add(line);
+                    }
+                }
+            }
+            checkOrder(par.regions(), regions, targetFile(par),
+                    par.nthreads());
+        }
+        else if (par.chrom()!=null) {
+            regions.add(par.chrom());
+        }
+        else {
+            regions.addAll(chromosomes(targetFile(par), par.nthreads()));
+        }
+        if (regions.isEmpty()) {
+            Utilities.exit("ERROR: no regions to analyze");
+        }
+        return regions;
+    }
+
+    /*
+     * Exits with an error message if two regions overlap, or if the regions
+     * are not in the chromosome order of the target VCF file and in order
+     * of increasing position within each chromosome.
+     */
+    private static void checkOrder(File regionsFile, List<String> regions,
+            File targetFile, int nThreads) {
+        List<String> chroms = new ArrayList<>(chromosomes(targetFile,
+                nThreads));
+        ChromInterval prev = null;
+        int prevChromIndex = -1;
+        for (String region : regions) {
+            ChromInterval ci = ChromInterval.parse(region);
+            int chromIndex = chroms.indexOf(ci.chrom());
+            if (chromIndex<0) {
+                Utilities.exit("ERROR: chromosome " + ci.chrom() + " in "
+                        + regionsFile + " is not in " + targetFile);
+            }
+            if (prev!=null && (chromIndex<prevChromIndex
+                    || (chromIndex==prevChromIndex && ci.start()<=prev.end()))) {
+                Utilities.exit("ERROR: regions in " + regionsFile
+                        + " overlap or are out of order: " + prev + " " + ci);
+            }
+            prev = ci;
+            prevChromIndex = chromIndex;
+        }
+    }
+
+    private static File targetFile(Par par) {
+        if (par.gt()!=null) {
+            return par.gt();
+        }
+        else if (par.gl()!=null) {
+            return par.gl();
+        }
+        else {
+            return par.gtgl();
+        }
+    }
+
+    /* Returns the chromosomes in the order they appear in the VCF file */
+    private static Set<String> chromosomes(File vcfFile, int nThreads) {
+        Set<String> chroms = new LinkedHashSet<>();
+        String lastChrom = null;
+        try (FileIt<String> it = InputIt.fromGzipFile(vcfFile,
+                InputIt.DEFAULT_BUFFER_SIZE, nThreads)) {
+            while (it.hasNext()) {
+                String line = it.next();
+                if (line.length()>0 && line.charAt(0)!='#') {
+                    int tab = line.indexOf(Const.tab);
+                    String chrom = tab<0 ? line : line.substring(0, tab);
+                    if (chrom.equals(lastChrom)==false) {
+                        if (chroms.add(chrom)==false) {
+                            Utilities.exit("ERROR: chromosome " + chrom
+                                    + " is not contiguous in " + vcfFile);
+                        }
+                        lastChrom = chrom;
+                    }
+                }
+            }
+        }
+        return chroms;
+    }
+
+    private static String[] regionArgs(Par par, String region,
+            String outPrefix, int nThreads) {
+        List<String> args = new ArrayList<>();
+        for (String arg : par.args()) {
+            int index = arg.indexOf('=');
+            String key = index<0 ? arg : arg.substring(0, index).trim();
+            if (REGION_KEYS.contains(key)==false) {
+                args.add(arg);
+            }
+        }
+        args.add("chrom=" + region);
+        args.add("out=" + outPrefix);
+        args.add("nthreads=" + nThreads);
+        return args.toArray(new String[0]);
+    }
+
+    private static void merge(String out, String[] outPrefixes,
+            PrintWriter log) {
+        mergeBgzip(out + ".vcf.gz", outPrefixes, ".vcf.gz", true);
+        for (String suffix : GZIP_SUFFIXES) {
+            mergeBgzip(out + suffix, outPrefixes, suffix, false);
+        }
+        for (String suffix : TEXT_SUFFIXES) {
+            mergeText(out + suffix, outPrefixes, suffix, suffix.endsWith(".csv"));
+        }
+        for (String prefix : outPrefixes) {
+            File regionLog = new File(prefix + ".log");
+            log.println();
+            log.println("Region log: " + regionLog.getName());
+            try {
+                log.print(new String(Files.readAllBytes(regionLog.toPath()),
+                        StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                Utilities.exit("Error reading file: " + regionLog, e);
+            }
+            delete(regionLog);
+        }
+    }
+
+    private static void mergeText(String outName, String[] outPrefixes,
+            String suffix, boolean hasHeader) {
+        if (anyExists(outPrefixes, suffix)==false) {
+            return;
+        }
+        try (PrintWriter out = FileUtil.printWriter(new File(outName))) {
+            for (int j=0; j<outPrefixes.length; ++j) {
+                File file = new File(outPrefixes[j] + suffix);
+                if (file.exists()==false) {
+                    continue;
+                }
+                try (FileIt<String> it = InputIt.fromTextFile(file)) {
+                    if (hasHeader && j>0 && it.hasNext()) {
+                        it.next();
+                    }
+                    while (it.hasNext()) {
+                        out.println(it.next());
+                    }
+                }
+                delete(file);
+            }
+        }
+    }
+
+    /*
+     * Concatenates BGZIP-compressed files by copying compressed blocks.
+     * Empty blocks are omitted and one empty block is written at the end
+     * of the output file.  If skipHeader is true, the blocks containing the
+     * VCF meta-information and header lines are omitted from all but the
+     * first file.
+     */
+    private static void mergeBgzip(String outName, String[] outPrefixes,
+            String suffix, boolean skipHeader) {
+        if (anyExists(outPrefixes, suffix)==false) {
+            return;
+        }
+        File outFile = new File(outName);
+        try (OutputStream os = new BufferedOutputStream(
+                FileUtil.fileOutputStream(outFile))) {
+            for (int j=0; j<outPrefixes.length; ++j) {
+                File file = new File(outPrefixes[j] + suffix);
+                if (file.exists()) {
+                    copyBlocks(file, skipHeader && j>0, os);
+                    delete(file);
+                }
+            }
+            os.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+        } catch (IOException e) {
+            Utilities.exit("Error writing to file: " + outFile, e);
+        }
+    }
+
+    private static void copyBlocks(File file, boolean skipHeader,
+            OutputStream os) throws IOException {
+        ByteArrayOutputStream header = skipHeader ? new ByteArrayOutputStream()
+                : null;
+        Inflater inflater = new Inflater(true);
+        try (InputStream is = new BufferedInputStream(
+                FileUtil.fileInputStream(file));
+                DataInputStream dis = new DataInputStream(is)) {
+            byte[] block = nextBlock(dis, file);
+            while (block != null) {
+                if (isEmpty(block)==false) {
+                    if (header!=null) {
+                        header.write(inflate(block, inflater, file));
+                        if (endsWithHeaderLine(header.toByteArray())) {
+                            header = null;
+                        }
+                    }
+                    else {
+                        os.write(block);
+                    }
+                }
+                block = nextBlock(dis, file);
+            }
+        }
+        finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] nextBlock(DataInputStream dis, File file)
+            throws IOException {
+        byte[] header = new byte[BLOCK_HEADER_LENGTH];
+        try {
+            dis.readFully(header, 0, 1);
+        }
+        catch (EOFException e) {
+            return null;
+        }
+        dis.readFully(header, 1, header.length - 1);
+        if ((header[0] & 0xff)!=31 || (header[1] & 0xff)!=139) {
+            Utilities.exit("ERROR: file is not BGZIP-compressed: " + file);
+        }
+        int blockSize = 1 + ((header[BLOCK_LENGTH_OFFSET] & 0xff)
+                | ((header[BLOCK_LENGTH_OFFSET + 1] & 0xff) << 8));
+        byte[] block = Arrays.copyOf(header, blockSize);
+        dis.readFully(block, header.length, blockSize - header.length);
+        return block;
+    }
+
+    private static int iSize(byte[] block) {
+        int n = block.length;
+        return (block[n-4] & 0xff) | ((block[n-3] & 0xff) << 8)
+                | ((block[n-2] & 0xff) << 16) | ((block[n-1] & 0xff) << 24);
+    }
+
+    private static boolean isEmpty(byte[] block) {
+        return iSize(block)==0;
+    }
+
+    private static byte[] inflate(byte[] block, Inflater inflater, File file) {
+        byte[] ba = new byte[iSize(block)];
+        inflater.reset();
+        inflater.setInput(block, BLOCK_HEADER_LENGTH,
+                block.length - BLOCK_HEADER_LENGTH - 8);
+        try {
+            int n = 0;
+            while (n < ba.length && inflater.finished()==false) {
+                n += inflater.inflate(ba, n, ba.length - n);
+            }
+        } catch (DataFormatException e) {
+            Utilities.exit("Error reading file: " + file, e);
+        }
+        return ba;
+    }
+
+    /* Returns true if the last line of the specified text is the VCF header */
+    private static boolean endsWithHeaderLine(byte[] text) {
+        int n = text.length;
+        if (n==0 || text[n-1]!='\n') {
+            return false;
+        }
+        int start = n - 1;
+        while (start>0 && text[start-1]!='\n') {
+            --start;
+        }
+        String line = new String(text, start, Math.min(n - 1 - start,
+                CHROM_LINE_PREFIX.length()), StandardCharsets.UTF_8);
+        return line.equals(CHROM_LINE_PREFIX);
+    }
+
+    private static boolean anyExists(String[] outPrefixes, String suffix) {
+        for (String prefix : outPrefixes) {
+            if (new File(prefix + suffix).exists()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void delete(File file) {
+        if (file.delete()==false) {
+            Utilities.exit("ERROR: unable to delete file: " + file);
+        }
+    }
+}
@@ -26,16 +26,13 @@ import beagleutil.Samples;
  * <p>Class {@code RevGenotypeValues} is a wrapper for a {@code GenotypeValues}
  * instance.  The wrapper reverses the order of markers in the wrapped object.
  * </p>
- * Instances of class {@code RevGenotypeValues} are thread-safe.
+ * Instances of class {@code RevGenotypeValues} have the same
+ * thread-safety guarantees as the wrapped {@code GenotypeValues} instance.
  *
  * @author Brian L. Browning {@code <browning@uw.edu>}
  */
 public class RevGenotypeValues implements GenotypeValues {
 
-    /*
-     * All instances of the {@code GenotypeValues} interface are required to be
-     * thread-safe.
-     */
     private final GenotypeValues gv;
 
     /**
@@ -54,19 +51,20 @@ public class RevGenotypeValues implements GenotypeValues {
         return gv.value(revMarker, sample, genotype);
     }
 
+    @Override
+    public void values(int marker, int sample, double[] values) {
+        int revMarker = gv.nMarkers() - 1 - marker;
+        gv.values(revMarker, sample, values);
+    }
+
     @Override
     public void add(int sample, double[] values) {
-        if (values.length != gv.markers().sumGenotypes()) {
-            throw new IllegalArgumentException("values.length=" + values.length);
-        }
-        int index = 0;
-        for (int m=0, n=gv.nMarkers(); m<n; ++m) {
-            int revMarker = gv.nMarkers() - 1 - m;
-            int nGt = gv.marker(revMarker).nGenotypes();
-            for (int gt=0; gt<nGt; ++gt) {
-                gv.add(revMarker, sample, gt, values[index++]);
-            }
-        }
+        gv.addReversed(sample, values);
+    }
+
+    @Override
+    public void addReversed(int sample, double[] values) {
+        gv.add(sample, values);
     }
 
     @Override
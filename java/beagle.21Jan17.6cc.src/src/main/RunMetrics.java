@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import blbutil.FileUtil;
+import blbutil.Utilities;
+import java.io.File;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * <p>Class {@code RunMetrics} writes per-window performance metrics to
+ * a JSON Lines file ({@code out + ".metrics.jsonl"}) or to a CSV file
+ * ({@code out + ".metrics.csv"}), and optionally exposes cumulative
+ * metrics through the platform MBean server.  The object name of the
+ * MBean is {@code "beagle:type=RunMetrics,out=[out],run=[n]"}, where
+ * {@code [out]} is the quoted output file prefix and {@code [n]} is a
+ * number that is unique to the analysis within the Java virtual machine,
+ * so that concurrent analyses register separate MBeans.
+ * </p>
+ * <p>Instances of class {@code RunMetrics} are thread-safe.
+ * </p>
+ */
+public final class RunMetrics implements RunMetricsMBean {
+
+    private static final String OBJECT_NAME = "beagle:type=RunMetrics";
+    private static final AtomicLong RUN_COUNT = new AtomicLong(0);
+
+    private final boolean csv;
+    private final PrintWriter out;
+    private final ObjectName objectName;
+
+    private int windowsCompleted = 0;
+    private String lastWindowMetrics = null;
+    private long totalWallNanos = 0;
+    private long totalCpuNanos = 0;
+    private long totalGcNanos = 0;
+    private long maxHeapPeakBytes = 0;
+    private long totalBytesWritten = 0;
+    private long totalImputeStates = 0;
+
+    /**
+     * Constructs a new {@code RunMetrics} instance for the specified
+     * analysis parameters.
+     * @param par the analysis parameters
+     * @throws NullPointerException if {@code par == null}
+     */
+    RunMetrics(Par par) {
+        this.csv = par.metrics().equals("csv");
+        if (par.metrics().equals("none")) {
+            this.out = null;
+        }
+        else {
+            File file = new File(par.out() + ".metrics." + par.metrics());
+            this.out = FileUtil.printWriter(file);
+        }
+        this.objectName = par.jmx() ? register(this, par.out()) : null;
+    }
+
+    private static ObjectName register(RunMetrics metrics, String out) {
+        String nameString = OBJECT_NAME + ",out=" + ObjectName.quote(out)
+                + ",run=" + RUN_COUNT.incrementAndGet();
+        ObjectName name = null;
+        try {
+            name = new ObjectName(nameString);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+                    name);
+        } catch (JMException e) {
+            Utilities.exit("Error registering MBean: " + nameString, e);
+        }
+        return name;
+    }
+
+    /**
+     * Records the specified metrics for a completed marker window.
+     * @param metrics the window metrics
+     * @param wallNanos the window's wall clock nanoseconds
+     * @param cpuNanos the window's process CPU nanoseconds, or {@code -1}
+     * if process CPU time is not available
+     * @param gcNanos the window's garbage collection nanoseconds, or
+     * {@code -1} if garbage collection time is not available
+     * @param heapPeakBytes the window's heap high-water mark in bytes, or
+     * {@code -1} if the heap high-water mark is not available
+     * @param bytesWritten the number of bytes written for the window
+     * @param imputeStates the number of imputation HMM states visited
+     * for the window
+     * @throws NullPointerException if {@code metrics == null}
+     */
+    synchronized void add(WindowMetrics metrics, long wallNanos,
+            long cpuNanos, long gcNanos, long heapPeakBytes,
+            long bytesWritten, long imputeStates) {
+        String json = metrics.toJson();
+        if (out != null) {
+            if (csv) {
+                if (windowsCompleted==0) {
+                    out.println(metrics.csvHeader());
+                }
+                out.println(metrics.toCsv());
+            }
+            else {
+                out.println(json);
+            }
+            out.flush();
+        }
+        ++windowsCompleted;
+        lastWindowMetrics = json;
+        totalWallNanos += wallNanos;
+        totalCpuNanos = (cpuNanos < 0 || totalCpuNanos < 0) ? -1
+                : totalCpuNanos + cpuNanos;
+        totalGcNanos = (gcNanos < 0 || totalGcNanos < 0) ? -1
+                : totalGcNanos + gcNanos;
+        maxHeapPeakBytes = (heapPeakBytes < 0 || maxHeapPeakBytes < 0) ? -1
+                : Math.max(maxHeapPeakBytes, heapPeakBytes);
+        totalBytesWritten += bytesWritten;
+        totalImputeStates += imputeStates;
+    }
+
+    /**
+     * Closes the metrics file and unregisters the MBean that was registered
+     * by {@code this}.
+     */
+    synchronized void close() {
+        if (out != null) {
+            out.close();
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer()
+                        .unregisterMBean(objectName);
+            } catch (InstanceNotFoundException e) {
+                // MBean was unregistered by another client of the MBean server
+            } catch (JMException e) {
+                Utilities.exit("Error unregistering MBean: " + objectName, e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized int getWindowsCompleted() {
+        return windowsCompleted;
+    }
+
+    @Override
+    public synchronized String getLastWindowMetrics() {
+        return lastWindowMetrics;
+    }
+
+    @Override
+    public synchronized long getTotalWallNanos() {
+        return totalWallNanos;
+    }
+
+    @Override
+    public synchronized long getTotalCpuNanos() {
+        return totalCpuNanos;
+    }
+
+    @Override
+    public synchronized long getTotalGcNanos() {
+        return totalGcNanos;
+    }
+
+    @Override
+    public synchronized long getMaxHeapPeakBytes() {
+        return maxHeapPeakBytes;
+    }
+
+    @Override
+    public synchronized long getTotalBytesWritten() {
+        return totalBytesWritten;
+    }
+
+    @Override
+    public synchronized long getTotalImputeStates() {
+        return totalImputeStates;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+/**
+ * <p>Interface {@code RunMetricsMBean} is the management interface for
+ * the performance metrics of a Beagle analysis.
+ * </p>
+ * <p>All instances of {@code RunMetricsMBean} are required to be
+ * thread-safe.
+ * </p>
+ * <p>CPU time, garbage collection, and heap metrics are measured for the
+ * entire Java virtual machine, and are not available if more than one
+ * analysis may run concurrently.
+ * </p>
+ */
+public interface RunMetricsMBean {
+
+    /**
+     * Returns the number of marker windows that have been completed.
+     * @return the number of marker windows that have been completed
+     */
+    int getWindowsCompleted();
+
+    /**
+     * Returns the metrics for the most recently completed marker window
+     * as a JSON object, or {@code null} if no window has been completed.
+     * @return the metrics for the most recently completed marker window
+     */
+    String getLastWindowMetrics();
+
+    /**
+     * Returns the total wall clock nanoseconds for completed windows.
+     * @return the total wall clock nanoseconds for completed windows
+     */
+    long getTotalWallNanos();
+
+    /**
+     * Returns the total process CPU nanoseconds for completed windows, or
+     * {@code -1} if process CPU time is not available.  Process CPU time
+     * is not available if more than one analysis may run concurrently
+     * in the Java virtual machine.
+     * @return the total process CPU nanoseconds for completed windows
+     */
+    long getTotalCpuNanos();
+
+    /**
+     * Returns the total garbage collection nanoseconds for completed
+     * windows, or {@code -1} if garbage collection time is not available.
+     * @return the total garbage collection nanoseconds for completed
+     * windows
+     */
+    long getTotalGcNanos();
+
+    /**
+     * Returns the maximum heap high-water mark in bytes of
+     * the completed windows, or {@code -1} if the heap high-water mark
+     * is not available.
+     * @return the maximum heap high-water mark in bytes
+     */
+    long getMaxHeapPeakBytes();
+
+    /**
+     * Returns the total number of bytes written to the output files.
+     * @return the total number of bytes written to the output files
+     */
+    long getTotalBytesWritten();
+
+    /**
+     * Returns the total number of imputation HMM states visited.
+     * @return the total number of imputation HMM states visited
+     */
+    long getTotalImputeStates();
+}
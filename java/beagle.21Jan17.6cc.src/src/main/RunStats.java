@@ -18,6 +18,7 @@
  */
 package main;
 
+import sample.Checkpoints;
 import vcf.Markers;
 import vcf.Marker;
 import vcf.Data;
@@ -28,11 +29,32 @@ import dag.Dag;
 import dag.DagUtil;
 import java.io.File;
 import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
 import java.text.DecimalFormat;
+import java.util.Arrays;
 
 /**
- * Class {@code RunStats} contains methods for storing and printing
+ * <p>Class {@code RunStats} contains methods for storing and printing
  * statistics describing a Beagle analysis.
+ * </p>
+ * <p>If per-window metrics are requested with the {@code metrics} or
+ * {@code jmx} parameters, the wall clock time of each stage (reading,
+ * model building, sampling, IBD detection, and imputation) is recorded
+ * for each marker window.  The process CPU time of a stage is the
+ * process CPU time between the end of the preceding stage and
+ * the end of the stage.
+ * </p>
+ * <p>Process CPU time, garbage collection counts and times, and heap
+ * memory peaks are process-wide measurements.  After
+ * {@code RunStats.setProcessShared()} is invoked, these metrics are
+ * reported as unavailable ({@code -1} or {@code NaN}), and heap memory
+ * pool peaks are not reset, because the measurements would include the
+ * work of concurrent analyses.
+ * </p>
  *
  * @author Brian L. Browning {@code <browning@uw.edu>}
  */
@@ -40,6 +62,16 @@ public class RunStats {
 
     private static final DecimalFormat df2 = new DecimalFormat("0.00");
 
+    private static volatile boolean processShared = false;
+
+    private static final int READ = 0;
+    private static final int BUILD = 1;
+    private static final int SAMPLE = 2;
+    private static final int IBD = 3;
+    private static final int IMPUTE = 4;
+    private static final String[] STAGES = new String[] {"read", "build",
+        "sample", "ibd", "impute"};
+
     private final Par par;
     private final PrintWriter log;
     private final long startNanos;
@@ -57,15 +89,62 @@ public class RunStats {
 
     private String dagStats = null;
 
+    private final RunMetrics metrics;
+    private final long[] stageNanos = new long[STAGES.length];
+    private final long[] stageCpuNanos = new long[STAGES.length];
+    private long windowStartNanos = 0;
+    private long windowStartCpuNanos = 0;
+    private long lastCpuNanos = 0;
+    private long windowStartGcCount = 0;
+    private long windowStartGcMillis = 0;
+    private boolean windowIsShared = false;
+    private int windowStartMarkers = 0;
+    private long lastBytesWritten = 0;
+    private long imputeStates = 0;
+    private int nDags = 0;
+    private long maxNodesPerLevel = 0;
+    private long maxEdgesPerLevel = 0;
+    private Dag lastDag = null;
+    private int lastDagMaxEdges = 0;
+    private long hmmLevels = 0;
+    private long hmmRecomputedLevels = 0;
+    private long totalHmmLevels = 0;
+    private long totalHmmRecomputedLevels = 0;
+
     /**
      * Constructs a new {@code RunStats} instance.
      * @param par the analysis parameters
      * @throws NullPointerException if {@code par == null}
      */
     RunStats(Par par) {
+        this(par, log(par.out()));
+    }
+
+    /**
+     * Constructs a new {@code RunStats} instance that writes log messages
+     * to the specified {@code PrintWriter}.
+     * @param par the analysis parameters
+     * @param log the {@code PrintWriter} to which log messages are written
+     * @throws NullPointerException if {@code par == null || log == null}
+     */
+    public RunStats(Par par, PrintWriter log) {
+        if (log==null) {
+            throw new NullPointerException("log==null");
+        }
         this.startNanos = System.nanoTime();
         this.par = par;
-        this.log = log(par.out());
+        this.log = log;
+        this.metrics = (par.metrics().equals("none") && par.jmx()==false)
+                ? null : new RunMetrics(par);
+    }
+
+    /**
+     * Records that more than one analysis may run concurrently in this
+     * Java virtual machine.  Process-wide metrics of windows that end
+     * after this method is invoked are reported as unavailable.
+     */
+    static void setProcessShared() {
+        processShared = true;
     }
 
     private static PrintWriter log(String outPrefix) {
@@ -168,11 +247,19 @@ public class RunStats {
         if (totalImputeNanos > 0) {
             duoPrintNanos("Total time for imputation:     ", totalImputeNanos);
         }
+        if (totalHmmRecomputedLevels > 0) {
+            Utilities.duoPrint(log, "HMM forward recompute ratio:   ");
+            Utilities.duoPrintln(log, String.format("%7.2f",
+                    (double) totalHmmRecomputedLevels / totalHmmLevels));
+        }
         duoPrintNanos("Total run time:                ", totalTime);
         Utilities.duoPrintln(log, Const.nl + "End time: "
                 + Utilities.timeStamp());
         Utilities.duoPrintln(log, Main.program + " finished");
         log.close();
+        if (metrics != null) {
+            metrics.close();
+        }
     }
 
     /**
@@ -183,6 +270,7 @@ public class RunStats {
      */
     public void buildNanos(long nanos) {
         buildNanos += nanos;
+        addStageNanos(BUILD, nanos);
     }
 
     /**
@@ -193,6 +281,7 @@ public class RunStats {
     public void sampleNanos(long nanos) {
         sampleNanos = nanos;
         totalSampleNanos += nanos;
+        addStageNanos(SAMPLE, nanos);
     }
 
     /**
@@ -205,6 +294,7 @@ public class RunStats {
     public void imputationNanos(long nanos) {
         imputeNanos = nanos;
         totalImputeNanos += nanos;
+        addStageNanos(IMPUTE, nanos);
     }
 
    /**
@@ -214,6 +304,51 @@ public class RunStats {
      */
     public void ibdNanos(long nanos) {
         totalIbdNanos += nanos;
+        addStageNanos(IBD, nanos);
+    }
+
+    /**
+     * Increases the time for reading input data in the current window
+     * by the specified number of nanoseconds.
+     * @param nanos the nanoseconds required to read input data
+     */
+    public void readNanos(long nanos) {
+        addStageNanos(READ, nanos);
+    }
+
+    /**
+     * Increases the number of imputation HMM states visited in the current
+     * window by the specified number.
+     * @param nStates the number of imputation HMM states visited
+     */
+    public void imputeStates(long nStates) {
+        imputeStates += nStates;
+    }
+
+    /**
+     * Records the number of forward values that are computed and
+     * recomputed by the specified number of forward-backward passes.
+     * @param checkpoints the checkpoints of the forward-backward algorithm
+     * @param nPasses the number of forward-backward passes
+     * @throws NullPointerException if {@code checkpoints == null}
+     */
+    public synchronized void checkpoints(Checkpoints checkpoints,
+            long nPasses) {
+        long nLevels = nPasses*checkpoints.nLevels();
+        long nRecomputed = nPasses*checkpoints.nRecomputedLevels();
+        hmmLevels += nLevels;
+        hmmRecomputedLevels += nRecomputed;
+        totalHmmLevels += nLevels;
+        totalHmmRecomputedLevels += nRecomputed;
+    }
+
+    private void addStageNanos(int stage, long nanos) {
+        if (metrics != null) {
+            long cpuNanos = processCpuNanos();
+            stageNanos[stage] += nanos;
+            stageCpuNanos[stage] += (cpuNanos - lastCpuNanos);
+            lastCpuNanos = cpuNanos;
+        }
     }
 
     /**
@@ -222,6 +357,169 @@ public class RunStats {
      */
     public void setDagStats(Dag dag) {
         dagStats = (dag==null) ? null : DagUtil.dagStats(dag);
+        if (dag != null) {
+            lastDagMaxEdges = dag.maxEdges();
+        }
+        if (metrics != null && dag != null) {
+            ++nDags;
+            maxNodesPerLevel = Math.max(maxNodesPerLevel, dag.maxNodes());
+            maxEdgesPerLevel = Math.max(maxEdgesPerLevel, dag.maxEdges());
+            lastDag = dag;
+        }
+    }
+
+    /**
+     * Returns the maximum number of edges at a level of the most recent
+     * DAG model used to sample single individuals, or 0 if no such DAG
+     * model has been stored.
+     * @return the maximum number of edges at a level of the most recent
+     * DAG model used to sample single individuals
+     */
+    public int lastDagMaxEdges() {
+        return lastDagMaxEdges;
+    }
+
+    /**
+     * Starts recording per-window metrics for the next marker window.
+     * This method should be invoked before the input data for the next
+     * window is read.
+     * @param data the input genotype data
+     * @throws NullPointerException if {@code data == null}
+     */
+    public void startWindow(Data data) {
+        if (metrics != null) {
+            Arrays.fill(stageNanos, 0L);
+            Arrays.fill(stageCpuNanos, 0L);
+            imputeStates = 0;
+            hmmLevels = 0;
+            hmmRecomputedLevels = 0;
+            nDags = 0;
+            maxNodesPerLevel = 0;
+            maxEdgesPerLevel = 0;
+            lastDag = null;
+            windowIsShared = processShared;
+            if (windowIsShared==false) {
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                    if (pool.getType()==MemoryType.HEAP && pool.isValid()) {
+                        pool.resetPeakUsage();
+                    }
+                }
+            }
+            windowStartGcCount = gcCount();
+            windowStartGcMillis = gcMillis();
+            windowStartMarkers = data.nMarkersSoFar();
+            windowStartCpuNanos = windowIsShared ? -1 : processCpuNanos();
+            lastCpuNanos = windowStartCpuNanos;
+            windowStartNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Records per-window metrics for the current marker window.  This
+     * method should be invoked after the output data for the current
+     * window is written.
+     * @param data the input genotype data
+     * @param bytesWritten the total number of bytes written to the output
+     * files
+     * @throws NullPointerException if {@code data == null}
+     */
+    public void endWindow(Data data, long bytesWritten) {
+        if (metrics == null) {
+            return;
+        }
+        windowIsShared |= processShared;
+        long wallNanos = System.nanoTime() - windowStartNanos;
+        long endCpuNanos = processCpuNanos();
+        long cpuNanos = (windowIsShared || windowStartCpuNanos < 0) ? -1
+                : endCpuNanos - windowStartCpuNanos;
+        long gcCount = windowIsShared ? -1 : gcCount() - windowStartGcCount;
+        long gcNanos = windowIsShared ? -1
+                : 1000000L*(gcMillis() - windowStartGcMillis);
+        long heapPeakBytes = windowIsShared ? -1 : heapPeakBytes();
+        long windowBytes = bytesWritten - lastBytesWritten;
+        lastBytesWritten = bytesWritten;
+        int nRecords = data.nMarkersSoFar() - windowStartMarkers;
+        Markers markers = data.markers();
+        Marker first = markers.marker(0);
+        Marker last = markers.marker(markers.nMarkers() - 1);
+
+        WindowMetrics wm = new WindowMetrics();
+        wm.add("window", data.window());
+        wm.add("chrom", first.chrom());
+        wm.add("start", first.pos());
+        wm.add("end", last.pos());
+        wm.add("markers", data.nMarkers());
+        wm.add("targetMarkers", data.nTargetMarkers());
+        wm.add("refSamples", data.nRefSamples());
+        wm.add("targetSamples", data.nTargetSamples());
+        wm.add("wallNanos", wallNanos);
+        wm.add("cpuNanos", cpuNanos);
+        for (int j=0; j<STAGES.length; ++j) {
+            wm.add(STAGES[j] + "WallNanos", stageNanos[j]);
+            wm.add(STAGES[j] + "CpuNanos",
+                    cpuNanos < 0 ? -1 : stageCpuNanos[j]);
+        }
+        wm.add("threadBusyFraction", (cpuNanos < 0 || wallNanos == 0) ? Double.NaN
+                : (double) cpuNanos / ((double) wallNanos * par.nthreads()));
+        wm.add("dags", nDags);
+        wm.add("dagLevels", lastDag==null ? 0 : lastDag.nLevels());
+        wm.add("dagNodes", lastDag==null ? 0 : lastDag.nNodes());
+        wm.add("dagEdges", lastDag==null ? 0 : lastDag.nEdges());
+        wm.add("dagMeanNodesPerLevel", lastDag==null ? Double.NaN
+                : (double) lastDag.nNodes() / lastDag.nLevels());
+        wm.add("dagMeanEdgesPerLevel", lastDag==null ? Double.NaN
+                : (double) lastDag.nEdges() / lastDag.nLevels());
+        wm.add("dagMaxNodesPerLevel", maxNodesPerLevel);
+        wm.add("dagMaxEdgesPerLevel", maxEdgesPerLevel);
+        wm.add("heapPeakBytes", heapPeakBytes);
+        wm.add("gcCount", gcCount);
+        wm.add("gcNanos", gcNanos);
+        wm.add("recordsRead", nRecords);
+        wm.add("recordsPerSecond", stageNanos[READ]==0 ? Double.NaN
+                : 1e9*nRecords / stageNanos[READ]);
+        wm.add("bytesWritten", windowBytes);
+        wm.add("imputeStates", imputeStates);
+        wm.add("hmmRecomputeRatio", hmmLevels==0 ? 0.0
+                : (double) hmmRecomputedLevels / hmmLevels);
+        metrics.add(wm, wallNanos, cpuNanos, gcNanos, heapPeakBytes,
+                windowBytes, imputeStates);
+    }
+
+    private static long processCpuNanos() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os)
+                    .getProcessCpuTime();
+        }
+        else {
+            return -1;
+        }
+    }
+
+    private static long gcCount() {
+        long cnt = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            cnt += Math.max(0, gc.getCollectionCount());
+        }
+        return cnt;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static long heapPeakBytes() {
+        long bytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType()==MemoryType.HEAP && pool.isValid()) {
+                bytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        return bytes;
     }
 
     /**
@@ -342,6 +640,47 @@ public class RunStats {
         log.flush();
     }
 
+    /**
+     * Prints information about the specified iteration, including the
+     * proportion of phase switches between the haplotypes sampled in the
+     * specified iteration and in the preceding iteration.
+     * @param window the window
+     * @param iter the iteration
+     * @param switchRate the proportion of phase switches between the
+     * haplotypes sampled in the specified and preceding iterations
+     */
+    public void printIterationUpdate(int window, int iter, double switchRate) {
+        printIterationUpdate(window, iter);
+        Utilities.duoPrintln(log, "Switch rate:                     "
+                + String.format("%.5f", switchRate));
+        log.flush();
+    }
+
+    /**
+     * Prints the number of target samples whose haplotypes were resampled
+     * in the current iteration.
+     * @param nActive the number of resampled target samples
+     * @param nSamples the number of target samples
+     */
+    public void printActiveSamples(int nActive, int nSamples) {
+        Utilities.duoPrintln(log, "Resampled samples:               "
+                + nActive + " of " + nSamples);
+        log.flush();
+    }
+
+    /**
+     * Prints a message reporting that the current burn-in or phasing
+     * iterations for the specified window ended early because the
+     * switch rate fell below the switchrate parameter.
+     * @param window the window
+     * @param iter the last iteration performed
+     */
+    public void printConvergence(int window, int iter) {
+        Utilities.duoPrintln(log, Const.nl + "Window=" + window
+                + " Iterations ended after iteration " + iter);
+        log.flush();
+    }
+
     /**
      * Returns a string with specified message following by the elapsed time
      * (in hours, minutes, and seconds).
@@ -26,7 +26,13 @@ import vcf.Marker;
  * <p>Class {@code SampleGenotypeValues} stores a value for each possible
  * genotype at each marker for one sample.
  * </p>
- * <p>Class {@code SampleGenotypeValues} is thread-safe.
+ * <p>Class {@code SampleGenotypeValues} is not thread-safe.  An instance
+ * is owned by the single thread that is processing the instance's sample,
+ * and no monitor is acquired when values are added or read.  It is the
+ * caller's responsibility to ensure that an instance is not modified
+ * concurrently by two threads, and that all modifications happen-before
+ * the values are read (for example by waiting for termination of the
+ * {@code ExecutorService} that performs the modifications).
  * </p>
  *
  * @author Brian L. Browning {@code <browning@uw.edu>}
@@ -72,7 +78,7 @@ public class SampleGenotypeValues {
      * @throws IndexOutOfBoundsException if
      * {@code genotype < 0 || genotype >= this.marker(marker).nGenotypes()}
      */
-    public synchronized float value(int marker, int genotype) {
+    public float value(int marker, int genotype) {
         checkGenotype(marker, genotype);
         return gtValues[markers.sumGenotypes(marker) + genotype];
     }
@@ -95,7 +101,7 @@ public class SampleGenotypeValues {
      * {@code values.length != this.markers().sumGenotypes()}
      * @throws NullPointerException if {@code values == null}
      */
-    public synchronized void add(double[] values) {
+    public void add(double[] values) {
         if (values.length != gtValues.length) {
             String s = "values.length=" + values.length;
             throw new IllegalArgumentException(s);
@@ -116,11 +122,69 @@ public class SampleGenotypeValues {
      * @throws IndexOutOfBoundsException if
      * {@code genotype < 0 || genotype >= this.marker(marker).nGenotypes()}
      */
-    public synchronized void add(int marker, int genotype, double value) {
+    public void add(int marker, int genotype, double value) {
         checkGenotype(marker, genotype);
         gtValues[markers.sumGenotypes(marker) + genotype] += value;
     }
 
+    /**
+     * Copies the genotype values for the specified marker into the
+     * specified array.
+     *
+     * @param marker a marker index
+     * @param values an array in which the first
+     * {@code this.marker(marker).nGenotypes()} elements will be set
+     * to the genotype values for the specified marker
+     *
+     * @throws IndexOutOfBoundsException if
+     * {@code marker < 0 || marker >= this.nMarkers()}
+     * @throws IndexOutOfBoundsException if
+     * {@code values.length < this.marker(marker).nGenotypes()}
+     * @throws NullPointerException if {@code values == null}
+     */
+    public void values(int marker, double[] values) {
+        int start = markers.sumGenotypes(marker);
+        int end = markers.sumGenotypes(marker + 1);
+        if (values.length < (end - start)) {
+            throw new IndexOutOfBoundsException(String.valueOf(values.length));
+        }
+        for (int j=start; j<end; ++j) {
+            values[j - start] = gtValues[j];
+        }
+    }
+
+    /**
+     * Adds the specified genotype values to {@code this} after reversing
+     * the order of markers.  This method is equivalent to
+     * <pre>
+     * int index = 0;
+     * for (int m=this.nMarkers()-1; m&gt;=0; --m) {
+     *     for (int gt=0; gt&lt;this.marker(m).nGenotypes(); ++gt) {
+     *         this.add(m, gt, values[index++])
+     *     }
+     * }
+     * </pre>
+     *
+     * @param values an array with {@code this.markers.sumGenotypes()}
+     * elements containing the genotype values for the reversed markers
+     * @throws IllegalArgumentException if
+     * {@code values.length != this.markers().sumGenotypes()}
+     * @throws NullPointerException if {@code values == null}
+     */
+    public void addReversed(double[] values) {
+        if (values.length != gtValues.length) {
+            String s = "values.length=" + values.length;
+            throw new IllegalArgumentException(s);
+        }
+        int index = 0;
+        for (int m=markers.nMarkers()-1; m>=0; --m) {
+            int end = markers.sumGenotypes(m + 1);
+            for (int j=markers.sumGenotypes(m); j<end; ++j) {
+                gtValues[j] += values[index++];
+            }
+        }
+    }
+
     private void checkGenotype(int marker, int genotype) {
         int nGenotypes = markers.marker(marker).nGenotypes();
         if (genotype < 0 || genotype >= nGenotypes) {
@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import blbutil.Const;
+import blbutil.Filter;
+import blbutil.Utilities;
+import blbutil.Validate;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import vcf.FilterUtil;
+import vcf.RefPanel;
+
+/**
+ * <p>Class {@code Server} is a long-running Beagle process that loads a
+ * reference panel once and then runs phasing and imputation jobs that use
+ * the reference panel.
+ * </p>
+ * <p>The server listens for connections on a TCP port of the loopback
+ * interface.  When the server starts, it writes a random access token to
+ * the {@code tokenfile} file, which only the owner of the server process
+ * can read.  A client sends the access token on the first line, sends a
+ * request on the second line, and then reads the server's responses.
+ * The server responds with {@code ERROR unauthorized} and closes the
+ * connection if the access token is incorrect.  The request may be:
+ * </p>
+ * <ul>
+ * <li>{@code STATUS}: the server responds with the number of queued,
+ * running, completed, and failed jobs.</li>
+ * <li>{@code SHUTDOWN}: the server stops accepting connections, responds
+ * with {@code OK}, and exits after all queued jobs have finished.</li>
+ * <li>a white-space delimited list of Beagle command line arguments without
+ * the {@code ref}, {@code nthreads}, {@code regions}, and {@code nregions}
+ * arguments: the server queues the job, responds with
+ * {@code QUEUED [job]}, and responds with {@code DONE [job]} or
+ * {@code ERROR [job] [message]} when the job finishes.</li>
+ * </ul>
+ * <p>At most {@code njobs} jobs run at the same time, and the
+ * {@code nthreads} threads are divided equally among the running jobs.
+ * Each job writes its own output and log files.
+ * </p>
+ */
+public final class Server {
+
+    private static final String[] SERVER_KEYS = {"ref", "nthreads",
+            "regions", "nregions"};
+
+    private static final int TOKEN_BYTES = 16;
+
+    private final RefPanel refPanel;
+    private final byte[] token;
+    private final int nThreadsPerJob;
+    private final ServerSocket serverSocket;
+    private final ExecutorService jobs;
+    private final ExecutorService connections;
+
+    private final AtomicInteger jobIndex = new AtomicInteger(0);
+    private final AtomicInteger nQueued = new AtomicInteger(0);
+    private final AtomicInteger nRunning = new AtomicInteger(0);
+    private final AtomicInteger nCompleted = new AtomicInteger(0);
+    private final AtomicInteger nFailed = new AtomicInteger(0);
+
+    /**
+     * Entry point to the Beagle server.  See the {@code usage()} method
+     * for usage instructions.
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        Locale.setDefault(Locale.US);
+        if (args.length==0) {
+            System.out.println(usage());
+            System.exit(0);
+        }
+        Map<String, String> argsMap = Validate.argsToMap(args, '=');
+        File ref = Validate.getFile(
+                Validate.stringArg("ref", argsMap, true, null, null));
+        int port = Validate.intArg("port", argsMap, false, 7070, 1, 65535);
+        int nJobs = Validate.intArg("njobs", argsMap, false, 1, 1,
+                Integer.MAX_VALUE);
+        int nThreads = Validate.intArg("nthreads", argsMap, false,
+                Runtime.getRuntime().availableProcessors(), 1,
+                Integer.MAX_VALUE);
+        File excludeSamples = Validate.getFile(Validate.stringArg(
+                "excludesamples", argsMap, false, null, null));
+        String defaultTokenFile = new File(System.getProperty("user.home"),
+                ".beagle-server-" + port + ".token").toString();
+        File tokenFile = new File(Validate.stringArg("tokenfile", argsMap,
+                false, defaultTokenFile, null));
+        Validate.confirmEmptyMap(argsMap);
+        System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism",
+                String.valueOf(nThreads));
+
+        long t0 = System.nanoTime();
+        Filter<String> sampleFilter = FilterUtil.sampleFilter(excludeSamples);
+        RefPanel refPanel = new RefPanel(ref, sampleFilter, nThreads);
+        System.out.println("Loaded reference panel: " + ref + " ("
+                + refPanel.samples().nSamples() + " samples, "
+                + refPanel.nRecords() + " markers) in "
+                + Utilities.elapsedNanos(System.nanoTime() - t0));
+
+        String token = writeToken(tokenFile);
+        Server server = new Server(refPanel, token, port, nJobs, nThreads);
+        Utilities.setThrowOnExit(true);
+        System.out.println("Listening on "
+                + server.serverSocket.getLocalSocketAddress());
+        System.out.println("Access token: " + tokenFile);
+        server.run();
+    }
+
+    private static String usage() {
+        String nl = Const.nl;
+        return "usage: java -cp beagle.jar main.Server [arguments]" + nl
+                + nl
+                + "  ref=<VCF or bref file with phased genotypes>       (required)" + nl
+                + "  port=<TCP port on the loopback interface>          (default=7070)" + nl
+                + "  njobs=<max number of concurrent jobs>              (default=1)" + nl
+                + "  nthreads=<number of threads shared by all jobs>    (default: machine-dependent)" + nl
+                + "  excludesamples=<file with 1 sample ID per line>    (optional)" + nl
+                + "  tokenfile=<file for the access token>               (default=~/.beagle-server-<port>.token)" + nl;
+    }
+
+    private Server(RefPanel refPanel, String token, int port, int nJobs,
+            int nThreads) {
+        this.refPanel = refPanel;
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        this.nThreadsPerJob = Math.max(1, nThreads/nJobs);
+        this.serverSocket = serverSocket(port);
+        this.jobs = Executors.newFixedThreadPool(nJobs);
+        if (nJobs>1) {
+            RunStats.setProcessShared();
+        }
+        this.connections = Executors.newCachedThreadPool();
+    }
+
+    /*
+     * Writes a new random access token to the specified file, which is
+     * created with read and write permission for the owner only, and
+     * returns the access token.
+     */
+    private static String writeToken(File file) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder sb = new StringBuilder(2*bytes.length);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        String token = sb.toString();
+        Path path = file.toPath();
+        try {
+            Files.deleteIfExists(path);
+            try {
+                Files.createFile(path, PosixFilePermissions.asFileAttribute(
+                        PosixFilePermissions.fromString("rw-------")));
+            }
+            catch (UnsupportedOperationException e) {
+                Files.createFile(path);
+                if (file.setReadable(false, false)==false
+                        || file.setWritable(false, false)==false
+                        || file.setReadable(true, true)==false
+                        || file.setWritable(true, true)==false) {
+                    Utilities.exit("Error restricting access to " + file);
+                }
+            }
+            Files.write(path, (token + Const.nl).getBytes(
+                    StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Utilities.exit("Error writing token file: " + file, e);
+        }
+        file.deleteOnExit();
+        return token;
+    }
+
+    private static ServerSocket serverSocket(int port) {
+        ServerSocket ss = null;
+        try {
+            ss = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            Utilities.exit("Error opening server socket on port " + port, e);
+        }
+        return ss;
+    }
+
+    private void run() {
+        while (serverSocket.isClosed()==false) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.submit(() -> handle(socket));
+            }
+            catch (IOException e) {
+                if (serverSocket.isClosed()==false) {
+                    e.printStackTrace(System.out);
+                }
+            }
+        }
+        try {
+            jobs.shutdown();
+            jobs.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            connections.shutdown();
+            connections.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("Server stopped");
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                        s.getInputStream(), StandardCharsets.UTF_8));
+                PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                        s.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            String clientToken = in.readLine();
+            if (clientToken==null) {
+                return;
+            }
+            byte[] bytes = clientToken.trim().getBytes(StandardCharsets.UTF_8);
+            if (MessageDigest.isEqual(bytes, token)==false) {
+                out.println("ERROR unauthorized");
+                return;
+            }
+            String line = in.readLine();
+            if (line==null) {
+                return;
+            }
+            line = line.trim();
+            if (line.equals("STATUS")) {
+                out.println("QUEUED " + nQueued.get() + " RUNNING "
+                        + nRunning.get() + " COMPLETED " + nCompleted.get()
+                        + " FAILED " + nFailed.get());
+            }
+            else if (line.equals("SHUTDOWN")) {
+                serverSocket.close();
+                out.println("OK");
+            }
+            else {
+                submit(line, out);
+            }
+        }
+        catch (IOException e) {
+            e.printStackTrace(System.out);
+        }
+    }
+
+    private void submit(String line, PrintWriter out) {
+        int job = jobIndex.incrementAndGet();
+        String[] args;
+        try {
+            args = jobArgs(line);
+        }
+        catch (IllegalArgumentException e) {
+            out.println("ERROR " + job + " " + e.getMessage());
+            return;
+        }
+        nQueued.incrementAndGet();
+        Future<?> future = jobs.submit(() -> {
+            nQueued.decrementAndGet();
+            nRunning.incrementAndGet();
+            try {
+                Main.analyze(Main.parameters(args), refPanel);
+            }
+            finally {
+                nRunning.decrementAndGet();
+            }
+        });
+        out.println("QUEUED " + job);
+        try {
+            future.get();
+            nCompleted.incrementAndGet();
+            out.println("DONE " + job);
+        }
+        catch (Exception e) {
+            nFailed.incrementAndGet();
+            Throwable cause = e;
+            while (cause.getCause()!=null) {
+                cause = cause.getCause();
+            }
+            String msg = String.valueOf(cause.getMessage()).trim();
+            out.println("ERROR " + job + " " + msg.replace(Const.nl, " "));
+        }
+    }
+
+    private String[] jobArgs(String line) {
+        List<String> list = new ArrayList<>();
+        for (String arg : line.split("\\s+")) {
+            if (arg.length()>0) {
+                for (String key : SERVER_KEYS) {
+                    if (arg.startsWith(key + "=")) {
+                        String s = "the \"" + key + "\" argument is set by the server";
+                        throw new IllegalArgumentException(s);
+                    }
+                }
+                list.add(arg);
+            }
+        }
+        list.add("ref=" + refPanel.file());
+        list.add("nthreads=" + nThreadsPerJob);
+        return list.toArray(new String[0]);
+    }
+}
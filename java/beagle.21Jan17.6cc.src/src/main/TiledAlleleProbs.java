@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import beagleutil.Samples;
+import blbutil.FileUtil;
+import blbutil.Utilities;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import sample.HapStateProbs;
+import sample.ImputationData;
+import vcf.Markers;
+
+/**
+ * <p>Class {@code TiledAlleleProbs} stores the imputed allele
+ * probabilities of each target haplotype for a range of imputed markers
+ * in a temporary file, and returns the allele probabilities of all
+ * target haplotypes for one tile of consecutive imputed markers at a
+ * time.  Allele probabilities are written to the temporary file as soon
+ * as each target haplotype's forward-backward algorithm is complete, so
+ * that the memory required for allele probabilities is proportional to
+ * the number of markers in a tile rather than the number of markers in
+ * a window.
+ * </p>
+ * <p>The {@code add()} method may be invoked concurrently by multiple
+ * threads.  The {@code tile()} method must not be invoked until the
+ * allele probabilities of every target haplotype have been added.
+ * </p>
+ */
+public final class TiledAlleleProbs implements Closeable {
+
+    private final ImputationData impData;
+    private final Samples samples;
+    private final int nHaps;
+    private final int[] tileStarts;
+    private final Markers[] tileMarkers;
+    private final int[] hapBytes;
+    private final long[] tileOffsets;
+    private final File file;
+    private final FileChannel channel;
+
+    /**
+     * Constructs a new {@code TiledAlleleProbs} instance for the imputed
+     * markers with index between {@code start} (inclusive) and
+     * {@code end} (exclusive).  Each tile contains at most
+     * {@code tileSize} imputed markers.
+     * @param impData the input data for genotype imputation
+     * @param start the first imputed marker index (inclusive)
+     * @param end the last imputed marker index (exclusive)
+     * @param tileSize the maximum number of imputed markers in a tile
+     * @throws IllegalArgumentException if
+     * {@code start < 0 || start > end || end > impData.nImputedMarkers()}
+     * @throws IllegalArgumentException if {@code tileSize < 1}
+     * @throws NullPointerException if {@code impData == null}
+     */
+    public TiledAlleleProbs(ImputationData impData, int start, int end,
+            int tileSize) {
+        if (start < 0 || start > end || end > impData.nImputedMarkers()) {
+            throw new IllegalArgumentException(start + " " + end);
+        }
+        if (tileSize < 1) {
+            throw new IllegalArgumentException(String.valueOf(tileSize));
+        }
+        this.impData = impData;
+        this.samples = impData.targetSamples();
+        this.nHaps = impData.targHapPairs().nHaps();
+        int nTiles = (end - start + tileSize - 1) / tileSize;
+        Markers markers = impData.imputedRefMarkers();
+        this.tileStarts = new int[nTiles + 1];
+        this.tileMarkers = new Markers[nTiles];
+        this.hapBytes = new int[nTiles];
+        this.tileOffsets = new long[nTiles];
+        long offset = 0;
+        for (int t=0; t<nTiles; ++t) {
+            tileStarts[t] = start + t*tileSize;
+            tileMarkers[t] = markers.restrict(tileStarts[t],
+                    Math.min(tileStarts[t] + tileSize, end));
+            hapBytes[t] = LowMemHapAlleleProbs.nBytes(tileMarkers[t]);
+            tileOffsets[t] = offset;
+            offset += (long) nHaps*hapBytes[t];
+        }
+        tileStarts[nTiles] = end;
+        this.file = FileUtil.tempFile("beagle_tiles");
+        this.channel = channel(file);
+    }
+
+    private static FileChannel channel(File file) {
+        FileChannel fc = null;
+        try {
+            fc = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            Utilities.exit("Error opening " + file, e);
+        }
+        return fc;
+    }
+
+    /**
+     * Computes the imputed allele probabilities of the target haplotype
+     * {@code stateProbs.hap()} for each tile, and writes them to the
+     * temporary file.
+     * @param stateProbs the reference haplotype segment probabilities of
+     * a target haplotype
+     * @throws IllegalArgumentException if
+     * {@code stateProbs.imputationData() != this.imputationData()}
+     * @throws NullPointerException if {@code stateProbs == null}
+     */
+    public void add(HapStateProbs stateProbs) {
+        if (stateProbs.imputationData() != impData) {
+            throw new IllegalArgumentException("inconsistent data");
+        }
+        int hap = stateProbs.hap();
+        int nTiles = hapBytes.length;
+        Markers markers = impData.imputedRefMarkers();
+        int offset = markers.sumAlleles(tileStarts[0]);
+        float[] alleleProbs = new float[markers.sumAlleles(tileStarts[nTiles])
+                - offset];
+        stateProbs.setAlleleProbs(tileStarts[0], tileStarts[nTiles],
+                alleleProbs);
+        for (int t=0; t<nTiles; ++t) {
+            int from = markers.sumAlleles(tileStarts[t]) - offset;
+            int to = markers.sumAlleles(tileStarts[t+1]) - offset;
+            ByteBuffer buffer = ByteBuffer.allocate(hapBytes[t]);
+            new LowMemHapAlleleProbs(tileMarkers[t], samples, hap,
+                    Arrays.copyOfRange(alleleProbs, from, to)).writeTo(buffer);
+            buffer.flip();
+            write(buffer, tileOffsets[t] + (long) hap*hapBytes[t]);
+        }
+    }
+
+    private void write(ByteBuffer buffer, long position) {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        } catch (IOException e) {
+            Utilities.exit("Error writing " + file, e);
+        }
+    }
+
+    /**
+     * Returns the input data for genotype imputation.
+     * @return the input data for genotype imputation
+     */
+    public ImputationData imputationData() {
+        return impData;
+    }
+
+    /**
+     * Returns the number of tiles.
+     * @return the number of tiles
+     */
+    public int nTiles() {
+        return hapBytes.length;
+    }
+
+    /**
+     * Returns the index of the first imputed marker in the specified tile.
+     * @param tile a tile index
+     * @return the index of the first imputed marker in the specified tile
+     * @throws IndexOutOfBoundsException if
+     * {@code tile < 0 || tile >= this.nTiles()}
+     */
+    public int start(int tile) {
+        if (tile >= hapBytes.length) {
+            throw new IndexOutOfBoundsException(String.valueOf(tile));
+        }
+        return tileStarts[tile];
+    }
+
+    /**
+     * Returns the index of the last imputed marker in the specified tile
+     * plus one.
+     * @param tile a tile index
+     * @return the index of the last imputed marker in the specified tile
+     * plus one
+     * @throws IndexOutOfBoundsException if
+     * {@code tile < 0 || tile >= this.nTiles()}
+     */
+    public int end(int tile) {
+        if (tile >= hapBytes.length) {
+            throw new IndexOutOfBoundsException(String.valueOf(tile));
+        }
+        return tileStarts[tile + 1];
+    }
+
+    /**
+     * Returns the imputed allele probabilities of every target haplotype
+     * for the specified tile.  The {@code j}-th marker of the returned
+     * allele probabilities is marker {@code this.start(tile) + j} of
+     * {@code this.imputationData().imputedRefMarkers()}.
+     * @param tile a tile index
+     * @return the imputed allele probabilities for the specified tile
+     * @throws IndexOutOfBoundsException if
+     * {@code tile < 0 || tile >= this.nTiles()}
+     */
+    public AlleleProbs tile(int tile) {
+        int nBytes = hapBytes[tile];
+        ByteBuffer buffer = ByteBuffer.allocate(nHaps*nBytes);
+        read(buffer, tileOffsets[tile]);
+        byte[] bytes = buffer.array();
+        HapAlleleProbs[] hapProbs = new HapAlleleProbs[nHaps];
+        for (int h=0; h<nHaps; ++h) {
+            hapProbs[h] = new LowMemHapAlleleProbs(tileMarkers[tile], samples,
+                    h, bytes, h*nBytes);
+        }
+        return new BasicAlleleProbs(hapProbs);
+    }
+
+    private void read(ByteBuffer buffer, long position) {
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("unexpected end of file");
+                }
+            }
+        } catch (IOException e) {
+            Utilities.exit("Error reading " + file, e);
+        }
+    }
+
+    /**
+     * Closes and deletes the temporary file.
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Utilities.exit("Error closing " + file, e);
+        }
+        file.delete();
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().toString();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <p>Class {@code WindowEvent} is a Java Flight Recorder event that records
+ * the analysis of a marker window, from reading the window's input data
+ * through writing the window's output data.
+ * </p>
+ * <p>Instances of class {@code WindowEvent} are not thread-safe.
+ * </p>
+ */
+@Name("beagle.Window")
+@Label("Window")
+@Category({"Beagle"})
+@Description("Analysis of a marker window")
+@StackTrace(false)
+final class WindowEvent extends jdk.jfr.Event {
+
+    @Label("Window")
+    int window;
+
+    @Label("Chromosome")
+    String chrom;
+
+    @Label("Start Position")
+    int startPos;
+
+    @Label("End Position")
+    int endPos;
+
+    @Label("Markers")
+    int nMarkers;
+
+    @Label("Target Markers")
+    int nTargetMarkers;
+
+    @Label("Target Samples")
+    int nTargetSamples;
+
+    @Label("Reference Samples")
+    int nRefSamples;
+
+    @Label("Total Bytes Written")
+    @Description("Bytes written to output files through the end of the window")
+    @DataAmount
+    long bytesWritten;
+}
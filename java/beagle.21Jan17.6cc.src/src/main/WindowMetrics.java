@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Class {@code WindowMetrics} stores an ordered list of named
+ * performance metrics for a marker window.
+ * </p>
+ * <p>Instances of class {@code WindowMetrics} are not thread-safe.
+ * </p>
+ */
+final class WindowMetrics {
+
+    private final List<String> names = new ArrayList<>(40);
+    private final List<Object> values = new ArrayList<>(40);
+
+    /**
+     * Adds the specified integer metric.
+     * @param name the metric name
+     * @param value the metric value
+     */
+    void add(String name, long value) {
+        names.add(name);
+        values.add(value);
+    }
+
+    /**
+     * Adds the specified floating point metric.
+     * @param name the metric name
+     * @param value the metric value
+     */
+    void add(String name, double value) {
+        names.add(name);
+        values.add(value);
+    }
+
+    /**
+     * Adds the specified string metric.
+     * @param name the metric name
+     * @param value the metric value
+     */
+    void add(String name, String value) {
+        names.add(name);
+        values.add(value);
+    }
+
+    /**
+     * Returns the metrics as a single-line JSON object.
+     * @return the metrics as a single-line JSON object
+     */
+    String toJson() {
+        StringBuilder sb = new StringBuilder(40*names.size());
+        sb.append('{');
+        for (int j=0, n=names.size(); j<n; ++j) {
+            if (j>0) {
+                sb.append(',');
+            }
+            sb.append('"');
+            sb.append(names.get(j));
+            sb.append("\":");
+            Object value = values.get(j);
+            if (value instanceof String) {
+                appendJsonString(sb, (String) value);
+            }
+            else {
+                sb.append(format(value));
+            }
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int j=0, n=s.length(); j<n; ++j) {
+            char c = s.charAt(j);
+            if (c=='"' || c=='\\') {
+                sb.append('\\');
+                sb.append(c);
+            }
+            else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            }
+            else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Returns a comma-separated line with the metric names.
+     * @return a comma-separated line with the metric names
+     */
+    String csvHeader() {
+        return String.join(",", names);
+    }
+
+    /**
+     * Returns a comma-separated line with the metric values.
+     * @return a comma-separated line with the metric values
+     */
+    String toCsv() {
+        StringBuilder sb = new StringBuilder(20*names.size());
+        for (int j=0, n=values.size(); j<n; ++j) {
+            if (j>0) {
+                sb.append(',');
+            }
+            sb.append(format(values.get(j)));
+        }
+        return sb.toString();
+    }
+
+    private static String format(Object value) {
+        if (value instanceof Double) {
+            double d = (Double) value;
+            return Double.isFinite(d) ? String.format("%.4g", d) : "null";
+        }
+        else {
+            return value.toString();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package main;
+
+import vcf.Data;
+import vcf.Markers;
+
+/**
+ * <p>Class {@code WindowSizer} chooses marker window and overlap sizes
+ * when the {@code window=auto} parameter is specified.
+ * </p>
+ * <p>The window size is the number of markers whose estimated memory
+ * footprint fits in the fraction {@code par.windowmem()} of the maximum
+ * Java heap size.  The estimated memory per marker includes the compressed
+ * reference genotypes, the target genotype emission probabilities and
+ * sampled haplotypes, the DAG model, and the imputation buffers.  The
+ * estimate is refined after each window using the measured size of the
+ * stored reference genotypes, the measured fraction of target markers,
+ * and the size of the most recent DAG model.  The overlap is the number of
+ * markers at the end of a window that span {@code par.overlapcm()} cM.
+ * </p>
+ * <p>Instances of class {@code WindowSizer} are not thread-safe.
+ * </p>
+ */
+final class WindowSizer {
+
+    private static final int MIN_WINDOW = 500;
+    private static final int MARKER_BYTES = 100;
+    private static final int TARGET_SAMPLE_BYTES = 12;
+    private static final int GV_SAMPLE_BYTES = 36;
+    private static final int DAG_EDGE_BYTES = 40;
+    private static final int INIT_DAG_EDGES = 200;
+    private static final double CM_PER_BASE = 1e-6;
+    private static final double MB = 1024*1024;
+
+    private final Par par;
+    private final GeneticMap genMap;
+    private final RunStats runStats;
+    private final long budget;
+    private final int nTargetSamples;
+    private final int nRefHaps;
+
+    private double refBytesPerMarker;
+    private double targetFraction = 1.0;
+    private int dagEdges;
+
+    /**
+     * Constructs a new {@code WindowSizer} instance.
+     * @param par the analysis parameters
+     * @param genMap the genetic map or {@code null} if no genetic map
+     * is specified
+     * @param data the input genotype data
+     * @param runStats the class for collecting and printing run-time
+     * statistics
+     * @throws NullPointerException if
+     * {@code par == null || data == null || runStats == null}
+     */
+    WindowSizer(Par par, GeneticMap genMap, Data data, RunStats runStats) {
+        if (runStats==null) {
+            throw new NullPointerException("runStats==null");
+        }
+        this.par = par;
+        this.genMap = genMap;
+        this.runStats = runStats;
+        this.budget = (long) (par.windowmem()*Runtime.getRuntime().maxMemory());
+        this.nTargetSamples = data.nTargetSamples();
+        this.nRefHaps = 2*data.nRefSamples();
+        this.refBytesPerMarker = nRefHaps==0 ? 0.0
+                : MARKER_BYTES + (nRefHaps >> 2);
+        this.dagEdges = Math.min(INIT_DAG_EDGES, 2*nTargetSamples + nRefHaps);
+    }
+
+    /**
+     * Returns the estimated number of bytes of memory required per
+     * marker in a marker window.
+     * @return the estimated number of bytes of memory required per
+     * marker in a marker window
+     */
+    double bytesPerMarker() {
+        int nTargetHaps = 2*nTargetSamples;
+        double perTargetMarker = (double) nTargetSamples*TARGET_SAMPLE_BYTES
+                + (double) par.nsamples()*nTargetHaps/4
+                + (double) dagEdges*DAG_EDGE_BYTES;
+        if (par.gt()==null) {
+            perTargetMarker += (double) nTargetSamples*GV_SAMPLE_BYTES;
+        }
+        double perMarker = refBytesPerMarker;
+        if (nRefHaps>0 && par.impute()) {
+            perTargetMarker += 4.0*par.nthreads()*nRefHaps;
+            perMarker += 4.0*nTargetHaps;
+        }
+        return perMarker + targetFraction*perTargetMarker;
+    }
+
+    /**
+     * Returns the number of markers in the next marker window, and prints
+     * the chosen window size to the log file and standard out.
+     * The returned value is at least {@code (2*overlap + 2)}.
+     * @param overlap the number of markers in the overlap with the
+     * previous window
+     * @return the number of markers in the next marker window
+     * @throws IllegalArgumentException if {@code overlap < 0}
+     */
+    int windowSize(int overlap) {
+        if (overlap < 0) {
+            throw new IllegalArgumentException(String.valueOf(overlap));
+        }
+        double bytesPerMarker = bytesPerMarker();
+        long window = (long) Math.floor(budget/bytesPerMarker);
+        window = Math.max(window, Math.max(MIN_WINDOW, 2L*overlap + 2));
+        window = Math.min(window, Integer.MAX_VALUE);
+        double estMb = Math.min(window, Integer.MAX_VALUE)*bytesPerMarker/MB;
+        runStats.println(String.format(
+                "Auto window:      %d markers (estimated memory: %.0f MB of %.0f MB)",
+                window, estMb, budget/MB));
+        return (int) window;
+    }
+
+    /**
+     * Updates the memory model with the data in the current marker window.
+     * This method should be invoked after the current window's data is
+     * phased.
+     * @param data the input genotype data
+     * @throws NullPointerException if {@code data == null}
+     */
+    void update(Data data) {
+        int nMarkers = data.nMarkers();
+        if (nMarkers > 0) {
+            if (nRefHaps > 0) {
+                refBytesPerMarker = (double) data.refBytes() / nMarkers;
+            }
+            targetFraction = (double) data.nTargetMarkers() / nMarkers;
+        }
+        if (runStats.lastDagMaxEdges() > 0) {
+            dagEdges = runStats.lastDagMaxEdges();
+        }
+    }
+
+    /**
+     * Returns the number of markers at the end of the current window that
+     * span {@code par.overlapcm()} cM, and prints the chosen overlap to the
+     * log file and standard out.  The returned value is less than
+     * {@code data.nMarkers()/2}.  Returns 0 if the current window is the
+     * last window on its chromosome.
+     * @param data the input genotype data
+     * @return the number of markers in the overlap with the next window
+     * @throws NullPointerException if {@code data == null}
+     */
+    int overlap(Data data) {
+        int nMarkers = data.nMarkers();
+        if (data.lastWindowOnChrom() || nMarkers < 4) {
+            return 0;
+        }
+        Markers markers = data.markers();
+        double end = genPos(markers, nMarkers - 1);
+        double start = end - par.overlapcm();
+        int maxOverlap = nMarkers/2 - 1;
+        int overlap = 1;
+        while (overlap < maxOverlap
+                && genPos(markers, nMarkers - overlap - 1) >= start) {
+            ++overlap;
+        }
+        double cM = end - genPos(markers, nMarkers - overlap);
+        runStats.println(String.format(
+                "Auto overlap:     %d markers (%.3f cM)", overlap, cM));
+        return overlap;
+    }
+
+    private double genPos(Markers markers, int index) {
+        if (genMap==null) {
+            return CM_PER_BASE*markers.marker(index).pos();
+        }
+        else {
+            return genMap.genPos(markers.marker(index));
+        }
+    }
+}
@@ -18,8 +18,10 @@
  */
 package main;
 
+import beagleutil.ChromIds;
 import beagleutil.Samples;
 import blbutil.BGZIPOutputStream;
+import blbutil.CheckedExecutor;
 import blbutil.Const;
 import blbutil.FileUtil;
 import blbutil.IntPair;
@@ -30,23 +32,27 @@ import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.file.Files;
 import java.text.DecimalFormat;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import vcf.BcfWriter;
 import vcf.VcfWriter;
 
 /**
- * <p>Class {@code WindowWriter} writes VCF and IBD output data.
+ * <p>Class {@code WindowWriter} writes VCF or BCF and IBD output data.
+ * </p>
+ * <p>The BCF header must contain a contig line for each chromosome, so
+ * BCF records are written to a temporary file, and the header and records
+ * are copied to the BCF output file when {@code this.close()} is invoked.
  * </p>
  * <p>Instances of class {@code WindowWriter} are not thread-safe.
  * </p>
@@ -61,13 +67,16 @@ public class WindowWriter implements Closeable {
 
     private final Samples samples;
     private final String outPrefix;
+    private final boolean bcf;
     private final File vcfOutFile;
+    private final File recOutFile;
     private final File ibdOutFile;
     private final File hbdOutFile;
+    private final HapDoseWriter doseOut;
     private final Map<IntPair, IbdSegment> ibdBuffer = new HashMap<>();
 
     /**
-     * Constructs a new {@code WindowWriter} object.
+     * Constructs a new {@code WindowWriter} object that writes VCF output.
      * @param samples the sample whose data will be printed
      * @param outPrefix the output file prefix
      *
@@ -76,6 +85,28 @@ public class WindowWriter implements Closeable {
      * {@code samples == null || outPrefix == null}
      */
     public WindowWriter(Samples samples, String outPrefix) {
+        this(samples, outPrefix, false, 0);
+    }
+
+    /**
+     * Constructs a new {@code WindowWriter} object.
+     * @param samples the sample whose data will be printed
+     * @param outPrefix the output file prefix
+     * @param bcf {@code true} if output records will be written to the
+     * BCF file {@code outPrefix + ".bcf"}, and {@code false} if output
+     * records will be written to the VCF file {@code outPrefix + ".vcf.gz"}
+     * @param doseBits the number of bits per quantized haplotype dosage
+     * written by a {@code HapDoseWriter}, or 0 if no quantized haplotype
+     * dosages will be written
+     *
+     * @throws IllegalArgumentException if
+     * {@code doseBits != 0 && doseBits != 8 && doseBits != 16}
+     * @throws IllegalArgumentException if {@code outPrefix.length() == 0}
+     * @throws NullPointerException if
+     * {@code samples == null || outPrefix == null}
+     */
+    public WindowWriter(Samples samples, String outPrefix, boolean bcf,
+            int doseBits) {
         if (samples==null) {
             throw new NullPointerException("samples==null");
         }
@@ -84,21 +115,27 @@ public class WindowWriter implements Closeable {
         }
         this.samples = samples;
         this.outPrefix = outPrefix;
-        this.vcfOutFile = new File(outPrefix + ".vcf.gz");
+        this.bcf = bcf;
+        this.vcfOutFile = new File(outPrefix + (bcf ? ".bcf" : ".vcf.gz"));
+        this.recOutFile = bcf ? new File(outPrefix + ".bcf.tmp") : vcfOutFile;
         this.ibdOutFile = new File(outPrefix + ".ibd.gz");
         this.hbdOutFile = new File(outPrefix + ".hbd.gz");
+        this.doseOut = (doseBits==0) ? null
+                : new HapDoseWriter(samples, outPrefix, doseBits);
 
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (PrintWriter vcfOut=new PrintWriter(
-                new BGZIPOutputStream(baos, false))) {
-            boolean printGT = true;
-            boolean printGP = true;
-            boolean printGL = false;
-            VcfWriter.writeMetaLines(samples.ids(), Main.program,
-                    printGT, printGP, printGL, vcfOut);
+        if (bcf==false) {
+            try (PrintWriter vcfOut=new PrintWriter(
+                    new BGZIPOutputStream(baos, false))) {
+                boolean printGT = true;
+                boolean printGP = true;
+                boolean printGL = false;
+                VcfWriter.writeMetaLines(samples.ids(), Main.program,
+                        printGT, printGP, printGL, vcfOut);
+            }
         }
         boolean append = false;
-        writeBytesToFile(baos.toByteArray(), vcfOutFile, append);
+        writeBytesToFile(baos.toByteArray(), recOutFile, append);
     }
 
     /**
@@ -135,6 +172,30 @@ public class WindowWriter implements Closeable {
         return samples;
     }
 
+    /**
+     * Returns {@code true} if output records are written in BCF format,
+     * and {@code false} if output records are written in VCF format.
+     * @return {@code true} if output records are written in BCF format
+     */
+    public boolean bcf() {
+        return bcf;
+    }
+
+    /**
+     * Returns the number of bytes that have been written to the output
+     * files.
+     * @return the number of bytes that have been written to the output
+     * files
+     */
+    public long bytesWritten() {
+        long bytes = recOutFile.length() + ibdOutFile.length()
+                + hbdOutFile.length();
+        if (doseOut != null) {
+            bytes += doseOut.bytesWritten();
+        }
+        return bytes;
+    }
+
     /**
      * Prints VCF records with GT and GP format fields for markers with
      * index between {@code cd.lastSplice()} (inclusive) and
@@ -147,9 +208,22 @@ public class WindowWriter implements Closeable {
      */
     public void printGV(CurrentData cd, GenotypeValues gv) {
         boolean append = true;
-        try (PrintWriter vcfOut = FileUtil.bgzipPrintWriter(vcfOutFile, append)) {
-            VcfWriter.appendRecords(gv, cd.prevTargetSpliceStart(),
-                    cd.nextTargetSpliceStart(), vcfOut);
+        boolean writeEmptyBlock = true;
+        try (OutputStream vcfOut = new BGZIPOutputStream(
+                new BufferedOutputStream(
+                        FileUtil.fileOutputStream(recOutFile, append)),
+                writeEmptyBlock)) {
+            int start = cd.prevTargetSpliceStart();
+            int end = cd.nextTargetSpliceStart();
+            if (bcf) {
+                BcfWriter.appendRecords(gv, start, end, vcfOut);
+            }
+            else {
+                VcfWriter.appendRecords(gv, start, end, vcfOut);
+            }
+        }
+        catch (IOException e) {
+            Utilities.exit("Error writing to file: " + recOutFile, e);
         }
     }
 
@@ -157,7 +231,11 @@ public class WindowWriter implements Closeable {
      * Prints the data in {@code alProbs} for markers
      * with index between {@code cd.lastSplice()} (inclusive) and
      * {@code cd.nextSplice()} (exclusive) to the output
-     * VCF file: {@code this.outPrefix() + ".vcf.gz"}.
+     * VCF file: {@code this.outPrefix() + ".vcf.gz"}, or to the output
+     * BCF file: {@code this.outPrefix() + ".bcf"} if {@code this.bcf()}.
+     * If quantized haplotype dosages were requested at construction,
+     * the haplotype dosages are also written to the file
+     * {@code this.outPrefix() + ".hapdose"}.
      *
      * @param alProbs the estimated haplotype allele probabilities
      * @param isImputed an array of length {@code alProbs.nMarkers()}
@@ -181,11 +259,13 @@ public class WindowWriter implements Closeable {
      */
     public void print(AlleleProbs alProbs, boolean[] isImputed,
             int start, int end, boolean dose, boolean gprobs, int nThreads) {
+        OutputEvent event = new OutputEvent();
+        event.begin();
         int step = nMarkersPerStep(alProbs.nSamples(), dose, gprobs);
         int nSteps = nSteps(end-start, step);
         final AtomicInteger atomicInt = new AtomicInteger(0);
         final ConcurrentHashMap<Integer, byte[]> map = new ConcurrentHashMap<>();
-        ExecutorService es = Executors.newFixedThreadPool(nThreads);
+        CheckedExecutor es = new CheckedExecutor(nThreads);
         for (int j=0; j<nThreads; ++j) {
             es.submit(
                 () -> {
@@ -195,10 +275,18 @@ public class WindowWriter implements Closeable {
                             int segStart = start + step*index;
                             int segEnd = Math.min(segStart + step, end);
                             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                            try (PrintWriter vcfOut=new PrintWriter(
-                                    new BGZIPOutputStream(baos, false))) {
-                                VcfWriter.appendRecords(alProbs, isImputed,
-                                        segStart, segEnd, dose, gprobs, vcfOut);
+                            try (OutputStream vcfOut=new BGZIPOutputStream(
+                                    baos, false)) {
+                                if (bcf) {
+                                    BcfWriter.appendRecords(alProbs, isImputed,
+                                            segStart, segEnd, dose, gprobs,
+                                            vcfOut);
+                                }
+                                else {
+                                    VcfWriter.appendRecords(alProbs, isImputed,
+                                            segStart, segEnd, dose, gprobs,
+                                            vcfOut);
+                                }
                             }
                             map.put(index, baos.toByteArray());
                             index = atomicInt.getAndIncrement();
@@ -211,13 +299,24 @@ public class WindowWriter implements Closeable {
             ) ;
         }
         try {
-            es.shutdown();
-            es.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            es.shutdownAndAwait();
         }
         catch (Throwable e) {
             Utilities.exit("ERROR", e);
         }
-        print(map, vcfOutFile);
+        print(map, recOutFile);
+        if (doseOut != null) {
+            doseOut.print(alProbs, start, end, nThreads);
+        }
+        if (event.shouldCommit()) {
+            event.nMarkers = end - start;
+            event.nSamples = alProbs.nSamples();
+            event.bcf = bcf;
+            event.bytesWritten = map.values().stream()
+                    .mapToLong(bytes -> bytes.length)
+                    .sum();
+            event.commit();
+        }
     }
 
     private static void print(ConcurrentHashMap<Integer, byte[]> map,
@@ -355,6 +454,12 @@ public class WindowWriter implements Closeable {
 
     @Override
     public void close() {
+        if (doseOut != null) {
+            doseOut.close();
+        }
+        if (bcf) {
+            writeBcfHeaderAndRecords();
+        }
         boolean append = true;
         try {
             try (FileOutputStream fos = new FileOutputStream(vcfOutFile, append);
@@ -366,4 +471,43 @@ public class WindowWriter implements Closeable {
             Utilities.exit("Error closing file: " + vcfOutFile, e);
         }
     }
+
+    private void writeBcfHeaderAndRecords() {
+        boolean append = false;
+        try {
+            try (OutputStream os = new BufferedOutputStream(
+                    new FileOutputStream(vcfOutFile, append))) {
+                try (BGZIPOutputStream bgzip = new BGZIPOutputStream(
+                        new NonClosingOutputStream(os), false)) {
+                    BcfWriter.writeHeader(samples.ids(), Main.program,
+                            ChromIds.instance().ids(), bgzip);
+                }
+                Files.copy(recOutFile.toPath(), os);
+            }
+            Files.delete(recOutFile.toPath());
+        } catch (IOException e) {
+            Utilities.exit("Error writing to file: " + vcfOutFile, e);
+        }
+    }
+
+    /*
+     * Prevents closing of the underlying stream when the BGZIP compressed
+     * BCF header is written.
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream os) {
+            super(os);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sample;
+
+/**
+ * <p>Class {@code Checkpoints} determines the number of HMM levels whose
+ * forward values are stored by a forward-backward algorithm.
+ * </p>
+ * <p>The forward-backward algorithms store forward values in
+ * {@code s = this.nStoredLevels()} arrays.  The forward values for the
+ * first {@code s} levels are stored in arrays {@code 0, 1, ..., s-1}.
+ * Array {@code 0} is then kept as a checkpoint, and the forward values for
+ * the next {@code s-1} levels are stored in arrays {@code 1, 2, ..., s-1}.
+ * Array {@code 1} is then kept as a checkpoint, and so on.  The backward
+ * algorithm recomputes the forward values between checkpoints from the
+ * preceding checkpoint.  With {@code s} arrays, at most {@code s*(s+1)/2}
+ * levels can be analyzed, and each forward value is recomputed at most once.
+ * Increasing {@code s} decreases the number of recomputed forward values,
+ * and no forward values are recomputed if {@code s >= this.nLevels()}.
+ * </p>
+ * <p>Instances of class {@code Checkpoints} are immutable.
+ * </p>
+ */
+public final class Checkpoints {
+
+    private final int nLevels;
+    private final int nStoredLevels;
+    private final long nRecomputedLevels;
+
+    private Checkpoints(int nLevels, int nStoredLevels) {
+        this.nLevels = nLevels;
+        this.nStoredLevels = nStoredLevels;
+        this.nRecomputedLevels = nRecomputedLevels(nLevels, nStoredLevels);
+    }
+
+    /**
+     * Returns a new {@code Checkpoints} instance.  If {@code maxBytes > 0},
+     * the number of stored levels is the largest number of levels
+     * whose forward values require at most {@code maxBytes} bytes,
+     * subject to the constraint that the number of stored levels is at
+     * least {@code Checkpoints.minStoredLevels(nLevels)} and at most
+     * {@code nLevels}.  If {@code maxBytes <= 0}, the number of stored levels
+     * is {@code Checkpoints.minStoredLevels(nLevels)} if {@code lowMem == true}
+     * and is {@code nLevels} otherwise.
+     *
+     * @param nLevels the number of HMM levels
+     * @param bytesPerLevel the estimated number of bytes required to store
+     * the forward values for one HMM level
+     * @param maxBytes the maximum number of bytes for stored forward
+     * values, or a non-positive value if there is no maximum
+     * @param lowMem {@code true} if the minimum number of levels should
+     * be stored when {@code maxBytes <= 0}
+     * @return a new {@code Checkpoints} instance
+     * @throws IllegalArgumentException if {@code nLevels < 0}
+     * @throws IllegalArgumentException if {@code bytesPerLevel < 1}
+     */
+    public static Checkpoints create(int nLevels, long bytesPerLevel,
+            long maxBytes, boolean lowMem) {
+        if (nLevels < 0) {
+            throw new IllegalArgumentException(String.valueOf(nLevels));
+        }
+        if (bytesPerLevel < 1) {
+            throw new IllegalArgumentException(String.valueOf(bytesPerLevel));
+        }
+        int minStoredLevels = minStoredLevels(nLevels);
+        int nStoredLevels;
+        if (maxBytes > 0) {
+            long budgetLevels = Math.min(nLevels, maxBytes/bytesPerLevel);
+            nStoredLevels = (int) Math.max(minStoredLevels, budgetLevels);
+        }
+        else {
+            nStoredLevels = lowMem ? minStoredLevels : nLevels;
+        }
+        return new Checkpoints(nLevels, nStoredLevels);
+    }
+
+    /**
+     * Returns the minimum number of stored levels for the specified
+     * number of HMM levels.
+     * @param nLevels the number of HMM levels
+     * @return the minimum number of stored levels
+     * @throws IllegalArgumentException if {@code nLevels < 0}
+     */
+    public static int minStoredLevels(int nLevels) {
+        if (nLevels < 0) {
+            throw new IllegalArgumentException(String.valueOf(nLevels));
+        }
+        return (int) Math.ceil(Math.sqrt(1 + 8L*nLevels)/2.0) + 1;
+    }
+
+    private static long nRecomputedLevels(int nLevels, int nStoredLevels) {
+        long nRecomputed = 0;
+        int checkpoint = 0;
+        int nRemaining = nLevels - nStoredLevels;
+        while (nRemaining > 0) {
+            nRecomputed += nStoredLevels - checkpoint - 1;
+            ++checkpoint;
+            nRemaining -= nStoredLevels - checkpoint;
+        }
+        return nRecomputed;
+    }
+
+    /**
+     * Returns the number of HMM levels.
+     * @return the number of HMM levels
+     */
+    public int nLevels() {
+        return nLevels;
+    }
+
+    /**
+     * Returns the number of levels whose forward values are stored.
+     * @return the number of levels whose forward values are stored
+     */
+    public int nStoredLevels() {
+        return nStoredLevels;
+    }
+
+    /**
+     * Returns the number of levels whose forward values are recomputed
+     * in one forward-backward pass.
+     * @return the number of levels whose forward values are recomputed
+     * in one forward-backward pass
+     */
+    public long nRecomputedLevels() {
+        return nRecomputedLevels;
+    }
+
+    @Override
+    public String toString() {
+        return "[nLevels=" + nLevels + " nStoredLevels=" + nStoredLevels
+                + " nRecomputedLevels=" + nRecomputedLevels + "]";
+    }
+}
@@ -94,8 +94,9 @@ public class ConsumeSingleSamples implements Runnable {
      * {@code sample.SingleBaumInterface}
      * @param qIn a thread-safe input work queue
      * @param hapList a thread-safe list for storing sampled haplotype pairs
-     * @param gv a thread-safe object which stores scaled posterior genotype
-     * probabilities
+     * @param gv an object which stores scaled posterior genotype
+     * probabilities.  The values for a sample are modified only by the
+     * thread which takes the sample's index from the work queue.
      *
      * @throws NullPointerException if any parameter is {@code null}
      */
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sample;
+
+import vcf.Markers;
+
+/**
+ * <p>Class {@code HapStateProbs} stores the reference haplotype segment
+ * probabilities of a target haplotype that are computed by the
+ * {@code LSHapBaum} forward-backward algorithm.  Only the segment
+ * probabilities that contribute to the imputed allele probabilities are
+ * stored.  Imputed allele probabilities can be computed from the stored
+ * probabilities for any range of imputed markers, so that the allele
+ * probabilities for a marker window can be computed in tiles without
+ * repeating the forward-backward algorithm.
+ * </p>
+ * <p>Instances of class {@code HapStateProbs} are immutable.
+ * </p>
+ */
+public final class HapStateProbs {
+
+    private final ImputationData impData;
+    private final int hap;
+    private final int[] segStart;
+    private final int[] seq;
+    private final float[] fwdProb;
+    private final float[] bwdProb;
+
+    /**
+     * Constructs a new {@code HapStateProbs} instance.  The
+     * {@code fwdHapProbs[j]} and {@code bwdHapProbs[j]} arrays are indexed
+     * by the allele sequences of segments {@code j + 1} and {@code j}
+     * of {@code impData.refHapSegs()} respectively.
+     * @param impData the input data for genotype imputation
+     * @param hap the target haplotype index
+     * @param fwdHapProbs the forward segment probabilities
+     * @param bwdHapProbs the backward segment probabilities
+     */
+    HapStateProbs(ImputationData impData, int hap, float[][] fwdHapProbs,
+            float[][] bwdHapProbs) {
+        RefHapSegs refHapSegs = impData.refHapSegs();
+        int nSegs = refHapSegs.nSegs();
+        int lastSeg = nSegs - 1;
+        int[] starts = new int[nSegs + 1];
+        int size = 0;
+        for (int s=0; s<nSegs; ++s) {
+            size += nStored(refHapSegs.nSeq(s), s==0 ? null : fwdHapProbs[s-1],
+                    s==lastSeg ? null : bwdHapProbs[s]);
+        }
+        this.seq = new int[size];
+        this.fwdProb = new float[size];
+        this.bwdProb = new float[size];
+        int index = 0;
+        for (int s=0; s<nSegs; ++s) {
+            starts[s] = index;
+            float[] fwd = s==0 ? null : fwdHapProbs[s-1];
+            float[] bwd = s==lastSeg ? null : bwdHapProbs[s];
+            int nSeq = refHapSegs.nSeq(s);
+            float threshold = threshold(nSeq);
+            for (int j=0; j<nSeq; ++j) {
+                if (isStored(fwd, bwd, j, threshold)) {
+                    seq[index] = j;
+                    fwdProb[index] = fwd==null ? 0f : fwd[j];
+                    bwdProb[index] = bwd==null ? 0f : bwd[j];
+                    ++index;
+                }
+            }
+        }
+        starts[nSegs] = index;
+        assert index==size;
+        this.impData = impData;
+        this.hap = hap;
+        this.segStart = starts;
+    }
+
+    private static int nStored(int nSeq, float[] fwd, float[] bwd) {
+        float threshold = threshold(nSeq);
+        int cnt = 0;
+        for (int j=0; j<nSeq; ++j) {
+            if (isStored(fwd, bwd, j, threshold)) {
+                ++cnt;
+            }
+        }
+        return cnt;
+    }
+
+    private static boolean isStored(float[] fwd, float[] bwd, int seq,
+            float threshold) {
+        return (fwd!=null && fwd[seq] >= threshold)
+                || (bwd!=null && bwd[seq] >= threshold);
+    }
+
+    /**
+     * Returns the minimum segment probability that contributes to
+     * imputed allele probabilities for a segment with the specified
+     * number of allele sequences.
+     * @param nSeq the number of allele sequences in a segment
+     * @return the minimum segment probability that contributes to
+     * imputed allele probabilities
+     */
+    static float threshold(int nSeq) {
+        return Math.min(0.005f, 1.0f/nSeq);
+    }
+
+    /**
+     * Returns the target haplotype index.
+     * @return the target haplotype index
+     */
+    public int hap() {
+        return hap;
+    }
+
+    /**
+     * Returns the input data for genotype imputation.
+     * @return the input data for genotype imputation
+     */
+    public ImputationData imputationData() {
+        return impData;
+    }
+
+    /**
+     * Adds the imputed allele probabilities for the imputed markers with
+     * index between {@code start} (inclusive) and {@code end} (exclusive)
+     * to the specified array.  The probability of allele {@code a} at
+     * imputed marker {@code m} is added to element
+     * {@code markers.sumAlleles(m) - markers.sumAlleles(start) + a} where
+     * {@code markers = this.imputationData().imputedRefMarkers()}.
+     * @param start the first imputed marker index (inclusive)
+     * @param end the last imputed marker index (exclusive)
+     * @param alleleProbs the array to which allele probabilities are added
+     * @throws IndexOutOfBoundsException if {@code start < 0 ||
+     * end > this.imputationData().nImputedMarkers()}
+     * @throws IndexOutOfBoundsException if {@code alleleProbs} is too short
+     * @throws NullPointerException if {@code alleleProbs == null}
+     */
+    public void setAlleleProbs(int start, int end, float[] alleleProbs) {
+        RefHapSegs refHapSegs = impData.refHapSegs();
+        Markers markers = impData.imputedRefMarkers();
+        if (start < 0 || end > markers.nMarkers()) {
+            throw new IndexOutOfBoundsException(start + " " + end);
+        }
+        int offset = markers.sumAlleles(start);
+        int lastSeg = refHapSegs.nSegs() - 1;
+        for (int s=0; s<=lastSeg; ++s) {
+            int clustStart = refHapSegs.segStart(s);
+            int clustEnd = s==0 ? 0 : refHapSegs.segEnd(s - 1);
+            int nextClustStart = s==lastSeg ? refHapSegs.segEnd(s)
+                    : refHapSegs.segStart(s + 1);
+            int start1 = clip(impData.nImputedMarkersBefore(clustStart), start, end);
+            int end1 = clip(impData.nImputedMarkersBefore(clustEnd), start, end);
+            int end2 = clip(impData.nImputedMarkersBefore(nextClustStart), start, end);
+            if (s==0) {
+                start1 = end1 = clip(0, start, end);
+            }
+            else if (s==lastSeg) {
+                end1 = end2;
+            }
+            if (start1 < end2) {
+                addAlleleProbs(s, lastSeg, start1, end1, end2, offset,
+                        alleleProbs);
+            }
+        }
+    }
+
+    private static int clip(int index, int start, int end) {
+        return index < start ? start : (index > end ? end : index);
+    }
+
+    /*
+     * Imputed markers [start1, end1) use forward probabilities, and
+     * imputed markers [end1, end2) use weighted forward and backward
+     * probabilities.  The first segment uses only backward
+     * probabilities and the last segment uses only forward probabilities.
+     */
+    private void addAlleleProbs(int segment, int lastSeg, int start1,
+            int end1, int end2, int offset, float[] alleleProbs) {
+        RefHapSegs refHapSegs = impData.refHapSegs();
+        Markers markers = impData.imputedRefMarkers();
+        int clustStart = refHapSegs.segStart(segment);
+        float threshold = threshold(refHapSegs.nSeq(segment));
+        for (int k=segStart[segment], n=segStart[segment+1]; k<n; ++k) {
+            int sq = seq[k];
+            float fwd = fwdProb[k];
+            float bwd = bwdProb[k];
+            if (segment==0) {
+                for (int j=end1; j<end2; ++j) {
+                    int m = impData.imputedMarker(j);
+                    int index = markers.sumAlleles(j) - offset;
+                    alleleProbs[index + refHapSegs.allele(segment, m, sq)] += bwd;
+                }
+            }
+            else if (segment==lastSeg) {
+                for (int j=start1; j<end1; ++j) {
+                    int m = impData.imputedMarker(j);
+                    int index = markers.sumAlleles(j) - offset;
+                    int allele = refHapSegs.allele(segment, m - clustStart, sq);
+                    alleleProbs[index + allele] += fwd;
+                }
+            }
+            else {
+                if (fwd >= threshold) {
+                    for (int j=start1; j<end1; ++j) {
+                        int m = impData.imputedMarker(j);
+                        int index = markers.sumAlleles(j) - offset;
+                        int allele = refHapSegs.allele(segment, m - clustStart, sq);
+                        alleleProbs[index + allele] += fwd;
+                    }
+                }
+                for (int j=end1; j<end2; ++j) {
+                    int m = impData.imputedMarker(j);
+                    int index = markers.sumAlleles(j) - offset;
+                    int allele = refHapSegs.allele(segment, m - clustStart, sq);
+                    double wt = impData.weight(m);
+                    alleleProbs[index + allele] += wt*fwd;
+                    alleleProbs[index + allele] += (1-wt)*bwd;
+                }
+            }
+        }
+    }
+}
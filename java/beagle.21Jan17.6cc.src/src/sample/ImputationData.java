@@ -22,9 +22,12 @@ import beagleutil.Samples;
 import blbutil.IntArray;
 import haplotype.SampleHapPairs;
 import java.util.Arrays;
+import java.util.stream.IntStream;
 import main.CurrentData;
 import main.GeneticMap;
+import main.MarkerMap;
 import main.Par;
+import vcf.Marker;
 import vcf.Markers;
 
 /**
@@ -39,16 +42,21 @@ import vcf.Markers;
 public class ImputationData {
 
     private static final double MIN_CM_DIST = 1e-7;
+    private static final int MAX_MINOR_HAPS_DIVISOR = 8;
 
     private final SampleHapPairs refHapPairs;
     private final SampleHapPairs targHapPairs;
     private final RefHapSegs refHapSegs;
     private final IntArray[] refAlleles;
     private final IntArray[] targAlleles;
+    private final int[] majorRefAllele;
+    private final int[][] minorRefHaps;
     private final float[] errProb;
     private final float[] pRecomb;
     private final float[] weight;
     private final int nClusters;
+    private final int[] imputedMarkers;
+    private final Markers imputedRefMarkers;
 
     /**
      * Constructs a new {@code ImputationData} instance from the specified data.
@@ -65,34 +73,96 @@ public class ImputationData {
      */
     public ImputationData(Par par, CurrentData cd,
             SampleHapPairs targetHapPairs, GeneticMap map) {
+        this(par, cd, targetHapPairs, map, null);
+    }
+
+    /**
+     * Constructs a new {@code ImputationData} instance from the specified
+     * data.  Allele probabilities will be estimated only for the
+     * reference markers whose indices are elements of the
+     * {@code imputedMarkers} array.  If {@code imputedMarkers == null},
+     * allele probabilities will be estimated for all reference markers.
+     * @param par the analysis parameters
+     * @param cd the reference haplotype data for the current marker window
+     * @param targetHapPairs the target haplotype pairs
+     * @param map the genetic map
+     * @param imputedMarkers an increasing sequence of reference marker
+     * indices or {@code null}
+     *
+     * @throws IllegalArgumentException if
+     * {@code cd.targetMarkers().equals(targetHapPairs.markers() == false}
+     * @throws IllegalArgumentException if
+     * {@code cd.targetSamples().equals(targetHapPairs.samples()) == false}
+     * @throws IllegalArgumentException if {@code imputedMarkers != null}
+     * and {@code imputedMarkers} is not an increasing sequence of
+     * indices between 0 (inclusive) and {@code cd.nMarkers()} (exclusive)
+     * @throws NullPointerException if
+     * {@code par == null || cd == null || targetHapPairs == null
+     * || map == null}
+     */
+    public ImputationData(Par par, CurrentData cd,
+            SampleHapPairs targetHapPairs, GeneticMap map,
+            int[] imputedMarkers) {
         if (cd.targetMarkers().equals(targetHapPairs.markers())==false) {
             throw new IllegalArgumentException("inconsistent markers");
         }
         if (cd.targetSamples().equals(targetHapPairs.samples())==false) {
             throw new IllegalArgumentException("inconsistent samples");
         }
-        int[] targClustEnd = targClustEnd(targetHapPairs.markers(), map, par.cluster());
+        int[] targClustEnd = targClustEnd(cd.targetMarkerMap(), par.cluster());
         this.refAlleles = new IntArray[targClustEnd.length];
         this.targAlleles = new IntArray[targClustEnd.length];
         setCodedAlleles(cd.restrictedRefSampleHapPairs(), targetHapPairs,
                 targClustEnd, refAlleles, targAlleles);
         this.nClusters = targClustEnd.length;
+        this.majorRefAllele = new int[nClusters];
+        this.minorRefHaps = new int[nClusters][];
+        setMinorRefHaps(refAlleles, majorRefAllele, minorRefHaps);
         this.refHapPairs = cd.refSampleHapPairs();
         this.refHapSegs = refHapSegs(refHapPairs, targClustEnd, cd.markerIndices());
         this.targHapPairs = targetHapPairs;
         this.errProb = err(par.err(), targClustEnd);
         this.pRecomb = ImputationData.pRecomb(refHapSegs, map, par.ne());
-        this.weight = wts(refHapSegs, map);
+        this.weight = wts(refHapSegs, cd.markerMap());
+        this.imputedMarkers = imputedMarkers(imputedMarkers, cd.nMarkers());
+        this.imputedRefMarkers = imputedMarkers==null ? refHapPairs.markers()
+                : imputedRefMarkers(refHapPairs.markers(), this.imputedMarkers);
+    }
+
+    private static Markers imputedRefMarkers(Markers refMarkers,
+            int[] imputedMarkers) {
+        Marker[] ma = new Marker[imputedMarkers.length];
+        for (int j=0; j<ma.length; ++j) {
+            ma[j] = refMarkers.marker(imputedMarkers[j]);
+        }
+        return Markers.create(ma);
+    }
+
+    private static int[] imputedMarkers(int[] imputedMarkers, int nMarkers) {
+        if (imputedMarkers==null) {
+            int[] ia = new int[nMarkers];
+            for (int j=0; j<ia.length; ++j) {
+                ia[j] = j;
+            }
+            return ia;
+        }
+        for (int j=0; j<imputedMarkers.length; ++j) {
+            int m = imputedMarkers[j];
+            if (m < 0 || m >= nMarkers || (j>0 && m <= imputedMarkers[j-1])) {
+                String s = "invalid imputed marker index: " + m;
+                throw new IllegalArgumentException(s);
+            }
+        }
+        return imputedMarkers.clone();
     }
 
-    private static int[] targClustEnd(Markers targetMarkers, GeneticMap genMap,
-            float clusterDist) {
-        int nMarkers = targetMarkers.nMarkers();
+    private static int[] targClustEnd(MarkerMap targetMap, float clusterDist) {
+        int nMarkers = targetMap.nMarkers();
         int[] ends = new int[nMarkers];
-        double startPos = genMap.genPos(targetMarkers.marker(0));
+        double startPos = targetMap.genPos(0);
         int index = 0;
         for (int m=1; m<nMarkers; ++m) {
-            double pos = genMap.genPos(targetMarkers.marker(m));
+            double pos = targetMap.genPos(m);
             if ((pos - startPos) > clusterDist)  {
                 ends[index++] = m;
                 startPos = pos;
@@ -115,6 +185,52 @@ public class ImputationData {
         }
     }
 
+    /*
+     * Stores the most frequent coded reference allele of each cluster, and
+     * stores the increasing list of reference haplotypes that do not carry
+     * the most frequent allele if there are at most
+     * (nRefHaps / MAX_MINOR_HAPS_DIVISOR) such haplotypes.
+     */
+    private static void setMinorRefHaps(IntArray[] refAlleles,
+            int[] majorRefAllele, int[][] minorRefHaps) {
+        IntStream.range(0, refAlleles.length)
+                .parallel()
+                .forEach(j -> {
+                    IntArray ia = refAlleles[j];
+                    int nHaps = ia.size();
+                    int[] alleles = new int[nHaps];
+                    int maxAllele = 0;
+                    for (int h=0; h<nHaps; ++h) {
+                        alleles[h] = ia.get(h);
+                        if (alleles[h] > maxAllele) {
+                            maxAllele = alleles[h];
+                        }
+                    }
+                    int[] cnts = new int[maxAllele + 1];
+                    for (int a : alleles) {
+                        ++cnts[a];
+                    }
+                    int major = 0;
+                    for (int a=1; a<cnts.length; ++a) {
+                        if (cnts[a] > cnts[major]) {
+                            major = a;
+                        }
+                    }
+                    majorRefAllele[j] = major;
+                    int nMinor = nHaps - cnts[major];
+                    if (MAX_MINOR_HAPS_DIVISOR*nMinor <= nHaps) {
+                        int[] minor = new int[nMinor];
+                        int index = 0;
+                        for (int h=0; h<nHaps; ++h) {
+                            if (alleles[h] != major) {
+                                minor[index++] = h;
+                            }
+                        }
+                        minorRefHaps[j] = minor;
+                    }
+                });
+    }
+
     private static float[] err(float errRate, int[] targClustEnd) {
         float maxErrProb = 0.5f;
         float[] err = new float[targClustEnd.length];
@@ -153,20 +269,20 @@ public class ImputationData {
             GeneticMap map, float ne) {
         float[] rr = new float[midPos.length];
         double c = -(0.04*ne/nHaps);    // 0.04 = 4/(100 cM/M)
-        double lastGenPos = map.genPos(chrom, midPos[0]);
+        double[] genPos = map.genPos(chrom, midPos);
         rr[0] = 0f;
         for (int j=1; j<rr.length; ++j) {
-            double genPos = map.genPos(chrom, midPos[j]);
-            double genDist = Math.max(Math.abs(genPos - lastGenPos), MIN_CM_DIST);
+            double genDist = Math.max(Math.abs(genPos[j] - genPos[j-1]),
+                    MIN_CM_DIST);
             rr[j] = (float) -Math.expm1(c*genDist);
-            lastGenPos = genPos;
         }
         return rr;
     }
 
-    private static float[] wts(RefHapSegs refHapSegs, GeneticMap map) {
+    private static float[] wts(RefHapSegs refHapSegs, MarkerMap map) {
         Markers refMarkers = refHapSegs.refHapPairs().markers();
-        double[] cumPos = cumPos(refMarkers, map);
+        assert refMarkers.equals(map.markers());
+        double[] cumPos = map.cumGenDist();
         int nMarkers = refMarkers.nMarkers();
         int nClusters = refHapSegs.nSegs() - 1;
         float[] wts = new float[cumPos.length];
@@ -188,19 +304,6 @@ public class ImputationData {
         return wts;
     }
 
-    private static double[] cumPos(Markers markers, GeneticMap map) {
-        double[] cumPos = new double[markers.nMarkers()];
-        double lastGenPos = map.genPos(markers.marker(0));
-        cumPos[0] = 0.0;
-        for (int j=1; j<cumPos.length; ++j) {
-            double genPos = map.genPos(markers.marker(j));
-            double genDist = Math.max(Math.abs(genPos - lastGenPos), MIN_CM_DIST);
-            cumPos[j] = cumPos[j-1] + genDist;
-            lastGenPos = genPos;
-        }
-        return cumPos;
-    }
-
     private static RefHapSegs refHapSegs(SampleHapPairs refHapPairs,
             int[] targClustEnd, int[] targToRef) {
         int n = targClustEnd.length;
@@ -256,6 +359,53 @@ public class ImputationData {
         return nClusters;
     }
 
+    /**
+     * Returns the list of reference markers whose allele probabilities
+     * are estimated.  The {@code j}-th marker in the returned list is
+     * the reference marker with index {@code this.imputedMarker(j)}.
+     * @return the list of reference markers whose allele probabilities
+     * are estimated
+     */
+    public Markers imputedRefMarkers() {
+        return imputedRefMarkers;
+    }
+
+    /**
+     * Returns the number of reference markers whose allele probabilities
+     * are estimated.
+     * @return the number of reference markers whose allele probabilities
+     * are estimated
+     */
+    public int nImputedMarkers() {
+        return imputedMarkers.length;
+    }
+
+    /**
+     * Returns the index of the specified reference marker whose allele
+     * probabilities are estimated.  The returned indices are increasing
+     * in {@code index}.
+     * @param index an index in the list of reference markers whose
+     * allele probabilities are estimated
+     * @return the index of the specified reference marker
+     * @throws IndexOutOfBoundsException if
+     * {@code index < 0 || index >= this.nImputedMarkers()}
+     */
+    public int imputedMarker(int index) {
+        return imputedMarkers[index];
+    }
+
+    /**
+     * Returns the number of reference markers with index less than
+     * {@code marker} whose allele probabilities are estimated.
+     * @param marker a reference marker index
+     * @return the number of reference markers with index less than
+     * {@code marker} whose allele probabilities are estimated
+     */
+    public int nImputedMarkersBefore(int marker) {
+        int index = Arrays.binarySearch(imputedMarkers, marker);
+        return index >= 0 ? index : -index - 1;
+    }
+
     /**
      * Returns the list of target samples.
      * @return the list of target samples
@@ -278,6 +428,32 @@ public class ImputationData {
         return refAlleles[marker].get(haplotype);
     }
 
+    /**
+     * Returns the most frequent reference allele at the specified marker.
+     * @param marker a marker index
+     * @return the most frequent reference allele at the specified marker
+     * @throws IndexOutOfBoundsException if
+     * {@code marker < 0 || marker >= this.nClusters()}
+     */
+    public int majorRefAllele(int marker) {
+        return majorRefAllele[marker];
+    }
+
+    /**
+     * Returns an increasing list of the reference haplotypes that do not
+     * carry the allele {@code this.majorRefAllele(marker)}, or returns
+     * {@code null} if the proportion of such haplotypes is too large for
+     * the list to be stored.  The returned array must not be modified.
+     * @param marker a marker index
+     * @return an increasing list of the reference haplotypes that do not
+     * carry the most frequent reference allele, or {@code null}
+     * @throws IndexOutOfBoundsException if
+     * {@code marker < 0 || marker >= this.nClusters()}
+     */
+    public int[] minorRefHaps(int marker) {
+        return minorRefHaps[marker];
+    }
+
     /**
      * Returns the specified target allele.
      * @param marker a marker index
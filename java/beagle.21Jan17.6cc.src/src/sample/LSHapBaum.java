@@ -36,9 +36,9 @@ import vcf.Markers;
 public class LSHapBaum {
 
     private final ImputationData impData;
-    private final boolean lowMem;
+    private final Checkpoints checkpoints;
     private final int n;    // number of reference haplotypes
-    private final Markers refMarkers;
+    private final Markers imputedMarkers;
     private final float[] alleleProbs;
     private final float[][] fwdVal;
     private final float[] bwdVal;
@@ -61,15 +61,32 @@ public class LSHapBaum {
      * @throws NullPointerException if {@code impData == null}
      */
     public LSHapBaum(ImputationData impData, boolean lowMem) {
+        this(impData, lowMem, 0L);
+    }
+
+    /**
+     * Creates a {@code LSHapBaum} instance from the specified data.
+     * The number of HMM levels whose forward values are stored is
+     * determined by {@code Checkpoints.create()}.
+     *
+     * @param impData the input data for genotype imputation
+     * @param lowMem {@code true} if a low-memory checkpoint algorithm
+     * should be used when {@code maxBytes <= 0}, and {@code false} otherwise
+     * @param maxBytes the maximum number of bytes for stored forward
+     * values, or a non-positive value if there is no maximum
+     *
+     * @throws NullPointerException if {@code impData == null}
+     */
+    public LSHapBaum(ImputationData impData, boolean lowMem, long maxBytes) {
         this.impData = impData;
-        this.lowMem = lowMem;
         this.n = impData.refHapPairs().nHaps();
-        this.refMarkers = impData.refHapPairs().markers();
-        this.alleleProbs = new float[refMarkers.sumAlleles()];
+        this.imputedMarkers = impData.imputedRefMarkers();
+        this.alleleProbs = new float[imputedMarkers.sumAlleles()];
 
         int nClusters = impData.nClusters();
-        int size = lowMem ? (int) Math.ceil(Math.sqrt(1 + 8*nClusters)/2.0) + 1
-                : nClusters;
+        this.checkpoints = Checkpoints.create(nClusters, 4L*n, maxBytes,
+                lowMem);
+        int size = checkpoints.nStoredLevels();
         this.fwdValueIndex2Marker = new int[size];
         this.fwdVal = new float[size][n];
         this.bwdVal = new float[n];
@@ -87,7 +104,8 @@ public class LSHapBaum {
      * <p>Estimates and returns allele probabilities for the specified target
      * haplotype. Estimated allele probabilities are conditional on the hidden
      * Markov model (HMM) and the input data represented by
-     * {@code this.imputationData()}.
+     * {@code this.imputationData()}.  Allele probabilities are estimated
+     * for the markers in {@code this.imputationData().imputedRefMarkers()}.
      * </p>
      *
      * @param hap a target data haplotype index
@@ -98,6 +116,27 @@ public class LSHapBaum {
      */
     public HapAlleleProbs randomHapSample(int hap) {
         Arrays.fill(alleleProbs, 0f);
+        stateProbs(hap).setAlleleProbs(0, imputedMarkers.nMarkers(),
+                alleleProbs);
+        return new LowMemHapAlleleProbs(imputedMarkers, impData.targetSamples(),
+                hap, alleleProbs);
+    }
+
+    /**
+     * <p>Estimates and returns the reference haplotype segment probabilities
+     * for the specified target haplotype.  The returned object can compute
+     * the allele probabilities returned by {@code this.randomHapSample(hap)}
+     * for any range of imputed markers.
+     * </p>
+     *
+     * @param hap a target data haplotype index
+     * @return reference haplotype segment probabilities for the specified
+     * target haplotype
+     *
+     * @throws IndexOutOfBoundsException if
+     * {@code hap < 0 || hap >= this.imputationData().targetHapPairs().nHaps()}
+     */
+    public HapStateProbs stateProbs(int hap) {
         int nMarkers = impData.nClusters();
         windowIndex = 0;
         arrayIndex = -1;
@@ -108,9 +147,15 @@ public class LSHapBaum {
             setBwdValue(m, hap);
             setStateProbs(m, previousIndex(hap));
         }
-        setAlleleProbs(alleleProbs);
-        return new LowMemHapAlleleProbs(refMarkers, impData.targetSamples(),
-                hap, alleleProbs);
+        return new HapStateProbs(impData, hap, fwdHapProbs, bwdHapProbs);
+    }
+
+    /**
+     * Returns the checkpoints of the forward-backward algorithm.
+     * @return the checkpoints of the forward-backward algorithm
+     */
+    public Checkpoints checkpoints() {
+        return checkpoints;
     }
 
     /**
@@ -135,10 +180,29 @@ public class LSHapBaum {
             float sum = 0.0f;
             fwdValueIndex2Marker[next] = m;
             int a = impData.targetAllele(m, hap);
-            for (int h=0; h<n; ++h) {
-                float em = (a == impData.refAllele(m, h)) ? noErrProb : errProb;
-                fwdVal[next][h] = m==0 ? em : em*(scale*fwdVal[prev][h] + shift);
-                sum += fwdVal[next][h];
+            int[] minorHaps = impData.minorRefHaps(m);
+            if (minorHaps==null) {
+                for (int h=0; h<n; ++h) {
+                    float em = (a == impData.refAllele(m, h)) ? noErrProb : errProb;
+                    fwdVal[next][h] = m==0 ? em : em*(scale*fwdVal[prev][h] + shift);
+                    sum += fwdVal[next][h];
+                }
+            }
+            else {
+                float[] nextVal = fwdVal[next];
+                float[] prevVal = m==0 ? null : fwdVal[prev];
+                float majorEm = (a == impData.majorRefAllele(m)) ? noErrProb : errProb;
+                int h = 0;
+                for (int minorHap : minorHaps) {
+                    sum = setFwdValues(prevVal, nextVal, h, minorHap, majorEm,
+                            scale, shift, sum);
+                    float em = (a == impData.refAllele(m, minorHap)) ? noErrProb : errProb;
+                    sum = setFwdValues(prevVal, nextVal, minorHap, minorHap + 1,
+                            em, scale, shift, sum);
+                    h = minorHap + 1;
+                }
+                sum = setFwdValues(prevVal, nextVal, h, n, majorEm, scale,
+                        shift, sum);
             }
             lastSum = sum;
         }
@@ -152,10 +216,24 @@ public class LSHapBaum {
         float errProb = impData.errProb(mP1);
         float sum = 0f;
         int al = impData.targetAllele(mP1, hap);
-        for (int h=0; h<n; ++h) {
-            float em = (al==impData.refAllele(mP1, h)? noErrProb : errProb);
-            bwdVal[h] *= em;
-            sum += bwdVal[h];
+        int[] minorHaps = impData.minorRefHaps(mP1);
+        if (minorHaps==null) {
+            for (int h=0; h<n; ++h) {
+                float em = (al==impData.refAllele(mP1, h)? noErrProb : errProb);
+                bwdVal[h] *= em;
+                sum += bwdVal[h];
+            }
+        }
+        else {
+            float majorEm = (al==impData.majorRefAllele(mP1) ? noErrProb : errProb);
+            int h = 0;
+            for (int minorHap : minorHaps) {
+                sum = scaleBwdValues(h, minorHap, majorEm, sum);
+                float em = (al==impData.refAllele(mP1, minorHap)? noErrProb : errProb);
+                sum = scaleBwdValues(minorHap, minorHap + 1, em, sum);
+                h = minorHap + 1;
+            }
+            sum = scaleBwdValues(h, n, majorEm, sum);
         }
         float scale = probNoRec/sum;
         float shift = probRec/n;
@@ -164,6 +242,39 @@ public class LSHapBaum {
         }
     }
 
+    /*
+     * Sets forward values for haplotypes [start, end) which have the
+     * specified emission probability, and returns the sum of the
+     * specified partial sum and the forward values.  The forward values
+     * are summed in order of increasing haplotype index so that the
+     * total sum does not depend on the positions of the minor haplotypes.
+     */
+    private static float setFwdValues(float[] prevVal, float[] nextVal,
+            int start, int end, float em, float scale, float shift,
+            float sum) {
+        if (prevVal==null) {
+            for (int h=start; h<end; ++h) {
+                nextVal[h] = em;
+                sum += nextVal[h];
+            }
+        }
+        else {
+            for (int h=start; h<end; ++h) {
+                nextVal[h] = em*(scale*prevVal[h] + shift);
+                sum += nextVal[h];
+            }
+        }
+        return sum;
+    }
+
+    private float scaleBwdValues(int start, int end, float em, float sum) {
+        for (int h=start; h<end; ++h) {
+            bwdVal[h] *= em;
+            sum += bwdVal[h];
+        }
+        return sum;
+    }
+
     private void setStateProbs(int m, int fwdIndex) {
         Arrays.fill(fwdHapProbs[m], 0f);
         Arrays.fill(bwdHapProbs[m], 0f);
@@ -191,82 +302,6 @@ public class LSHapBaum {
         }
     }
 
-    private static float threshold(int nSeq) {
-        return Math.min(0.005f, 1.0f/nSeq);
-    }
-
-    private void setAlleleProbs(float[] alleleProbs) {
-        setFirstAlleleProbs(alleleProbs);
-        int nSegsM1 = refHapSegs.nSegs() - 1;
-        for (int j=1; j<nSegsM1; ++j) {
-            setAlleleProbs(alleleProbs, j);
-        }
-        setLastAlleleProbs(alleleProbs);
-    }
-
-    private void setFirstAlleleProbs(float[] alleleProbs) {
-        int segment = 0;
-        int nSeq = refHapSegs.nSeq(segment);
-        int endRefMarker = refHapSegs.segStart(segment + 1);
-        float threshold = threshold(nSeq);
-        for (int seq=0; seq<nSeq; ++seq) {
-            if (bwdHapProbs[segment][seq] >= threshold) {
-                for (int m=0; m<endRefMarker; ++m) {
-                    int start = refMarkers.sumAlleles(m);
-                    int allele = refHapSegs.allele(segment, m, seq);
-                    alleleProbs[start + allele] += bwdHapProbs[segment][seq];
-                }
-            }
-        }
-    }
-
-    private void setAlleleProbs(float[] alleleProbs, int segment) {
-        assert segment > 0;
-        int clustStart = refHapSegs.segStart(segment);
-        int clustEnd = refHapSegs.segEnd(segment - 1);
-        int nextClustStart = refHapSegs.segStart(segment + 1);
-        int nSeq = refHapSegs.nSeq(segment);
-        float threshold = threshold(nSeq);
-        for (int seq=0; seq<nSeq; ++seq) {
-            boolean useFwd = fwdHapProbs[segment-1][seq] >= threshold;
-            boolean useBwd = bwdHapProbs[segment][seq] >= threshold;
-            if (useFwd) {
-                for (int m=clustStart; m<clustEnd; ++m) {
-                    int start = refMarkers.sumAlleles(m);
-                    int allele = refHapSegs.allele(segment, m - clustStart, seq);
-                    alleleProbs[start + allele] += fwdHapProbs[segment-1][seq];
-                }
-            }
-            if (useFwd || useBwd) {
-                for (int m=clustEnd; m<nextClustStart; ++m) {
-                    int start = refMarkers.sumAlleles(m);
-                    int allele = refHapSegs.allele(segment, m - clustStart, seq);
-                    double wt = impData.weight(m);
-                    alleleProbs[start + allele] += wt*fwdHapProbs[segment-1][seq];
-                    alleleProbs[start + allele] += (1-wt)*bwdHapProbs[segment][seq];
-                }
-            }
-        }
-    }
-
-    private void setLastAlleleProbs(float[] alleleProbs) {
-        int segment = refHapSegs.nSegs() - 1;
-        int cluster = segment - 1;
-        int refMarkerStart = refHapSegs.segStart(segment);
-        int refMarkerEnd = refHapSegs.segEnd(segment);
-        int nSeq = refHapSegs.nSeq(segment);
-        float threshold = threshold(nSeq);
-        for (int seq=0; seq<nSeq; ++seq) {
-            if (fwdHapProbs[cluster][seq] >= threshold) {
-                for (int m=refMarkerStart; m<refMarkerEnd; ++m) {
-                    int start = refMarkers.sumAlleles(m);
-                    int allele = refHapSegs.allele(segment, m - refMarkerStart, seq);
-                    alleleProbs[start + allele] += fwdHapProbs[cluster][seq];
-                }
-            }
-        }
-    }
-
     private int nextIndex() {
         ++arrayIndex;
         if (arrayIndex == fwdVal.length) {
@@ -19,6 +19,7 @@ import dag.Dag;
 import haplotype.HapPair;
 import haplotype.BitHapPair;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import vcf.GL;
@@ -53,7 +54,10 @@ public class RecombSingleBaum implements SingleBaumInterface {
     private final int[][] alleles1;
     private final int[][] alleles2;
 
-    private final RecombSingleBaumLevel[] levels;
+    private final boolean lowMem;
+    private final long maxBytes;
+    private Checkpoints checkpoints;
+    private RecombSingleBaumLevel[] levels;
     private final RecombSingleNodes fwdNodes;
     private final RecombSingleNodes bwdNodes;
 
@@ -76,6 +80,31 @@ public class RecombSingleBaum implements SingleBaumInterface {
      */
     public RecombSingleBaum(SamplerData samplerData, long seed,
             int nSamplesPerIndividual, boolean lowMem) {
+        this(samplerData, seed, nSamplesPerIndividual, lowMem, 0L);
+    }
+
+    /**
+     * Creates a new {@code RestrictedSingleBaum} instance from the specified
+     * data.  The number of HMM levels whose forward values are stored is
+     * determined by {@code Checkpoints.create()}.  If {@code maxBytes > 0},
+     * the number of stored levels is decreased after a sample is analyzed
+     * if the stored levels, each with the measured size of the largest
+     * stored level, would require more than {@code maxBytes} bytes.
+     *
+     * @param samplerData the analysis data
+     * @param seed the random seed
+     * @param nSamplesPerIndividual the number of haplotype pairs that
+     * will be sampled for each individual
+     * @param lowMem {@code true} if a low memory algorithm should be used
+     * when {@code maxBytes <= 0}, and {@code false} otherwise
+     * @param maxBytes the maximum number of bytes for stored forward
+     * values, or a non-positive value if there is no maximum
+     *
+     * @throws IllegalArgumentException if {@code nSamplesPerIndividual < 1}
+     * @throws NullPointerException if {@code samplerData == null}
+     */
+    public RecombSingleBaum(SamplerData samplerData, long seed,
+            int nSamplesPerIndividual, boolean lowMem, long maxBytes) {
         if (nSamplesPerIndividual < 1) {
             throw new IllegalArgumentException(
                     String.valueOf(nSamplesPerIndividual));
@@ -97,11 +126,11 @@ public class RecombSingleBaum implements SingleBaumInterface {
         this.alleles1 = new int[nSamplesPerIndividual][nMarkers];
         this.alleles2 = new int[nSamplesPerIndividual][nMarkers];
 
-        int size = dag.nLevels();
-        if (lowMem) {
-            size = (int) Math.ceil(Math.sqrt(1 + 8*dag.nLevels())/2.0) + 1;
-        }
-        this.levels = new RecombSingleBaumLevel[size];
+        this.lowMem = lowMem;
+        this.maxBytes = maxBytes;
+        this.checkpoints = Checkpoints.create(dag.nLevels(),
+                RecombSingleBaumLevel.estimatedBytes(dag), maxBytes, lowMem);
+        this.levels = new RecombSingleBaumLevel[checkpoints.nStoredLevels()];
         for (int j=0; j<levels.length; ++j) {
             levels[j] = new RecombSingleBaumLevel(samplerData);
         }
@@ -109,6 +138,14 @@ public class RecombSingleBaum implements SingleBaumInterface {
         this.bwdNodes = new RecombSingleNodes(dag.maxNodes());
     }
 
+    /**
+     * Returns the current checkpoints of the forward-backward algorithm.
+     * @return the current checkpoints of the forward-backward algorithm
+     */
+    public Checkpoints checkpoints() {
+        return checkpoints;
+    }
+
     @Override
     public Dag dag() {
         return rdag.dag();
@@ -139,6 +176,7 @@ public class RecombSingleBaum implements SingleBaumInterface {
                     = previousLevel(sample, permittedStates);
             sampleAlleles(level, sample);
         }
+        applyMemoryBudget();
         pruneLevels();
         return hapList(sample);
     }
@@ -157,10 +195,35 @@ public class RecombSingleBaum implements SingleBaumInterface {
             level.setBackwardValues(bwdNodes);
             setGprobs(level, gprobs);
         }
+        applyMemoryBudget();
         pruneLevels();
         return hapList(sample);
     }
 
+    /*
+     * Decreases the number of stored levels if the stored levels could
+     * exceed the maximum number of bytes for stored forward values.  The
+     * number of bytes per level is the measured size of the largest stored
+     * level because the number of states at a level can be as large as the
+     * square of the number of DAG edges at the level.
+     */
+    private void applyMemoryBudget() {
+        if (maxBytes > 0) {
+            long maxLevelBytes = 0;
+            for (RecombSingleBaumLevel level : levels) {
+                maxLevelBytes = Math.max(maxLevelBytes, level.bytes());
+            }
+            if (maxLevelBytes*levels.length > maxBytes) {
+                Checkpoints cp = Checkpoints.create(dag.nLevels(),
+                        maxLevelBytes, maxBytes, lowMem);
+                if (cp.nStoredLevels() < levels.length) {
+                    checkpoints = cp;
+                    levels = Arrays.copyOf(levels, cp.nStoredLevels());
+                }
+            }
+        }
+    }
+
     private void pruneLevels() {
         int meanSize = estMeanSize();
         int capacityThreshold = 3*meanSize;
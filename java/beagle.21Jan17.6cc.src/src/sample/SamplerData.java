@@ -29,10 +29,9 @@ import java.util.List;
 import main.CurrentData;
 import main.Par;
 import main.RunStats;
-import vcf.FuzzyGL;
+import vcf.EmissionTable;
 import vcf.GL;
 import vcf.Markers;
-import vcf.RevGL;
 
 /**
  * <p>Class {@code SamplerData} contains immutable input data for the
@@ -141,11 +140,8 @@ public class SamplerData {
     }
 
     private static GL gl(CurrentData cd, float err, boolean markersAreReversed) {
-        GL gl = new FuzzyGL(cd.targetGL(), err);
-        if (markersAreReversed) {
-            gl = new RevGL(gl);
-        }
-        return gl;
+        EmissionTable gl = cd.fuzzyTargetEmissions(err);
+        return markersAreReversed ? gl.reverse() : gl;
     }
 
     /**
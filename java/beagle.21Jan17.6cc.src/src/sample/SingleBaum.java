@@ -22,6 +22,7 @@ import dag.Dag;
 import haplotype.HapPair;
 import haplotype.BitHapPair;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import vcf.GL;
@@ -50,7 +51,10 @@ public class SingleBaum implements SingleBaumInterface {
     private final int[][] alleles1;
     private final int[][] alleles2;
 
-    private final SingleBaumLevel[] levels;
+    private final boolean lowMem;
+    private final long maxBytes;
+    private Checkpoints checkpoints;
+    private SingleBaumLevel[] levels;
     private final SingleNodes fwdNodes;
     private final SingleNodes bwdNodes;
 
@@ -76,6 +80,35 @@ public class SingleBaum implements SingleBaumInterface {
      */
     public SingleBaum(Dag dag, GL gl, long seed, int nSamplesPerIndividual,
             boolean lowMem) {
+        this(dag, gl, seed, nSamplesPerIndividual, lowMem, 0L);
+    }
+
+    /**
+     * Creates a new {@code SingleBaum} instance from the specified data.
+     * The number of HMM levels whose forward values are stored is
+     * determined by {@code Checkpoints.create()}.  If {@code maxBytes > 0},
+     * the number of stored levels is decreased after a sample is analyzed
+     * if the stored levels, each with the measured size of the largest
+     * stored level, would require more than {@code maxBytes} bytes.
+     *
+     * @param dag the directed acyclic graph that determines the
+     * transition probabilities
+     * @param gl the emission probabilities
+     * @param seed the random seed
+     * @param nSamplesPerIndividual the number of haplotype pairs that
+     * will be sampled for each individual
+     * @param lowMem {@code true} if a low memory algorithm should be used
+     * when {@code maxBytes <= 0}, and {@code false} otherwise
+     * @param maxBytes the maximum number of bytes for stored forward
+     * values, or a non-positive value if there is no maximum
+     *
+     * @throws IllegalArgumentException if
+     * {@code dag.markers().equals(gl.markers()) == false}
+     * @throws IllegalArgumentException if {@code nSamplesPerIndividual < 1}
+     * @throws NullPointerException if {@code dag == null || gl == null}
+     */
+    public SingleBaum(Dag dag, GL gl, long seed, int nSamplesPerIndividual,
+            boolean lowMem, long maxBytes) {
         if (dag.markers().equals(gl.markers())==false) {
             throw new IllegalArgumentException("inconsistent markers");
         }
@@ -96,11 +129,11 @@ public class SingleBaum implements SingleBaumInterface {
         this.alleles1 = new int[nSamplesPerIndividual][gl.nMarkers()];
         this.alleles2 = new int[nSamplesPerIndividual][gl.nMarkers()];
 
-        int size = dag.nLevels();
-        if (lowMem) {
-            size = (int) Math.ceil(Math.sqrt(1 + 8*dag.nLevels())/2.0) + 1;
-        }
-        this.levels = new SingleBaumLevel[size];
+        this.lowMem = lowMem;
+        this.maxBytes = maxBytes;
+        this.checkpoints = Checkpoints.create(dag.nLevels(),
+                SingleBaumLevel.estimatedBytes(dag), maxBytes, lowMem);
+        this.levels = new SingleBaumLevel[checkpoints.nStoredLevels()];
         for (int j=0; j<levels.length; ++j) {
             levels[j] = new SingleBaumLevel(dag, gl);
         }
@@ -108,6 +141,14 @@ public class SingleBaum implements SingleBaumInterface {
         this.bwdNodes = new SingleNodes();
     }
 
+    /**
+     * Returns the current checkpoints of the forward-backward algorithm.
+     * @return the current checkpoints of the forward-backward algorithm
+     */
+    public Checkpoints checkpoints() {
+        return checkpoints;
+    }
+
     @Override
     public Dag dag() {
         return dag;
@@ -136,6 +177,7 @@ public class SingleBaum implements SingleBaumInterface {
             SingleBaumLevel level = previousLevel(sample);
             sampleAlleles(level, sample);
         }
+        applyMemoryBudget();
         return hapList(sample);
     }
 
@@ -152,9 +194,34 @@ public class SingleBaum implements SingleBaumInterface {
             level.setBackwardValues(bwdNodes);
             setGtProbs(level, gtProbs);
         }
+        applyMemoryBudget();
         return hapList(sample);
     }
 
+    /*
+     * Decreases the number of stored levels if the stored levels could
+     * exceed the maximum number of bytes for stored forward values.  The
+     * number of bytes per level is the measured size of the largest stored
+     * level because the number of states at a level can be as large as the
+     * square of the number of DAG edges at the level.
+     */
+    private void applyMemoryBudget() {
+        if (maxBytes > 0) {
+            long maxLevelBytes = 0;
+            for (SingleBaumLevel level : levels) {
+                maxLevelBytes = Math.max(maxLevelBytes, level.bytes());
+            }
+            if (maxLevelBytes*levels.length > maxBytes) {
+                Checkpoints cp = Checkpoints.create(dag.nLevels(),
+                        maxLevelBytes, maxBytes, lowMem);
+                if (cp.nStoredLevels() < levels.length) {
+                    checkpoints = cp;
+                    levels = Arrays.copyOf(levels, cp.nStoredLevels());
+                }
+            }
+        }
+    }
+
     private void checkGtProbs(double[] gtProbs) {
         if (gtProbs.length != gl.markers().sumGenotypes()) {
             String s = "gtProbs.length!=gl.markers().sumGenotypes()";
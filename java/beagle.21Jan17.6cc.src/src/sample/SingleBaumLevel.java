@@ -36,6 +36,7 @@ import vcf.GL;
 public class SingleBaumLevel {
 
     private static final int INITIAL_CAPACITY = 400;
+    private static final int BYTES_PER_STATE = 16;  // 2 int and 2 float arrays
     private static final float MIN_VALUE = 100*Float.MIN_VALUE;
     private final Dag dag;
     private final GL gl;
@@ -73,6 +74,35 @@ public class SingleBaumLevel {
         this.gl = gl;
     }
 
+    /**
+     * Returns a lower bound on the number of bytes required to store one
+     * {@code SingleBaumLevel} for the specified DAG.  The bound assumes
+     * that the number of states at a level is the larger of the initial
+     * state capacity and the maximum number of edges at any level of the
+     * DAG.
+     * A state is a pair of edges, so the number of states at a level can be
+     * as large as the square of the number of edges at the level.  The
+     * {@code bytes()} method returns the measured size of a level.
+     * @param dag the directed acyclic graph that determines the transition
+     * probabilities
+     * @return a lower bound on the number of bytes required to store one
+     * {@code SingleBaumLevel}
+     * @throws NullPointerException if {@code dag == null}
+     */
+    public static long estimatedBytes(Dag dag) {
+        return (long) BYTES_PER_STATE
+                * Math.max(INITIAL_CAPACITY, dag.maxEdges());
+    }
+
+    /**
+     * Returns the number of bytes in the state arrays of this level.
+     * The state arrays grow as necessary to store the states of a level.
+     * @return the number of bytes in the state arrays of this level
+     */
+    public long bytes() {
+        return (long) BYTES_PER_STATE * edges1.length;
+    }
+
     /**
      * Sets the Baum forward algorithm values for this level of the HMM
      * and records the child node pair values in the specified
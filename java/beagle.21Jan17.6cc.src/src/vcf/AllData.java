@@ -27,7 +27,9 @@ import haplotype.SampleHapPairs;
 import haplotype.WrappedHapPair;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * <p>Class {@code AllData} represents a sliding window of
@@ -40,6 +42,8 @@ import java.util.List;
  */
 public class AllData implements Data {
 
+    private static final int MARKER_BYTES = 100;
+
     private int window = 0;
     private VcfEmission[] refData;
     private SampleHapPairs refSampleHapPairs;
@@ -299,6 +303,49 @@ public class AllData implements Data {
         return refWindow.nSamples();
     }
 
+    @Override
+    public long refBytes() {
+        long bytes = 0;
+        Map<Object, Boolean> sharedArrays = new IdentityHashMap<>();
+        for (VcfEmission em : refData) {
+            bytes += MARKER_BYTES;
+            if (em instanceof SeqCodedRefGT) {
+                SeqCodedRefGT seqCoded = (SeqCodedRefGT) em;
+                int nSeq = seqCoded.nSeq();
+                bytes += 4*nSeq;
+                if (sharedArrays.put(seqCoded.hapToSeq(), Boolean.TRUE)==null) {
+                    bytes += (long) em.nHaps()*bytesPerIndex(nSeq);
+                }
+            }
+            else if (em.storesNonMajorIndices()) {
+                int majorAllele = em.majorAllele();
+                for (int a=0, n=em.nAlleles(); a<n; ++a) {
+                    if (a != majorAllele) {
+                        bytes += 4L*em.alleleCount(a);
+                    }
+                }
+            }
+            else {
+                int bitsPerAllele = 32 - Integer.numberOfLeadingZeros(
+                        em.nAlleles() - 1);
+                bytes += ((long) em.nHaps()*bitsPerAllele + 7) >> 3;
+            }
+        }
+        return bytes;
+    }
+
+    private static int bytesPerIndex(int nIndices) {
+        if (nIndices <= 1<<8) {
+            return 1;
+        }
+        else if (nIndices <= 1<<16) {
+            return 2;
+        }
+        else {
+            return 4;
+        }
+    }
+
     @Override
     public Samples refSamples() {
         return refWindow.samples();
@@ -0,0 +1,486 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package vcf;
+
+import blbutil.Utilities;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>Class {@code BcfRecBuilder} contains methods for constructing
+ * and writing a BCF2 record.  The FORMAT field data for each sample is
+ * added sequentially to the record via the {@code addSampleData()} method.
+ * The record has the same INFO and FORMAT fields as the VCF record
+ * constructed by {@code VcfRecBuilder}.
+ * </p>
+ * <p>The record's dictionary indices for the FILTER, INFO and FORMAT keys
+ * are the indices defined by the header written with
+ * {@code BcfWriter.writeHeader()}.  The GT FORMAT field is stored as a
+ * vector of 8-bit integers if possible, and the DS and GP FORMAT fields
+ * are stored as vectors of floats that are rounded to two decimal places.
+ * </p>
+ * <p>Instances of class {@code BcfRecBuilder} are not thread-safe.
+ * </p>
+ */
+public final class BcfRecBuilder {
+
+    static final int PASS_KEY = 0;
+    static final int AF_KEY = 1;
+    static final int AR2_KEY = 2;
+    static final int DR2_KEY = 3;
+    static final int IMP_KEY = 4;
+    static final int GT_KEY = 5;
+    static final int DS_KEY = 6;
+    static final int GP_KEY = 7;
+
+    private static final int INT8 = 1;
+    private static final int INT16 = 2;
+    private static final int INT32 = 3;
+    private static final int FLOAT = 5;
+    private static final int CHAR = 7;
+    private static final int MISSING_FLOAT = 0x7F800001;
+    private static final int MAX_INT8_ALLELES = 62;
+
+    private final R2Estimator r2Est;
+    private final double[] gt3Probs;
+
+    private final Buffer gtBuf = new Buffer(100);
+    private final Buffer dsBuf = new Buffer(100);
+    private final Buffer gpBuf = new Buffer(100);
+    private final Buffer shared = new Buffer(100);
+    private final Buffer header = new Buffer(8);
+
+    private Marker marker;
+    private boolean printDS;
+    private boolean printGP;
+    private int nSamples;
+    private int nAlleles;
+    private int nGenotypes;
+    private int allele1;
+    private int allele2;
+    private double[] gtProbs = new double[0];
+    private double[] dose = new double[0];
+    private double[] cumAlleleProbs = new double[0];
+
+    /**
+     * Constructs a new {@code BcfRecBuilder} instance.
+     */
+    public BcfRecBuilder() {
+        this.r2Est = new R2Estimator();
+        this.gt3Probs = new double[3];
+    }
+
+    /**
+     * Clears existing data, and sets the current marker to the specified
+     * marker.  If the FORMAT field contains a DS or GP subfield,
+     * the INFO field will include the AR2 (allele r2), DR2 (dose r2), and
+     * AF (ALT allele frequency) subfields.
+     * @param marker the marker to which data will be added
+     * @param printDS {@code true} if the FORMAT field in the BCF record for
+     * this marker will include a DS subfield, and {@code false} otherwise
+     * @param printGP {@code true} if the FORMAT field in the BCF record for
+     * this marker will include a GP subfield, and {@code false} otherwise
+     * @throws NullPointerException if {@code marker == null}
+     */
+    public void reset(Marker marker, boolean printDS, boolean printGP) {
+        this.gtBuf.clear();
+        this.dsBuf.clear();
+        this.gpBuf.clear();
+        this.r2Est.clear();
+        this.marker = marker;
+        this.printDS = printDS;
+        this.printGP = printGP;
+        this.nSamples = 0;
+        this.allele1 = -1;
+        this.allele2 = -1;
+        this.nAlleles = marker.nAlleles();
+        this.nGenotypes = marker.nGenotypes();
+        if (gtProbs.length != nGenotypes) {
+            this.gtProbs = new double[nGenotypes];
+        }
+        if (dose.length != nAlleles) {
+            this.cumAlleleProbs = new double[nAlleles];
+            this.dose = new double[nAlleles];
+        }
+        else {
+            Arrays.fill(cumAlleleProbs, 0.0);
+        }
+    }
+
+    /**
+     * Returns the current marker.  Returns {@code null} if
+     * {@code this.reset()} has not been previously invoked.
+     * @return the current marker.
+     */
+    public Marker marker() {
+        return marker;
+    }
+
+    /**
+     * Adds the FORMAT field for a sample to the BCF record for the current
+     * marker.  If the specified posterior genotype probabilities do not
+     * sum to 1.0, the specified array will normalized to sum to 1.0.
+     * @param gtypeProbs the posterior genotype probabilities
+     * @throws IllegalArgumentException if
+     * {@code gtProbs.length != this.marker().nGenotypes()}
+     * @throws IllegalArgumentException if any element of the specified
+     * array is not a finite non-negative number
+     * @throws IllegalStateException if {@code this.marker() == null}
+     * @throws NullPointerException if {@code gtProbs == null}
+     */
+    public void addSampleData(double[] gtypeProbs) {
+        if (marker==null) {
+            throw new IllegalStateException();
+        }
+        Arrays.fill(gt3Probs, 0.0);
+        Arrays.fill(dose, 0.0);
+        int maxGt = maxIndex(gtypeProbs, nGenotypes);
+        int gt = 0;
+        for (int a2=0; a2<nAlleles; ++a2) {
+            for (int a1=0; a1<=a2; ++a1) {
+                double gtProb = gtypeProbs[gt];
+                if (gtProb < 0) {
+                    throw new IllegalArgumentException(String.valueOf(gtProb));
+                }
+                gtProbs[gt] = gtProb;
+                dose[a1] += gtProb;
+                dose[a2] += gtProb;
+                if (a2==0) {
+                    gt3Probs[0] += gtProb;
+                }
+                else {
+                    gt3Probs[(a1==0) ? 1 : 2] += gtProb;
+                }
+                if (gt==maxGt) {
+                    allele1 = a1;
+                    allele2 = a2;
+                }
+                ++gt;
+            }
+        }
+        addToCumAlleleProbs(dose);
+        r2Est.addSampleData(gt3Probs);
+        appendFormatData(false);
+    }
+
+    /**
+     * Adds the FORMAT field for a sample to the BCF record for the current
+     * marker.   If either of the specified posterior allele probabilities
+     * does not sum to 1.0, it will be normalized to sum to 1.0.
+     * @param alProbs1 the posterior allele probabilities for the individual's
+     * first allele
+     * @param alProbs2 the posterior allele probabilities for the individual's
+     * second allele
+     * @throws IllegalArgumentException if
+     * {@code alProbs1.length != this.marker().nAlleles()}
+     * @throws IllegalArgumentException if
+     * {@code alProbs2.length != this.marker().nAlleles()}
+     * @throws IllegalArgumentException if any element of the specified
+     * array is not a finite non-negative number
+     * @throws IllegalStateException if {@code this.marker() == null}
+     * @throws NullPointerException if
+     * {@code alProbs1 == null || alProbs2 == null}
+     */
+    public void addSampleData(double[] alProbs1, double[] alProbs2) {
+        if (marker==null) {
+            throw new IllegalStateException();
+        }
+        Arrays.fill(gt3Probs, 0.0);
+        allele1 = maxIndex(alProbs1, nAlleles);
+        allele2 = maxIndex(alProbs2, nAlleles);
+        dose[0] = alProbs1[0] + alProbs2[0];
+        gtProbs[0] = alProbs1[0] * alProbs2[0];
+        gt3Probs[0] = gtProbs[0];
+        int gt = 1;
+        for (int a2=1; a2<alProbs1.length; ++a2) {
+            dose[a2] = alProbs1[a2] + alProbs2[a2];
+            for (int a1=0; a1<=a2; ++a1) {
+                double gtProb = alProbs1[a1]*alProbs2[a2];
+                if (a1!=a2) {
+                    gtProb += alProbs1[a2]*alProbs2[a1];
+                }
+                gtProbs[gt++] = gtProb;
+                gt3Probs[(a1==0) ? 1 : 2] += gtProb;
+            }
+        }
+        addToCumAlleleProbs(dose);
+        r2Est.addSampleData(gt3Probs);
+        boolean isPhased = true;
+        appendFormatData(isPhased);
+    }
+
+    private static int maxIndex(double[] da, int expLength) {
+        if (da.length != expLength) {
+            throw new IllegalArgumentException(String.valueOf(da.length));
+        }
+        int maxIndex = 0;
+        double sum = 0;
+        for (int j=0; j<da.length; ++j) {
+            if (da[j] < 0 || Double.isFinite(da[j])==false) {
+                throw new IllegalArgumentException(String.valueOf(da[j]));
+            }
+            sum += da[j];
+            if (da[j] > da[maxIndex]) {
+                maxIndex = j;
+            }
+        }
+        if (sum != 1.0) {
+            for (int j=0; j<da.length; ++j) {
+                da[j] /= sum;
+            }
+        }
+        return maxIndex;
+    }
+
+    private void addToCumAlleleProbs(double[] dose) {
+        for (int j=0; j<dose.length; ++j) {
+            cumAlleleProbs[j] += dose[j];
+        }
+    }
+
+    private void appendFormatData(boolean isPhased) {
+        int gt1 = (allele1 + 1) << 1;
+        int gt2 = ((allele2 + 1) << 1) | (isPhased ? 1 : 0);
+        if (nAlleles <= MAX_INT8_ALLELES) {
+            gtBuf.putByte(gt1);
+            gtBuf.putByte(gt2);
+        }
+        else {
+            gtBuf.putShort(gt1);
+            gtBuf.putShort(gt2);
+        }
+        if (printDS) {
+            for (int j=1; j<nAlleles; ++j) {
+                dsBuf.putFloat(round(dose[j]));
+            }
+        }
+        if (printGP) {
+            for (int j=0; j<nGenotypes; ++j) {
+                gpBuf.putFloat(round(gtProbs[j]));
+            }
+        }
+        ++nSamples;
+    }
+
+    private static float round(double d) {
+        return (float) (Math.rint(100*d)/100.0);
+    }
+
+    /**
+     * Writes the BCF record for the current marker to the specified
+     * {@code OutputStream}.  If the FORMAT field contains a DS or GP subfield,
+     * the INFO field will include the AR2 (allele r2), DR2 (dose r2), and
+     * AF (ALT allele frequency) subfields.  Invocation of this method has
+     * no effect if {@code this.reset()} has not previously been invoked.
+     * The Java Virtual Machine will exit with an error message if an I/O
+     * error occurs.
+     * @param out the {@code OutputStream} to which the BCF record will be
+     * written
+     * @param isImputed {@code true} if the written BCF record will
+     * have an IMP flag in the INFO field and {@code false} otherwise
+     * @throws NullPointerException if {@code out == null}
+     */
+    public void writeRec(OutputStream out, boolean isImputed) {
+        if (marker!=null) {
+            boolean printInfo = printDS || printGP;
+            int nInfo = printInfo ? (isImputed ? 4 : 3) : 0;
+            int nFormat = 1 + (printDS ? 1 : 0) + (printGP ? 1 : 0);
+            setSharedData(nInfo, nFormat, printInfo, isImputed);
+            int indivSize = indivSize();
+            header.clear();
+            header.putInt(shared.size);
+            header.putInt(indivSize);
+            try {
+                out.write(header.bytes, 0, header.size);
+                out.write(shared.bytes, 0, shared.size);
+                writeFormat(out, GT_KEY,
+                        nAlleles<=MAX_INT8_ALLELES ? INT8 : INT16, 2, gtBuf);
+                if (printDS) {
+                    writeFormat(out, DS_KEY, FLOAT, nAlleles-1, dsBuf);
+                }
+                if (printGP) {
+                    writeFormat(out, GP_KEY, FLOAT, nGenotypes, gpBuf);
+                }
+            }
+            catch (IOException e) {
+                Utilities.exit("Error writing BCF record", e);
+            }
+        }
+    }
+
+    private void setSharedData(int nInfo, int nFormat, boolean printInfo,
+            boolean isImputed) {
+        shared.clear();
+        shared.putInt(marker.chromIndex());
+        shared.putInt(marker.pos() - 1);
+        shared.putInt(marker.allele(0).length());
+        shared.putInt(MISSING_FLOAT);                   // QUAL
+        shared.putInt((nAlleles << 16) | nInfo);
+        shared.putInt((nFormat << 24) | nSamples);
+        if (marker.nIds()==0) {
+            shared.putTypedString("");
+        }
+        else {
+            StringBuilder sb = new StringBuilder(20);
+            for (int j=0, n=marker.nIds(); j<n; ++j) {
+                if (j>0) {
+                    sb.append(';');
+                }
+                sb.append(marker.id(j));
+            }
+            shared.putTypedString(sb.toString());
+        }
+        for (int j=0; j<nAlleles; ++j) {
+            shared.putTypedString(marker.allele(j));
+        }
+        shared.putTypedInt(PASS_KEY);                   // FILTER
+        if (printInfo) {
+            shared.putTypedInt(AR2_KEY);
+            shared.putTypeDescriptor(FLOAT, 1);
+            shared.putFloat(round(r2Est.allelicR2()));
+            shared.putTypedInt(DR2_KEY);
+            shared.putTypeDescriptor(FLOAT, 1);
+            shared.putFloat(round(r2Est.doseR2()));
+            shared.putTypedInt(AF_KEY);
+            shared.putTypeDescriptor(FLOAT, nAlleles-1);
+            for (int j=1; j<nAlleles; ++j) {
+                double af = cumAlleleProbs[j]/(2*r2Est.nGenotypes());
+                shared.putFloat(Float.parseFloat(VcfRecBuilder.formatProb(af)));
+            }
+            if (isImputed) {
+                shared.putTypedInt(IMP_KEY);
+                shared.putTypeDescriptor(0, 0);
+            }
+        }
+    }
+
+    private int indivSize() {
+        header.clear();
+        int size = formatHeaderSize(GT_KEY, 2) + gtBuf.size;
+        if (printDS) {
+            size += formatHeaderSize(DS_KEY, nAlleles-1) + dsBuf.size;
+        }
+        if (printGP) {
+            size += formatHeaderSize(GP_KEY, nGenotypes) + gpBuf.size;
+        }
+        return size;
+    }
+
+    private int formatHeaderSize(int key, int nValuesPerSample) {
+        int start = header.size;
+        header.putTypedInt(key);
+        header.putTypeDescriptor(INT8, nValuesPerSample);
+        int size = header.size - start;
+        header.size = start;
+        return size;
+    }
+
+    private void writeFormat(OutputStream out, int key, int type,
+            int nValuesPerSample, Buffer data) throws IOException {
+        header.clear();
+        header.putTypedInt(key);
+        header.putTypeDescriptor(type, nValuesPerSample);
+        out.write(header.bytes, 0, header.size);
+        out.write(data.bytes, 0, data.size);
+    }
+
+    /*
+     * A growable little-endian byte buffer.
+     */
+    private static final class Buffer {
+
+        private byte[] bytes;
+        private int size;
+
+        Buffer(int initCapacity) {
+            this.bytes = new byte[initCapacity];
+            this.size = 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        private void ensureCapacity(int n) {
+            if (size + n > bytes.length) {
+                int newLength = Math.max(bytes.length + (bytes.length >> 1),
+                        size + n);
+                bytes = Arrays.copyOf(bytes, newLength);
+            }
+        }
+
+        void putByte(int i) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) i;
+        }
+
+        void putShort(int i) {
+            ensureCapacity(2);
+            bytes[size++] = (byte) i;
+            bytes[size++] = (byte) (i >> 8);
+        }
+
+        void putInt(int i) {
+            ensureCapacity(4);
+            bytes[size++] = (byte) i;
+            bytes[size++] = (byte) (i >> 8);
+            bytes[size++] = (byte) (i >> 16);
+            bytes[size++] = (byte) (i >> 24);
+        }
+
+        void putFloat(float f) {
+            putInt(Float.floatToRawIntBits(f));
+        }
+
+        void putTypeDescriptor(int type, int count) {
+            if (count < 15) {
+                putByte((count << 4) | type);
+            }
+            else {
+                putByte((15 << 4) | type);
+                putTypedInt(count);
+            }
+        }
+
+        void putTypedInt(int i) {
+            if (i >= Byte.MIN_VALUE + 8 && i <= Byte.MAX_VALUE) {
+                putByte((1 << 4) | INT8);
+                putByte(i);
+            }
+            else if (i >= Short.MIN_VALUE + 8 && i <= Short.MAX_VALUE) {
+                putByte((1 << 4) | INT16);
+                putShort(i);
+            }
+            else {
+                putByte((1 << 4) | INT32);
+                putInt(i);
+            }
+        }
+
+        void putTypedString(String s) {
+            byte[] ba = s.getBytes(StandardCharsets.UTF_8);
+            putTypeDescriptor(CHAR, ba.length);
+            ensureCapacity(ba.length);
+            System.arraycopy(ba, 0, bytes, size, ba.length);
+            size += ba.length;
+        }
+    }
+}
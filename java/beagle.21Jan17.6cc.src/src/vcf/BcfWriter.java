@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package vcf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import main.AlleleProbs;
+import main.GenotypeValues;
+
+/**
+ * <p>Class {@code BcfWriter} contains static methods for writing data in
+ * BCF2 format.  The caller is responsible for applying BGZIP compression
+ * to the written bytes.
+ * </p>
+ * <p>Instances of class {@code BcfWriter} are not thread-safe.
+ * </p>
+ */
+public final class BcfWriter {
+
+    private static final byte[] MAGIC = new byte[] {'B', 'C', 'F', 2, 2};
+
+    private BcfWriter() {
+        // private constructor prevents instantiation
+    }
+
+    /**
+     * Writes the BCF2 magic bytes and header to the specified
+     * {@code OutputStream}.  The header has a contig line for each
+     * specified chromosome identifier, and describes the GT, DS, and GP
+     * FORMAT subfields and the AF, AR2, DR2, and IMP INFO subfields.
+     * @param sampleIds the sample identifiers
+     * @param source a description of the data source, or {@code null} if
+     * no description is to be printed
+     * @param chromIds the chromosome identifiers in order of chromosome index
+     * @param out the {@code OutputStream} to which the header will be written
+     * @throws IOException if an I/O error occurs
+     * @throws NullPointerException if
+     * {@code chromIds == null || out == null}
+     * @throws NullPointerException if
+     * {@code sampleIds == null}, or if {@code sampleIds[j] == null} for any
+     * {@code j} satisfying {@code (0 <= j && j < sampleIds.length)}
+     */
+    public static void writeHeader(String[] sampleIds, String source,
+            String[] chromIds, OutputStream out) throws IOException {
+        if (chromIds==null) {
+            throw new NullPointerException("chromIds==null");
+        }
+        StringWriter sw = new StringWriter();
+        try (PrintWriter pw = new PrintWriter(sw)) {
+            boolean printGT = true;
+            boolean printGP = true;
+            boolean printGL = false;
+            VcfWriter.writeMetaLines(sampleIds, source, chromIds, printGT,
+                    printGP, printGL, pw);
+        }
+        byte[] text = sw.toString().getBytes(StandardCharsets.UTF_8);
+        int length = text.length + 1;
+        out.write(MAGIC);
+        out.write(length & 0xff);
+        out.write((length >> 8) & 0xff);
+        out.write((length >> 16) & 0xff);
+        out.write((length >> 24) & 0xff);
+        out.write(text);
+        out.write(0);
+    }
+
+    /**
+     * Writes the specified genotype data as BCF2 records to the specified
+     * {@code OutputStream}.
+     * @param gv the scaled sample posterior genotype probabilities
+     * @param start the starting marker index (inclusive)
+     * @param end the ending marker index (exclusive)
+     * @param out the {@code OutputStream} to which BCF2 records will
+     * be written.
+     *
+     * @throws IndexOutOfBoundsException if
+     * {@code (start < 0 || start > end || end > gv.nMarkers())}
+     * @throws NullPointerException if
+     * {@code (gv == null || out == null)}
+     */
+    public static void appendRecords(GenotypeValues gv, int start, int end,
+            OutputStream out) {
+        if (start > end) {
+            throw new IllegalArgumentException("start=" + start + " end=" + end);
+        }
+        boolean printDS = true;
+        boolean printGP = true;
+        boolean isImputed = false;
+        BcfRecBuilder brb = new BcfRecBuilder();
+        double[] buffer = new double[3];
+        for (int m=start; m<end; ++m) {
+            Marker marker = gv.marker(m);
+            brb.reset(marker, printDS, printGP);
+            int nGenotypes = marker.nGenotypes();
+            if (buffer.length != nGenotypes) {
+                buffer = new double[nGenotypes];
+            }
+            double[] gprobs = buffer;
+            for (int s=0, n=gv.nSamples(); s<n; ++s) {
+                gv.values(m, s, gprobs);
+                double sum = 0.0;
+                for (int gt=0; gt<nGenotypes; ++gt) {
+                    sum += gprobs[gt];
+                }
+                for (int gt=0; gt<nGenotypes; ++gt) {
+                    gprobs[gt] /= sum;
+                }
+                brb.addSampleData(gprobs);
+            }
+            brb.writeRec(out, isImputed);
+        }
+    }
+
+    /**
+     * Writes the data in alProbs for markers with index between
+     * {@code start} (inclusive) and {@code end} (exclusive) as BCF2
+     * records to the specified {@code OutputStream}.
+     * @param alProbs the estimated haplotype allele probabilities
+     * @param isImputed an array of length {@code alProbs.nMarkers()}
+     * whose {@code j}-th element is {@code true} if the corresponding
+     * marker is imputed, and {@code false} otherwise
+     * @param start the starting marker index (inclusive)
+     * @param end the ending marker index (exclusive)
+     * @param printDS {@code true} if the DS field should be written, and
+     * {@code false} otherwise
+     * @param printGP {@code true} if the GP field should be written, and
+     * {@code false} otherwise
+     * @param out the {@code OutputStream} to which BCF2 records will be
+     * written
+     * @throws IllegalArgumentException if
+     * {@code isImputed.length != alProbs.nMarkers()}
+     * @throws IndexOutOfBoundsException if
+     * {@code (start < 0 || start > end || end > alProbs.nMarkers())}
+     * @throws NullPointerException if
+     * {@code alProbs == null || isImputed == null || out == null}
+     */
+    public static void appendRecords(AlleleProbs alProbs, boolean[] isImputed,
+            int start, int end, boolean printDS, boolean printGP,
+            OutputStream out) {
+        if (isImputed.length != alProbs.nMarkers()) {
+            throw new IllegalArgumentException("inconsistent data");
+        }
+        if (start > end) {
+            throw new IllegalArgumentException("start=" + start + " end=" + end);
+        }
+        BcfRecBuilder brb = new BcfRecBuilder();
+        double[] a1 = new double[2];
+        double[] a2 = new double[2];
+        for (int m=start; m<end; ++m) {
+            Marker marker = alProbs.marker(m);
+            brb.reset(marker, printDS, printGP);
+            if (a1.length != marker.nAlleles()) {
+                a1 = new double[marker.nAlleles()];
+                a2 = new double[marker.nAlleles()];
+            }
+            for (int sample=0, n=alProbs.nSamples(); sample<n; ++sample) {
+                for (int j=0; j<a1.length; ++j) {
+                    a1[j] = alProbs.alProb1(m, sample, j);
+                    a2[j] = alProbs.alProb2(m, sample, j);
+                }
+                brb.addSampleData(a1, a2);
+            }
+            brb.writeRec(out, isImputed[m]);
+        }
+    }
+}
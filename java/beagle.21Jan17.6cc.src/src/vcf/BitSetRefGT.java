@@ -209,6 +209,45 @@ public final class BitSetRefGT implements VcfEmission {
         return allele;
     }
 
+    /**
+     * Returns an array of length {@code (this.nHaps() + 63)/64} whose
+     * {@code h}-th bit is set if and only if the {@code h}-th haplotype
+     * carries allele 1.  The {@code h}-th bit is bit {@code (h % 64)} of
+     * element {@code (h / 64)}.
+     * @return the haplotypes carrying allele 1 as an array of 64-bit words
+     * @throws UnsupportedOperationException if
+     * {@code this.nAlleles() != 2}
+     */
+    long[] hapBits() {
+        if (bitsPerAllele != 1 || marker.nAlleles() != 2) {
+            throw new UnsupportedOperationException(marker.toString());
+        }
+        long[] a1 = allele1.toLongArray();
+        long[] a2 = allele2.toLongArray();
+        long[] hapBits = new long[(nHaps() + Long.SIZE - 1) / Long.SIZE];
+        for (int j=0; j<hapBits.length; ++j) {
+            int k = j >> 1;
+            int shift = (j & 1) << 5;
+            int w1 = k < a1.length ? (int) (a1[k] >>> shift) : 0;
+            int w2 = k < a2.length ? (int) (a2[k] >>> shift) : 0;
+            hapBits[j] = spread(w1) | (spread(w2) << 1);
+        }
+        return hapBits;
+    }
+
+    /*
+     * Returns a long whose bit 2*j equals bit j of the specified int.
+     */
+    private static long spread(int x) {
+        long v = x & 0xffffffffL;
+        v = (v | (v << 16)) & 0x0000ffff0000ffffL;
+        v = (v | (v << 8)) & 0x00ff00ff00ff00ffL;
+        v = (v | (v << 4)) & 0x0f0f0f0f0f0f0f0fL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        v = (v | (v << 1)) & 0x5555555555555555L;
+        return v;
+    }
+
     @Override
     public int nAlleles() {
         return this.marker().nAlleles();
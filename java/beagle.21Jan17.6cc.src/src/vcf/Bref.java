@@ -68,10 +68,23 @@ public class Bref {
     private static final Comparator<String[]> allelesComp = allelesComparator();
 
     /**
-     * The initial long in a bref file created with this bref version.
+     * The initial integer in a bref file in the original bref format.
      */
     public static final int INITIAL_NUMBER = 223579146;
 
+    /**
+     * The initial integer in a bref file in the "bref2" format, which
+     * is the format written by this bref version.  The bref2 format
+     * differs from the original bref format in that the map from haplotype
+     * to allele sequence in each block is bit-packed with
+     * {@code ceil(log2(nSeq))} bits per haplotype, marker positions are
+     * stored as variable-length differences from the preceding marker
+     * in the block, and carrier haplotype indices of low-frequency
+     * alleles are stored as variable-length differences from the preceding
+     * carrier index.
+     */
+    public static final int INITIAL_NUMBER_2 = 223579147;
+
     /**
      * The end of file character for a bref file.
      */
@@ -201,7 +214,7 @@ public class Bref {
 
     private static void writeHeader(String[] sampleIds, DataOutputStream os)
             throws IOException {
-        os.writeInt(Bref.INITIAL_NUMBER);
+        os.writeInt(Bref.INITIAL_NUMBER_2);
         os.writeUTF(Bref.program);
         os.writeInt(sampleIds.length);
         for (String id : sampleIds) {
@@ -349,17 +362,16 @@ public class Bref {
             os.writeInt(emBuffer.size());
             os.writeUTF(chrom(emBuffer, emCompressor));
             os.writeByte(emCompressor.nSeq() - SHIFT);
-            IntArray hap2seq = emCompressor.hapToSeq();
-            for (int j=0, n=hap2seq.size(); j<n; ++j) {
-                os.writeByte(hap2seq.get(j) - SHIFT);
-            }
+            writeHapToSeq(emCompressor.hapToSeq(), emCompressor.nSeq(), os);
             int index = 0;
+            int lastPos = 0;
             for (VcfEmission ve : emBuffer) {
                 if (ve==null) {
-                    writeCompressedRecord(emCompressor, index++, os);
+                    lastPos = writeCompressedRecord(emCompressor, index++,
+                            lastPos, os);
                 }
                 else {
-                    writeAlleleIndexRecord(ve, os);
+                    lastPos = writeAlleleIndexRecord(ve, lastPos, os);
                 }
             }
             emBuffer.clear();
@@ -380,11 +392,65 @@ public class Bref {
         }
     }
 
-    private static void writeCompressedRecord(VcfEmissionCompressor emCompressor,
-            int index, DataOutputStream os) throws IOException {
+    /**
+     * Returns the number of bits used to store an allele sequence index
+     * in a bref2 file when there are {@code nSeq} allele sequences.
+     * @param nSeq the number of allele sequences
+     * @return the number of bits used to store an allele sequence index
+     */
+    static int bitsPerSeq(int nSeq) {
+        return nSeq <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(nSeq - 1);
+    }
+
+    private static void writeHapToSeq(IntArray hap2seq, int nSeq,
+            DataOutputStream os) throws IOException {
+        int bits = bitsPerSeq(nSeq);
+        if (bits > 0) {
+            int n = hap2seq.size();
+            byte[] packed = new byte[(int) (((long) n*bits + 7) >> 3)];
+            long buffer = 0L;
+            int nBufferBits = 0;
+            int index = 0;
+            for (int j=0; j<n; ++j) {
+                buffer |= ((long) hap2seq.get(j)) << nBufferBits;
+                nBufferBits += bits;
+                while (nBufferBits >= Byte.SIZE) {
+                    packed[index++] = (byte) buffer;
+                    buffer >>>= Byte.SIZE;
+                    nBufferBits -= Byte.SIZE;
+                }
+            }
+            if (nBufferBits > 0) {
+                packed[index++] = (byte) buffer;
+            }
+            assert index==packed.length;
+            os.write(packed);
+        }
+    }
+
+    /**
+     * Writes the specified non-negative integer to the specified output
+     * stream using 7 bits per byte, with the high bit of each byte set if
+     * more bytes follow.
+     * @param value a non-negative integer
+     * @param os the output stream
+     * @throws IOException if an I/O error occurs
+     */
+    static void writeVarInt(int value, DataOutputStream os)
+            throws IOException {
+        assert value >= 0;
+        while ((value & ~0x7f) != 0) {
+            os.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        os.writeByte(value);
+    }
+
+    private static int writeCompressedRecord(VcfEmissionCompressor emCompressor,
+            int index, int lastPos, DataOutputStream os) throws IOException {
         Marker marker = emCompressor.marker(index);
         IntArray seq2Allele = emCompressor.seqToAllele(index);
-        writeMarker(marker, os);
+        writeMarker(marker, lastPos, os);
         byte codingFlag = 0;
         os.writeByte(codingFlag);
         if (marker.nAlleles() <= 256) {
@@ -397,32 +463,51 @@ public class Bref {
                 os.writeInt(seq2Allele.get(j));
             }
         }
+        return marker.pos();
     }
 
-    private static void writeAlleleIndexRecord(VcfEmission ve, DataOutputStream os)
-            throws IOException {
+    /*
+     * The number of carriers of each allele is written as a variable-length
+     * integer that is 0 for the major allele and is one more than the
+     * number of carriers for other alleles.
+     */
+    private static int writeAlleleIndexRecord(VcfEmission ve, int lastPos,
+            DataOutputStream os) throws IOException {
         assert ve.storesNonMajorIndices();
         int nAlleles = ve.nAlleles();
         int majorAllele = ve.majorAllele();
-        writeMarker(ve.marker(), os);
+        writeMarker(ve.marker(), lastPos, os);
         byte codingFlag = 1;
         os.writeByte(codingFlag);
         for (int a=0; a<nAlleles; ++a) {
             if (a == majorAllele) {
-                os.writeInt(-1);
+                writeVarInt(0, os);
             }
             else {
-                os.writeInt(ve.alleleCount(a));
-                for (int c=0; c<ve.alleleCount(a); ++c) {
-                    os.writeInt(ve.hapIndex(a, c));
+                int[] carriers = new int[ve.alleleCount(a)];
+                for (int c=0; c<carriers.length; ++c) {
+                    carriers[c] = ve.hapIndex(a, c);
+                }
+                Arrays.sort(carriers);
+                writeVarInt(carriers.length + 1, os);
+                int lastCarrier = 0;
+                for (int carrier : carriers) {
+                    writeVarInt(carrier - lastCarrier, os);
+                    lastCarrier = carrier;
                 }
             }
         }
+        return ve.marker().pos();
     }
 
-    private static void writeMarker(Marker marker, DataOutputStream os)
-            throws IOException {
-        os.writeInt(marker.pos());
+    /*
+     * The marker position is written as the zig-zag encoded difference
+     * from the preceding marker position in the block.
+     */
+    private static void writeMarker(Marker marker, int lastPos,
+            DataOutputStream os) throws IOException {
+        int diff = marker.pos() - lastPos;
+        writeVarInt((diff << 1) ^ (diff >> 31), os);
         int nIds = Math.min(marker.nIds(), 255);
         os.writeByte(nIds - SHIFT);
         for (int j=0; j<nIds; ++j) {
@@ -25,6 +25,7 @@ import blbutil.Filter;
 import blbutil.IntArray;
 import blbutil.SampleFileIt;
 import blbutil.Utilities;
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -41,6 +42,9 @@ import java.util.zip.GZIPInputStream;
  * method returns an object storing data from a VCF record with phased,
  * non-missing genotypes.
  * </p>
+ * <p>Class {@code BrefIt} reads bref files in the original bref format
+ * and in the compact "bref2" format (see {@code Bref.INITIAL_NUMBER_2}).
+ * </p>
  * <p>Instances of class {@code BrefIt} are not thread-safe.
  * </p>
  * <p>Methods of this class will terminate the Java Virtual Machine with
@@ -60,6 +64,7 @@ public final class BrefIt implements SampleFileIt<VcfEmission> {
     private final Filter<Marker> markerFilter;
     private final DataInputStream is;
     private final long initNumber;
+    private final boolean isBref2;
     private final String version;
     private final Samples samples;
     private final int nHaps;
@@ -95,6 +100,7 @@ public final class BrefIt implements SampleFileIt<VcfEmission> {
         this.markerFilter = markerFilter;
         this.is = dataInputStream(brefFile);
         this.initNumber = readInitialNumber(is);
+        this.isBref2 = (initNumber == Bref.INITIAL_NUMBER_2);
         this.version = readVersion(is);
         this.samples = readSamples(is);
         this.nHaps = 2*samples.nSamples();
@@ -107,6 +113,7 @@ public final class BrefIt implements SampleFileIt<VcfEmission> {
         try {
             is = new FileInputStream(file);
             is = new GZIPInputStream(is, BUFFER_SIZE);
+            is = new BufferedInputStream(is, BUFFER_SIZE);
         } catch (FileNotFoundException ex) {
             Utilities.exit("File not found: " + file, ex);
         }
@@ -119,7 +126,8 @@ public final class BrefIt implements SampleFileIt<VcfEmission> {
     private static long readInitialNumber(DataInputStream is) {
         try {
             long initialNumber = is.readInt();
-            if (initialNumber != Bref.INITIAL_NUMBER) {
+            if (initialNumber != Bref.INITIAL_NUMBER
+                    && initialNumber != Bref.INITIAL_NUMBER_2) {
                 String s = "ERROR: unrecognized input file.  Was file created "
                         + Const.nl
                         + "with a different version of the bref program?";
@@ -228,9 +236,12 @@ public final class BrefIt implements SampleFileIt<VcfEmission> {
                 String chrom  = is.readUTF();
                 int chromIndex = ChromIds.instance().getIndex(chrom);
                 int nSeq = is.readByte() + SHIFT;
-                IntArray hapToSeq = readHapToSeq(nSeq);
+                IntArray hapToSeq = isBref2 ? readPackedHapToSeq(nSeq)
+                        : readHapToSeq(nSeq);
+                int lastPos = 0;
                 for (int j=0; j<nRecords; ++j) {
-                    Marker marker = readMarker(chromIndex);
+                    Marker marker = readMarker(chromIndex, lastPos);
+                    lastPos = marker.pos();
                     byte flag = is.readByte();
                     switch (flag) {
                         case 0:
@@ -273,6 +284,32 @@ public final class BrefIt implements SampleFileIt<VcfEmission> {
         return IntArray.create(hap2seq, 0, (nSeq-1));
     }
 
+    private IntArray readPackedHapToSeq(int nSeq) throws IOException {
+        int bits = Bref.bitsPerSeq(nSeq);
+        int[] hap2seq = new int[nHaps];
+        if (bits > 0) {
+            byte[] packed = new byte[(int) (((long) nHaps*bits + 7) >> 3)];
+            is.readFully(packed);
+            int mask = (1 << bits) - 1;
+            long buffer = 0L;
+            int nBufferBits = 0;
+            int index = 0;
+            for (int j=0; j<hap2seq.length; ++j) {
+                while (nBufferBits < bits) {
+                    buffer |= (packed[index++] & 0xffL) << nBufferBits;
+                    nBufferBits += Byte.SIZE;
+                }
+                hap2seq[j] = (int) buffer & mask;
+                buffer >>>= bits;
+                nBufferBits -= bits;
+                if (hap2seq[j] >= nSeq) {
+                    throw new IllegalStateException("inconsistent data");
+                }
+            }
+        }
+        return IntArray.create(hap2seq, 0, Math.max(nSeq-1, 0));
+    }
+
     private IntArray readSeqToAllele(int nSeq, int nAlleles) throws IOException {
         int[] seqToAllele = new int[nSeq];
         for (int j=0; j<seqToAllele.length; ++j) {
@@ -289,8 +326,14 @@ public final class BrefIt implements SampleFileIt<VcfEmission> {
         int nAlleles = marker.nAlleles();
         int[][] hapIndices = new int[nAlleles][];
         for (int j=0; j<nAlleles; ++j) {
-            int length = is.readInt();
-            hapIndices[j] = (length == -1) ? null : readIntArray(is, length);
+            if (isBref2) {
+                int length = readVarInt(is) - 1;
+                hapIndices[j] = (length == -1) ? null : readDeltaArray(is, length);
+            }
+            else {
+                int length = is.readInt();
+                hapIndices[j] = (length == -1) ? null : readIntArray(is, length);
+            }
         }
         if (nAlleles==2) {
             int x = (hapIndices[0]==null) ? 1 : 0;
@@ -301,9 +344,16 @@ public final class BrefIt implements SampleFileIt<VcfEmission> {
         }
     }
 
-    private Marker readMarker(int chromIndex) throws IOException {
+    private Marker readMarker(int chromIndex, int lastPos) throws IOException {
         int end = -1;
-        int pos = is.readInt();
+        int pos;
+        if (isBref2) {
+            int zigZag = readVarInt(is);
+            pos = lastPos + ((zigZag >>> 1) ^ -(zigZag & 1));
+        }
+        else {
+            pos = is.readInt();
+        }
         int length = is.readByte() + SHIFT;
         String[] ids = readStringArray(is, length);
         String[] strAlleles;
@@ -330,6 +380,33 @@ public final class BrefIt implements SampleFileIt<VcfEmission> {
         return ia;
     }
 
+    private static int[] readDeltaArray(DataInputStream is, int length)
+            throws IOException {
+        int[] ia = new int[length];
+        int last = 0;
+        for (int j=0; j<ia.length; ++j) {
+            last += readVarInt(is);
+            ia[j] = last;
+        }
+        return ia;
+    }
+
+    /* Reads an integer written by Bref.writeVarInt() */
+    private static int readVarInt(DataInputStream is) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b = is.readByte();
+        while (b < 0) {
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+            if (shift > 28) {
+                throw new IllegalStateException("inconsistent data");
+            }
+            b = is.readByte();
+        }
+        return value | (b << shift);
+    }
+
     /* Returns null if length is negative */
     private static String[] readStringArray(DataInputStream is, int length)
             throws IOException {
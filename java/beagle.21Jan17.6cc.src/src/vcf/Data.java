@@ -181,6 +181,15 @@ public interface Data extends Closeable {
      */
     int nRefSamples();
 
+    /**
+     * Returns an estimate of the number of bytes of memory used to store
+     * the reference genotypes in the current window.  Returns 0 if there
+     * are no reference samples.
+     * @return an estimate of the number of bytes of memory used to store
+     * the reference genotypes in the current window
+     */
+    long refBytes();
+
     /**
      * Returns the list of reference samples, or {@code null} if
      * there are no reference samples.
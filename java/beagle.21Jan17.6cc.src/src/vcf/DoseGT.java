@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package vcf;
+
+import beagleutil.Samples;
+
+/**
+ * <p>Class {@code DoseGT} represents genotype emission probabilities for
+ * a list of samples at a single diallelic marker.  The genotype emission
+ * probabilities are determined by unphased genotypes that are coded as ALT
+ * allele counts, and by optional genotype likelihoods for samples with
+ * missing genotypes.
+ * </p>
+ * <p>An ALT allele count is 0, 1, or 2, and a missing genotype is coded
+ * as -1.  If genotype likelihoods are specified, the genotype likelihoods
+ * for sample {@code s} are stored in elements {@code 3*s},
+ * {@code 3*s + 1}, and {@code 3*s + 2} of the genotype likelihood array in
+ * the order 0/0, 0/1, 1/1.  Genotype likelihoods are only used for samples
+ * with a missing genotype.
+ * </p>
+ * <p>Instances of class {@code DoseGT} are immutable.
+ * </p>
+ */
+public final class DoseGT implements VcfEmission {
+
+    private final Marker marker;
+    private final Samples samples;
+    private final byte[] doses;
+    private final float[] gls;
+
+    /**
+     * Constructs a new {@code DoseGT} instance from the specified data.
+     * @param marker a diallelic marker
+     * @param samples the samples
+     * @param doses an array whose {@code s}-th element is the ALT allele
+     * count of the {@code s}-th sample or -1 if the genotype is missing
+     * @param gls the genotype likelihoods or {@code null} if there are no
+     * genotype likelihoods
+     *
+     * @throws IllegalArgumentException if {@code marker.nAlleles() != 2}
+     * @throws IllegalArgumentException if
+     * {@code doses.length != samples.nSamples()}
+     * @throws IllegalArgumentException if
+     * {@code doses[s] < -1 || doses[s] > 2} for any {@code s}
+     * @throws IllegalArgumentException if
+     * {@code gls != null && gls.length != 3*samples.nSamples()}
+     * @throws IllegalArgumentException if any element of {@code gls} is
+     * negative or not finite
+     * @throws NullPointerException if
+     * {@code marker == null || samples == null || doses == null}
+     */
+    public DoseGT(Marker marker, Samples samples, int[] doses, float[] gls) {
+        if (marker.nAlleles()!=2) {
+            throw new IllegalArgumentException("marker is not diallelic: "
+                    + marker);
+        }
+        int nSamples = samples.nSamples();
+        if (doses.length != nSamples) {
+            throw new IllegalArgumentException("inconsistent doses: " + marker);
+        }
+        if (gls != null && gls.length != 3*nSamples) {
+            throw new IllegalArgumentException("inconsistent gls: " + marker);
+        }
+        byte[] ba = new byte[nSamples];
+        for (int s=0; s<nSamples; ++s) {
+            if (doses[s] < -1 || doses[s] > 2) {
+                String s1 = "invalid dose (" + doses[s] + "): " + marker;
+                throw new IllegalArgumentException(s1);
+            }
+            ba[s] = (byte) doses[s];
+        }
+        if (gls != null) {
+            for (float f : gls) {
+                if ((f >= 0f && f < Float.POSITIVE_INFINITY)==false) {
+                    String s1 = "invalid GL (" + f + "): " + marker;
+                    throw new IllegalArgumentException(s1);
+                }
+            }
+        }
+        this.marker = marker;
+        this.samples = samples;
+        this.doses = ba;
+        this.gls = gls==null ? null : gls.clone();
+    }
+
+    @Override
+    public Marker marker() {
+        return marker;
+    }
+
+    @Override
+    public int nSamples() {
+        return samples.nSamples();
+    }
+
+    @Override
+    public Samples samples() {
+        return samples;
+    }
+
+    @Override
+    public boolean isRefData() {
+        return false;
+    }
+
+    @Override
+    public float gl(int sample, int allele1, int allele2) {
+        if (allele1 < 0 || allele1 > 1 || allele2 < 0 || allele2 > 1) {
+            String s = "invalid alleles: (" + allele1 + " " + allele2 + "): "
+                    + marker;
+            throw new IllegalArgumentException(s);
+        }
+        int dose = doses[sample];
+        if (dose == -1) {
+            return gls==null ? 1.0f : gls[3*sample + allele1 + allele2];
+        }
+        else {
+            return (allele1 + allele2)==dose ? 1.0f : 0.0f;
+        }
+    }
+
+    @Override
+    public boolean isPhased(int sample) {
+        return false;
+    }
+
+    @Override
+    public int allele1(int sample) {
+        int dose = doses[sample];
+        return dose == -1 ? -1 : (dose >> 1);
+    }
+
+    @Override
+    public int allele2(int sample) {
+        int dose = doses[sample];
+        return dose == -1 ? -1 : (dose==0 ? 0 : 1);
+    }
+
+    @Override
+    public int allele(int hap) {
+        int sample = hap/2;
+        return (hap & 1) == 0 ? allele1(sample) : allele2(sample);
+    }
+
+    @Override
+    public int nAlleles() {
+        return 2;
+    }
+
+    @Override
+    public boolean storesNonMajorIndices() {
+        return false;
+    }
+
+    @Override
+    public int majorAllele() {
+        String s = "this.storesNonMajorIndices()==false";
+        throw new UnsupportedOperationException(s);
+    }
+
+    @Override
+    public int alleleCount(int allele) {
+        String s = "this.storesNonMajorIndices()==false";
+        throw new UnsupportedOperationException(s);
+    }
+
+    @Override
+    public int hapIndex(int allele, int copy) {
+        String s = "this.storesNonMajorIndices()==false";
+        throw new UnsupportedOperationException(s);
+    }
+
+    @Override
+    public int nHaps() {
+        return 2*samples.nSamples();
+    }
+
+    @Override
+    public int nHapPairs() {
+        return samples.nSamples();
+    }
+
+    @Override
+    public String toString() {
+        return toVcfRec();
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package vcf;
+
+import beagleutil.Samples;
+import java.util.Arrays;
+
+/**
+ * <p>Class {@code EmissionTable} is a materialized copy of the
+ * diallelic genotype emission probabilities of a {@code GL} instance.
+ * </p>
+ * <p>The four ordered genotype emission probabilities at a diallelic marker
+ * are stored as a 16-bit code into a table of distinct rows of emission
+ * probabilities.  Codes are stored in sample-major order so that the
+ * emission probabilities for a sample can be retrieved with one array
+ * access without traversing a chain of {@code GL} wrappers.  The emission
+ * probabilities at multi-allelic markers, and the emission probabilities
+ * that do not fit in the table of distinct rows, are obtained from the
+ * wrapped {@code GL} instance.  All other methods delegate to the wrapped
+ * {@code GL} instance.
+ * </p>
+ * <p>An {@code EmissionTable} and the {@code EmissionTable} returned by
+ * its {@code reverse()} method share the same stored data.
+ * </p>
+ * <p>Instances of class {@code EmissionTable} are immutable.
+ * </p>
+ */
+public final class EmissionTable implements GL {
+
+    private static final int EXCEPTION = Character.MAX_VALUE;
+    private static final int MAX_ROWS = EXCEPTION;
+    private static final int INIT_SLOTS = 1 << 6;
+
+    /*
+     * All instances of the {@code GL} interface are required to be immutable.
+     */
+    private final GL gl;
+    private final boolean reversed;
+    private final int lastMarker;
+    private final Markers markers;
+    private final float[] rows;
+    private final char[][] codes;
+
+    /**
+     * Constructs a new {@code EmissionTable} instance that stores the
+     * diallelic genotype emission probabilities of the specified
+     * {@code GL} instance.
+     * @param gl the genotype emission probabilities
+     * @throws NullPointerException if {@code gl == null}
+     */
+    public EmissionTable(GL gl) {
+        RowTable rowTable = new RowTable();
+        int nMarkers = gl.nMarkers();
+        int nSamples = gl.nSamples();
+        boolean[] isDiallelic = new boolean[nMarkers];
+        for (int m=0; m<nMarkers; ++m) {
+            isDiallelic[m] = gl.marker(m).nAlleles()==2;
+        }
+        char[][] ca = new char[nSamples][nMarkers];
+        for (int s=0; s<nSamples; ++s) {
+            char[] sampleCodes = ca[s];
+            for (int m=0; m<nMarkers; ++m) {
+                if (isDiallelic[m]) {
+                    sampleCodes[m] = (char) rowTable.code(
+                            gl.gl(m, s, 0, 0), gl.gl(m, s, 0, 1),
+                            gl.gl(m, s, 1, 0), gl.gl(m, s, 1, 1));
+                }
+                else {
+                    sampleCodes[m] = (char) EXCEPTION;
+                }
+            }
+        }
+        this.gl = gl;
+        this.reversed = false;
+        this.lastMarker = nMarkers - 1;
+        this.markers = gl.markers();
+        this.rows = rowTable.rows();
+        this.codes = ca;
+    }
+
+    private EmissionTable(EmissionTable table) {
+        this.gl = table.gl;
+        this.reversed = !table.reversed;
+        this.lastMarker = table.lastMarker;
+        this.markers = table.markers.reverse();
+        this.rows = table.rows;
+        this.codes = table.codes;
+    }
+
+    /**
+     * Returns an {@code EmissionTable} that shares the data stored in
+     * {@code this} and whose order of markers is the reverse of the
+     * order of markers in {@code this}.
+     * @return an {@code EmissionTable} with the reverse order of markers
+     */
+    public EmissionTable reverse() {
+        return new EmissionTable(this);
+    }
+
+    /**
+     * Returns the number of distinct rows of diallelic genotype emission
+     * probabilities stored in {@code this}.
+     * @return the number of distinct rows of diallelic genotype emission
+     * probabilities stored in {@code this}
+     */
+    public int nRows() {
+        return rows.length >> 2;
+    }
+
+    private int glMarker(int marker) {
+        return reversed ? lastMarker - marker : marker;
+    }
+
+    @Override
+    public boolean isRefData() {
+        return gl.isRefData();
+    }
+
+    @Override
+    public float gl(int marker, int sample, int allele1, int allele2) {
+        int glMarker = reversed ? lastMarker - marker : marker;
+        int code = codes[sample][glMarker];
+        if (code==EXCEPTION || ((allele1 | allele2) & ~1) != 0) {
+            return gl.gl(glMarker, sample, allele1, allele2);
+        }
+        return rows[(code << 2) | (allele1 << 1) | allele2];
+    }
+
+    @Override
+    public boolean isPhased(int marker, int sample) {
+        return gl.isPhased(glMarker(marker), sample);
+    }
+
+    @Override
+    public int allele1(int marker, int sample) {
+        return gl.allele1(glMarker(marker), sample);
+    }
+
+    @Override
+    public int allele2(int marker, int sample) {
+        return gl.allele2(glMarker(marker), sample);
+    }
+
+    @Override
+    public int allele(int marker, int hap) {
+        return gl.allele(glMarker(marker), hap);
+    }
+
+    @Override
+    public int nMarkers() {
+        return gl.nMarkers();
+    }
+
+    @Override
+    public Marker marker(int marker) {
+        return gl.marker(glMarker(marker));
+    }
+
+    @Override
+    public Markers markers() {
+        return markers;
+    }
+
+    @Override
+    public int nHaps() {
+        return gl.nHaps();
+    }
+
+    @Override
+    public int nSamples() {
+        return gl.nSamples();
+    }
+
+    @Override
+    public Samples samples() {
+        return gl.samples();
+    }
+
+    @Override
+    public String toString() {
+        return gl.toString();
+    }
+
+    /*
+     * An open-addressing hash table of distinct rows of four
+     * genotype emission probabilities.
+     */
+    private static final class RowTable {
+
+        private int[] slots = new int[INIT_SLOTS];  // code + 1, or 0 if empty
+        private float[] rows = new float[INIT_SLOTS << 1];
+        private int nRows = 0;
+
+        int code(float p00, float p01, float p10, float p11) {
+            int mask = slots.length - 1;
+            int index = hash(p00, p01, p10, p11) & mask;
+            while (slots[index] != 0) {
+                int start = (slots[index] - 1) << 2;
+                if (equals(rows[start], p00) && equals(rows[start + 1], p01)
+                        && equals(rows[start + 2], p10)
+                        && equals(rows[start + 3], p11)) {
+                    return slots[index] - 1;
+                }
+                index = (index + 1) & mask;
+            }
+            if (nRows == MAX_ROWS) {
+                return EXCEPTION;
+            }
+            int code = nRows++;
+            int start = code << 2;
+            if (start + 4 > rows.length) {
+                rows = Arrays.copyOf(rows, rows.length << 1);
+            }
+            rows[start] = p00;
+            rows[start + 1] = p01;
+            rows[start + 2] = p10;
+            rows[start + 3] = p11;
+            slots[index] = code + 1;
+            if (2*nRows > slots.length) {
+                rehash();
+            }
+            return code;
+        }
+
+        private void rehash() {
+            int[] newSlots = new int[slots.length << 1];
+            int mask = newSlots.length - 1;
+            for (int code=0; code<nRows; ++code) {
+                int start = code << 2;
+                int index = hash(rows[start], rows[start + 1], rows[start + 2],
+                        rows[start + 3]) & mask;
+                while (newSlots[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                newSlots[index] = code + 1;
+            }
+            slots = newSlots;
+        }
+
+        float[] rows() {
+            return Arrays.copyOf(rows, nRows << 2);
+        }
+
+        private static boolean equals(float a, float b) {
+            return Float.floatToIntBits(a) == Float.floatToIntBits(b);
+        }
+
+        private static int hash(float p00, float p01, float p10, float p11) {
+            int h = Float.floatToIntBits(p00);
+            h = 31*h + Float.floatToIntBits(p01);
+            h = 31*h + Float.floatToIntBits(p10);
+            h = 31*h + Float.floatToIntBits(p11);
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -18,11 +18,16 @@
  */
 package vcf;
 
+import beagleutil.ChromInterval;
 import blbutil.Filter;
 import blbutil.Utilities;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -66,6 +71,72 @@ public final class FilterUtil {
         }
     }
 
+    /**
+     * Returns a filter that accepts markers that have an identifier
+     * or genome coordinates that matches a line of the
+     * {@code imputeMarkersFile}, or that are contained in a chromosome
+     * interval on a line of the {@code imputeRegionsFile}.  Returns
+     * {@code null} if both file parameters are {@code null}.  Genome
+     * coordinates must be in "CHROM:POS" format, and chromosome intervals
+     * must be in the format described in {@code ChromInterval.parse()}.
+     * @param imputeMarkersFile a file that contains an identifier
+     * or genome coordinate of one marker on each line, or {@code null}
+     * @param imputeRegionsFile a file that contains one chromosome interval
+     * on each line, or {@code null}
+     * @return a filter that accepts the specified markers, or {@code null}
+     * if {@code imputeMarkersFile == null && imputeRegionsFile == null}
+     *
+     * @throws IllegalArgumentException if a specified file does not exist
+     * @throws IllegalArgumentException if a specified file is a directory
+     * @throws IllegalArgumentException if any line of a specified
+     * file contains two non-white-space characters separated by one or
+     * more white-space characters
+     * @throws IllegalArgumentException if any line of the
+     * {@code imputeRegionsFile} is not a valid chromosome interval
+     */
+    public static Filter<Marker> imputeFilter(File imputeMarkersFile,
+            File imputeRegionsFile) {
+        if (imputeMarkersFile==null && imputeRegionsFile==null) {
+            return null;
+        }
+        final Set<String> ids = Utilities.idSet(imputeMarkersFile);
+        final Map<Integer, List<ChromInterval>> regions
+                = regions(imputeRegionsFile);
+        return (Marker marker) -> (ids.isEmpty()==false
+                        && markerIsInSet(marker, ids))
+                || isInRegion(marker, regions);
+    }
+
+    private static Map<Integer, List<ChromInterval>> regions(File file) {
+        Map<Integer, List<ChromInterval>> map = new HashMap<>();
+        for (String line : Utilities.idSet(file)) {
+            ChromInterval ci = ChromInterval.parse(line);
+            if (ci==null) {
+                String s = "invalid chromosome interval in " + file + ": "
+                        + line;
+                throw new IllegalArgumentException(s);
+            }
+            map.computeIfAbsent(ci.chromIndex(), k -> new ArrayList<>())
+                    .add(ci);
+        }
+        return map;
+    }
+
+    private static boolean isInRegion(Marker marker,
+            Map<Integer, List<ChromInterval>> regions) {
+        List<ChromInterval> list = regions.get(marker.chromIndex());
+        if (list!=null) {
+            int pos = marker.pos();
+            for (int j=0, n=list.size(); j<n; ++j) {
+                ChromInterval ci = list.get(j);
+                if (ci.start() <= pos && pos <= ci.end()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns a filter that excludes samples that have an identifier
      * that matches a line of the specified file, or returns {@code null} if
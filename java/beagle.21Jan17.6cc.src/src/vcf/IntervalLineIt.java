@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package vcf;
+
+import beagleutil.ChromInterval;
+import blbutil.Const;
+import blbutil.FileIt;
+import java.io.File;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>Class {@code IntervalLineIt} is a VCF file iterator that returns the
+ * meta-information lines, the header line, and the data lines whose CHROM
+ * and POS fields are in a specified chromosome interval.  The CHROM and POS
+ * fields of a data line are examined without parsing the rest of the line,
+ * so that data lines outside the interval are not parsed by the caller.
+ * The iteration ends at the first data line following the interval, and
+ * the remaining lines of the file are not read.
+ * </p>
+ * <p>Instances of class {@code IntervalLineIt} are not thread-safe.
+ * </p>
+ */
+public final class IntervalLineIt implements FileIt<String> {
+
+    private final FileIt<String> it;
+    private final String chrom;
+    private final int start;
+    private final int end;
+    private boolean inInterval = false;
+    private String next;
+
+    /**
+     * Constructs a new {@code IntervalLineIt} instance.
+     * @param it an iterator that returns the lines of a VCF file
+     * @param interval the chromosome interval
+     * @throws IllegalArgumentException if a data line has a non-integer
+     * POS field or fewer than two fields
+     * @throws NullPointerException if {@code it == null || interval == null}
+     */
+    public IntervalLineIt(FileIt<String> it, ChromInterval interval) {
+        this.it = it;
+        this.chrom = interval.chrom();
+        this.start = interval.start();
+        this.end = interval.end();
+        this.next = readNext();
+    }
+
+    private String readNext() {
+        while (it.hasNext()) {
+            String line = it.next();
+            if (line.length()>0 && line.charAt(0)=='#') {
+                return line;
+            }
+            if (isInInterval(line)) {
+                inInterval = true;
+                return line;
+            }
+            else if (inInterval) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private boolean isInInterval(String line) {
+        int tab1 = line.indexOf(Const.tab);
+        int tab2 = tab1<0 ? -1 : line.indexOf(Const.tab, tab1 + 1);
+        if (tab2 < 0) {
+            throw new IllegalArgumentException("invalid VCF record: " + line);
+        }
+        if (line.regionMatches(0, chrom, 0, tab1)==false
+                || chrom.length()!=tab1) {
+            return false;
+        }
+        int pos;
+        try {
+            pos = Integer.parseInt(line.substring(tab1 + 1, tab2));
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid POS field: " + line);
+        }
+        return start <= pos && pos <= end;
+    }
+
+    @Override
+    public File file() {
+        return it.file();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (hasNext()==false) {
+            throw new NoSuchElementException();
+        }
+        String current = next;
+        next = readNext();
+        return current;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException(this.getClass().toString());
+    }
+
+    @Override
+    public void close() {
+        it.close();
+        next = null;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().toString() + " : " + it;
+    }
+}
@@ -33,21 +33,29 @@ import java.util.Set;
  */
 public final class Markers {
 
-    private final Set<Marker> markerSet;
-
     private final Marker[] fwdMarkerArray;
     private final int[] fwdSumAlleles;
     private final int[] fwdSumGenotypes;
     private final int[] fwdSumHaplotypeBits;
-    private final int fwdHashCode;
 
     private final Marker[] bwdMarkerArray;
     private final int[] bwdSumAlleles;
     private final int[] bwdSumGenotypes;
     private final int[] bwdSumHaplotypeBits;
-    private final int bwdHashCode;
     private final Markers bwdMarkers;
 
+    private final int start;    // index of first marker in fwdMarkerArray
+    private final int nMarkers;
+
+    /*
+     * The following fields are lazily-initialized caches that do not
+     * change the state of {@code this}.  All instances that share an
+     * {@code equalityToken} represent the same list of markers.
+     */
+    private int hashCode;
+    private Object equalityToken = new Object();
+    private volatile Set<Marker> markerSet;
+
     /**
      * Construct and return a new {@code Markers} instance that represents the
      * specified list of markers.
@@ -87,20 +95,20 @@ public final class Markers {
      */
     private Markers(Marker[] markers) {
         checkMarkerPosOrder(markers);
+        checkForDuplicates(markers);
         this.fwdMarkerArray = markers.clone();
         this.bwdMarkerArray = reverse(this.fwdMarkerArray);
-        this.markerSet = markerSet(fwdMarkerArray);
 
         this.fwdSumAlleles = cumSumAlleles(fwdMarkerArray);
         this.fwdSumGenotypes = cumSumGenotypes(fwdMarkerArray);
         this.fwdSumHaplotypeBits = cumSumHaplotypeBits(fwdMarkerArray);
-        this.fwdHashCode = Arrays.deepHashCode(fwdMarkerArray);
 
         this.bwdSumAlleles = cumSumAlleles(bwdMarkerArray);
         this.bwdSumGenotypes = cumSumGenotypes(bwdMarkerArray);
         this.bwdSumHaplotypeBits = cumSumHaplotypeBits(bwdMarkerArray);
-        this.bwdHashCode = Arrays.deepHashCode(bwdMarkerArray);
         this.bwdMarkers = null;
+        this.start = 0;
+        this.nMarkers = markers.length;
     }
 
     /**
@@ -109,20 +117,46 @@ public final class Markers {
      * @param bwdMarkers a list of markers
      */
     private Markers(Markers bwdMarkers) {
-        this.markerSet = bwdMarkers.markerSet;
         this.fwdMarkerArray = bwdMarkers.bwdMarkerArray;
         this.bwdMarkerArray = bwdMarkers.fwdMarkerArray;
 
         this.fwdSumAlleles = bwdMarkers.bwdSumAlleles;
         this.fwdSumGenotypes = bwdMarkers.bwdSumGenotypes;
         this.fwdSumHaplotypeBits = bwdMarkers.bwdSumHaplotypeBits;
-        this.fwdHashCode = bwdMarkers.bwdHashCode;
 
         this.bwdSumAlleles = bwdMarkers.fwdSumAlleles;
         this.bwdSumGenotypes = bwdMarkers.fwdSumGenotypes;
         this.bwdSumHaplotypeBits = bwdMarkers.fwdSumHaplotypeBits;
-        this.bwdHashCode = bwdMarkers.fwdHashCode;
         this.bwdMarkers = bwdMarkers;
+        this.start = bwdMarkers.fwdMarkerArray.length
+                - (bwdMarkers.start + bwdMarkers.nMarkers);
+        this.nMarkers = bwdMarkers.nMarkers;
+        this.markerSet = bwdMarkers.markerSet;
+    }
+
+    /**
+     * Constructs a new {@code Markers} instance that represents the
+     * specified range of marker indices in the specified {@code Markers}.
+     * The returned instance shares the marker arrays and cumulative sums
+     * of {@code parent}.
+     * @param parent a list of markers
+     * @param start the starting marker index (inclusive)
+     * @param end the ending marker index (exclusive)
+     */
+    private Markers(Markers parent, int start, int end) {
+        this.fwdMarkerArray = parent.fwdMarkerArray;
+        this.bwdMarkerArray = parent.bwdMarkerArray;
+
+        this.fwdSumAlleles = parent.fwdSumAlleles;
+        this.fwdSumGenotypes = parent.fwdSumGenotypes;
+        this.fwdSumHaplotypeBits = parent.fwdSumHaplotypeBits;
+
+        this.bwdSumAlleles = parent.bwdSumAlleles;
+        this.bwdSumGenotypes = parent.bwdSumGenotypes;
+        this.bwdSumHaplotypeBits = parent.bwdSumHaplotypeBits;
+        this.bwdMarkers = null;
+        this.start = parent.start + start;
+        this.nMarkers = end - start;
     }
 
     private static void checkMarkerPosOrder(Marker[] markers) {
@@ -168,14 +202,55 @@ public final class Markers {
         return rev;
     }
 
-    private static Set<Marker> markerSet(Marker[] markers) {
-        Set<Marker> markerSet = new HashSet<>(markers.length);
-        for (Marker m : markers) {
-            if (markerSet.add(m)==false) {
-                throw new IllegalArgumentException("Duplicate marker: " + m);
+    /*
+     * Equal markers have the same chromosome and position.  If positions
+     * are monotone on each chromosome, only adjacent markers with the
+     * same position need to be compared.
+     */
+    private static void checkForDuplicates(Marker[] markers) {
+        if (isMonotone(markers)) {
+            for (int j=1; j<markers.length; ++j) {
+                int k = j - 1;
+                while (k>=0 && markers[k].chromIndex()==markers[j].chromIndex()
+                        && markers[k].pos()==markers[j].pos()) {
+                    if (markers[k].equals(markers[j])) {
+                        duplicateMarker(markers[j]);
+                    }
+                    --k;
+                }
+            }
+        }
+        else {
+            Set<Marker> markerSet = new HashSet<>(markers.length);
+            for (Marker m : markers) {
+                if (markerSet.add(m)==false) {
+                    duplicateMarker(m);
+                }
             }
         }
-        return markerSet;
+    }
+
+    private static boolean isMonotone(Marker[] markers) {
+        int sign = 0;
+        for (int j=1; j<markers.length; ++j) {
+            if (markers[j].chromIndex()!=markers[j-1].chromIndex()) {
+                sign = 0;
+            }
+            else {
+                int diff = Integer.compare(markers[j].pos(), markers[j-1].pos());
+                if (diff != 0) {
+                    if (sign == -diff) {
+                        return false;
+                    }
+                    sign = diff;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void duplicateMarker(Marker m) {
+        throw new IllegalArgumentException("Duplicate marker: " + m);
     }
 
     private static int[] cumSumAlleles(Marker[] markers) {
@@ -213,7 +288,15 @@ public final class Markers {
      */
     @Override
     public int hashCode() {
-        return fwdHashCode;
+        int h = hashCode;
+        if (h==0) {
+            h = 1;
+            for (int j=start, n=start+nMarkers; j<n; ++j) {
+                h = 31*h + fwdMarkerArray[j].hashCode();
+            }
+            hashCode = h;
+        }
+        return h;
     }
 
     /**
@@ -223,6 +306,12 @@ public final class Markers {
      * the same if the lists have the same size and if markers with the
      * same index in the two lists are equal.
      *
+     * <p>The markers are compared only if the two {@code Markers} instances
+     * do not share the same marker array and have not previously been
+     * found to be equal, so that repeated tests for equality require
+     * constant time.
+     * </p>
+     *
      * @param obj the object to be tested for equality with {@code this}
      *
      * @return {@code true} if the specified object is a {@code Markers}
@@ -240,13 +329,32 @@ public final class Markers {
             return false;
         }
         final Markers other = (Markers) obj;
-        return Arrays.deepEquals(this.fwdMarkerArray, other.fwdMarkerArray);
+        if (this.nMarkers != other.nMarkers) {
+            return false;
+        }
+        if ((this.fwdMarkerArray==other.fwdMarkerArray
+                && this.start==other.start)
+                || this.equalityToken==other.equalityToken) {
+            return true;
+        }
+        if (this.hashCode() != other.hashCode()) {
+            return false;
+        }
+        for (int j=0; j<nMarkers; ++j) {
+            if (fwdMarkerArray[start + j].equals(
+                    other.fwdMarkerArray[other.start + j])==false) {
+                return false;
+            }
+        }
+        other.equalityToken = this.equalityToken;
+        return true;
     }
 
     /**
-     * Constructs and returns a new {@code Markers} instance that is
-     * obtained by reversing the order of markers in {@code this}.
-     * @return a new {@code Markers} instance that is obtained by
+     * Returns a {@code Markers} instance that is obtained by reversing
+     * the order of markers in {@code this}.  The returned instance shares
+     * the marker arrays of {@code this}.
+     * @return a {@code Markers} instance that is obtained by
      * reversing the order of markers in {@code this}
      */
     public Markers reverse() {
@@ -258,7 +366,7 @@ public final class Markers {
      * @return the number of markers
      */
     public int nMarkers() {
-        return fwdMarkerArray.length;
+        return nMarkers;
     }
 
     /**
@@ -269,7 +377,10 @@ public final class Markers {
      * {@code marker < 0 || marker >= this.nMarkers()}
      */
     public Marker marker(int marker) {
-        return fwdMarkerArray[marker];
+        if (marker < 0 || marker >= nMarkers) {
+            throw new IndexOutOfBoundsException(String.valueOf(marker));
+        }
+        return fwdMarkerArray[start + marker];
     }
 
     /**
@@ -277,7 +388,7 @@ public final class Markers {
      * @return the list of markers
      */
     public Marker[] markers() {
-        return fwdMarkerArray.clone();
+        return Arrays.copyOfRange(fwdMarkerArray, start, start + nMarkers);
     }
 
     /**
@@ -291,12 +402,18 @@ public final class Markers {
      * is an element in the list of markers represented by {@code this}
      */
     public boolean contains(Marker marker) {
-        return markerSet.contains(marker);
+        Set<Marker> set = markerSet;
+        if (set==null) {
+            set = new HashSet<>(Arrays.asList(markers()));
+            markerSet = set;
+        }
+        return set.contains(marker);
     }
 
     /**
      * Returns a {@code Markers} instance that represents
-     * the specified range of marker indices.
+     * the specified range of marker indices.  The returned instance shares
+     * the marker arrays of {@code this}.
      * @param start the starting marker index (inclusive)
      * @param end the ending marker index (exclusive)
      * @return a {@code Markers} instance that represents
@@ -304,13 +421,29 @@ public final class Markers {
      *
      * @throws IndexOutOfBoundsException if
      * {@code start < 0 || end > this.nMarkers()}
-     * @throws IllegalArgumentException if {@code start >= end}.
+     * @throws IllegalArgumentException if {@code start > end}.
      */
     public Markers restrict(int start, int end) {
-        if (end > fwdMarkerArray.length) {
+        if (start < 0) {
+            throw new IndexOutOfBoundsException("start < 0: " + start);
+        }
+        if (end > nMarkers) {
             throw new IndexOutOfBoundsException("end > this.nMarkers(): " + end);
         }
-        return new Markers(Arrays.copyOfRange(fwdMarkerArray, start, end));
+        if (start > end) {
+            throw new IllegalArgumentException("start > end: " + start);
+        }
+        if (start==0 && end==nMarkers) {
+            return this;
+        }
+        return new Markers(this, start, end);
+    }
+
+    private int checkSumIndex(int marker) {
+        if (marker < 0 || marker > nMarkers) {
+            throw new IndexOutOfBoundsException(String.valueOf(marker));
+        }
+        return start + marker;
     }
 
     /**
@@ -323,7 +456,7 @@ public final class Markers {
      * {@code marker < 0 || marker > this.nMarkers()}
      */
     public int sumAlleles(int marker) {
-        return fwdSumAlleles[marker];
+        return fwdSumAlleles[checkSumIndex(marker)] - fwdSumAlleles[start];
     }
 
     /**
@@ -331,7 +464,7 @@ public final class Markers {
      * @return {@code this.sumAlleles(this.nMarkers())}
      */
     public int sumAlleles() {
-        return fwdSumAlleles[fwdMarkerArray.length];
+        return fwdSumAlleles[start + nMarkers] - fwdSumAlleles[start];
     }
 
     /**
@@ -344,7 +477,7 @@ public final class Markers {
      * {@code marker < 0 || marker > this.nMarkers()}
      */
     public int sumGenotypes(int marker) {
-        return fwdSumGenotypes[marker];
+        return fwdSumGenotypes[checkSumIndex(marker)] - fwdSumGenotypes[start];
     }
 
     /**
@@ -352,7 +485,7 @@ public final class Markers {
      * @return {@code this.sumGenotypes(this.nMarkers())}
      */
     public int sumGenotypes() {
-        return fwdSumGenotypes[fwdMarkerArray.length];
+        return fwdSumGenotypes[start + nMarkers] - fwdSumGenotypes[start];
     }
 
     /**
@@ -365,7 +498,8 @@ public final class Markers {
      * {@code marker < 0 || marker > this.nMarkers()}
      */
     public int sumHaplotypeBits(int marker) {
-        return fwdSumHaplotypeBits[marker];
+        return fwdSumHaplotypeBits[checkSumIndex(marker)]
+                - fwdSumHaplotypeBits[start];
     }
 
     /**
@@ -373,7 +507,8 @@ public final class Markers {
      * @return {@code this.sumHaplotypeBits(this.nMarkers())}
      */
     public int sumHaplotypeBits() {
-        return fwdSumHaplotypeBits[fwdMarkerArray.length];
+        return fwdSumHaplotypeBits[start + nMarkers]
+                - fwdSumHaplotypeBits[start];
     }
 
     /**
@@ -384,6 +519,6 @@ public final class Markers {
      */
     @Override
     public String toString() {
-        return Arrays.toString(fwdMarkerArray);
+        return Arrays.toString(markers());
     }
 }
@@ -66,6 +66,7 @@ public class RefIt implements SampleFileIt<VcfEmission> {
     private final Filter<Marker> markerFilter;
     private final Thread fileReaderThread;
     private volatile boolean stopFileReadingThread = false;
+    private volatile Throwable fileReadingError = null;
 
     private final BlockingQueue<String[]> stringBuffers;
     private final Deque<VcfEmission> emBuffer;
@@ -156,24 +157,32 @@ public class RefIt implements SampleFileIt<VcfEmission> {
 
     private Thread fileReadingThread() {
         Runnable runnable = () -> {
-            String line = readLine(strIt);
-            int bufferSize = stringBufferSize(line);
-            while (line != null && stopFileReadingThread == false) {
-                String chromPlusTab = chromFieldPlusTab(line);
-                String[] sa = new String[bufferSize];
-                int size = 0;
-                while (line != null && size < bufferSize
-                        && line.startsWith(chromPlusTab)) {
-                    sa[size++] = line;
-                    line = readLine(strIt);
+            try {
+                String line = readLine(strIt);
+                int bufferSize = stringBufferSize(line);
+                while (line != null && stopFileReadingThread == false) {
+                    String chromPlusTab = chromFieldPlusTab(line);
+                    String[] sa = new String[bufferSize];
+                    int size = 0;
+                    while (line != null && size < bufferSize
+                            && line.startsWith(chromPlusTab)) {
+                        sa[size++] = line;
+                        line = readLine(strIt);
+                    }
+                    if (size < bufferSize) {
+                        sa = Arrays.copyOf(sa, size);
+                    }
+                    putInBlockingQueue(stringBuffers, sa);
                 }
-                if (size < bufferSize) {
-                    sa = Arrays.copyOf(sa, size);
+                if (stopFileReadingThread == false) {
+                    putInBlockingQueue(stringBuffers, new String[0]);    // sentinel
                 }
-                putInBlockingQueue(stringBuffers, sa);
             }
-            if (stopFileReadingThread == false) {
-                putInBlockingQueue(stringBuffers, new String[0]);    // sentinel
+            catch (Throwable t) {
+                fileReadingError = t;
+                if (stopFileReadingThread == false) {
+                    putInBlockingQueue(stringBuffers, new String[0]);    // sentinel
+                }
             }
         };
         return new Thread(runnable);
@@ -258,6 +267,9 @@ public class RefIt implements SampleFileIt<VcfEmission> {
                 }
             }
             else {
+                if (fileReadingError != null) {
+                    Utilities.exit("ERROR", fileReadingError);
+                }
                 // put sentinel element back
                 putInBlockingQueue(stringBuffers, stringBuffer);
             }
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2026 Beagle contributors
+ *
+ * This file is part of Beagle
+ *
+ * Beagle is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Beagle is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package vcf;
+
+import beagleutil.ChromInterval;
+import beagleutil.Samples;
+import blbutil.FileIt;
+import blbutil.Filter;
+import blbutil.InputIt;
+import blbutil.SampleFileIt;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>Class {@code RefPanel} stores the compressed records of a reference
+ * VCF or bref file in memory so that the reference panel can be used
+ * in multiple analyses without re-reading and re-compressing the
+ * reference file.
+ * </p>
+ * <p>Instances of class {@code RefPanel} are immutable.
+ * </p>
+ */
+public final class RefPanel {
+
+    private final File file;
+    private final Samples samples;
+    private final List<VcfEmission> records;
+    private final Map<Integer, int[]> chromRanges;
+
+    /**
+     * Constructs a new {@code RefPanel} instance from the specified
+     * reference VCF or bref file.  A file whose name ends in ".bref" is
+     * assumed to be a bref file.
+     * @param file a reference VCF or bref file
+     * @param sampleFilter a sample filter or {@code null}.  The sample
+     * filter is ignored if the file is a bref file.
+     * @param nThreads the maximum number of threads that decompress a
+     * BGZIP-compressed reference VCF file
+     * @throws IllegalArgumentException if {@code nThreads < 1}
+     * @throws NullPointerException if {@code file == null}
+     */
+    public RefPanel(File file, Filter<String> sampleFilter, int nThreads) {
+        List<VcfEmission> list = new ArrayList<>();
+        try (SampleFileIt<VcfEmission> it = refIt(file, sampleFilter,
+                nThreads)) {
+            this.samples = it.samples();
+            while (it.hasNext()) {
+                list.add(it.next());
+            }
+        }
+        this.file = file;
+        this.records = Collections.unmodifiableList(list);
+        this.chromRanges = chromRanges(list);
+    }
+
+    /*
+     * Returns a map from chromosome index to the half-open range of
+     * record indices for the chromosome.  Records on a chromosome are
+     * required to be contiguous in a VCF file.
+     */
+    private static Map<Integer, int[]> chromRanges(List<VcfEmission> list) {
+        Map<Integer, int[]> map = new HashMap<>();
+        int start = 0;
+        while (start < list.size()) {
+            int chromIndex = list.get(start).marker().chromIndex();
+            int end = start + 1;
+            while (end < list.size()
+                    && list.get(end).marker().chromIndex()==chromIndex) {
+                ++end;
+            }
+            map.put(chromIndex, new int[] {start, end});
+            start = end;
+        }
+        return map;
+    }
+
+    private static SampleFileIt<VcfEmission> refIt(File file,
+            Filter<String> sampleFilter, int nThreads) {
+        Filter<Marker> markerFilter = Filter.acceptAllFilter();
+        if (file.toString().endsWith(".bref")) {
+            return new BrefIt(file, markerFilter);
+        }
+        else {
+            FileIt<String> it = InputIt.fromGzipFile(file,
+                    InputIt.DEFAULT_BUFFER_SIZE, nThreads);
+            return RefIt.create(it, sampleFilter, markerFilter,
+                    RefIt.DEFAULT_EM_BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Returns the reference file.
+     * @return the reference file
+     */
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Returns the reference samples.
+     * @return the reference samples
+     */
+    public Samples samples() {
+        return samples;
+    }
+
+    /**
+     * Returns the number of stored reference records.
+     * @return the number of stored reference records
+     */
+    public int nRecords() {
+        return records.size();
+    }
+
+    /**
+     * Returns an iterator over the stored reference records that are
+     * accepted by the specified marker filter.  The {@code close()}
+     * method of the returned iterator has no effect.
+     * @param markerFilter a marker filter or {@code null}
+     * @return an iterator over the stored reference records
+     */
+    public SampleFileIt<VcfEmission> iterator(Filter<Marker> markerFilter) {
+        return iterator(0, records.size(), markerFilter);
+    }
+
+    /**
+     * Returns an iterator over the stored reference records in the
+     * specified chromosome interval that are accepted by the specified
+     * marker filter.  Records outside the chromosome interval are not
+     * examined.  The {@code close()} method of the returned iterator
+     * has no effect.
+     * @param interval a chromosome interval
+     * @param markerFilter a marker filter or {@code null}
+     * @return an iterator over the stored reference records in the
+     * specified chromosome interval
+     * @throws NullPointerException if {@code interval == null}
+     */
+    public SampleFileIt<VcfEmission> iterator(ChromInterval interval,
+            Filter<Marker> markerFilter) {
+        int[] range = chromRanges.get(interval.chromIndex());
+        if (range==null) {
+            return iterator(0, 0, markerFilter);
+        }
+        int start = firstIndex(range[0], range[1], interval.start());
+        int end = firstIndex(start, range[1], interval.end() + 1L);
+        return iterator(start, end, markerFilter);
+    }
+
+    /*
+     * Returns the smallest index in [start, end) whose record position is
+     * greater than or equal to the specified position, or returns end if
+     * there is no such index.
+     */
+    private int firstIndex(int start, int end, long pos) {
+        int low = start;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (records.get(mid).marker().pos() < pos) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private SampleFileIt<VcfEmission> iterator(int start, int end,
+            Filter<Marker> markerFilter) {
+        Filter<Marker> filter = markerFilter==null ? Filter.acceptAllFilter()
+                : markerFilter;
+        return new SampleFileIt<VcfEmission>() {
+
+            private int index = nextIndex(start);
+
+            private int nextIndex(int i) {
+                while (i < end
+                        && filter.accept(records.get(i).marker())==false) {
+                    ++i;
+                }
+                return i;
+            }
+
+            @Override
+            public Samples samples() {
+                return samples;
+            }
+
+            @Override
+            public File file() {
+                return file;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return index < end;
+            }
+
+            @Override
+            public VcfEmission next() {
+                if (hasNext()==false) {
+                    throw new NoSuchElementException();
+                }
+                VcfEmission em = records.get(index);
+                index = nextIndex(index + 1);
+                return em;
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public String toString() {
+                return RefPanel.class.toString() + " : " + file;
+            }
+        };
+    }
+}
@@ -140,6 +140,22 @@ public class SeqCodedRefGT implements VcfEmission {
         return this.marker().nAlleles();
     }
 
+    /**
+     * Returns the number of distinct allele sequences.
+     * @return the number of distinct allele sequences
+     */
+    public int nSeq() {
+        return seqToAllele.size();
+    }
+
+    /*
+     * Returns the array mapping haplotype index to allele sequence index.
+     * The returned array may be shared by consecutive markers.
+     */
+    IntArray hapToSeq() {
+        return hapToSeq;
+    }
+
     @Override
     public boolean storesNonMajorIndices() {
         return false;
@@ -172,6 +172,11 @@ public class TargetData implements Data {
         return 0;
     }
 
+    @Override
+    public long refBytes() {
+        return 0L;
+    }
+
     @Override
     public Samples refSamples() {
         return null;
@@ -32,6 +32,11 @@ import java.util.List;
  * Compression is performed by storing the list of distinct allele sequences
  * and the allele sequence carried by each haplotype.
  * </p>
+ * <p>The allele sequences of diallelic markers are refined using
+ * 64-bit words of haplotype alleles.  If the allele sequences that carry
+ * the minor allele are not split by the minor allele, only the haplotypes
+ * carrying the minor allele are examined.
+ * </p>
  * <p>Class {@code VcfEmissionCompressor} is not thread-safe.
  * </p>
  *
@@ -47,6 +52,13 @@ public class VcfEmissionCompressor {
     private final List<IntList> sequences;
     private final IntList copiedSeqToSrcSeq;
 
+    private final int[] seqFirstHap;
+    private final int[] seqSize;
+    private final int[] seqAllele;
+    private final int[] seqCount;
+    private final int[] splitSeq;
+    private final IntList movedHaps;
+
     private int nSeq;
 
     /**
@@ -72,6 +84,13 @@ public class VcfEmissionCompressor {
         this.sequences = new ArrayList<>(100);
         this.alleleToSeqList = new ArrayList<>(100);
         this.copiedSeqToSrcSeq = new IntList(50);
+        int maxNSeq = Math.max(capacity, 1);
+        this.seqFirstHap = new int[maxNSeq];
+        this.seqSize = new int[maxNSeq];
+        this.seqAllele = new int[maxNSeq];
+        this.seqCount = new int[maxNSeq];
+        this.splitSeq = new int[maxNSeq];
+        this.movedHaps = new IntList(100);
         clear();
     }
 
@@ -112,6 +131,146 @@ public class VcfEmissionCompressor {
         if (inconsistentChrom(em) || em.marker().nAlleles() > capacity) {
             return false;
         }
+        boolean success = (em.marker().nAlleles()==2 && hapToSeq.length>0)
+                ? addDiallelic(em) : addMultiallelic(em);
+        if (success) {
+            markers.add(em.marker());
+        }
+        return success;
+    }
+
+    private boolean addDiallelic(VcfEmission em) {
+        long[] bits = hapBits(em);
+        int nHaps = hapToSeq.length;
+        int nOnes = 0;
+        for (long word : bits) {
+            nOnes += Long.bitCount(word);
+        }
+        int minorAllele = nOnes <= (nHaps - nOnes) ? 1 : 0;
+        int nMinor = minorAllele==1 ? nOnes : (nHaps - nOnes);
+        for (int s=0; s<nSeq; ++s) {
+            seqAllele[s] = bit(bits, seqFirstHap[s]);
+            seqCount[s] = 0;
+            splitSeq[s] = -1;
+        }
+        movedHaps.clear();
+        if ((8*nMinor > nHaps) || addSparseMovedHaps(bits, minorAllele)==false) {
+            addAllMovedHaps(bits);
+        }
+        int nNewSeq = 0;
+        for (int j=0, n=movedHaps.size(); j<n; ++j) {
+            int seq = hapToSeq[movedHaps.get(j)];
+            if (splitSeq[seq] == -1) {
+                splitSeq[seq] = 0;
+                ++nNewSeq;
+            }
+        }
+        if (nSeq + nNewSeq > capacity) {
+            return false;
+        }
+        for (int s=0; s<nSeq; ++s) {
+            sequences.get(s).add(seqAllele[s]);
+            splitSeq[s] = -1;
+        }
+        for (int j=0, n=movedHaps.size(); j<n; ++j) {
+            int hap = movedHaps.get(j);
+            int seq = hapToSeq[hap];
+            if (splitSeq[seq] == -1) {
+                addCopyOfSequence(seq);
+                sequences.get(nSeq - 1).add(1 - seqAllele[seq]);
+                seqFirstHap[nSeq - 1] = hap;
+                splitSeq[seq] = nSeq - 1;
+            }
+            hapToSeq[hap] = splitSeq[seq];
+            --seqSize[seq];
+            ++seqSize[splitSeq[seq]];
+        }
+        return true;
+    }
+
+    private static long[] hapBits(VcfEmission em) {
+        if (em instanceof BitSetRefGT) {
+            return ((BitSetRefGT) em).hapBits();
+        }
+        int nHaps = em.nHaps();
+        long[] bits = new long[(nHaps + Long.SIZE - 1) / Long.SIZE];
+        if (em.storesNonMajorIndices()) {
+            if (em.majorAllele()==1) {
+                for (int h=0; h<nHaps; ++h) {
+                    bits[h >> 6] |= (1L << h);
+                }
+            }
+            int allele = 1 - em.majorAllele();
+            for (int c=0, n=em.alleleCount(allele); c<n; ++c) {
+                int h = em.hapIndex(allele, c);
+                bits[h >> 6] ^= (1L << h);
+            }
+        }
+        else {
+            for (int h=0; h<nHaps; ++h) {
+                if (em.allele(h)==1) {
+                    bits[h >> 6] |= (1L << h);
+                }
+            }
+        }
+        return bits;
+    }
+
+    private static int bit(long[] bits, int hap) {
+        return (int) (bits[hap >> 6] >>> hap) & 1;
+    }
+
+    /*
+     * Adds the haplotypes that change allele sequence to movedHaps and
+     * returns true if only haplotypes carrying the minor allele change
+     * allele sequence.  Otherwise returns false without adding any
+     * haplotypes to movedHaps.
+     */
+    private boolean addSparseMovedHaps(long[] bits, int minorAllele) {
+        for (int w=0; w<bits.length; ++w) {
+            long word = minorWord(bits, w, minorAllele);
+            while (word != 0) {
+                int hap = (w << 6) + Long.numberOfTrailingZeros(word);
+                ++seqCount[hapToSeq[hap]];
+                word &= (word - 1);
+            }
+        }
+        for (int s=0; s<nSeq; ++s) {
+            if (seqAllele[s]==minorAllele && seqCount[s]!=seqSize[s]) {
+                return false;
+            }
+        }
+        for (int w=0; w<bits.length; ++w) {
+            long word = minorWord(bits, w, minorAllele);
+            while (word != 0) {
+                int hap = (w << 6) + Long.numberOfTrailingZeros(word);
+                if (seqAllele[hapToSeq[hap]] != minorAllele) {
+                    movedHaps.add(hap);
+                }
+                word &= (word - 1);
+            }
+        }
+        return true;
+    }
+
+    private long minorWord(long[] bits, int w, int minorAllele) {
+        long word = minorAllele==1 ? bits[w] : ~bits[w];
+        int nRemaining = hapToSeq.length - (w << 6);
+        if (nRemaining < Long.SIZE) {
+            word &= (1L << nRemaining) - 1;
+        }
+        return word;
+    }
+
+    private void addAllMovedHaps(long[] bits) {
+        for (int hap=0; hap<hapToSeq.length; ++hap) {
+            if (bit(bits, hap) != seqAllele[hapToSeq[hap]]) {
+                movedHaps.add(hap);
+            }
+        }
+    }
+
+    private boolean addMultiallelic(VcfEmission em) {
         boolean success = true;
         int startNSeq = nSeq;
         for (int j=0; j<nSeq; ++j) {
@@ -121,10 +280,7 @@ public class VcfEmissionCompressor {
         for (int h=0; h<hapToSeq.length && success; ++h) {
             success = addHaplotype(em, h);
         }
-        if (success) {
-            markers.add(em.marker());
-        }
-        else {
+        if (success==false) {
             rollBackChanges(startNSeq);
         }
         return success;
@@ -166,12 +322,17 @@ public class VcfEmissionCompressor {
                 else {
                     addCopyOfSequence(seq);
                     sequences.get(nSeq - 1).add(allele);
+                    seqFirstHap[nSeq - 1] = hap;
                     alleleToSeq.add(allele);
                     alleleToSeq.add(nSeq - 1);
                     copiedSeqToSrcSeq.add(seq);
                 }
             }
             hapToSeq[hap] = alleleToSeq.get(index+1);
+            if (hapToSeq[hap] != seq) {
+                --seqSize[seq];
+                ++seqSize[hapToSeq[hap]];
+            }
         }
         return true;
     }
@@ -183,6 +344,7 @@ public class VcfEmissionCompressor {
         for (int h=0; h<hapToSeq.length; ++h) {
             if (hapToSeq[h] >= startNSeq) {
                 hapToSeq[h] = copiedSeqToSrcSeq.get(hapToSeq[h] - startNSeq);
+                ++seqSize[hapToSeq[h]];
             }
         }
     }
@@ -278,11 +440,14 @@ public class VcfEmissionCompressor {
         copiedSeqToSrcSeq.clear();
         nSeq = 0;
         addEmptySequence();
+        seqFirstHap[0] = 0;
+        seqSize[0] = hapToSeq.length;
     }
 
     private void addEmptySequence() {
         alleleToSeqList.add(new IntList(4));
         sequences.add(new IntList(100));
+        seqSize[nSeq] = 0;
         ++nSeq;
     }
 
@@ -59,6 +59,7 @@ public class VcfIt<E extends MarkerContainer> implements SampleFileIt<E> {
     private final Filter<Marker> markerFilter;
     private final Thread fileReaderThread;
     private volatile boolean stopFileReadingThread = false;
+    private volatile Throwable fileReadingError = null;
 
     private final BlockingQueue<String[]> stringBuffers;
     private final Deque<E> emBuffer;
@@ -221,24 +222,32 @@ public class VcfIt<E extends MarkerContainer> implements SampleFileIt<E> {
 
     private Thread fileReadingThread() {
         Runnable runnable = () -> {
-            String line = readLine(it);
-            int bufferSize = stringBufferSize(line);
-            while (line != null && stopFileReadingThread == false) {
-                String chromPlusTab = chromFieldPlusTab(line);
-                String[] sa = new String[bufferSize];
-                int size = 0;
-                while (line != null && size < bufferSize
-                        && line.startsWith(chromPlusTab)) {
-                    sa[size++] = line;
-                    line = readLine(it);
+            try {
+                String line = readLine(it);
+                int bufferSize = stringBufferSize(line);
+                while (line != null && stopFileReadingThread == false) {
+                    String chromPlusTab = chromFieldPlusTab(line);
+                    String[] sa = new String[bufferSize];
+                    int size = 0;
+                    while (line != null && size < bufferSize
+                            && line.startsWith(chromPlusTab)) {
+                        sa[size++] = line;
+                        line = readLine(it);
+                    }
+                    if (size < bufferSize) {
+                        sa = Arrays.copyOf(sa, size);
+                    }
+                    putInBlockingQueue(stringBuffers, sa);
                 }
-                if (size < bufferSize) {
-                    sa = Arrays.copyOf(sa, size);
+                if (stopFileReadingThread == false) {
+                    putInBlockingQueue(stringBuffers, new String[0]);    // sentinel
                 }
-                putInBlockingQueue(stringBuffers, sa);
             }
-            if (stopFileReadingThread == false) {
-                putInBlockingQueue(stringBuffers, new String[0]);    // sentinel
+            catch (Throwable t) {
+                fileReadingError = t;
+                if (stopFileReadingThread == false) {
+                    putInBlockingQueue(stringBuffers, new String[0]);    // sentinel
+                }
             }
         };
         return new Thread(runnable);
@@ -308,6 +317,9 @@ public class VcfIt<E extends MarkerContainer> implements SampleFileIt<E> {
                 emBuffer.addAll(list);
             }
             else {
+                if (fileReadingError != null) {
+                    Utilities.exit("ERROR", fileReadingError);
+                }
                 // put sentinel element back
                 putInBlockingQueue(stringBuffers, stringBuffer);
             }
@@ -19,9 +19,12 @@
 package vcf;
 
 import blbutil.Const;
-import java.io.PrintWriter;
+import blbutil.Utilities;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.util.Arrays;
 
@@ -30,7 +33,11 @@ import java.util.Arrays;
  * and printing a VCF record in VCF 4.2 format.  The FORMAT field data
  * for each sample is added sequentially to the record via the
  * {@code addSampleData()} method.
- *
+ * </p>
+ * <p>The VCF record is rendered directly into a reusable byte buffer
+ * using precomputed byte representations of the genotype and of the
+ * rounded DS and GP values, so that no objects are created when sample
+ * data is added.
  * </p>
  * <p>Instances of class {@code VcfRecBuilder} are not thread-safe.
  * </p>
@@ -40,8 +47,8 @@ import java.util.Arrays;
 public final class VcfRecBuilder {
 
     /**
-     * The default initial size for the string buffer, which is 50
-     * characters.
+     * The default initial size for the byte buffer, which is 50
+     * bytes.
      */
     public static final int DEFAULT_INIT_SIZE = 50;
 
@@ -50,10 +57,18 @@ public final class VcfRecBuilder {
     private static final String[] DS_VALS = dsProbs();
     private static final String[] R2_VALS = r2Probs(DS_VALS);
 
-    private final StringBuilder sb;
+    private static final int N_TABLE_ALLELES = 10;
+    private static final byte[][] DS_BYTES = toBytes(DS_VALS);
+    private static final byte[][][] PHASED_GT = gtBytes(Const.phasedSep);
+    private static final byte[][][] UNPHASED_GT = gtBytes(Const.unphasedSep);
+    private static final byte[] NL = Const.nl.getBytes(StandardCharsets.US_ASCII);
+
     private final R2Estimator r2Est;
     private final double[] gt3Probs;
 
+    private byte[] buf;
+    private int size;
+
     private Marker marker;
     private boolean printDS;
     private boolean printGP;
@@ -61,9 +76,9 @@ public final class VcfRecBuilder {
     private int nGenotypes;
     private int allele1;
     private int allele2;
-    private double[] gtProbs;
-    private double[] dose;
-    private double[] cumAlleleProbs;
+    private double[] gtProbs = new double[0];
+    private double[] dose = new double[0];
+    private double[] cumAlleleProbs = new double[0];
 
     private static String[] dsProbs() {
         DecimalFormat df = new DecimalFormat("#.##");
@@ -85,6 +100,29 @@ public final class VcfRecBuilder {
         return probs;
     }
 
+    private static byte[][] toBytes(String[] sa) {
+        byte[][] ba = new byte[sa.length][];
+        for (int j=0; j<sa.length; ++j) {
+            ba[j] = sa[j].getBytes(StandardCharsets.US_ASCII);
+        }
+        return ba;
+    }
+
+    /*
+     * Returns the bytes for the tab-delimited GT subfield for each pair of
+     * alleles with index less than {@code N_TABLE_ALLELES}.
+     */
+    private static byte[][][] gtBytes(char sep) {
+        byte[][][] gt = new byte[N_TABLE_ALLELES][N_TABLE_ALLELES][];
+        for (int a1=0; a1<N_TABLE_ALLELES; ++a1) {
+            for (int a2=0; a2<N_TABLE_ALLELES; ++a2) {
+                String s = Const.tab + String.valueOf(a1) + sep + a2;
+                gt[a1][a2] = s.getBytes(StandardCharsets.US_ASCII);
+            }
+        }
+        return gt;
+    }
+
     /**
      * Constructs a new {@code VcfRecBuilder} instance with initial buffer
      * size equal to {@code VcfRecBuilder.DEFAULT_INIT_SIZE}.
@@ -101,7 +139,7 @@ public final class VcfRecBuilder {
      * @throws NegativeArraySizeException if {@code initCapacity < 0}
      */
     public VcfRecBuilder(int initSize) {
-        this.sb = new StringBuilder(initSize);
+        this.buf = new byte[initSize];
         this.r2Est = new R2Estimator();
         this.gt3Probs = new double[3];
     }
@@ -119,7 +157,7 @@ public final class VcfRecBuilder {
      * @throws NullPointerException if {@code marker == null}
      */
     public void reset(Marker marker, boolean printDS, boolean printGP) {
-        this.sb.setLength(0);
+        this.size = 0;
         this.r2Est.clear();
         this.marker = marker;
         this.printDS = printDS;
@@ -128,9 +166,16 @@ public final class VcfRecBuilder {
         this.allele2 = -1;
         this.nAlleles = marker.nAlleles();
         this.nGenotypes = marker.nGenotypes();
-        this.gtProbs = new double[marker.nGenotypes()];
-        this.cumAlleleProbs = new double[marker.nAlleles()];
-        this.dose = new double[marker.nAlleles()];
+        if (gtProbs.length != nGenotypes) {
+            this.gtProbs = new double[nGenotypes];
+        }
+        if (dose.length != nAlleles) {
+            this.cumAlleleProbs = new double[nAlleles];
+            this.dose = new double[nAlleles];
+        }
+        else {
+            Arrays.fill(cumAlleleProbs, 0.0);
+        }
     }
 
     /**
@@ -285,67 +330,117 @@ public final class VcfRecBuilder {
     }
 
     private void appendFormatData(boolean isPhased) {
-        sb.append(Const.tab);
-        sb.append(allele1);
-        sb.append(isPhased ? Const.phasedSep : Const.unphasedSep);
-        sb.append(allele2);
+        ensureCapacity(8*(nAlleles + nGenotypes));
+        if (allele1 < N_TABLE_ALLELES && allele2 < N_TABLE_ALLELES) {
+            byte[][][] gtTable = isPhased ? PHASED_GT : UNPHASED_GT;
+            append(gtTable[allele1][allele2]);
+        }
+        else {
+            append(Const.tab);
+            append(String.valueOf(allele1));
+            append(isPhased ? Const.phasedSep : Const.unphasedSep);
+            append(String.valueOf(allele2));
+        }
         if (printDS) {
             for (int j=1; j<nAlleles; ++j) {
-                sb.append( (j==1) ? Const.colon : Const.comma );
-                sb.append(DS_VALS[(int) Math.rint(100*dose[j])]);
+                buf[size++] = (byte) ((j==1) ? Const.colon : Const.comma);
+                append(DS_BYTES[(int) Math.rint(100*dose[j])]);
             }
         }
         if (printGP) {
             for (int j=0; j<gtProbs.length; ++j) {
-                sb.append(j==0? Const.colon : Const.comma);
-                sb.append(DS_VALS[(int) Math.rint(100*gtProbs[j])]);
+                buf[size++] = (byte) ((j==0) ? Const.colon : Const.comma);
+                append(DS_BYTES[(int) Math.rint(100*gtProbs[j])]);
+            }
+        }
+    }
+
+    private void ensureCapacity(int nBytes) {
+        if (size + nBytes > buf.length) {
+            int newLength = Math.max(buf.length + (buf.length >> 1),
+                    size + nBytes);
+            buf = Arrays.copyOf(buf, newLength);
+        }
+    }
+
+    private void append(byte[] ba) {
+        ensureCapacity(ba.length);
+        System.arraycopy(ba, 0, buf, size, ba.length);
+        size += ba.length;
+    }
+
+    private void append(char c) {
+        ensureCapacity(1);
+        buf[size++] = (byte) c;
+    }
+
+    private void append(String s) {
+        int n = s.length();
+        ensureCapacity(n);
+        for (int j=0; j<n; ++j) {
+            char c = s.charAt(j);
+            if (c >= 0x80) {
+                append(s.substring(j).getBytes(StandardCharsets.UTF_8));
+                return;
             }
+            buf[size++] = (byte) c;
         }
     }
 
     /**
-     * Prints the current VCF record for the current marker to the specified
-     * {@code PrintWriter}.  If the FORMAT field contains a DS or GP subfield,
+     * Writes the current VCF record for the current marker to the specified
+     * {@code OutputStream}.  If the FORMAT field contains a DS or GP subfield,
      * the INFO field will include the AR2 (allele r2), DR2 (dose r2), and
      * AF (ALT allele frequency) subfields.  Invocation of this method has
      * no effect if {@code this.reset()} has not previously been invoked.
-     * @param out the {@code PrintWriter} to which the VCF record will be
-     * printed
+     * The Java Virtual Machine will exit with an error message if an I/O
+     * error occurs.
+     * @param out the {@code OutputStream} to which the VCF record will be
+     * written
      * @param isImputed {@code true} if the printed VCF record will
      * have an IMP flag in the INFO field and {@code false} otherwise
      * @throws NullPointerException if {@code out == null}
      */
-    public void writeRec(PrintWriter out, boolean isImputed) {
+    public void writeRec(OutputStream out, boolean isImputed) {
         if (marker!=null) {
-            printMarker(marker, out);
-            out.print(Const.tab);
-            out.print(Const.MISSING_DATA_CHAR);     // QUAL
-            out.print(Const.tab);
-            out.print("PASS");                      // FILTER
-            out.print(Const.tab);
-            printInfo(out, isImputed);              // INFO
-            out.print(Const.tab);
-            out.print(format(printDS, printGP));    // FORMAT
-            out.println(sb);
+            int formatEnd = size;
+            appendMarker(marker);
+            append(Const.tab);
+            append(Const.MISSING_DATA_CHAR);        // QUAL
+            append(Const.tab);
+            append("PASS");                         // FILTER
+            append(Const.tab);
+            appendInfo(isImputed);                  // INFO
+            append(Const.tab);
+            append(format(printDS, printGP));       // FORMAT
+            try {
+                out.write(buf, formatEnd, size - formatEnd);
+                out.write(buf, 0, formatEnd);
+                out.write(NL);
+            }
+            catch (IOException e) {
+                Utilities.exit("Error writing VCF record", e);
+            }
+            size = formatEnd;
         }
     }
 
-    private void printInfo(PrintWriter out, boolean isImputed) {
+    private void appendInfo(boolean isImputed) {
         if (printDS || printGP) {
-            out.print("AR2=");
-            out.print(R2_VALS[(int) Math.rint(100*r2Est.allelicR2())]);
-            out.print(";DR2=");
-            out.print(R2_VALS[(int) Math.rint(100*r2Est.doseR2())]);
+            append("AR2=");
+            append(R2_VALS[(int) Math.rint(100*r2Est.allelicR2())]);
+            append(";DR2=");
+            append(R2_VALS[(int) Math.rint(100*r2Est.doseR2())]);
             for (int j=1; j<nAlleles; ++j) {
-                out.print( (j==1) ? ";AF=" : Const.comma);
-                out.print(formatProb(cumAlleleProbs[j]/(2*r2Est.nGenotypes())));
+                append( (j==1) ? ";AF=" : String.valueOf(Const.comma));
+                append(formatProb(cumAlleleProbs[j]/(2*r2Est.nGenotypes())));
             }
             if (isImputed) {
-                out.print(";IMP");
+                append(";IMP");
             }
         }
         else {
-            out.print(Const.MISSING_DATA_CHAR);
+            append(Const.MISSING_DATA_CHAR);
         }
     }
 
@@ -358,37 +453,37 @@ public final class VcfRecBuilder {
         }
     }
 
-    private static void printMarker(Marker marker, PrintWriter out) {
-        out.print(marker.chrom());
-        out.print(Const.tab);
-        out.print(marker.pos());
+    private void appendMarker(Marker marker) {
+        append(marker.chrom());
+        append(Const.tab);
+        append(String.valueOf(marker.pos()));
         int nIds = marker.nIds();
         if (nIds==0) {
-            out.print(Const.tab);
-            out.print(Const.MISSING_DATA_CHAR);
+            append(Const.tab);
+            append(Const.MISSING_DATA_CHAR);
         }
         else {
             for (int j=0; j<nIds; ++j) {
-                out.print(j==0 ? Const.tab : Const.semicolon);
-                out.print(marker.id(j));
+                append(j==0 ? Const.tab : Const.semicolon);
+                append(marker.id(j));
             }
         }
         int nAlleles = marker.nAlleles();
         if (nAlleles==1) {
-            out.print(Const.tab);
-            out.print(marker.allele(0));
-            out.print(Const.tab);
-            out.print(Const.MISSING_DATA_CHAR);
+            append(Const.tab);
+            append(marker.allele(0));
+            append(Const.tab);
+            append(Const.MISSING_DATA_CHAR);
         }
         else {
             for (int j=0; j<nAlleles; ++j) {
-                out.print(j<2 ? Const.tab : Const.comma);
-                out.print(marker.allele(j));
+                append(j<2 ? Const.tab : Const.comma);
+                append(marker.allele(j));
             }
         }
     }
 
-    private static String formatProb(double p) {
+    static String formatProb(double p) {
         if (p>=0 && p <= 0.5) {
             return new BigDecimal(p).round(MC2).toString();
         }
@@ -2,6 +2,7 @@
 package vcf;
 
 import blbutil.Const;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
@@ -21,6 +22,9 @@ public final class VcfWriter {
 
     private static final String fileformat = "##fileformat=VCFv4.2";
 
+    private static final String passFilter = "##FILTER=<ID=PASS,"
+            + "Description=\"All filters passed\">";
+
     private static final String afInfo = "##INFO=<ID=AF,Number=A,Type=Float,"
             + "Description=\"Estimated ALT Allele Frequencies\">";
     private static final String ar2Info = "##INFO=<ID=AR2,Number=1,Type=Float,"
@@ -96,6 +100,39 @@ public final class VcfWriter {
      */
     public static void writeMetaLines(String[] sampleIds, String source,
             boolean printGT, boolean printGP, boolean printGL, PrintWriter out) {
+        String[] chromIds = null;
+        writeMetaLines(sampleIds, source, chromIds, printGT, printGP, printGL,
+                out);
+    }
+
+    /**
+     * Writes VCF meta-information lines and header line to the specified
+     * {@code PrintWriter}.  If {@code chromIds != null}, the
+     * meta-information lines will include a FILTER line for the PASS filter
+     * followed by a contig line for each chromosome identifier, so that
+     * the PASS filter and the {@code k}-th chromosome identifier have
+     * dictionary index 0 and {@code k} respectively in a BCF2 file.
+     * @param sampleIds the sample identifiers
+     * @param source a description of the data source, or {@code null} if
+     * no description is to be printed
+     * @param chromIds the chromosome identifiers, or {@code null} if
+     * no FILTER and contig lines are to be printed
+     * @param printGT {@code true} if the meta-information lines
+     * will describe the GT FORMAT subfield and {@code false} otherwise
+     * @param printGP {@code true} if the meta-information lines
+     * will describe the GP FORMAT subfield and {@code false} otherwise
+     * @param printGL {@code true} if the meta-information lines
+     * will describe the GL FORMAT subfield and {@code false} otherwise
+     * @param out the {@code PrintWriter} to which VCF meta-information lines
+     * will be written.
+     * @throws NullPointerException if {@code out == null}
+     * @throws NullPointerException if
+     * {@code sampleIds == null}, or if {@code sampleIds[j] == null} for any
+     * {@code j} satisfying {@code (0 <= j && j < sampleIds.length)}
+     */
+    public static void writeMetaLines(String[] sampleIds, String source,
+            String[] chromIds, boolean printGT, boolean printGP,
+            boolean printGL, PrintWriter out) {
         out.print(fileformat);
         out.print(Const.nl);
         out.print("##filedate=");
@@ -106,6 +143,16 @@ public final class VcfWriter {
             out.print(source);
             out.println("\"");
         }
+        if (chromIds != null) {
+            out.println(passFilter);
+            for (int j=0; j<chromIds.length; ++j) {
+                out.print("##contig=<ID=");
+                out.print(chromIds[j]);
+                out.print(",IDX=");
+                out.print(j);
+                out.println(">");
+            }
+        }
         if (printGP) {
             out.println(afInfo);
             out.println(ar2Info);
@@ -142,11 +189,11 @@ public final class VcfWriter {
 
     /**
      * Writes the specified genotype data  as VCF records to the specified
-     * {@code PrintWriter}.
+     * {@code OutputStream}.
      * @param gv the scaled sample posterior genotype probabilities
      * @param start the starting marker index (inclusive)
      * @param end the ending marker index (exclusive)
-     * @param out the {@code PrintWriter} to which VCF records will
+     * @param out the {@code OutputStream} to which VCF records will
      * be written.
      *
      * @throws IllegalArgumentException if
@@ -157,7 +204,7 @@ public final class VcfWriter {
      * {@code (gv == null || out == null)}
      */
     public static void appendRecords(GenotypeValues gv, int start, int end,
-            PrintWriter out) {
+            OutputStream out) {
         if (start > end) {
             throw new IllegalArgumentException("start=" + start + " end=" + end);
         }
@@ -165,17 +212,22 @@ public final class VcfWriter {
         boolean printGP = true;
         boolean isImputed = false;
         VcfRecBuilder vrb = new VcfRecBuilder(12*gv.nSamples());
+        double[] buffer = new double[3];
         for (int m=start; m<end; ++m) {
             Marker marker = gv.marker(m);
             vrb.reset(marker, printDS, printGP);
-            double[] gprobs = new double[marker.nGenotypes()];
+            int nGenotypes = marker.nGenotypes();
+            if (buffer.length != nGenotypes) {
+                buffer = new double[nGenotypes];
+            }
+            double[] gprobs = buffer;
             for (int s=0, n=gv.nSamples(); s<n; ++s) {
+                gv.values(m, s, gprobs);
                 double sum = 0.0;
-                for (int gt=0; gt<gprobs.length; ++gt) {
-                    gprobs[gt] = gv.value(m, s, gt);
+                for (int gt=0; gt<nGenotypes; ++gt) {
                     sum += gprobs[gt];
                 }
-                for (int gt=0; gt<gprobs.length; ++gt) {
+                for (int gt=0; gt<nGenotypes; ++gt) {
                     gprobs[gt] /= sum;
                 }
                 vrb.addSampleData(gprobs);
@@ -187,7 +239,7 @@ public final class VcfWriter {
     /**
      * Writes the data in alProbs for markers with index between
      * {@code start} (inclusive) and {@code end} (exclusive) to the specified
-     * {@code PrintWriter}.
+     * {@code OutputStream}.
      * @param alProbs the estimated haplotype allele probabilities
      * @param isImputed an array of length {@code alProbs.nMarkers()}
      * whose {@code j}-th element is {@code true} if the corresponding
@@ -198,7 +250,7 @@ public final class VcfWriter {
      * {@code false} otherwise
      * @param printGP {@code true} if the GP field should be printed, and
      * {@code false} otherwise
-     * @param out the {@code PrintWriter} to which VCF records will be written
+     * @param out the {@code OutputStream} to which VCF records will be written
      * @throws IllegalArgumentException if
      * {@code isImputed.length != alProbs.nMarkers()}
      * @throws IndexOutOfBoundsException if
@@ -208,7 +260,7 @@ public final class VcfWriter {
      */
     public static void appendRecords(AlleleProbs alProbs, boolean[] isImputed,
             int start, int end, boolean printDS, boolean printGP,
-            PrintWriter out) {
+            OutputStream out) {
         if (isImputed.length != alProbs.nMarkers()) {
             throw new IllegalArgumentException("inconsistent data");
         }
@@ -216,11 +268,15 @@ public final class VcfWriter {
             throw new IllegalArgumentException("start=" + start + " end=" + end);
         }
         VcfRecBuilder vrb = new VcfRecBuilder(4*alProbs.nSamples());
+        double[] a1 = new double[2];
+        double[] a2 = new double[2];
         for (int m=start; m<end; ++m) {
             Marker marker = alProbs.marker(m);
             vrb.reset(marker, printDS, printGP);
-            double[] a1 = new double[marker.nAlleles()];
-            double[] a2 = new double[marker.nAlleles()];
+            if (a1.length != marker.nAlleles()) {
+                a1 = new double[marker.nAlleles()];
+                a2 = new double[marker.nAlleles()];
+            }
             for (int sample=0, n=alProbs.nSamples(); sample<n; ++sample) {
                 for (int j=0; j<a1.length; ++j) {
                     a1[j] = alProbs.alProb1(m, sample, j);
@@ -235,7 +291,7 @@ public final class VcfWriter {
     /**
      * Writes the data in alProbs for markers with index between
      * {@code start} (inclusive) and {@code end} (exclusive) to the specified
-     * {@code PrintWriter}.
+     * {@code OutputStream}.
      * @param alProbs the estimated haplotype allele probabilities
      * @param isImputed an array of length {@code alProbs.nMarkers()}
      * whose {@code j}-th element is {@code true} if the corresponding
@@ -246,7 +302,7 @@ public final class VcfWriter {
      * {@code false} otherwise
      * @param printGP {@code true} if the GP field should be printed, and
      * {@code false} otherwise
-     * @param out the {@code PrintWriter} to which VCF records will be written
+     * @param out the {@code OutputStream} to which VCF records will be written
      * @throws IllegalArgumentException if
      * {@code isImputed.length != alProbs.nMarkers()}
      * @throws IndexOutOfBoundsException if
@@ -256,7 +312,7 @@ public final class VcfWriter {
      */
     public static void blockedAppendRecords(AlleleProbs alProbs,
             boolean[] isImputed, int start, int end,
-            boolean printDS, boolean printGP, PrintWriter out) {
+            boolean printDS, boolean printGP, OutputStream out) {
         if (isImputed.length != alProbs.nMarkers()) {
             throw new IllegalArgumentException("inconsistent data");
         }